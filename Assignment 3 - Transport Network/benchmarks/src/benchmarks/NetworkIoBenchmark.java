@@ -0,0 +1,114 @@
+package benchmarks;
+
+import network.Network;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import routes.Route;
+import stops.Stop;
+import vehicles.PublicTransport;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading and writing network files: loading a whole network,
+ * saving a whole network, and decoding individual stop and vehicle lines.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NetworkIoBenchmark {
+
+    /**
+     * A grid network, along with its saved file and encoded lines.
+     */
+    @State(Scope.Benchmark)
+    public static class Saved {
+        @Param({"16", "36", "64"})
+        public int size;
+
+        Network network;
+        String filename;
+        String output;
+        String[] stopLines;
+        String[] vehicleLines;
+        List<Route> routes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            network = Networks.grid(size);
+            filename = Networks.save(network);
+
+            File file = File.createTempFile("saved", ".txt");
+            file.deleteOnExit();
+            output = file.getPath();
+
+            List<Stop> stops = network.getStops();
+            stopLines = new String[stops.size()];
+            for (int i = 0; i < stopLines.length; i++) {
+                stopLines[i] = stops.get(i).encode();
+            }
+
+            List<PublicTransport> vehicles = network.getVehicles();
+            vehicleLines = new String[vehicles.size()];
+            for (int i = 0; i < vehicleLines.length; i++) {
+                vehicleLines[i] = vehicles.get(i).encode();
+            }
+
+            routes = network.getRoutes();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Network load(Saved state) throws Exception {
+        return new Network(state.filename);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void save(Saved state) throws Exception {
+        state.network.save(state.output);
+    }
+
+    /*
+     * Lines per microsecond decoded.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void decodeStops(Saved state, Blackhole blackhole)
+            throws Exception {
+        for (String line : state.stopLines) {
+            blackhole.consume(Stop.decode(line));
+        }
+    }
+
+    /*
+     * Lines per microsecond decoded. Each decoded vehicle is also added to its
+     * route, as the decode method requires.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void decodeVehicles(Saved state, Blackhole blackhole)
+            throws Exception {
+        for (String line : state.vehicleLines) {
+            blackhole.consume(PublicTransport.decode(line, state.routes));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import network.Network;
+import network.NetworkGenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Builds the networks used by the benchmarks.
+ */
+final class Networks {
+    // the seed for every generated network, so every run measures the same
+    private static final long SEED = 42;
+
+    private Networks() {
+    }
+
+    /*
+     * Builds a grid network with the given number of stops, with a route
+     * along each row and column, and one vehicle on each route.
+     */
+    static Network grid(int size) {
+        return new NetworkGenerator(NetworkGenerator.Layout.GRID, size, SEED)
+                .generate();
+    }
+
+    /*
+     * Saves the given network to a temporary file which is deleted on exit,
+     * returning the name of the file.
+     */
+    static String save(Network network) throws IOException {
+        File file = File.createTempFile("network", ".txt");
+        file.deleteOnExit();
+        network.save(file.getPath());
+        return file.getPath();
+    }
+}
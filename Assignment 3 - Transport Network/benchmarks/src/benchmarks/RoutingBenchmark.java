@@ -0,0 +1,215 @@
+package benchmarks;
+
+import network.Network;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import routing.ModeView;
+import routing.ParallelRebuild;
+import routing.RaptorPlanner;
+import routing.Timetable;
+import routing.TransportMode;
+import routes.Route;
+import stops.Stop;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the routing table operations: synchronising a converged network,
+ * adding a neighbour (which re-synchronises the network), rebuilding every
+ * table in parallel, looking up costs and next stops (in the full network
+ * and in a view restricted to some modes), and planning journeys by time.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RoutingBenchmark {
+
+    /**
+     * A fully routed grid network.
+     */
+    @State(Scope.Benchmark)
+    public static class Routed {
+        @Param({"16", "36", "64"})
+        public int size;
+
+        Stop[] stops;
+        Stop[] sources;
+        Stop[] destinations;
+
+        // a view avoiding ferries, with every source precomputed
+        ModeView view;
+
+        // a planner over trips every 10 time units along each route, both
+        // ways, and the time each lookup is ready to leave
+        RaptorPlanner planner;
+        int[] departures;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            Network network = Networks.grid(size);
+            List<Stop> all = network.getStops();
+            stops = all.toArray(new Stop[0]);
+
+            // a fixed sequence of random lookups, so every run does the same
+            Random random = new Random(42);
+            sources = new Stop[1024];
+            destinations = new Stop[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = stops[random.nextInt(stops.length)];
+                destinations[i] = stops[random.nextInt(stops.length)];
+            }
+
+            view = network.routingView(EnumSet.of(TransportMode.BUS,
+                    TransportMode.TRAIN));
+            view.precompute(all);
+
+            Timetable timetable = new Timetable();
+            for (Route route : network.getRoutes()) {
+                for (int departure = 0; departure < 600; departure += 10) {
+                    timetable.addTrip(route, departure);
+                    timetable.addReturnTrip(route, departure);
+                }
+            }
+            planner = RaptorPlanner.of(timetable);
+            departures = new int[sources.length];
+            for (int i = 0; i < departures.length; i++) {
+                departures[i] = random.nextInt(300);
+            }
+        }
+    }
+
+    /**
+     * A grid network which is rebuilt before each measurement, so a new link
+     * can be added to it exactly once.
+     */
+    @State(Scope.Benchmark)
+    public static class Unlinked {
+        @Param({"16", "36", "64"})
+        public int size;
+
+        Stop corner;
+        Stop opposite;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            List<Stop> stops = Networks.grid(size).getStops();
+            corner = stops.get(0);
+            opposite = stops.get(stops.size() - 1);
+        }
+    }
+
+    /**
+     * A fully routed grid network, and a pool with a given number of threads
+     * to rebuild its tables on.
+     */
+    @State(Scope.Benchmark)
+    public static class Pooled {
+        @Param({"16", "36", "64"})
+        public int size;
+
+        @Param({"1", "2", "4"})
+        public int threads;
+
+        Network network;
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            network = Networks.grid(size);
+            pool = new ForkJoinPool(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void synchronise(Routed state) {
+        state.stops[0].getRoutingTable().synchronise();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public void addNeighbour(Unlinked state) {
+        state.corner.addNeighbouringStop(state.opposite);
+        state.opposite.addNeighbouringStop(state.corner);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void parallelRebuild(Pooled state) {
+        ParallelRebuild.rebuild(state.network.getStops(), state.pool);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void costTo(Routed state, Blackhole blackhole) {
+        for (int i = 0; i < state.sources.length; i++) {
+            blackhole.consume(state.sources[i].getRoutingTable()
+                    .costTo(state.destinations[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void nextStop(Routed state, Blackhole blackhole) {
+        for (int i = 0; i < state.sources.length; i++) {
+            blackhole.consume(state.sources[i].getRoutingTable()
+                    .nextStop(state.destinations[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void modeViewCostTo(Routed state, Blackhole blackhole) {
+        for (int i = 0; i < state.sources.length; i++) {
+            blackhole.consume(state.view.costTo(state.sources[i],
+                    state.destinations[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void earliestArrival(Routed state, Blackhole blackhole) {
+        for (int i = 0; i < state.sources.length; i++) {
+            blackhole.consume(state.planner.earliestArrival(state.sources[i],
+                    state.destinations[i], state.departures[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void earliestArrivalsParallel(Routed state, Blackhole blackhole) {
+        blackhole.consume(state.planner.earliestArrivals(state.sources,
+                state.destinations, state.departures));
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import passengers.Passenger;
+import routes.BusRoute;
+import routes.Route;
+import routes.TrainRoute;
+import stops.Stop;
+import vehicles.PublicTransport;
+import vehicles.Train;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the simulation hot path of a vehicle departing a stop, boarding
+ * the waiting passengers who are routed to its next stop.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SimulationBenchmark {
+
+    /**
+     * A stop on a train line and a bus line, with a train about to depart and
+     * passengers waiting, half of whom are routed along the train line.
+     * Rebuilt before each departure, as departing changes the state.
+     */
+    @State(Scope.Thread)
+    public static class Waiting {
+        @Param({"100", "1000", "10000"})
+        public int passengers;
+
+        Stop stop;
+        Stop nextStop;
+        PublicTransport vehicle;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws Exception {
+            stop = new Stop("origin", 0, 0);
+            nextStop = new Stop("rail", 0, 5);
+            Stop other = new Stop("road", 5, 0);
+
+            Route rail = new TrainRoute("rail", 1);
+            rail.addStop(stop);
+            rail.addStop(nextStop);
+            Route road = new BusRoute("road", 2);
+            road.addStop(stop);
+            road.addStop(other);
+
+            vehicle = new Train(1, passengers, rail, 4);
+            rail.addTransport(vehicle);
+            stop.transportArrive(vehicle);
+
+            for (int i = 0; i < passengers; i++) {
+                stop.addPassenger(new Passenger("p" + i,
+                        i % 2 == 0 ? nextStop : other));
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void transportDepart(Waiting state) {
+        state.stop.transportDepart(state.vehicle, state.nextStop);
+    }
+}
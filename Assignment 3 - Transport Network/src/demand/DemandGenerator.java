@@ -0,0 +1,116 @@
+package demand;
+
+import passengers.ConcessionPassenger;
+import passengers.Passenger;
+import stops.Stop;
+
+import java.util.Random;
+
+/**
+ * Generates passenger demand for a transportation network, by creating
+ * passengers at stops according to an {@link OriginDestinationMatrix}.
+ *
+ * <p>Each generated passenger is placed at the origin of a pair sampled from
+ * the matrix (using {@link Stop#addPassenger(Passenger)}), with the
+ * destination of that pair. A configurable share of the passengers are
+ * {@link ConcessionPassenger}s with valid concession ids.
+ *
+ * <p>Generation is seeded, so two generators created with the same matrix,
+ * seed, and concession share produce exactly the same sequence of passengers.
+ */
+public class DemandGenerator {
+    // the smallest valid concession id
+    private static final int MIN_CONCESSION_ID = 420000;
+
+    // the number of distinct concession ids generated
+    private static final int CONCESSION_IDS = 10000;
+
+    // the demand to generate passengers from
+    private OriginDestinationMatrix matrix;
+
+    // the source of randomness for sampling pairs and passenger types
+    private Random random;
+
+    // the proportion of passengers who are concession passengers
+    private double concessionShare;
+
+    // the number of passengers generated so far
+    private long generated;
+
+    /**
+     * Creates a new generator for the given demand, with the given seed, where
+     * no passengers are concession passengers.
+     *
+     * @param matrix The demand to generate passengers from.
+     * @param seed The seed for the generator's random numbers.
+     */
+    public DemandGenerator(OriginDestinationMatrix matrix, long seed) {
+        this(matrix, seed, 0);
+    }
+
+    /**
+     * Creates a new generator for the given demand, with the given seed, and
+     * the given proportion of concession passengers.
+     *
+     * @param matrix The demand to generate passengers from.
+     * @param seed The seed for the generator's random numbers.
+     * @param concessionShare The proportion (between 0 and 1) of generated
+     *                        passengers who are concession passengers.
+     * @throws IllegalArgumentException If the matrix is null or empty, or the
+     *         concession share is not between 0 and 1.
+     */
+    public DemandGenerator(OriginDestinationMatrix matrix, long seed,
+                           double concessionShare) {
+        if (matrix == null || matrix.size() == 0 || !(concessionShare >= 0)
+                || concessionShare > 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.matrix = matrix;
+        this.random = new Random(seed);
+        this.concessionShare = concessionShare;
+    }
+
+    /**
+     * Creates a new passenger and places them at their origin stop.
+     *
+     * @return The passenger which was created.
+     */
+    public Passenger inject() {
+        int pair = matrix.sample(random);
+        Stop destination = matrix.getDestination(pair);
+        String name = "passenger" + generated++;
+
+        Passenger passenger;
+        if (random.nextDouble() < concessionShare) {
+            passenger = new ConcessionPassenger(name, destination,
+                    MIN_CONCESSION_ID + random.nextInt(CONCESSION_IDS));
+        } else {
+            passenger = new Passenger(name, destination);
+        }
+
+        matrix.getOrigin(pair).addPassenger(passenger);
+        return passenger;
+    }
+
+    /**
+     * Creates the given number of passengers, placing each of them at their
+     * origin stop.
+     *
+     * @param count The number of passengers to create.
+     */
+    public void inject(int count) {
+        for (int i = 0; i < count; i++) {
+            inject();
+        }
+    }
+
+    /**
+     * Returns the number of passengers this generator has created.
+     *
+     * @return The number of passengers created so far.
+     */
+    public long getGeneratedCount() {
+        return generated;
+    }
+}
@@ -0,0 +1,96 @@
+package demand;
+
+import metrics.SimulationBatchEvent;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link DemandGenerator}, injecting passengers into the network at a
+ * configurable rate and reporting the throughput achieved.
+ *
+ * <p>Passengers are injected in batches. After each batch, the driver waits
+ * until the time at which the batch was due to have been completed at the
+ * target rate, so the long-run rate matches the target even if individual
+ * batches are late. A driver with no target rate injects passengers as fast as
+ * possible.
+ */
+public class LoadDriver {
+    // the number of nanoseconds in a second
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // the default number of passengers injected between waits
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    // the generator to inject passengers with
+    private DemandGenerator generator;
+
+    // the target rate in passengers per second (0 for unlimited)
+    private double rate;
+
+    // the number of passengers injected between waits
+    private int batchSize;
+
+    /**
+     * Creates a new driver which injects passengers as fast as possible.
+     *
+     * @param generator The generator to inject passengers with.
+     */
+    public LoadDriver(DemandGenerator generator) {
+        this(generator, 0, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new driver which injects passengers at the given rate.
+     *
+     * @param generator The generator to inject passengers with.
+     * @param rate The target rate, in passengers per second. A rate of 0 (or
+     *             less) means passengers are injected as fast as possible.
+     * @param batchSize The number of passengers injected between waits.
+     * @throws IllegalArgumentException If the generator is null, or the batch
+     *         size is not positive.
+     */
+    public LoadDriver(DemandGenerator generator, double rate, int batchSize) {
+        if (generator == null || batchSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.generator = generator;
+        this.rate = Math.max(rate, 0);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Injects the given number of passengers into the network, at the target
+     * rate.
+     *
+     * @param passengers The number of passengers to inject.
+     * @return A report of the passengers injected and the throughput achieved.
+     */
+    public LoadReport run(long passengers) {
+        long start = System.nanoTime();
+        long injected = 0;
+
+        while (injected < passengers) {
+            int batch = (int) Math.min(batchSize, passengers - injected);
+            SimulationBatchEvent event = new SimulationBatchEvent();
+            event.begin();
+            generator.inject(batch);
+            injected += batch;
+            if (event.shouldCommit()) {
+                event.kind = "inject";
+                event.passengers = batch;
+                event.commit();
+            }
+
+            if (rate > 0) {
+                long due = start + (long) (injected * NANOS_PER_SECOND / rate);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+
+        return new LoadReport(injected, System.nanoTime() - start, rate);
+    }
+}
@@ -0,0 +1,87 @@
+package demand;
+
+/**
+ * The outcome of a run of a {@link LoadDriver}, recording how many passengers
+ * were injected into the network and how long it took.
+ */
+public class LoadReport {
+    // the number of nanoseconds in a second
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // the number of passengers injected
+    private long passengers;
+
+    // the time taken to inject the passengers
+    private long elapsedNanos;
+
+    // the rate the passengers were meant to be injected at
+    private double targetRate;
+
+    /**
+     * Creates a new report.
+     *
+     * @param passengers The number of passengers injected.
+     * @param elapsedNanos The time taken to inject the passengers, in
+     *                     nanoseconds.
+     * @param targetRate The rate the passengers were meant to be injected at,
+     *                   in passengers per second (or 0 if unlimited).
+     */
+    public LoadReport(long passengers, long elapsedNanos, double targetRate) {
+        this.passengers = passengers;
+        this.elapsedNanos = elapsedNanos;
+        this.targetRate = targetRate;
+    }
+
+    /**
+     * Returns the number of passengers injected.
+     *
+     * @return The number of passengers.
+     */
+    public long getPassengers() {
+        return passengers;
+    }
+
+    /**
+     * Returns the time taken to inject the passengers.
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the rate the passengers were meant to be injected at.
+     *
+     * @return The target rate in passengers per second, or 0 if the rate was
+     *         unlimited.
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * Returns the rate the passengers were actually injected at.
+     *
+     * @return The achieved throughput, in passengers per second.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0
+                : passengers * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    /**
+     * Creates a string representation of the report in the format:
+     *
+     * <p>'{passengers} passengers in {ms} ms ({throughput} passengers/s)'
+     *
+     * <p>without the surrounding quotes.
+     *
+     * @return A string representation of the report.
+     */
+    @Override
+    public String toString() {
+        return passengers + " passengers in " + elapsedNanos / 1000000
+                + " ms (" + Math.round(getThroughput()) + " passengers/s)";
+    }
+}
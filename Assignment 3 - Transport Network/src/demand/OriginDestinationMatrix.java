@@ -0,0 +1,219 @@
+package demand;
+
+import stops.Stop;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A sparse origin-destination (OD) matrix, recording the relative demand for
+ * travel between pairs of stops.
+ *
+ * <p>Only the pairs of stops with non-zero demand are stored. Pairs can be
+ * sampled in proportion to their demand in logarithmic time (in the number of
+ * pairs), which is used by {@link DemandGenerator} to create passengers.
+ */
+public class OriginDestinationMatrix {
+    // the default number of pairs the matrix can hold before growing
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // the origin and destination of each pair
+    private Stop[] origins;
+    private Stop[] destinations;
+
+    // the running total of the demand of each pair and all previous pairs
+    private double[] cumulativeDemand;
+
+    // the number of pairs in the matrix
+    private int size;
+
+    // the index of each pair, by origin and then destination
+    private Map<Stop, Map<Stop, Integer>> pairs = new IdentityHashMap<>();
+
+    /**
+     * Creates a new empty matrix.
+     */
+    public OriginDestinationMatrix() {
+        this.origins = new Stop[DEFAULT_CAPACITY];
+        this.destinations = new Stop[DEFAULT_CAPACITY];
+        this.cumulativeDemand = new double[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Creates a matrix using a gravity model over the coordinates of the
+     * given stops, recording every pair of distinct stops.
+     *
+     * <p>The matrix holds n * (n - 1) pairs for n stops, so this is only
+     * suitable for small networks; see
+     * {@link #gravity(List, double, double)} to keep large matrices sparse.
+     *
+     * @param stops The stops to create demand between.
+     * @param exponent How quickly demand decreases with distance (0 gives
+     *                 uniform demand between all pairs).
+     * @return The gravity model matrix.
+     * @throws IllegalArgumentException If the exponent is negative.
+     */
+    public static OriginDestinationMatrix gravity(List<Stop> stops,
+                                                  double exponent) {
+        return gravity(stops, exponent, 0);
+    }
+
+    /**
+     * Creates a matrix using a gravity model over the coordinates of the
+     * given stops, keeping only the pairs whose demand is at least the given
+     * threshold.
+     *
+     * <p>The demand between each ordered pair of distinct stops is
+     * {@code 1 / (1 + d)^exponent}, where d is the Manhattan distance between
+     * the stops (see {@link Stop#distanceTo(Stop)}), so that nearby stops
+     * attract more trips than distant ones. Pairs below the threshold are
+     * never stored, so with a positive exponent the matrix only holds the
+     * pairs of stops within {@code (1 / minDemand)^(1 / exponent) - 1} of
+     * each other.
+     *
+     * @param stops The stops to create demand between.
+     * @param exponent How quickly demand decreases with distance (0 gives
+     *                 uniform demand between all pairs).
+     * @param minDemand The smallest demand of a pair to record (0 records
+     *                  every pair).
+     * @return The gravity model matrix.
+     * @throws IllegalArgumentException If the exponent or threshold is
+     *         negative.
+     */
+    public static OriginDestinationMatrix gravity(List<Stop> stops,
+                                                  double exponent,
+                                                  double minDemand) {
+        if (exponent < 0 || minDemand < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        OriginDestinationMatrix matrix = new OriginDestinationMatrix();
+        for (Stop origin : stops) {
+            for (Stop destination : stops) {
+                if (origin == destination) {
+                    continue;
+                }
+                double demand = 1 / Math.pow(
+                        1 + origin.distanceTo(destination), exponent);
+                if (demand >= minDemand) {
+                    matrix.add(origin, destination, demand);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Records demand for travel from the given origin to the given
+     * destination.
+     *
+     * <p>Adding the same pair more than once adds to the demand of the
+     * existing pair (in time linear in the number of pairs), rather than
+     * recording the pair again. Stops are compared by identity.
+     *
+     * @param origin The stop passengers start at.
+     * @param destination The stop passengers travel to.
+     * @param demand The relative demand for the pair.
+     * @throws IllegalArgumentException If either stop is null, or the demand
+     *         is not positive and finite.
+     */
+    public void add(Stop origin, Stop destination, double demand) {
+        if (origin == null || destination == null || !(demand > 0)
+                || Double.isInfinite(demand)) {
+            throw new IllegalArgumentException();
+        }
+
+        Map<Stop, Integer> fromOrigin = pairs.computeIfAbsent(origin,
+                stop -> new IdentityHashMap<>());
+        Integer existing = fromOrigin.get(destination);
+        if (existing != null) {
+            for (int i = existing; i < size; i++) {
+                cumulativeDemand[i] += demand;
+            }
+            return;
+        }
+
+        if (size == origins.length) {
+            int capacity = size * 2;
+            origins = Arrays.copyOf(origins, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            cumulativeDemand = Arrays.copyOf(cumulativeDemand, capacity);
+        }
+
+        origins[size] = origin;
+        destinations[size] = destination;
+        cumulativeDemand[size] = totalDemand() + demand;
+        fromOrigin.put(destination, size);
+        size++;
+    }
+
+    /**
+     * Returns the number of origin-destination pairs in the matrix.
+     *
+     * @return The number of pairs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total demand of all pairs in the matrix.
+     *
+     * @return The total demand.
+     */
+    public double totalDemand() {
+        return size == 0 ? 0 : cumulativeDemand[size - 1];
+    }
+
+    /**
+     * Returns the origin of the pair at the given index.
+     *
+     * @param pair The index of the pair.
+     * @return The origin of the pair.
+     */
+    public Stop getOrigin(int pair) {
+        checkPair(pair);
+        return origins[pair];
+    }
+
+    /**
+     * Returns the destination of the pair at the given index.
+     *
+     * @param pair The index of the pair.
+     * @return The destination of the pair.
+     */
+    public Stop getDestination(int pair) {
+        checkPair(pair);
+        return destinations[pair];
+    }
+
+    /**
+     * Chooses a pair at random, in proportion to the demand of each pair.
+     *
+     * @param random The source of randomness.
+     * @return The index of the chosen pair.
+     * @throws IllegalStateException If the matrix is empty.
+     */
+    public int sample(Random random) {
+        if (size == 0) {
+            throw new IllegalStateException();
+        }
+
+        double target = random.nextDouble() * totalDemand();
+        int index = Arrays.binarySearch(cumulativeDemand, 0, size, target);
+
+        // an exact match falls in the next pair, otherwise use the insertion
+        // point (the first pair whose running total exceeds the target)
+        index = index >= 0 ? index + 1 : -index - 1;
+        return Math.min(index, size - 1);
+    }
+
+    private void checkPair(int pair) {
+        if (pair < 0 || pair >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the metrics collected by {@link MetricsRegistry} through JMX.
+ */
+class EngineMetrics implements EngineMetricsMXBean {
+    // the number of nanoseconds in a millisecond
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    @Override
+    public boolean isEnabled() {
+        return MetricsRegistry.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        MetricsRegistry.setEnabled(enabled);
+    }
+
+    @Override
+    public void reset() {
+        MetricsRegistry.reset();
+    }
+
+    @Override
+    public long getRoutingRebuilds() {
+        return MetricsRegistry.getRoutingRebuilds();
+    }
+
+    @Override
+    public double getRoutingRebuildMillis() {
+        return MetricsRegistry.getRoutingRebuildNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getSynchroniseIterations() {
+        return MetricsRegistry.getSynchroniseIterations();
+    }
+
+    @Override
+    public long getTransferEntriesCalls() {
+        return MetricsRegistry.getTransferEntriesCalls();
+    }
+
+    @Override
+    public long getRoutingEntriesUpdated() {
+        return MetricsRegistry.getRoutingEntriesUpdated();
+    }
+
+    @Override
+    public Map<String, Double> getDecodeLinesPerSecond() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (MetricsRegistry.Section section
+                : MetricsRegistry.Section.values()) {
+            rates.put(section.name().toLowerCase(),
+                    MetricsRegistry.getDecodeLinesPerSecond(section));
+        }
+        return rates;
+    }
+
+    @Override
+    public long getSaves() {
+        return MetricsRegistry.getSaves();
+    }
+
+    @Override
+    public long getSavedBytes() {
+        return MetricsRegistry.getSavedBytes();
+    }
+
+    @Override
+    public double getSaveMillis() {
+        return MetricsRegistry.getSaveNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public Map<String, Double> getBoardingRates() {
+        return MetricsRegistry.getBoardingRates();
+    }
+
+    @Override
+    public Map<String, Double> getAlightingRates() {
+        return MetricsRegistry.getAlightingRates();
+    }
+}
@@ -0,0 +1,80 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface for the metrics collected by
+ * {@link MetricsRegistry}.
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * @return Whether metrics are currently being collected.
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled Whether metrics should be collected.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Resets every metric to 0.
+     */
+    void reset();
+
+    /**
+     * @return The number of routing rebuilds (synchronise calls).
+     */
+    long getRoutingRebuilds();
+
+    /**
+     * @return The total time spent in routing rebuilds, in milliseconds.
+     */
+    double getRoutingRebuildMillis();
+
+    /**
+     * @return The total number of synchronise iterations.
+     */
+    long getSynchroniseIterations();
+
+    /**
+     * @return The number of RoutingTable.transferEntries(Stop) calls.
+     */
+    long getTransferEntriesCalls();
+
+    /**
+     * @return The number of routing entries added or updated.
+     */
+    long getRoutingEntriesUpdated();
+
+    /**
+     * @return The lines decoded per second for each section of network files.
+     */
+    Map<String, Double> getDecodeLinesPerSecond();
+
+    /**
+     * @return The number of network files saved.
+     */
+    long getSaves();
+
+    /**
+     * @return The total size of the network files saved, in bytes.
+     */
+    long getSavedBytes();
+
+    /**
+     * @return The total time spent saving network files, in milliseconds.
+     */
+    double getSaveMillis();
+
+    /**
+     * @return The passengers boarding per second at each stop.
+     */
+    Map<String, Double> getBoardingRates();
+
+    /**
+     * @return The passengers alighting per second at each stop.
+     */
+    Map<String, Double> getAlightingRates();
+}
@@ -0,0 +1,406 @@
+package metrics;
+
+import stops.Stop;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects metrics about what the transportation network is doing: routing
+ * rebuilds, network file loading and saving, and passengers boarding and
+ * alighting at each stop.
+ *
+ * <p>Metrics are disabled by default. Whilst disabled, each recording method
+ * only checks a single flag, and {@link #startTimer()} does not read the
+ * clock, so the instrumented code can be left in place in production.
+ * Whilst enabled, every count is a {@link LongAdder}, so threads recording
+ * at the same time (e.g. during a parallel rebuild) don't contend on a single
+ * counter.
+ *
+ * <p>These metrics are kept separately from the
+ * {@link utilities.OperationCounter} used by the scaling regression tests, so
+ * enabling, disabling, or resetting either one has no effect on the other.
+ *
+ * <p>The metrics can be read directly, or through JMX once
+ * {@link #registerMBean()} has been called (see {@link EngineMetricsMXBean}).
+ */
+public final class MetricsRegistry {
+
+    /**
+     * The sections of a network file, in the order they are decoded.
+     */
+    public enum Section {
+        STOPS, ROUTES, VEHICLES
+    }
+
+    // the name the metrics are registered under in JMX
+    private static final String OBJECT_NAME = "transport:type=EngineMetrics";
+
+    // the number of nanoseconds in a second
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // whether metrics are currently being collected
+    private static volatile boolean enabled;
+
+    // when metrics were last enabled or reset
+    private static volatile long since = System.nanoTime();
+
+    // routing rebuilds (calls to RoutingTable.synchronise())
+    private static final LongAdder REBUILDS = new LongAdder();
+    private static final LongAdder REBUILD_NANOS = new LongAdder();
+    private static final LongAdder SYNCHRONISE_ITERATIONS = new LongAdder();
+
+    // calls to RoutingTable.transferEntries(Stop), and routing entries updated
+    private static final LongAdder TRANSFER_ENTRIES = new LongAdder();
+    private static final LongAdder ENTRIES_UPDATED = new LongAdder();
+
+    // lines decoded, and the time taken, for each section of a network file
+    private static final LongAdder[] DECODED_LINES =
+            adders(Section.values().length);
+    private static final LongAdder[] DECODE_NANOS =
+            adders(Section.values().length);
+
+    // network files saved
+    private static final LongAdder SAVES = new LongAdder();
+    private static final LongAdder SAVED_BYTES = new LongAdder();
+    private static final LongAdder SAVE_NANOS = new LongAdder();
+
+    // passengers boarding and alighting at each stop, by stop name
+    private static final ConcurrentMap<String, LongAdder> BOARDINGS =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongAdder> ALIGHTINGS =
+            new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Starts or stops collecting metrics.
+     *
+     * @param enabled Whether metrics should be collected.
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled && !MetricsRegistry.enabled) {
+            since = System.nanoTime();
+        }
+        MetricsRegistry.enabled = enabled;
+    }
+
+    /**
+     * Returns whether metrics are currently being collected.
+     *
+     * @return True if metrics are being collected, false otherwise.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Resets every metric to 0.
+     */
+    public static void reset() {
+        since = System.nanoTime();
+        REBUILDS.reset();
+        REBUILD_NANOS.reset();
+        SYNCHRONISE_ITERATIONS.reset();
+        TRANSFER_ENTRIES.reset();
+        ENTRIES_UPDATED.reset();
+        for (int i = 0; i < DECODED_LINES.length; i++) {
+            DECODED_LINES[i].reset();
+            DECODE_NANOS[i].reset();
+        }
+        SAVES.reset();
+        SAVED_BYTES.reset();
+        SAVE_NANOS.reset();
+        BOARDINGS.clear();
+        ALIGHTINGS.clear();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, under the name
+     * "transport:type=EngineMetrics". Registering more than once has no
+     * further effect.
+     *
+     * @throws IllegalStateException If the metrics could not be registered.
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new EngineMetrics(),
+                    new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the start time for an operation being timed.
+     *
+     * @return The current time in nanoseconds, or 0 if metrics are disabled.
+     */
+    public static long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a routing rebuild which started at the given time.
+     *
+     * @param start The start time returned by {@link #startTimer()}.
+     * @param iterations The number of synchronise iterations performed.
+     */
+    public static void recordRoutingRebuild(long start, int iterations) {
+        if (enabled) {
+            REBUILDS.increment();
+            REBUILD_NANOS.add(elapsedSince(start));
+            SYNCHRONISE_ITERATIONS.add(iterations);
+        }
+    }
+
+    /**
+     * Records a call to {@code RoutingTable.transferEntries(Stop)} (or an
+     * offer of entries to a neighbour during propagation).
+     */
+    public static void recordTransferEntries() {
+        if (enabled) {
+            TRANSFER_ENTRIES.increment();
+        }
+    }
+
+    /**
+     * Records a routing table entry being added or updated.
+     */
+    public static void recordRoutingEntryUpdate() {
+        if (enabled) {
+            ENTRIES_UPDATED.increment();
+        }
+    }
+
+    /**
+     * Records a section of a network file which was decoded, starting at the
+     * given time.
+     *
+     * @param section The section decoded.
+     * @param lines The number of lines in the section.
+     * @param start The start time returned by {@link #startTimer()}.
+     */
+    public static void recordDecode(Section section, int lines, long start) {
+        if (enabled) {
+            DECODED_LINES[section.ordinal()].add(lines);
+            DECODE_NANOS[section.ordinal()].add(elapsedSince(start));
+        }
+    }
+
+    /**
+     * Records a network file which was saved, starting at the given time.
+     *
+     * @param bytes The size of the saved file.
+     * @param start The start time returned by {@link #startTimer()}.
+     */
+    public static void recordSave(long bytes, long start) {
+        if (enabled) {
+            SAVES.increment();
+            SAVED_BYTES.add(bytes);
+            SAVE_NANOS.add(elapsedSince(start));
+        }
+    }
+
+    /**
+     * Records passengers boarding a vehicle at the given stop.
+     *
+     * @param stop The stop the passengers boarded at.
+     * @param passengers The number of passengers who boarded.
+     */
+    public static void recordBoardings(Stop stop, int passengers) {
+        if (enabled && passengers > 0) {
+            BOARDINGS.computeIfAbsent(stop.getName(), name -> new LongAdder())
+                    .add(passengers);
+        }
+    }
+
+    /**
+     * Records passengers alighting from a vehicle at the given stop.
+     *
+     * @param stop The stop the passengers alighted at.
+     * @param passengers The number of passengers who alighted.
+     */
+    public static void recordAlightings(Stop stop, int passengers) {
+        if (enabled && passengers > 0) {
+            ALIGHTINGS.computeIfAbsent(stop.getName(), name -> new LongAdder())
+                    .add(passengers);
+        }
+    }
+
+    /**
+     * Returns the number of routing rebuilds recorded.
+     *
+     * @return The number of rebuilds.
+     */
+    public static long getRoutingRebuilds() {
+        return REBUILDS.sum();
+    }
+
+    /**
+     * Returns the total time spent in routing rebuilds.
+     *
+     * @return The total rebuild time, in nanoseconds.
+     */
+    public static long getRoutingRebuildNanos() {
+        return REBUILD_NANOS.sum();
+    }
+
+    /**
+     * Returns the total number of synchronise iterations performed by
+     * routing rebuilds.
+     *
+     * @return The number of iterations.
+     */
+    public static long getSynchroniseIterations() {
+        return SYNCHRONISE_ITERATIONS.sum();
+    }
+
+    /**
+     * Returns the number of transferEntries calls recorded.
+     *
+     * @return The number of transferEntries calls.
+     */
+    public static long getTransferEntriesCalls() {
+        return TRANSFER_ENTRIES.sum();
+    }
+
+    /**
+     * Returns the number of routing table entries added or updated.
+     *
+     * @return The number of entries updated.
+     */
+    public static long getRoutingEntriesUpdated() {
+        return ENTRIES_UPDATED.sum();
+    }
+
+    /**
+     * Returns the number of lines decoded in the given section of network
+     * files.
+     *
+     * @param section The section of the file.
+     * @return The number of lines decoded.
+     */
+    public static long getDecodedLines(Section section) {
+        return DECODED_LINES[section.ordinal()].sum();
+    }
+
+    /**
+     * Returns the rate at which lines in the given section of network files
+     * were decoded.
+     *
+     * @param section The section of the file.
+     * @return The lines decoded per second spent decoding the section.
+     */
+    public static double getDecodeLinesPerSecond(Section section) {
+        return perSecond(DECODED_LINES[section.ordinal()].sum(),
+                DECODE_NANOS[section.ordinal()].sum());
+    }
+
+    /**
+     * Returns the number of network files saved.
+     *
+     * @return The number of saves.
+     */
+    public static long getSaves() {
+        return SAVES.sum();
+    }
+
+    /**
+     * Returns the total size of the network files saved.
+     *
+     * @return The number of bytes saved.
+     */
+    public static long getSavedBytes() {
+        return SAVED_BYTES.sum();
+    }
+
+    /**
+     * Returns the total time spent saving network files.
+     *
+     * @return The total save time, in nanoseconds.
+     */
+    public static long getSaveNanos() {
+        return SAVE_NANOS.sum();
+    }
+
+    /**
+     * Returns the number of passengers who boarded at each stop.
+     *
+     * @return A mapping from stop names to boardings, sorted by name.
+     */
+    public static Map<String, Long> getBoardings() {
+        return sums(BOARDINGS);
+    }
+
+    /**
+     * Returns the number of passengers who alighted at each stop.
+     *
+     * @return A mapping from stop names to alightings, sorted by name.
+     */
+    public static Map<String, Long> getAlightings() {
+        return sums(ALIGHTINGS);
+    }
+
+    /**
+     * Returns the rate at which passengers boarded at each stop, since
+     * metrics were last enabled or reset.
+     *
+     * @return A mapping from stop names to boardings per second.
+     */
+    public static Map<String, Double> getBoardingRates() {
+        return rates(BOARDINGS);
+    }
+
+    /**
+     * Returns the rate at which passengers alighted at each stop, since
+     * metrics were last enabled or reset.
+     *
+     * @return A mapping from stop names to alightings per second.
+     */
+    public static Map<String, Double> getAlightingRates() {
+        return rates(ALIGHTINGS);
+    }
+
+    private static long elapsedSince(long start) {
+        return System.nanoTime() - start;
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos == 0 ? 0 : count * NANOS_PER_SECOND / nanos;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counts) {
+        Map<String, Long> sums = new TreeMap<>();
+        counts.forEach((name, count) -> sums.put(name, count.sum()));
+        return sums;
+    }
+
+    private static Map<String, Double> rates(Map<String, LongAdder> counts) {
+        long elapsed = elapsedSince(since);
+        Map<String, Double> rates = new TreeMap<>();
+        counts.forEach((name, count) ->
+                rates.put(name, perSecond(count.sum(), elapsed)));
+        return rates;
+    }
+}
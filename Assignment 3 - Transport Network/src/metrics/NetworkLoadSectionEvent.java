@@ -0,0 +1,23 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the decoding of one section (stops,
+ * routes, or vehicles) of a network file.
+ */
+@Name("transport.NetworkLoadSection")
+@Label("Network Load Section")
+@Category({"Transport", "I/O"})
+@Description("Decoding of one section of a network file")
+public final class NetworkLoadSectionEvent extends jdk.jfr.Event {
+
+    @Label("Section")
+    public String section;
+
+    @Label("Lines")
+    public int lines;
+}
@@ -0,0 +1,33 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering the saving of a network file.
+ */
+@Name("transport.NetworkSave")
+@Label("Network Save")
+@Category({"Transport", "I/O"})
+@Description("Encoding and writing of a network file")
+public final class NetworkSaveEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String filename;
+
+    @Label("Stops")
+    public int stops;
+
+    @Label("Routes")
+    public int routes;
+
+    @Label("Vehicles")
+    public int vehicles;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering a routing rebuild, i.e. a call to
+ * {@code RoutingTable.synchronise()}, the propagation of a batch of changes
+ * (e.g. link costs), or a {@code ParallelRebuild} of every table in a network.
+ *
+ * <p>The stop is the one whose table started the rebuild. A batch of changes
+ * records the first of the stops which changed, and a rebuild of every table
+ * records an empty stop, as no single stop started it.
+ */
+@Name("transport.RoutingRebuild")
+@Label("Routing Rebuild")
+@Category({"Transport", "Routing"})
+@Description("Synchronisation of the routing tables reachable from a stop")
+public final class RoutingRebuildEvent extends jdk.jfr.Event {
+
+    @Label("Stop")
+    @Description("The stop whose routing table started the rebuild (the first"
+            + " of them for a batch of changes), or empty for a rebuild of"
+            + " every table in a network")
+    public String stop;
+
+    @Label("Reachable Stops")
+    public int reachableStops;
+
+    @Label("Iterations")
+    @Description("The number of passes made over the reachable stops")
+    public int iterations;
+}
@@ -0,0 +1,34 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event covering one batch of simulation work, such as
+ * a batch of passengers injected by a load driver, or a vehicle departing a
+ * stop with its boarding passengers.
+ */
+@Name("transport.SimulationBatch")
+@Label("Simulation Batch")
+@Category({"Transport", "Simulation"})
+@Description("A batch of passengers injected, boarded, or alighted")
+public final class SimulationBatchEvent extends jdk.jfr.Event {
+
+    @Label("Kind")
+    @Description("What happened in the batch: inject, board, or alight")
+    public String kind;
+
+    @Label("Stop")
+    @Description("The stop the batch happened at, if any")
+    public String stop;
+
+    @Label("Passengers")
+    @Description("The number of passengers injected, boarded, or alighted")
+    public int passengers;
+
+    @Label("Waiting")
+    @Description("The number of passengers waiting at the stop afterwards")
+    public int waiting;
+}
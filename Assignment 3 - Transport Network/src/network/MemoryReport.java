@@ -0,0 +1,282 @@
+package network;
+
+import passengers.ConcessionPassenger;
+import passengers.Passenger;
+import routes.Route;
+import routing.ModeView;
+import routing.StopGraph;
+import stops.Stop;
+import vehicles.Bus;
+import vehicles.Ferry;
+import vehicles.PublicTransport;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An estimate of the heap memory held by the components of a
+ * {@link Network}, broken down by the kind of component.
+ *
+ * <p>Sizes are estimated from the number of objects of each kind and the
+ * layout of those objects on a 64-bit JVM with compressed references (12 byte
+ * object headers, 4 byte references, objects aligned to 8 bytes), rather than
+ * measured, so they are approximate. Each string is only counted once, however
+ * many components refer to it.
+ */
+public class MemoryReport {
+
+    /**
+     * The kinds of component whose memory is reported.
+     */
+    public enum Component {
+        /** Routing table entries, including their hash map entries. */
+        ROUTING_ENTRIES,
+        /** Passengers waiting at stops, the lists holding them, and their
+         * routed next stops. */
+        WAITING_PASSENGERS,
+        /** Passengers on board vehicles, and the lists holding them. */
+        ON_BOARD_PASSENGERS,
+        /** The lists of neighbouring stops held by each stop. */
+        NEIGHBOUR_LISTS,
+        /** The lists of stops held by each route. */
+        ROUTE_STOP_LISTS,
+        /** The graph shared by the mode-restricted routing views, and the
+         * routing of the sources each view holds. */
+        ROUTING_VIEWS,
+        /** The names of stops, routes, and passengers, and the extra details
+         * of vehicles. */
+        STRINGS
+    }
+
+    // sizes of the parts of objects, in bytes
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+
+    // a RoutingEntry (a reference and an int)
+    private static final long ROUTING_ENTRY = align(HEADER + REFERENCE + 4);
+
+    // a LinkedHashMap entry (hash, key, value, next, before, after)
+    private static final long MAP_ENTRY = align(HEADER + 4 + 5 * REFERENCE);
+
+    // an ArrayList or LinkedHashMap object itself
+    private static final long LIST = align(HEADER + 4 + 4 + REFERENCE);
+    private static final long MAP = align(HEADER + 6 * REFERENCE + 4 * 4);
+
+    // a Passenger (name and destination), and a ConcessionPassenger (and id)
+    private static final long PASSENGER = align(HEADER + 2 * REFERENCE);
+    private static final long CONCESSION_PASSENGER =
+            align(HEADER + 2 * REFERENCE + 4);
+
+    // the estimated bytes and number of items of each kind of component
+    private Map<Component, Long> bytes = new EnumMap<>(Component.class);
+    private Map<Component, Long> counts = new EnumMap<>(Component.class);
+
+    // the strings which have already been counted
+    private Set<String> strings =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /*
+     * Creates a report of the memory held by the given network, and by its
+     * routing views and the graph they share (null if it has none).
+     */
+    MemoryReport(List<Stop> stops, List<Route> routes,
+                 List<PublicTransport> vehicles, StopGraph viewGraph,
+                 Collection<ModeView> views) {
+        for (Component component : Component.values()) {
+            bytes.put(component, 0L);
+            counts.put(component, 0L);
+        }
+
+        for (Stop stop : stops) {
+            addString(stop.getName());
+
+            // lazily computed tables which are not held have no entries
+            if (stop.getRoutingTable().isLoaded()) {
+                int entries = stop.getRoutingTable().size();
+                add(Component.ROUTING_ENTRIES, entries, MAP
+                        + entries * (ROUTING_ENTRY + MAP_ENTRY)
+                        + buckets(entries));
+            }
+
+            add(Component.NEIGHBOUR_LISTS, stop.getNeighbours().size(),
+                    list(stop.getNeighbours().size()));
+
+            List<Passenger> waiting = stop.getWaitingPassengers();
+            add(Component.WAITING_PASSENGERS, waiting.size(),
+                    list(waiting.size()) + MAP + buckets(waiting.size())
+                            + waiting.size() * MAP_ENTRY
+                            + passengers(waiting));
+        }
+
+        for (Route route : routes) {
+            addString(route.getName());
+            int onRoute = route.getStopsOnRoute().size();
+            add(Component.ROUTE_STOP_LISTS, onRoute, list(onRoute));
+        }
+
+        if (viewGraph != null) {
+            add(Component.ROUTING_VIEWS, 0, graph(viewGraph));
+        }
+        for (ModeView view : views) {
+            add(Component.ROUTING_VIEWS, view.size(), view.getHeldBytes());
+        }
+
+        for (PublicTransport vehicle : vehicles) {
+            List<Passenger> onBoard = vehicle.getPassengers();
+            add(Component.ON_BOARD_PASSENGERS, onBoard.size(),
+                    list(onBoard.size()) + passengers(onBoard));
+
+            if (vehicle instanceof Bus) {
+                addString(((Bus) vehicle).getRegistrationNumber());
+            } else if (vehicle instanceof Ferry) {
+                addString(((Ferry) vehicle).getFerryType());
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated number of bytes held by the given kind of
+     * component.
+     *
+     * @param component The kind of component.
+     * @return The estimated size, in bytes.
+     */
+    public long getBytes(Component component) {
+        return bytes.get(component);
+    }
+
+    /**
+     * Returns the number of items of the given kind of component (e.g. the
+     * number of routing entries, or the number of distinct strings).
+     *
+     * @param component The kind of component.
+     * @return The number of items.
+     */
+    public long getCount(Component component) {
+        return counts.get(component);
+    }
+
+    /**
+     * Returns the estimated number of bytes held by all of the components.
+     *
+     * @return The estimated total size, in bytes.
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (long size : bytes.values()) {
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Creates a string representation of the report, with one line for each
+     * kind of component in the format:
+     *
+     * <p>'{component}: {count} items, {bytes} bytes'
+     *
+     * <p>followed by a final line in the format 'total: {bytes} bytes'.
+     *
+     * @return A string representation of the report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Component component : Component.values()) {
+            builder.append(component.name().toLowerCase()).append(": ")
+                    .append(getCount(component)).append(" items, ")
+                    .append(getBytes(component)).append(" bytes")
+                    .append(System.lineSeparator());
+        }
+        return builder.append("total: ").append(getTotalBytes())
+                .append(" bytes").toString();
+    }
+
+    private void add(Component component, long count, long size) {
+        counts.merge(component, count, Long::sum);
+        bytes.merge(component, size, Long::sum);
+    }
+
+    /*
+     * Adds the given string, unless it has already been counted.
+     */
+    private void addString(String string) {
+        if (string != null && strings.add(string)) {
+            // a String object (value, hash, coder, hashIsZero) and its
+            // (latin-1) byte array
+            add(Component.STRINGS, 1, align(HEADER + REFERENCE + 4 + 2)
+                    + align(ARRAY_HEADER + string.length()));
+        }
+    }
+
+    /*
+     * Returns the size of the given passengers, and counts their names.
+     */
+    private long passengers(List<Passenger> passengers) {
+        long size = 0;
+        for (Passenger passenger : passengers) {
+            size += passenger instanceof ConcessionPassenger
+                    ? CONCESSION_PASSENGER : PASSENGER;
+            addString(passenger.getName());
+        }
+        return size;
+    }
+
+    /*
+     * Returns the size of the given graph: its array of stops, the identity
+     * map of their indices, and the int arrays of its links (offsets, targets,
+     * weights, and modes leaving each stop, and offsets and links arriving).
+     */
+    private static long graph(StopGraph graph) {
+        int size = graph.size();
+        int links = graph.linkCount();
+
+        // an IdentityHashMap keeps keys and values side by side in a table
+        // at least three times the number of entries, and indices past 127
+        // are boxed
+        int table = 64;
+        while (table < 3 * size) {
+            table *= 2;
+        }
+        long indices = MAP + align(ARRAY_HEADER + (long) table * REFERENCE)
+                + Math.max(0, size - 128) * align(HEADER + 4);
+
+        return align(ARRAY_HEADER + (long) size * REFERENCE) + indices
+                + 2 * ints(size + 1) + 3 * ints(links) + 2 * ints(links);
+    }
+
+    private static long ints(int length) {
+        return align(ARRAY_HEADER + 4L * length);
+    }
+
+    /*
+     * Returns the size of an ArrayList holding the given number of items
+     * (ignoring any spare capacity).
+     */
+    private static long list(int size) {
+        return LIST + align(ARRAY_HEADER + (long) size * REFERENCE);
+    }
+
+    /*
+     * Returns the size of the bucket array of a hash map with the given
+     * number of entries and the default load factor.
+     */
+    private static long buckets(int entries) {
+        int capacity = 16;
+        while (capacity * 0.75 < entries) {
+            capacity *= 2;
+        }
+        return align(ARRAY_HEADER + (long) capacity * REFERENCE);
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
@@ -2,16 +2,32 @@ package network;
 
 import exceptions.DuplicateStopException;
 import exceptions.TransportFormatException;
+import metrics.MetricsRegistry;
+import metrics.MetricsRegistry.Section;
+import metrics.NetworkLoadSectionEvent;
+import metrics.NetworkSaveEvent;
 import routes.Route;
+import routing.ModeView;
+import routing.ParallelRebuild;
+import routing.SingleSourceSearch;
+import routing.StopGraph;
+import routing.TransportMode;
+import stops.NetworkState;
+import stops.Path;
+import stops.RoutingCache;
 import stops.Stop;
+import utilities.NamePool;
 import utilities.Writeable;
 import vehicles.PublicTransport;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Represents the transportation network, and manages all of the various
@@ -21,6 +37,9 @@ public class Network {
     // standardises newline characters
     private static final String NEWLINE = System.lineSeparator();
 
+    // the number of paths cached by path(Stop, Stop) by default
+    private static final int DEFAULT_PATH_CACHE_CAPACITY = 1024;
+
     // all the stops in the network
     private List<Stop> stops;
 
@@ -30,6 +49,26 @@ public class Network {
     // all the routes in the network
     private List<Route> routes;
 
+    // the stops, indexed by location (created when first queried)
+    private SpatialIndex spatialIndex;
+
+    // the link and routing versions shared by the stops in the network
+    private final NetworkState state = new NetworkState();
+
+    // recently requested paths between stops
+    private final PathCache pathCache =
+            new PathCache(DEFAULT_PATH_CACHE_CAPACITY, state);
+
+    // the cache of lazily computed routing tables (null if the tables are
+    // kept up to date eagerly)
+    private RoutingCache routingCache;
+
+    // the routing views restricted to each mask of modes, which share a graph
+    // of the network taken at the given link version
+    private final Map<Integer, ModeView> modeViews = new HashMap<>();
+    private StopGraph viewGraph;
+    private long viewLinkVersion;
+
     /**
      * Creates a new empty Network with no stops, vehicles, or routes.
      */
@@ -39,6 +78,20 @@ public class Network {
         this.routes = new ArrayList<>();
     }
 
+    /*
+     * Creates a new Network with the given stops, routes, and vehicles, which
+     * have already been linked together (e.g. whilst restoring a checkpoint).
+     */
+    Network(List<Stop> stops, List<Route> routes,
+            List<PublicTransport> vehicles) {
+        this.stops = stops;
+        this.routes = routes;
+        this.vehicles = vehicles;
+        for (Stop stop : stops) {
+            state.add(stop);
+        }
+    }
+
     /**
      * Creates a new Network from information contained in the file indicated by
      * the given filename. The file should be in the following format:
@@ -85,6 +138,9 @@ public class Network {
      * <p>The Network object created should have the stops, routes, and vehicles
      * contained in the given file.
      *
+     * <p>The routing tables of the stops are kept up to date eagerly (see
+     * {@link #Network(String, int)}).
+     *
      * @param filename The name of the file to load the network from.
      * @throws IOException If any IO exceptions occur whilst trying to read from
      *         the file, or if the filename is null.
@@ -110,7 +166,41 @@ public class Network {
      */
     public Network(String filename)
             throws IOException, TransportFormatException {
+        this(filename, 0);
+    }
+
+    /**
+     * Creates a new Network from information contained in the file indicated by
+     * the given filename (in the format described in
+     * {@link #Network(String)}), optionally with lazily computed routing
+     * tables.
+     *
+     * <p>If the routing cache capacity is positive, the stops' routing tables
+     * are computed lazily (see {@link #setLazyRouting(int)}) from the moment
+     * the stops are read, so loading the routes does not synchronise any
+     * tables, and only the tables which are later queried are ever computed.
+     * Otherwise, routing is suspended whilst the routes are loaded (see
+     * {@link NetworkState#suspendRouting()}), so no tables are synchronised,
+     * and every table is then built once the routes are loaded (see
+     * {@link #rebuildRoutingTables()}).
+     *
+     * @param filename The name of the file to load the network from.
+     * @param routingCacheCapacity The maximum number of routing tables to hold
+     *                             at once, or 0 to keep every table up to date
+     *                             eagerly.
+     * @throws IOException If any IO exceptions occur whilst trying to read from
+     *         the file, or if the filename is null.
+     * @throws TransportFormatException If the file is incorrectly formatted
+     *         (see {@link #Network(String)}).
+     * @throws IllegalArgumentException If the routing cache capacity is
+     *         negative.
+     */
+    public Network(String filename, int routingCacheCapacity)
+            throws IOException, TransportFormatException {
         this();
+        if (routingCacheCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
         if (filename == null) {
             throw new IOException();
         }
@@ -128,29 +218,61 @@ public class Network {
         Iterator<String> elements = lines.iterator();
 
         try {
+            // names repeated across lines (e.g. ferry types) are only held once
+            NamePool names = new NamePool();
+
             // read the stops
+            NetworkLoadSectionEvent event = beginSection();
+            long start = MetricsRegistry.startTimer();
             stops = new ArrayList<>();
             int stopCount = Integer.parseInt(elements.next().trim());
             for (int i = 0; i < stopCount; i++) {
                 String stop = elements.next();
-                stops.add(Stop.decode(stop));
+                Stop decoded = Stop.decode(stop, names);
+                state.add(decoded);
+                stops.add(decoded);
+            }
+            MetricsRegistry.recordDecode(Section.STOPS, stopCount, start);
+            commitSection(event, Section.STOPS, stopCount);
+
+            // eager tables are not synchronised whilst the routes link the
+            // stops, and are instead built in one step once every route has
+            // been loaded
+            if (routingCacheCapacity > 0) {
+                setLazyRouting(routingCacheCapacity);
+            } else {
+                state.suspendRouting();
             }
 
             // read the routes
+            event = beginSection();
+            start = MetricsRegistry.startTimer();
             routes = new ArrayList<>();
+            Map<String, Stop> stopsByName = Route.stopsByName(stops);
             int routeCount = Integer.parseInt(elements.next().trim());
             for (int i = 0; i < routeCount; i++) {
                 String route = elements.next();
-                routes.add(Route.decode(route, stops));
+                routes.add(Route.decode(route, stopsByName, names));
+            }
+            MetricsRegistry.recordDecode(Section.ROUTES, routeCount, start);
+            commitSection(event, Section.ROUTES, routeCount);
+            if (routingCacheCapacity == 0) {
+                state.resumeRouting();
+                ParallelRebuild.rebuild(stops);
             }
 
             // read the public transport
+            event = beginSection();
+            start = MetricsRegistry.startTimer();
             vehicles = new ArrayList<>();
             int vehicleCount = Integer.parseInt(elements.next().trim());
             for (int i = 0; i < vehicleCount; i++) {
                 String vehicle = elements.next();
-                vehicles.add(PublicTransport.decode(vehicle, routes));
+                vehicles.add(PublicTransport.decode(vehicle, routes, names));
             }
+            MetricsRegistry.recordDecode(Section.VEHICLES, vehicleCount,
+                    start);
+            commitSection(event, Section.VEHICLES, vehicleCount);
 
             // there should be no extra lines in the file
             if (elements.hasNext()) {
@@ -180,6 +302,15 @@ public class Network {
         }
 
         stops.add(stop);
+        state.add(stop);
+        viewGraph = null;
+        if (spatialIndex != null) {
+            spatialIndex.add(stop);
+        }
+        if (routingCache != null) {
+            stop.getRoutingTable().setCache(routingCache);
+            routingCache.invalidate();
+        }
     }
 
     /**
@@ -204,6 +335,77 @@ public class Network {
             }
         }
         this.stops.addAll(stops);
+        for (Stop stop : stops) {
+            state.add(stop);
+        }
+        viewGraph = null;
+        if (spatialIndex != null) {
+            for (Stop stop : stops) {
+                spatialIndex.add(stop);
+            }
+        }
+        if (routingCache != null) {
+            for (Stop stop : stops) {
+                stop.getRoutingTable().setCache(routingCache);
+            }
+            routingCache.invalidate();
+        }
+    }
+
+    /**
+     * Removes the given stop from the transportation network (e.g. whilst it
+     * is closed for roadworks).
+     *
+     * <p>The links between the stop and its neighbours are removed first, so
+     * that only the routing table entries which routed passengers through the
+     * stop are repaired (see
+     * {@link stops.RoutingTable#removeNeighbour(Stop)}), rather than every
+     * table being rebuilt. The stop is then removed from every route it is on
+     * (see {@link Route#removeStop(Stop)}), so those routes continue past it
+     * by linking the stops either side of it.
+     *
+     * <p>If the given stop is null or is not in the network (compared by
+     * identity), the network should remain unchanged. Passengers waiting at
+     * the stop stay at it.
+     *
+     * @param stop The stop to remove from the network.
+     */
+    public void removeStop(Stop stop) {
+        int index = indexOf(stop);
+        if (index < 0) {
+            return;
+        }
+        stops.remove(index);
+
+        for (Stop neighbour : stop.getNeighbours()) {
+            stop.removeNeighbouringStop(neighbour);
+            neighbour.removeNeighbouringStop(stop);
+        }
+        for (Route route : stop.getRoutes()) {
+            route.removeStop(stop);
+        }
+
+        if (spatialIndex != null) {
+            spatialIndex.remove(stop);
+        }
+        viewGraph = null;
+        if (routingCache != null) {
+            stop.getRoutingTable().setCache(null);
+        }
+        new NetworkState().add(stop);
+    }
+
+    /*
+     * Returns the position of the given stop (by identity) in the stops of
+     * this network, or -1 if it is not in the network.
+     */
+    private int indexOf(Stop stop) {
+        for (int i = 0; i < stops.size(); i++) {
+            if (stops.get(i) == stop) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -218,6 +420,229 @@ public class Network {
         return new ArrayList<>(stops);
     }
 
+    /**
+     * Returns the (at most) k stops in this network closest to the given
+     * point, closest first.
+     *
+     * <p>Distances are Manhattan distances, as for
+     * {@link Stop#distanceTo(Stop)}. Stops at equal distances are returned in
+     * the order in which they were added to the network.
+     *
+     * <p>Stops are looked up in a spatial index maintained by the network, so
+     * only the stops near the point are examined.
+     *
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     * @param k The maximum number of stops to return.
+     * @return The closest stops to the point (empty if k is not positive).
+     */
+    public List<Stop> nearestStops(int x, int y, int k) {
+        return spatialIndex().nearest(x, y, k);
+    }
+
+    /**
+     * Returns the stops in this network within the given Manhattan distance of
+     * the given point (inclusive), closest first.
+     *
+     * <p>Stops at equal distances are returned in the order in which they were
+     * added to the network.
+     *
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     * @param radius The maximum distance from the point.
+     * @return The stops within the distance (empty if the radius is
+     *         negative).
+     */
+    public List<Stop> stopsWithin(int x, int y, int radius) {
+        return spatialIndex().within(x, y, radius);
+    }
+
+    /**
+     * Returns the stops in this network inside the given bounding box
+     * (including stops on its edges), in the order in which they were added to
+     * the network.
+     *
+     * @param minX The smallest x coordinate in the box.
+     * @param minY The smallest y coordinate in the box.
+     * @param maxX The largest x coordinate in the box.
+     * @param maxY The largest y coordinate in the box.
+     * @return The stops inside the box.
+     */
+    public List<Stop> stopsInBox(int minX, int minY, int maxX, int maxY) {
+        return spatialIndex().inBox(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Returns the stops on the cheapest path from one stop to another,
+     * starting with the from stop and ending with the to stop.
+     *
+     * <p>The cost of a path is the sum of the costs of the links between
+     * consecutive stops on it (see {@link Stop#getLinkCost(Stop)}), as used
+     * by {@link stops.RoutingTable}. The path is found on demand, so the
+     * stops' routing tables do not need to have been synchronised. As long as
+     * no link in the network costs less than the Manhattan distance between
+     * its stops, the search is guided by the distance to the destination
+     * (A* search), and only the stops near the cheapest path are examined;
+     * otherwise it expands stops in order of cost alone.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The stops on the cheapest path, or an empty list if either stop
+     *         is null or the destination cannot be reached.
+     */
+    public List<Stop> shortestPath(Stop from, Stop to) {
+        return ShortestPath.find(from, to);
+    }
+
+    /**
+     * Returns the path passengers would be routed along from one stop to
+     * another by the stops' routing tables, along with its total cost.
+     *
+     * <p>This is the path found by repeatedly following
+     * {@link stops.RoutingTable#nextStop(Stop)} from the from stop. Recently
+     * requested paths are cached (up to a limit set by
+     * {@link #setPathCacheCapacity(int)}, evicting the least recently
+     * requested), and the cache is discarded whenever the routing table of
+     * any stop in this network changes.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The routed path, or null if either stop is null or the routing
+     *         tables do not lead from one stop to the other.
+     */
+    public Path path(Stop from, Stop to) {
+        if (from == null || to == null) {
+            return null;
+        }
+        return pathCache.get(from, to);
+    }
+
+    /**
+     * Sets the maximum number of paths cached by {@link #path(Stop, Stop)}.
+     *
+     * @param capacity The maximum number of paths to cache (0 disables the
+     *                 cache).
+     * @throws IllegalArgumentException If the capacity is negative.
+     */
+    public void setPathCacheCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        pathCache.setCapacity(capacity);
+    }
+
+    /**
+     * Rebuilds the routing tables of every stop in this network from scratch,
+     * running one shortest path search per stop in parallel on the common
+     * fork-join pool.
+     *
+     * <p>This gives the same costs as fully synchronised tables, and is much
+     * faster than synchronising the tables of a large network after many
+     * links have changed. Each stop's table is replaced in a single step once
+     * every search has finished.
+     *
+     * <p>If the tables are computed lazily, the computed tables are discarded
+     * instead, so each is computed again when next queried.
+     *
+     * @see ParallelRebuild
+     */
+    public void rebuildRoutingTables() {
+        if (routingCache != null) {
+            routingCache.invalidate();
+        } else {
+            ParallelRebuild.rebuild(stops);
+        }
+    }
+
+    /**
+     * Returns a view of the routing of this network in which passengers may
+     * only travel along links served by routes of the given modes (e.g. rail
+     * only, or every mode except ferries).
+     *
+     * <p>Views are cached, so requesting the same modes again returns the same
+     * view, and every view shares a single graph of the network rather than
+     * copying it (see {@link ModeView}). The graph and views are discarded
+     * and built again once the stops, links, link costs, or routes of the
+     * network change.
+     *
+     * @param modes The modes passengers may travel by.
+     * @return The routing view for the modes.
+     * @throws IllegalArgumentException If the modes are null or contain null.
+     */
+    public ModeView routingView(Set<TransportMode> modes) {
+        int mask = TransportMode.mask(modes);
+        if (viewGraph == null || viewLinkVersion != state.getLinkVersion()) {
+            modeViews.clear();
+            viewLinkVersion = state.getLinkVersion();
+            viewGraph = StopGraph.of(stops);
+        }
+        return modeViews.computeIfAbsent(mask,
+                m -> new ModeView(viewGraph, modes));
+    }
+
+    /**
+     * Switches the routing tables of the stops in this network to being
+     * computed lazily, or changes the number of tables held if they already
+     * are.
+     *
+     * <p>Rather than every stop holding an entry for every other stop, a
+     * stop's table is computed (by a search outwards from the stop, see
+     * {@link SingleSourceSearch}) the first time it is queried, and held in a
+     * cache shared by every stop in the network. Once more than the given
+     * number of tables are held, the least recently queried table is
+     * discarded, to be computed again if it is queried again. Every table is
+     * discarded whenever a stop or link is added, instead of synchronising
+     * the tables. Memory used for routing is then proportional to the number
+     * of stops used as sources rather than to the square of the number of
+     * stops.
+     *
+     * <p>Stops added to the network later are computed lazily as well.
+     *
+     * @param capacity The maximum number of routing tables to hold at once.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public void setLazyRouting(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (routingCache != null) {
+            routingCache.setCapacity(capacity);
+            return;
+        }
+        routingCache = new RoutingCache(capacity, SingleSourceSearch::entries);
+        for (Stop stop : stops) {
+            stop.getRoutingTable().setCache(routingCache);
+        }
+    }
+
+    /**
+     * Switches the routing tables of the stops in this network back to being
+     * kept up to date eagerly, rebuilding every table (see
+     * {@link #rebuildRoutingTables()}). Does nothing if the tables are not
+     * computed lazily.
+     */
+    public void setEagerRouting() {
+        if (routingCache == null) {
+            return;
+        }
+        for (Stop stop : stops) {
+            stop.getRoutingTable().setCache(null);
+        }
+        routingCache = null;
+        ParallelRebuild.rebuild(stops);
+    }
+
+    /**
+     * Returns the cache holding the lazily computed routing tables of the
+     * stops in this network (e.g. to check how often tables are computed).
+     *
+     * @return The routing cache, or null if the tables are kept up to date
+     *         eagerly.
+     */
+    public RoutingCache getRoutingCache() {
+        return routingCache;
+    }
+
     /**
      * Adds the given route to the network.
      *
@@ -231,6 +656,31 @@ public class Network {
         }
     }
 
+    /**
+     * Removes the given route from the network.
+     *
+     * <p>Every stop is removed from the route (see
+     * {@link Route#removeAllStops()}), so stops which were only linked by this
+     * route are no longer neighbours, and only the routing table entries which
+     * routed passengers between them are repaired. The vehicles on the route
+     * remain in the network.
+     *
+     * <p>Routes are compared by identity, so if the given route is null or is
+     * not in the network (even if a route equal to it is), the network should
+     * remain unchanged.
+     *
+     * @param route The route to remove from the network.
+     */
+    public void removeRoute(Route route) {
+        for (int i = 0; i < routes.size(); i++) {
+            if (routes.get(i) == route) {
+                routes.remove(i);
+                route.removeAllStops();
+                return;
+            }
+        }
+    }
+
     /**
      * Gets all the routes in this network.
      *
@@ -269,6 +719,30 @@ public class Network {
         return new ArrayList<>(vehicles);
     }
 
+    /*
+     * Returns the spatial index of the stops in this network, creating it if
+     * it has not been created yet.
+     */
+    private SpatialIndex spatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialIndex(stops);
+        }
+        return spatialIndex;
+    }
+
+    /**
+     * Estimates the heap memory held by the components of this network:
+     * routing entries, waiting and on-board passengers, neighbour lists,
+     * route stop lists, routing views, and strings.
+     *
+     * @return A report of the estimated memory held by each kind of
+     *         component.
+     */
+    public MemoryReport memoryReport() {
+        return new MemoryReport(stops, routes, vehicles, viewGraph,
+                modeViews.values());
+    }
+
     /**
      * Saves this network to the file indicated by the given filename.
      *
@@ -286,9 +760,101 @@ public class Network {
      * file.
      */
     public void save(String filename) throws IOException {
+        NetworkSaveEvent event = new NetworkSaveEvent();
+        event.begin();
+        long start = MetricsRegistry.startTimer();
         BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
         writer.write(this.encode());
         writer.close();
+
+        if (MetricsRegistry.isEnabled()) {
+            MetricsRegistry.recordSave(new File(filename).length(), start);
+        }
+        if (event.shouldCommit()) {
+            event.filename = filename;
+            event.stops = stops.size();
+            event.routes = routes.size();
+            event.vehicles = vehicles.size();
+            event.bytes = new File(filename).length();
+            event.commit();
+        }
+    }
+
+    /*
+     * Starts a flight recorder event for decoding a section of a network file.
+     */
+    private static NetworkLoadSectionEvent beginSection() {
+        NetworkLoadSectionEvent event = new NetworkLoadSectionEvent();
+        event.begin();
+        return event;
+    }
+
+    /*
+     * Commits a flight recorder event for a section of a network file, if it
+     * is being recorded.
+     */
+    private static void commitSection(NetworkLoadSectionEvent event,
+                                      Section section, int lines) {
+        if (event.shouldCommit()) {
+            event.section = section.name().toLowerCase();
+            event.lines = lines;
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes a binary checkpoint of the complete runtime state of this network
+     * to the file indicated by the given filename.
+     *
+     * <p>As well as the stops, routes, and vehicles written by
+     * {@link #save(String)}, the checkpoint records the passengers waiting at
+     * each stop and the stop each of them is routed to next, the passengers on
+     * board each vehicle, the current location of each vehicle, and the
+     * vehicles currently at each stop. The checkpoint may be written at any
+     * point during a simulation, and restored using
+     * {@link #restore(String)}.
+     *
+     * @param filename The name of the file to write the checkpoint to.
+     * @throws IOException If there are any IO errors whilst writing to the
+     * file, or if the filename is null.
+     */
+    public void checkpoint(String filename) throws IOException {
+        if (filename == null) {
+            throw new IOException();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)))) {
+            NetworkCheckpoint.write(this, out);
+        }
+    }
+
+    /**
+     * Restores a network from a checkpoint previously written by
+     * {@link #checkpoint(String)}.
+     *
+     * <p>The restored network has the same stops, routes, and vehicles (in the
+     * same order) as the network the checkpoint was written from, and each
+     * passenger is restored to the stop or vehicle they were at, along with the
+     * stop they were routed to next.
+     *
+     * @param filename The name of the file to restore the network from.
+     * @return The restored network.
+     * @throws IOException If any IO exceptions occur whilst trying to read from
+     *         the file, or if the filename is null.
+     * @throws TransportFormatException If the file is not a checkpoint, or
+     *         refers to stops, routes, or vehicles which do not exist.
+     */
+    public static Network restore(String filename)
+            throws IOException, TransportFormatException {
+        if (filename == null) {
+            throw new IOException();
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filename)))) {
+            return NetworkCheckpoint.read(in);
+        }
     }
 
     /*
@@ -0,0 +1,319 @@
+package network;
+
+import exceptions.EmptyRouteException;
+import exceptions.IncompatibleTypeException;
+import exceptions.OverCapacityException;
+import exceptions.TransportFormatException;
+import passengers.ConcessionPassenger;
+import passengers.Passenger;
+import routes.Route;
+import routing.ParallelRebuild;
+import stops.NetworkState;
+import stops.Stop;
+import utilities.NamePool;
+import vehicles.Bus;
+import vehicles.Ferry;
+import vehicles.PublicTransport;
+import vehicles.Train;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes binary checkpoints of the complete runtime state of a
+ * {@link Network}.
+ *
+ * <p>Unlike {@link Network#save(String)}, which only records the topology, a
+ * checkpoint also records the passengers waiting at each stop (along with the
+ * next stop each of them is routed to), the passengers on board each vehicle,
+ * the current location of each vehicle, and which vehicles are currently at
+ * which stops.
+ *
+ * <p>Stops, routes, and vehicles are referred to by their index in the
+ * network's lists rather than by name, so no names need to be looked up or
+ * parsed whilst restoring. A reference to a stop which is not part of the
+ * network (e.g. a passenger destination), or to a route which is not part of
+ * the network (e.g. that of a vehicle whose route was removed), is written as
+ * -1 and restored as null.
+ *
+ * <p>Routing tables are not written. Whilst restoring, the stops are linked
+ * with their routing suspended (see {@link NetworkState#suspendRouting()}),
+ * and their tables are then rebuilt in a single {@link ParallelRebuild}
+ * before any waiting passengers are routed.
+ */
+class NetworkCheckpoint {
+    // identifies a checkpoint file ("TNCP")
+    private static final int MAGIC = 0x544E4350;
+
+    // the version of the checkpoint format
+    private static final int VERSION = 1;
+
+    // the index written for a missing reference
+    private static final int NONE = -1;
+
+    // the kinds of passenger which can be written to a checkpoint
+    private static final byte PASSENGER = 0;
+    private static final byte CONCESSION_PASSENGER = 1;
+
+    /*
+     * Writes the complete state of the given network to the given stream.
+     */
+    static void write(Network network, DataOutputStream out)
+            throws IOException {
+        List<Stop> stops = network.getStops();
+        List<Route> routes = network.getRoutes();
+        List<PublicTransport> vehicles = network.getVehicles();
+
+        Map<Stop, Integer> stopIndices = indexOf(stops);
+        Map<Route, Integer> routeIndices = indexOf(routes);
+        Map<PublicTransport, Integer> vehicleIndices = indexOf(vehicles);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        // the stops
+        out.writeInt(stops.size());
+        for (Stop stop : stops) {
+            out.writeUTF(stop.getName());
+            out.writeInt(stop.getX());
+            out.writeInt(stop.getY());
+        }
+
+        // the routes, with their stops in order
+        out.writeInt(routes.size());
+        for (Route route : routes) {
+            out.writeUTF(route.getType());
+            out.writeUTF(route.getName());
+            out.writeInt(route.getRouteNumber());
+
+            List<Stop> onRoute = route.getStopsOnRoute();
+            out.writeInt(onRoute.size());
+            for (Stop stop : onRoute) {
+                writeIndex(out, stopIndices, stop);
+            }
+        }
+
+        // the vehicles, their locations and their passengers
+        out.writeInt(vehicles.size());
+        for (PublicTransport vehicle : vehicles) {
+            out.writeUTF(vehicle.getType());
+            out.writeInt(vehicle.getId());
+            out.writeInt(vehicle.getCapacity());
+            writeIndex(out, routeIndices, vehicle.getRoute());
+            out.writeUTF(extraOf(vehicle));
+            writeIndex(out, stopIndices, vehicle.getCurrentStop());
+
+            List<Passenger> onBoard = vehicle.getPassengers();
+            out.writeInt(onBoard.size());
+            for (Passenger passenger : onBoard) {
+                writePassenger(out, stopIndices, passenger);
+            }
+        }
+
+        // the vehicles and passengers at each stop
+        for (Stop stop : stops) {
+            List<PublicTransport> atStop = stop.getVehicles();
+            out.writeInt(atStop.size());
+            for (PublicTransport vehicle : atStop) {
+                writeIndex(out, vehicleIndices, vehicle);
+            }
+
+            List<Passenger> waiting = stop.getWaitingPassengers();
+            out.writeInt(waiting.size());
+            for (Passenger passenger : waiting) {
+                writePassenger(out, stopIndices, passenger);
+                writeIndex(out, stopIndices, stop.getRoutedStop(passenger));
+            }
+        }
+    }
+
+    /*
+     * Reads a network previously written by write(Network, DataOutputStream)
+     * from the given stream.
+     *
+     * Throws a TransportFormatException if the stream is not a checkpoint, or
+     * if any of the indices it contains are invalid.
+     */
+    static Network read(DataInputStream in)
+            throws IOException, TransportFormatException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new TransportFormatException();
+        }
+
+        try {
+            NamePool names = new NamePool();
+
+            // the stops
+            int stopCount = in.readInt();
+            List<Stop> stops = new ArrayList<>(Math.max(stopCount, 0));
+            for (int i = 0; i < stopCount; i++) {
+                stops.add(new Stop(names.intern(in.readUTF()), in.readInt(),
+                        in.readInt()));
+            }
+
+            // the routes, which also links neighbouring stops (with routing
+            // suspended, as every table is rebuilt once every stop has been
+            // linked)
+            NetworkState loading = new NetworkState();
+            for (Stop stop : stops) {
+                loading.add(stop);
+            }
+            loading.suspendRouting();
+            int routeCount = in.readInt();
+            List<Route> routes = new ArrayList<>(Math.max(routeCount, 0));
+            for (int i = 0; i < routeCount; i++) {
+                Route route = Route.fromType(in.readUTF(),
+                        names.intern(in.readUTF()), in.readInt());
+                int onRoute = in.readInt();
+                for (int j = 0; j < onRoute; j++) {
+                    route.addStop(readStop(in, stops));
+                }
+                routes.add(route);
+            }
+            loading.resumeRouting();
+            ParallelRebuild.rebuild(stops);
+
+            // the vehicles, whose passengers are boarded once every vehicle
+            // has arrived at its stop (arriving unloads a vehicle)
+            int vehicleCount = in.readInt();
+            List<PublicTransport> vehicles =
+                    new ArrayList<>(Math.max(vehicleCount, 0));
+            List<List<Passenger>> onBoard =
+                    new ArrayList<>(Math.max(vehicleCount, 0));
+            for (int i = 0; i < vehicleCount; i++) {
+                String type = in.readUTF();
+                int id = in.readInt();
+                int capacity = in.readInt();
+                int routeIndex = in.readInt();
+                Route route = routeIndex == NONE ? null
+                        : routes.get(routeIndex);
+                PublicTransport vehicle = PublicTransport.fromType(type, id,
+                        capacity, route, names.intern(in.readUTF()));
+                if (route != null) {
+                    route.addTransport(vehicle);
+                }
+
+                Stop location = readStop(in, stops);
+                if (location != null) {
+                    vehicle.travelTo(location);
+                }
+
+                int passengerCount = in.readInt();
+                List<Passenger> passengers = new ArrayList<>(
+                        Math.max(passengerCount, 0));
+                for (int j = 0; j < passengerCount; j++) {
+                    passengers.add(readPassenger(in, stops));
+                }
+                vehicles.add(vehicle);
+                onBoard.add(passengers);
+            }
+
+            // the vehicles and passengers at each stop
+            for (Stop stop : stops) {
+                int atStop = in.readInt();
+                for (int j = 0; j < atStop; j++) {
+                    stop.transportArrive(vehicles.get(in.readInt()));
+                }
+
+                int waiting = in.readInt();
+                for (int j = 0; j < waiting; j++) {
+                    Passenger passenger = readPassenger(in, stops);
+                    stop.addPassenger(passenger, readStop(in, stops));
+                }
+            }
+
+            for (int i = 0; i < vehicles.size(); i++) {
+                for (Passenger passenger : onBoard.get(i)) {
+                    vehicles.get(i).addPassenger(passenger);
+                }
+            }
+
+            return new Network(stops, routes, vehicles);
+        } catch (IndexOutOfBoundsException | NumberFormatException
+                | EmptyRouteException | IncompatibleTypeException
+                | OverCapacityException e) {
+            throw new TransportFormatException();
+        }
+    }
+
+    /*
+     * Maps each item in the given list to its index, using identity rather
+     * than equality (stops compare equal by name and routes).
+     */
+    private static <T> Map<T, Integer> indexOf(List<T> items) {
+        Map<T, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            indices.put(items.get(i), i);
+        }
+        return indices;
+    }
+
+    /*
+     * Writes the index of the given item, or NONE if it is null or not in the
+     * given indices.
+     */
+    private static <T> void writeIndex(DataOutputStream out,
+                                       Map<T, Integer> indices, T item)
+            throws IOException {
+        Integer index = item == null ? null : indices.get(item);
+        out.writeInt(index == null ? NONE : index);
+    }
+
+    /*
+     * Reads a stop index, returning null for NONE.
+     */
+    private static Stop readStop(DataInputStream in, List<Stop> stops)
+            throws IOException {
+        int index = in.readInt();
+        return index == NONE ? null : stops.get(index);
+    }
+
+    private static void writePassenger(DataOutputStream out,
+                                       Map<Stop, Integer> stopIndices,
+                                       Passenger passenger) throws IOException {
+        if (passenger instanceof ConcessionPassenger) {
+            out.writeByte(CONCESSION_PASSENGER);
+            out.writeInt(((ConcessionPassenger) passenger).getConcessionId());
+        } else {
+            out.writeByte(PASSENGER);
+        }
+        out.writeUTF(passenger.getName());
+        writeIndex(out, stopIndices, passenger.getDestination());
+    }
+
+    private static Passenger readPassenger(DataInputStream in,
+                                           List<Stop> stops)
+            throws IOException, TransportFormatException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case PASSENGER:
+                return new Passenger(in.readUTF(), readStop(in, stops));
+            case CONCESSION_PASSENGER:
+                int concessionId = in.readInt();
+                return new ConcessionPassenger(in.readUTF(),
+                        readStop(in, stops), concessionId);
+            default:
+                throw new TransportFormatException();
+        }
+    }
+
+    /*
+     * Returns the type-specific part of a vehicle, in the same form as the
+     * {extra} part of PublicTransport.decode(String, List).
+     */
+    private static String extraOf(PublicTransport vehicle) {
+        if (vehicle instanceof Bus) {
+            return ((Bus) vehicle).getRegistrationNumber();
+        } else if (vehicle instanceof Train) {
+            return Integer.toString(((Train) vehicle).getCarriageCount());
+        } else if (vehicle instanceof Ferry) {
+            return ((Ferry) vehicle).getFerryType();
+        }
+        return "";
+    }
+}
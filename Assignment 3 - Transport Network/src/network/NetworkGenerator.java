@@ -0,0 +1,586 @@
+package network;
+
+import exceptions.TransportException;
+import routes.Route;
+import stops.Stop;
+import vehicles.PublicTransport;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic transportation networks for scale testing.
+ *
+ * <p>Networks are generated from a seed, so the same generator settings always
+ * produce the same network. The available layouts are:
+ * <ul>
+ *     <li>{@link Layout#GRID}: stops on a square grid, with routes running
+ *     along rows and columns, like a grid city.</li>
+ *     <li>{@link Layout#HUB_AND_SPOKE}: a central hub stop, with each route
+ *     running outwards from the hub along its own spoke.</li>
+ *     <li>{@link Layout#CORRIDOR}: stops along a single long line, with an
+ *     all-stops route and express routes stopping at every second, third,
+ *     ... stop.</li>
+ *     <li>{@link Layout#RANDOM_GEOMETRIC}: stops scattered at random, with
+ *     each route wandering between stops which are close to each other.</li>
+ * </ul>
+ *
+ * <p>A network can either be built in memory ({@link #generate()}) or written
+ * directly to a network file in the format read by
+ * {@link Network#Network(String)} ({@link #write(Writer)}). Writing a file
+ * only holds the stop coordinates and a single route in memory at a time, so
+ * very large networks can be generated without building them.
+ */
+public class NetworkGenerator {
+
+    /**
+     * The shapes of network which can be generated.
+     */
+    public enum Layout {
+        GRID, HUB_AND_SPOKE, CORRIDOR, RANDOM_GEOMETRIC
+    }
+
+    // standardises newline characters
+    private static final String NEWLINE = System.lineSeparator();
+
+    // the distance between adjacent stops in generated layouts
+    private static final int SPACING = 10;
+
+    // the capacities and extra details of generated vehicles
+    private static final int BUS_CAPACITY = 50;
+    private static final int TRAIN_CAPACITY = 500;
+    private static final int FERRY_CAPACITY = 200;
+    private static final int CARRIAGES = 4;
+    private static final String FERRY_TYPE = "catamaran";
+
+    // the layout of the generated network
+    private Layout layout;
+
+    // the number of stops in the generated network
+    private int stopCount;
+
+    // the seed for the generated network
+    private long seed;
+
+    // the number of routes (0 to use the layout's default)
+    private int routeCount;
+
+    // the maximum number of stops on a route (0 to use the layout's default)
+    private int routeLength;
+
+    // the number of vehicles on each route
+    private int vehiclesPerRoute = 1;
+
+    // the relative proportions of bus, train, and ferry routes
+    private double busShare = 0.6;
+    private double trainShare = 0.3;
+    private double ferryShare = 0.1;
+
+    /**
+     * Creates a new generator for networks with the given layout and number
+     * of stops.
+     *
+     * @param layout The layout of the generated networks.
+     * @param stopCount The number of stops in the generated networks.
+     * @param seed The seed for the generated networks.
+     * @throws IllegalArgumentException If the layout is null, or there are
+     *         fewer than 2 stops.
+     */
+    public NetworkGenerator(Layout layout, int stopCount, long seed) {
+        if (layout == null || stopCount < 2) {
+            throw new IllegalArgumentException();
+        }
+
+        this.layout = layout;
+        this.stopCount = stopCount;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of routes in the generated networks.
+     *
+     * <p>By default, a grid has a route along every row and column, a hub and
+     * spoke network has one route per 10 stops, a corridor has 3 routes, and a
+     * random geometric network has one route per 10 stops.
+     *
+     * @param routeCount The number of routes, or 0 for the layout's default.
+     * @throws IllegalArgumentException If the route count is negative.
+     */
+    public void setRouteCount(int routeCount) {
+        if (routeCount < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.routeCount = routeCount;
+    }
+
+    /**
+     * Sets the maximum number of stops on each route of a grid or random
+     * geometric network.
+     *
+     * <p>Hub and spoke routes always cover their whole spoke, and corridor
+     * routes always run the whole length of the corridor. By default, grid
+     * routes cover a whole row or column, and random geometric routes have up
+     * to 20 stops.
+     *
+     * @param routeLength The maximum number of stops, or 0 for the layout's
+     *                    default.
+     * @throws IllegalArgumentException If the route length is negative or 1.
+     */
+    public void setRouteLength(int routeLength) {
+        if (routeLength < 0 || routeLength == 1) {
+            throw new IllegalArgumentException();
+        }
+        this.routeLength = routeLength;
+    }
+
+    /**
+     * Sets the number of vehicles on each route.
+     *
+     * @param vehiclesPerRoute The number of vehicles on each route.
+     * @throws IllegalArgumentException If the number is negative.
+     */
+    public void setVehiclesPerRoute(int vehiclesPerRoute) {
+        if (vehiclesPerRoute < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.vehiclesPerRoute = vehiclesPerRoute;
+    }
+
+    /**
+     * Sets the relative proportions of bus, train, and ferry routes.
+     *
+     * <p>Each route's type is chosen at random with the given relative
+     * weights. By default, 60% of routes are bus routes, 30% are train routes,
+     * and 10% are ferry routes.
+     *
+     * @param bus The relative weight of bus routes.
+     * @param train The relative weight of train routes.
+     * @param ferry The relative weight of ferry routes.
+     * @throws IllegalArgumentException If any weight is negative, or all of
+     *         the weights are 0.
+     */
+    public void setTypeMix(double bus, double train, double ferry) {
+        if (!(bus >= 0) || !(train >= 0) || !(ferry >= 0)
+                || bus + train + ferry <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.busShare = bus;
+        this.trainShare = train;
+        this.ferryShare = ferry;
+    }
+
+    /**
+     * Builds a new network in memory with the generator's settings.
+     *
+     * @return The generated network.
+     */
+    public Network generate() {
+        Random random = new Random(seed);
+        int[] x = new int[stopCount];
+        int[] y = new int[stopCount];
+        placeStops(x, y, random);
+
+        List<Stop> stops = new ArrayList<>(stopCount);
+        for (int i = 0; i < stopCount; i++) {
+            stops.add(new Stop(stopName(i), x[i], y[i]));
+        }
+
+        List<Route> routes = new ArrayList<>();
+        List<PublicTransport> vehicles = new ArrayList<>();
+        try {
+            generateRoutes(x, y, random, (number, type, onRoute, length) -> {
+                Route route = Route.fromType(type, routeName(number), number);
+                for (int i = 0; i < length; i++) {
+                    route.addStop(stops.get(onRoute[i]));
+                }
+                routes.add(route);
+
+                for (int i = 0; i < vehiclesPerRoute; i++) {
+                    int id = vehicles.size();
+                    PublicTransport vehicle = PublicTransport.fromType(type,
+                            id, capacity(type), route, extra(type, id));
+                    route.addTransport(vehicle);
+                    vehicles.add(vehicle);
+                }
+            });
+        } catch (TransportException | IOException e) {
+            // generated routes are never empty, and vehicles always match
+            throw new IllegalStateException(e);
+        }
+
+        return new Network(stops, routes, vehicles);
+    }
+
+    /**
+     * Writes a network file with the generator's settings to the file
+     * indicated by the given filename.
+     *
+     * @param filename The name of the file to write the network to.
+     * @throws IOException If there are any IO errors whilst writing to the
+     *         file.
+     */
+    public void write(String filename) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(filename))) {
+            write(writer);
+        }
+    }
+
+    /**
+     * Writes a network file with the generator's settings to the given
+     * writer, in the format described in {@link Network#Network(String)}.
+     *
+     * <p>The network written is the same as the one built by
+     * {@link #generate()}. Each line is written as soon as it is generated.
+     *
+     * @param writer The writer to write the network to.
+     * @throws IOException If there are any IO errors whilst writing.
+     */
+    public void write(Writer writer) throws IOException {
+        Random random = new Random(seed);
+        int[] x = new int[stopCount];
+        int[] y = new int[stopCount];
+        placeStops(x, y, random);
+
+        writer.write(stopCount + NEWLINE);
+        for (int i = 0; i < stopCount; i++) {
+            writer.write(stopName(i) + ":" + x[i] + ":" + y[i] + NEWLINE);
+        }
+
+        // the types of the routes are needed again for the vehicles
+        int routes = routeCount();
+        String[] types = new String[routes];
+        writer.write(routes + NEWLINE);
+        try {
+            generateRoutes(x, y, random, (number, type, onRoute, length) -> {
+                types[number - 1] = type;
+                StringBuilder line = new StringBuilder();
+                line.append(type).append(",").append(routeName(number))
+                        .append(",").append(number).append(":");
+                for (int i = 0; i < length; i++) {
+                    line.append(i == 0 ? "" : "|").append(stopName(onRoute[i]));
+                }
+                writer.write(line.append(NEWLINE).toString());
+            });
+        } catch (TransportException e) {
+            throw new IllegalStateException(e);
+        }
+
+        writer.write(routes * vehiclesPerRoute + NEWLINE);
+        int id = 0;
+        for (int number = 1; number <= routes; number++) {
+            for (int i = 0; i < vehiclesPerRoute; i++) {
+                writer.write(vehicleLine(types[number - 1], id++, number)
+                        + NEWLINE);
+            }
+        }
+    }
+
+    /*
+     * Receives each generated route in turn. The stops array may be reused
+     * for the next route once visit returns.
+     */
+    private interface RouteVisitor {
+        void visit(int number, String type, int[] stops, int length)
+                throws TransportException, IOException;
+    }
+
+    /*
+     * Places the stops of the layout, storing their coordinates.
+     */
+    private void placeStops(int[] x, int[] y, Random random) {
+        switch (layout) {
+            case GRID:
+                int side = gridSide();
+                for (int i = 0; i < stopCount; i++) {
+                    x[i] = (i % side) * SPACING;
+                    y[i] = (i / side) * SPACING;
+                }
+                break;
+            case HUB_AND_SPOKE:
+                int spokes = routeCount();
+                int perSpoke = (stopCount - 1) / spokes;
+                for (int i = 1; i < stopCount; i++) {
+                    int spoke = Math.min((i - 1) / perSpoke, spokes - 1);
+                    int distance = (i - 1 - spoke * perSpoke + 1) * SPACING;
+                    double angle = 2 * Math.PI * spoke / spokes;
+                    x[i] = (int) Math.round(distance * Math.cos(angle));
+                    y[i] = (int) Math.round(distance * Math.sin(angle));
+                }
+                break;
+            case CORRIDOR:
+                for (int i = 0; i < stopCount; i++) {
+                    x[i] = i * SPACING;
+                    y[i] = random.nextInt(SPACING) - SPACING / 2;
+                }
+                break;
+            case RANDOM_GEOMETRIC:
+                int extent = (int) Math.ceil(Math.sqrt(stopCount)) * SPACING;
+                for (int i = 0; i < stopCount; i++) {
+                    x[i] = random.nextInt(extent);
+                    y[i] = random.nextInt(extent);
+                }
+                break;
+        }
+    }
+
+    /*
+     * Generates each route of the layout in turn, passing it to the visitor.
+     */
+    private void generateRoutes(int[] x, int[] y, Random random,
+                                RouteVisitor visitor)
+            throws TransportException, IOException {
+        int routes = routeCount();
+        int[] onRoute = new int[stopCount];
+
+        switch (layout) {
+            case GRID:
+                int side = gridSide();
+                int rows = (stopCount + side - 1) / side;
+                int maxLength = routeLength == 0 ? side : routeLength;
+                int both = Math.min(rows, side);
+                for (int k = 0; k < routes; k++) {
+                    // alternate between rows and columns while there are both
+                    // left, then cover the remaining rows (or columns)
+                    int next = k % (rows + side);
+                    boolean row = next < 2 * both ? next % 2 == 0
+                            : rows > side;
+                    int line = next < 2 * both ? next / 2 : next - both;
+                    int lineLength = row ? Math.min(side,
+                            stopCount - line * side) : rows;
+                    int start = lineLength > maxLength
+                            ? random.nextInt(lineLength - maxLength + 1) : 0;
+
+                    int length = 0;
+                    for (int i = start; i < lineLength && length < maxLength;
+                         i++) {
+                        int stop = row ? line * side + i : i * side + line;
+                        if (stop < stopCount) {
+                            onRoute[length++] = stop;
+                        }
+                    }
+                    visitor.visit(k + 1, chooseType(random), onRoute, length);
+                }
+                break;
+            case HUB_AND_SPOKE:
+                int perSpoke = (stopCount - 1) / routes;
+                for (int k = 0; k < routes; k++) {
+                    int first = 1 + k * perSpoke;
+                    int last = k == routes - 1 ? stopCount : first + perSpoke;
+                    int length = 0;
+                    onRoute[length++] = 0;
+                    for (int stop = first; stop < last; stop++) {
+                        onRoute[length++] = stop;
+                    }
+                    visitor.visit(k + 1, chooseType(random), onRoute, length);
+                }
+                break;
+            case CORRIDOR:
+                for (int k = 0; k < routes; k++) {
+                    // route k stops at every (k + 1)th stop, and at both ends
+                    int length = 0;
+                    for (int stop = 0; stop < stopCount; stop += k + 1) {
+                        onRoute[length++] = stop;
+                    }
+                    if (onRoute[length - 1] != stopCount - 1) {
+                        onRoute[length++] = stopCount - 1;
+                    }
+                    visitor.visit(k + 1, chooseType(random), onRoute, length);
+                }
+                break;
+            case RANDOM_GEOMETRIC:
+                CellIndex cells = new CellIndex(x, y);
+                int maxStops = routeLength == 0 ? 20 : routeLength;
+                boolean[] visited = new boolean[stopCount];
+                for (int k = 0; k < routes; k++) {
+                    int length = cells.walk(random.nextInt(stopCount),
+                            maxStops, random, onRoute, visited);
+                    visitor.visit(k + 1, chooseType(random), onRoute, length);
+                }
+                break;
+        }
+    }
+
+    /*
+     * Returns the number of routes in the layout.
+     */
+    private int routeCount() {
+        if (routeCount > 0) {
+            return layout == Layout.HUB_AND_SPOKE
+                    ? Math.min(routeCount, stopCount - 1) : routeCount;
+        }
+
+        switch (layout) {
+            case GRID:
+                int side = gridSide();
+                return side + (stopCount + side - 1) / side;
+            case CORRIDOR:
+                return Math.min(3, stopCount - 1);
+            default:
+                return Math.max(stopCount / 10, 1);
+        }
+    }
+
+    /*
+     * Returns the number of stops along each row of a grid.
+     */
+    private int gridSide() {
+        return (int) Math.ceil(Math.sqrt(stopCount));
+    }
+
+    /*
+     * Chooses the type of a route at random, according to the type mix.
+     */
+    private String chooseType(Random random) {
+        double choice = random.nextDouble()
+                * (busShare + trainShare + ferryShare);
+        if (choice < busShare) {
+            return "bus";
+        }
+        return choice < busShare + trainShare ? "train" : "ferry";
+    }
+
+    private static String stopName(int index) {
+        return "stop" + index;
+    }
+
+    private static String routeName(int number) {
+        return "route" + number;
+    }
+
+    /*
+     * Returns the capacity of generated vehicles of the given type.
+     */
+    private static int capacity(String type) {
+        switch (type) {
+            case "train":
+                return TRAIN_CAPACITY;
+            case "ferry":
+                return FERRY_CAPACITY;
+            default:
+                return BUS_CAPACITY;
+        }
+    }
+
+    /*
+     * Returns the type-specific part of the generated vehicle of the given
+     * type and id (see PublicTransport.fromType).
+     */
+    private static String extra(String type, int id) {
+        switch (type) {
+            case "train":
+                return Integer.toString(CARRIAGES);
+            case "ferry":
+                return FERRY_TYPE;
+            default:
+                return "BUS" + id;
+        }
+    }
+
+    /*
+     * Returns the line for a vehicle in a network file, matching the encoding
+     * of the generated vehicle.
+     */
+    private static String vehicleLine(String type, int id, int routeNumber) {
+        return type + "," + id + "," + capacity(type) + "," + routeNumber
+                + "," + extra(type, id);
+    }
+
+    /*
+     * Buckets randomly placed stops into square cells, so that the stops
+     * near a given stop can be found without checking every stop.
+     */
+    private static class CellIndex {
+        private int[] x;
+        private int[] y;
+        private int cellSize;
+        private int columns;
+        private int rows;
+
+        // the stops in each cell, stored contiguously (as in a CSR matrix)
+        private int[] cellStart;
+        private int[] cellStops;
+
+        CellIndex(int[] x, int[] y) {
+            this.x = x;
+            this.y = y;
+            int maxX = Arrays.stream(x).max().orElse(0);
+            int maxY = Arrays.stream(y).max().orElse(0);
+
+            // about one stop per cell
+            cellSize = Math.max((int) Math.ceil(Math.sqrt(
+                    (double) (maxX + 1) * (maxY + 1) / x.length)), 1);
+            columns = maxX / cellSize + 1;
+            rows = maxY / cellSize + 1;
+
+            cellStart = new int[columns * rows + 1];
+            for (int i = 0; i < x.length; i++) {
+                cellStart[cellOf(i) + 1]++;
+            }
+            for (int cell = 0; cell < columns * rows; cell++) {
+                cellStart[cell + 1] += cellStart[cell];
+            }
+            int[] next = Arrays.copyOf(cellStart, cellStart.length);
+            cellStops = new int[x.length];
+            for (int i = 0; i < x.length; i++) {
+                cellStops[next[cellOf(i)]++] = i;
+            }
+        }
+
+        /*
+         * Walks from the given stop to random nearby stops (within two cells)
+         * which are not already on the route, storing the stops visited in
+         * the given array and returning how many there were.
+         */
+        int walk(int start, int maxStops, Random random, int[] onRoute,
+                 boolean[] visited) {
+            int length = 0;
+            int current = start;
+            while (current >= 0 && length < maxStops) {
+                visited[current] = true;
+                onRoute[length++] = current;
+                current = randomNeighbour(current, random, visited);
+            }
+
+            for (int i = 0; i < length; i++) {
+                visited[onRoute[i]] = false;
+            }
+            return length;
+        }
+
+        private int randomNeighbour(int stop, Random random,
+                                    boolean[] visited) {
+            int column = x[stop] / cellSize;
+            int row = y[stop] / cellSize;
+
+            // reservoir sampling over the unvisited stops in nearby cells
+            int chosen = -1;
+            int seen = 0;
+            for (int r = Math.max(row - 2, 0); r <= Math.min(row + 2, rows - 1);
+                 r++) {
+                for (int c = Math.max(column - 2, 0);
+                     c <= Math.min(column + 2, columns - 1); c++) {
+                    int cell = r * columns + c;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1];
+                         i++) {
+                        int candidate = cellStops[i];
+                        if (!visited[candidate]
+                                && random.nextInt(++seen) == 0) {
+                            chosen = candidate;
+                        }
+                    }
+                }
+            }
+            return chosen;
+        }
+
+        private int cellOf(int stop) {
+            return (y[stop] / cellSize) * columns + x[stop] / cellSize;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package network;
+
+import stops.Path;
+import stops.NetworkState;
+import stops.Stop;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the paths between pairs of stops, evicting the least
+ * recently used path once it is full.
+ *
+ * <p>Cached paths depend on the routing tables of every stop along them, so
+ * the whole cache is discarded whenever the routing generation of the
+ * network ({@link NetworkState#getRoutingGeneration()}) changes. Pairs of
+ * stops without a path are cached as well.
+ */
+class PathCache {
+
+    /*
+     * A pair of stops, compared by identity (stops compare equal by name and
+     * routes, which is too slow for a cache key).
+     */
+    private static class Key {
+        private final Stop from;
+        private final Stop to;
+
+        private Key(Stop from, Stop to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).from == from
+                    && ((Key) other).to == to;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(from)
+                    + System.identityHashCode(to);
+        }
+    }
+
+    // the cached paths (null if there is no path), least recently used first
+    private final Map<Key, Path> paths;
+
+    // the maximum number of paths to hold
+    private int capacity;
+
+    // the state of the network the paths are found in, and the routing
+    // generation the cached paths were found in
+    private final NetworkState state;
+    private long generation;
+
+    /*
+     * Creates a new empty cache holding at most the given number of paths
+     * between the stops of the network with the given state.
+     */
+    PathCache(int capacity, NetworkState state) {
+        this.capacity = capacity;
+        this.state = state;
+        this.generation = state.getRoutingGeneration();
+        this.paths = new LinkedHashMap<Key, Path>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Path> eldest) {
+                return size() > PathCache.this.capacity;
+            }
+        };
+    }
+
+    /*
+     * Changes the maximum number of paths to hold, evicting the least recently
+     * used paths if there are more than that.
+     */
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+        Iterator<Key> iterator = paths.keySet().iterator();
+        while (paths.size() > capacity) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /*
+     * Returns the path between the given stops, following their routing
+     * tables if it is not already cached.
+     */
+    Path get(Stop from, Stop to) {
+        long current = state.getRoutingGeneration();
+        if (current != generation) {
+            paths.clear();
+            generation = current;
+        }
+
+        Key key = new Key(from, to);
+        Path path = paths.get(key);
+        if (path != null || paths.containsKey(key)) {
+            return path;
+        }
+
+        path = from.getRoutingTable().pathTo(to);
+        if (capacity > 0) {
+            paths.put(key, path);
+        }
+        return path;
+    }
+}
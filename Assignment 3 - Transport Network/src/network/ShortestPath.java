@@ -0,0 +1,112 @@
+package network;
+
+import stops.Stop;
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the cheapest path between two stops using A* search, without
+ * requiring the stops' routing tables to have been synchronised.
+ *
+ * <p>The cost of travelling between neighbouring stops is the cost of the
+ * link between them (as used by the routing tables), which is the Manhattan
+ * distance between them unless it has been changed. As long as no link costs
+ * less than that distance, the Manhattan distance from a stop to the
+ * destination never overestimates the remaining cost, and each stop only
+ * needs to be expanded once. Only the stops whose cost from the start plus
+ * distance to the destination is at most the cost of the cheapest path are
+ * expanded. If any link in the network of the start is cheaper than its
+ * distance, the distance is not used, and the search expands stops in order
+ * of cost alone.
+ */
+class ShortestPath {
+
+    /*
+     * A stop waiting to be expanded, with the cost of the cheapest known path
+     * to it and the estimated total cost of a path through it.
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        private final Stop stop;
+        private final long cost;
+        private final long estimate;
+
+        private Candidate(Stop stop, long cost, long estimate) {
+            this.stop = stop;
+            this.cost = cost;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (estimate != other.estimate) {
+                return Long.compare(estimate, other.estimate);
+            }
+            // prefer the candidate closer to the destination
+            return Long.compare(other.cost, cost);
+        }
+    }
+
+    /*
+     * Returns the stops on the cheapest path from one stop to another
+     * (including both of them), or an empty list if either stop is null or
+     * there is no path between them.
+     */
+    static List<Stop> find(Stop from, Stop to) {
+        List<Stop> path = new ArrayList<>();
+        if (from == null || to == null) {
+            return path;
+        }
+
+        // the cheapest known cost to each stop, and the stop before it
+        Map<Stop, Long> costs = new IdentityHashMap<>();
+        Map<Stop, Stop> previous = new IdentityHashMap<>();
+        Map<Stop, Boolean> expanded = new IdentityHashMap<>();
+
+        // the distance is only a lower bound if no link is cheaper than it
+        boolean guided = !from.getState().hasDiscountedLinks();
+
+        PriorityQueue<Candidate> open = new PriorityQueue<>();
+        costs.put(from, 0L);
+        open.add(new Candidate(from, 0, guided ? from.distanceTo(to) : 0));
+
+        while (!open.isEmpty()) {
+            Candidate candidate = open.poll();
+            Stop stop = candidate.stop;
+            if (expanded.put(stop, Boolean.TRUE) != null) {
+                // a cheaper path to this stop has already been expanded
+                continue;
+            }
+            OperationCounter.record(Operation.TRAVERSAL_VISIT);
+
+            if (stop == to) {
+                for (Stop step = to; step != null; step = previous.get(step)) {
+                    path.add(step);
+                }
+                Collections.reverse(path);
+                return path;
+            }
+
+            for (Stop neighbour : stop.getNeighbours()) {
+                if (expanded.containsKey(neighbour)) {
+                    continue;
+                }
+                long cost = candidate.cost + stop.getLinkCost(neighbour);
+                Long known = costs.get(neighbour);
+                if (known == null || cost < known) {
+                    costs.put(neighbour, cost);
+                    previous.put(neighbour, stop);
+                    open.add(new Candidate(neighbour, cost, guided
+                            ? cost + neighbour.distanceTo(to) : cost));
+                }
+            }
+        }
+        return path;
+    }
+}
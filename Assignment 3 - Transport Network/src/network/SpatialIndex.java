@@ -0,0 +1,350 @@
+package network;
+
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * A uniform grid over the coordinates of the stops in a network, for finding
+ * the stops near a point without scanning every stop.
+ *
+ * <p>The plane is divided into square cells, and each stop is held in the
+ * cell containing its coordinates. Only cells which contain stops are stored,
+ * so the grid can cover networks with widely spread coordinates. The cell size
+ * is chosen so that cells hold a small number of stops on average, and the
+ * grid is rebuilt with a new cell size whenever the number of stops doubles.
+ * Removed stops leave a gap in the order of the stops, which is closed when
+ * the grid is next rebuilt (at the latest once there are as many gaps as
+ * stops).
+ *
+ * <p>Distances are Manhattan distances, as used by
+ * {@link Stop#distanceTo(Stop)}. Stops at equal distances are returned in the
+ * order in which they were added to the index.
+ */
+class SpatialIndex {
+    // the average number of stops each occupied cell should hold
+    private static final int STOPS_PER_CELL = 2;
+
+    // the stops in the index, in the order they were added (null where a
+    // stop has been removed since the grid was last built)
+    private final List<Stop> stops = new ArrayList<>();
+
+    // the number of stops in the index
+    private int size;
+
+    // the positions in stops of the stops in each occupied cell, by cell key
+    private Map<Long, List<Integer>> cells = new HashMap<>();
+
+    // the width and height of each cell
+    private int cellSize = 1;
+
+    // the range of occupied cell coordinates
+    private int minCellX;
+    private int minCellY;
+    private int maxCellX;
+    private int maxCellY;
+
+    // the number of stops when the grid was last rebuilt
+    private int builtSize;
+
+    /*
+     * Creates a new index over the given stops.
+     */
+    SpatialIndex(List<Stop> stops) {
+        this.stops.addAll(stops);
+        size = stops.size();
+        rebuild();
+    }
+
+    /*
+     * Adds the given stop to the index, rebuilding the grid if the number of
+     * stops has doubled since it was last built.
+     */
+    void add(Stop stop) {
+        stops.add(stop);
+        size++;
+        if (size > 2 * builtSize) {
+            rebuild();
+        } else {
+            place(stops.size() - 1);
+        }
+    }
+
+    /*
+     * Removes the given stop (by identity) from the index, if it is in the
+     * index. The grid is rebuilt if there are more gaps left by removed stops
+     * than there are stops.
+     */
+    void remove(Stop stop) {
+        long key = key((int) cellOf(stop.getX()), (int) cellOf(stop.getY()));
+        List<Integer> cell = cells.get(key);
+        if (cell == null) {
+            return;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+            int index = cell.get(i);
+            if (stops.get(index) == stop) {
+                cell.remove(i);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+                stops.set(index, null);
+                size--;
+                if (stops.size() > 2 * size) {
+                    rebuild();
+                }
+                return;
+            }
+        }
+    }
+
+    /*
+     * Returns the (at most) k stops closest to the given point, closest first.
+     *
+     * Cells are searched in square rings of increasing size around the cell
+     * containing the point, until no cell in the next ring could contain a
+     * stop closer than the k-th closest stop found so far.
+     */
+    List<Stop> nearest(int x, int y, int k) {
+        if (k <= 0 || size == 0) {
+            return new ArrayList<>();
+        }
+        k = Math.min(k, size);
+
+        // the best k candidates so far, with the furthest at the head
+        PriorityQueue<long[]> best = new PriorityQueue<>(
+                Comparator.comparingLong((long[] c) -> c[0])
+                        .thenComparingLong(c -> c[1]).reversed());
+
+        long cellX = cellOf(x);
+        long cellY = cellOf(y);
+
+        // rings closer than the occupied cells are empty, so start at them
+        long first = Math.max(0, Math.max(
+                Math.max(minCellX - cellX, cellX - maxCellX),
+                Math.max(minCellY - cellY, cellY - maxCellY)));
+        long last = Math.max(
+                Math.max(cellX - minCellX, maxCellX - cellX),
+                Math.max(cellY - minCellY, maxCellY - cellY));
+
+        for (long ring = first; ring <= last; ring++) {
+            // every stop in this ring is further away than this
+            long bound = Math.max(ring - 1, 0) * cellSize;
+            if (best.size() == k && best.peek()[0] <= bound) {
+                break;
+            }
+            for (List<Integer> cell : ring(cellX, cellY, ring)) {
+                for (int index : cell) {
+                    long distance = distance(stops.get(index), x, y);
+                    best.add(new long[] {distance, index});
+                    if (best.size() > k) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        List<long[]> found = new ArrayList<>(best);
+        found.sort(Comparator.comparingLong((long[] c) -> c[0])
+                .thenComparingLong(c -> c[1]));
+        List<Stop> nearest = new ArrayList<>(found.size());
+        for (long[] candidate : found) {
+            nearest.add(stops.get((int) candidate[1]));
+        }
+        return nearest;
+    }
+
+    /*
+     * Returns the stops within the given Manhattan distance of the given
+     * point, closest first.
+     */
+    List<Stop> within(int x, int y, int radius) {
+        if (radius < 0) {
+            return new ArrayList<>();
+        }
+        List<long[]> found = new ArrayList<>();
+        for (int index : candidates(x - (long) radius, y - (long) radius,
+                x + (long) radius, y + (long) radius)) {
+            long distance = distance(stops.get(index), x, y);
+            if (distance <= radius) {
+                found.add(new long[] {distance, index});
+            }
+        }
+        found.sort(Comparator.comparingLong((long[] c) -> c[0])
+                .thenComparingLong(c -> c[1]));
+
+        List<Stop> within = new ArrayList<>(found.size());
+        for (long[] candidate : found) {
+            within.add(stops.get((int) candidate[1]));
+        }
+        return within;
+    }
+
+    /*
+     * Returns the stops inside the given bounding box (including its edges),
+     * in the order they were added to the index.
+     */
+    List<Stop> inBox(int minX, int minY, int maxX, int maxY) {
+        List<Integer> found = new ArrayList<>();
+        for (int index : candidates(minX, minY, maxX, maxY)) {
+            Stop stop = stops.get(index);
+            if (stop.getX() >= minX && stop.getX() <= maxX
+                    && stop.getY() >= minY && stop.getY() <= maxY) {
+                found.add(index);
+            }
+        }
+        found.sort(null);
+
+        List<Stop> inBox = new ArrayList<>(found.size());
+        for (int index : found) {
+            inBox.add(stops.get(index));
+        }
+        return inBox;
+    }
+
+    /*
+     * Returns the positions of the stops in the cells overlapping the given
+     * box (which may include stops outside of the box).
+     *
+     * If the box covers more cells than are occupied, the occupied cells are
+     * scanned instead of every cell in the box.
+     */
+    private List<Integer> candidates(long minX, long minY, long maxX,
+                                     long maxY) {
+        List<Integer> candidates = new ArrayList<>();
+        if (minX > maxX || minY > maxY || size == 0) {
+            return candidates;
+        }
+        long fromX = Math.max(cellOf(minX), minCellX);
+        long fromY = Math.max(cellOf(minY), minCellY);
+        long toX = Math.min(cellOf(maxX), maxCellX);
+        long toY = Math.min(cellOf(maxY), maxCellY);
+        if (fromX > toX || fromY > toY) {
+            return candidates;
+        }
+
+        if ((toX - fromX + 1) * (toY - fromY + 1) > cells.size()) {
+            for (Map.Entry<Long, List<Integer>> cell : cells.entrySet()) {
+                long cellX = cell.getKey() >> 32;
+                long cellY = (int) (long) cell.getKey();
+                if (cellX >= fromX && cellX <= toX
+                        && cellY >= fromY && cellY <= toY) {
+                    candidates.addAll(cell.getValue());
+                }
+            }
+        } else {
+            for (long cellX = fromX; cellX <= toX; cellX++) {
+                for (long cellY = fromY; cellY <= toY; cellY++) {
+                    List<Integer> cell = cells.get(key((int) cellX,
+                            (int) cellY));
+                    if (cell != null) {
+                        candidates.addAll(cell);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /*
+     * Returns the occupied cells whose Chebyshev distance (in cells) from the
+     * given cell is exactly the given ring.
+     */
+    private List<List<Integer>> ring(long cellX, long cellY, long ring) {
+        List<List<Integer>> found = new ArrayList<>();
+        if (ring == 0) {
+            addCell(found, cellX, cellY);
+            return found;
+        }
+        for (long dx = -ring; dx <= ring; dx++) {
+            addCell(found, cellX + dx, cellY - ring);
+            addCell(found, cellX + dx, cellY + ring);
+        }
+        for (long dy = -ring + 1; dy < ring; dy++) {
+            addCell(found, cellX - ring, cellY + dy);
+            addCell(found, cellX + ring, cellY + dy);
+        }
+        return found;
+    }
+
+    private void addCell(List<List<Integer>> found, long cellX, long cellY) {
+        if (cellX < minCellX || cellX > maxCellX
+                || cellY < minCellY || cellY > maxCellY) {
+            return;
+        }
+        List<Integer> cell = cells.get(key((int) cellX, (int) cellY));
+        if (cell != null) {
+            found.add(cell);
+        }
+    }
+
+    /*
+     * Closes the gaps left by removed stops, chooses a new cell size from the
+     * extent of the stops, and places every stop in its new cell.
+     */
+    private void rebuild() {
+        stops.removeIf(Objects::isNull);
+        builtSize = Math.max(stops.size(), 1);
+        cells = new HashMap<>();
+
+        cellSize = 1;
+        if (!stops.isEmpty()) {
+            long minX = Long.MAX_VALUE;
+            long minY = Long.MAX_VALUE;
+            long maxX = Long.MIN_VALUE;
+            long maxY = Long.MIN_VALUE;
+            for (Stop stop : stops) {
+                minX = Math.min(minX, stop.getX());
+                minY = Math.min(minY, stop.getY());
+                maxX = Math.max(maxX, stop.getX());
+                maxY = Math.max(maxY, stop.getY());
+            }
+            double area = (double) (maxX - minX + 1) * (maxY - minY + 1);
+            double side = Math.sqrt(area * STOPS_PER_CELL / stops.size());
+            cellSize = (int) Math.max(1, Math.min(side, Integer.MAX_VALUE));
+        }
+
+        for (int i = 0; i < stops.size(); i++) {
+            place(i);
+        }
+    }
+
+    /*
+     * Places the stop at the given position in stops into its cell.
+     */
+    private void place(int index) {
+        Stop stop = stops.get(index);
+        int cellX = (int) cellOf(stop.getX());
+        int cellY = (int) cellOf(stop.getY());
+        if (cells.isEmpty()) {
+            minCellX = maxCellX = cellX;
+            minCellY = maxCellY = cellY;
+        } else {
+            minCellX = Math.min(minCellX, cellX);
+            minCellY = Math.min(minCellY, cellY);
+            maxCellX = Math.max(maxCellX, cellX);
+            maxCellY = Math.max(maxCellY, cellY);
+        }
+        cells.computeIfAbsent(key(cellX, cellY), c -> new ArrayList<>(
+                STOPS_PER_CELL)).add(index);
+    }
+
+    private long cellOf(long coordinate) {
+        return Math.floorDiv(coordinate, (long) cellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private static long distance(Stop stop, int x, int y) {
+        return Math.abs((long) stop.getX() - x)
+                + Math.abs((long) stop.getY() - y);
+    }
+}
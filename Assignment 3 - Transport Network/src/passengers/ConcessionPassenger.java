@@ -44,12 +44,26 @@ public class ConcessionPassenger extends Passenger {
      * @param newId The ID of the renewed concession card.
      */
     public void renew(int newId) {
-        if (newId < 0 || Integer.toString(newId).length() < 6
-                || !Integer.toString(newId).startsWith("42")) {
-            this.concessionId = INVALID;
-        } else {
-            this.concessionId = newId;
-        }
+        this.concessionId = isValidId(newId) ? newId : INVALID;
+    }
+
+    /*
+     * Returns true if the given concession id is valid (as defined in
+     * isValid()).
+     */
+    static boolean isValidId(int id) {
+        return id >= 0 && Integer.toString(id).length() >= 6
+                && Integer.toString(id).startsWith("42");
+    }
+
+    /**
+     * Returns the concession id of this passenger.
+     *
+     * @return The concession id, or -1 if the concession has expired (or was
+     * never valid).
+     */
+    public int getConcessionId() {
+        return this.concessionId;
     }
 
     /**
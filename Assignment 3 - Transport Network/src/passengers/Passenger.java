@@ -1,6 +1,7 @@
 package passengers;
 
 import stops.Stop;
+import utilities.NamePool;
 
 /**
  * A base passenger in the transport network.
@@ -24,8 +25,7 @@ public class Passenger {
      * @param name The name of the passenger.
      */
     public Passenger(String name) {
-        this.name = name == null ? "" : name.replace("\n", "")
-                .replace("\r", "");
+        this.name = name == null ? "" : NamePool.clean(name);
         this.destination = null;
     }
 
@@ -0,0 +1,391 @@
+package passengers;
+
+import stops.Stop;
+import utilities.IntQueue;
+import vehicles.PublicTransport;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pooled, struct-of-arrays representation of the passengers in a
+ * transportation network, intended for demand simulations with millions of
+ * passengers.
+ *
+ * <p>Rather than being {@link Passenger} objects, pooled passengers are int ids,
+ * with their destination, concession id, and current location held in
+ * parallel primitive arrays. The passengers waiting at each stop and on board
+ * each vehicle are held in {@link IntQueue}s (indexed by the position of the
+ * stop or vehicle in the lists the pool was created with), so moving
+ * passengers around the network does not allocate any objects.
+ *
+ * <p>Pooled passengers follow the same rules as {@link Passenger} objects:
+ * passengers waiting at a stop are routed using the stop's routing table, and
+ * board departing vehicles in the order in which they arrived at the stop
+ * until the vehicle is full. A vehicle's capacity is shared between its
+ * {@link Passenger} objects and its pooled passengers. When a pooled passenger
+ * arrives at their destination they leave the pool, and their id may be
+ * reused. Passengers added at their destination never join the pool.
+ */
+public class PassengerPool {
+    // the value stored for a missing index or an invalid concession id
+    private static final int NONE = -1;
+
+    // the initial number of passengers the pool can hold before growing
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // the stops and vehicles passengers can be located at, and their indices
+    private final Stop[] stops;
+    private final Map<Stop, Integer> stopIndices = new IdentityHashMap<>();
+    private final Map<PublicTransport, Integer> vehicleIndices =
+            new IdentityHashMap<>();
+
+    // the passengers waiting at each stop and on board each vehicle
+    private final IntQueue[] waiting;
+    private final IntQueue[] onBoard;
+
+    // the index of each passenger's destination stop
+    private int[] destination;
+
+    // the concession id of each passenger (NONE if they do not have one)
+    private int[] concessionId;
+
+    // the index of the stop each passenger is waiting at, or -2 - the index of
+    // the vehicle they are on board, or NONE if the id is not in use
+    private int[] location;
+
+    // ids which have been released and may be reused
+    private final IntQueue freeIds = new IntQueue();
+
+    // the number of ids which have ever been handed out
+    private int highWater;
+
+    // the number of passengers currently in the pool
+    private int size;
+
+    // the next stop towards each destination from the stop being departed,
+    // valid for the destinations stamped with the current departure
+    private final Stop[] routedNext;
+    private final int[] routedStamp;
+    private int departure;
+
+    /**
+     * Creates a new empty pool for passengers travelling between the given
+     * stops on the given vehicles.
+     *
+     * @param stops The stops passengers can wait at and travel to.
+     * @param vehicles The vehicles passengers can travel on.
+     */
+    public PassengerPool(List<Stop> stops, List<PublicTransport> vehicles) {
+        this(stops, vehicles, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty pool for passengers travelling between the given
+     * stops on the given vehicles, which can hold the given number of
+     * passengers before needing to grow.
+     *
+     * @param stops The stops passengers can wait at and travel to.
+     * @param vehicles The vehicles passengers can travel on.
+     * @param capacity The initial number of passengers the pool can hold.
+     */
+    public PassengerPool(List<Stop> stops, List<PublicTransport> vehicles,
+                         int capacity) {
+        this.stops = stops.toArray(new Stop[0]);
+        this.waiting = new IntQueue[this.stops.length];
+        for (int i = 0; i < this.stops.length; i++) {
+            stopIndices.putIfAbsent(this.stops[i], i);
+            waiting[i] = new IntQueue();
+        }
+        this.routedNext = new Stop[this.stops.length];
+        this.routedStamp = new int[this.stops.length];
+
+        this.onBoard = new IntQueue[vehicles.size()];
+        for (int i = 0; i < vehicles.size(); i++) {
+            vehicleIndices.putIfAbsent(vehicles.get(i), i);
+            onBoard[i] = new IntQueue();
+        }
+
+        capacity = Math.max(capacity, 1);
+        this.destination = new int[capacity];
+        this.concessionId = new int[capacity];
+        this.location = new int[capacity];
+    }
+
+    /**
+     * Places a new passenger without a concession at the given stop.
+     *
+     * @param origin The stop the passenger is waiting at.
+     * @param destination The destination of the passenger.
+     * @return The id of the new passenger, or -1 if the origin is the
+     *         destination (so the passenger has already arrived).
+     * @throws IllegalArgumentException If either stop is not in this pool.
+     */
+    public int add(Stop origin, Stop destination) {
+        return add(origin, destination, NONE);
+    }
+
+    /**
+     * Places a new concession passenger at the given stop.
+     *
+     * <p>The concession id is validated in the same way as
+     * {@link ConcessionPassenger#renew(int)}.
+     *
+     * @param origin The stop the passenger is waiting at.
+     * @param destination The destination of the passenger.
+     * @param concessionId The passenger's concession id.
+     * @return The id of the new passenger, or -1 if the origin is the
+     *         destination (so the passenger has already arrived).
+     * @throws IllegalArgumentException If either stop is not in this pool.
+     */
+    public int add(Stop origin, Stop destination, int concessionId) {
+        int from = indexOf(origin);
+        int to = indexOf(destination);
+        if (from == to) {
+            return NONE;
+        }
+
+        int id = freeIds.isEmpty() ? nextId() : freeIds.poll();
+        this.destination[id] = to;
+        this.concessionId[id] = ConcessionPassenger.isValidId(concessionId)
+                ? concessionId : NONE;
+        this.location[id] = from;
+        waiting[from].add(id);
+        size++;
+        return id;
+    }
+
+    /**
+     * Returns the number of passengers currently in the pool.
+     *
+     * @return The number of passengers waiting at stops or on board vehicles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the destination of the given passenger.
+     *
+     * @param id The id of the passenger.
+     * @return The passenger's destination stop.
+     * @throws IllegalArgumentException If the id is not in use.
+     */
+    public Stop getDestination(int id) {
+        checkId(id);
+        return stops[destination[id]];
+    }
+
+    /**
+     * Returns the concession id of the given passenger.
+     *
+     * @param id The id of the passenger.
+     * @return The passenger's concession id, or -1 if they do not have a valid
+     *         concession.
+     * @throws IllegalArgumentException If the id is not in use.
+     */
+    public int getConcessionId(int id) {
+        checkId(id);
+        return concessionId[id];
+    }
+
+    /**
+     * Returns the stop the given passenger is waiting at.
+     *
+     * @param id The id of the passenger.
+     * @return The stop the passenger is waiting at, or null if they are on
+     *         board a vehicle.
+     * @throws IllegalArgumentException If the id is not in use.
+     */
+    public Stop getStop(int id) {
+        checkId(id);
+        return location[id] >= 0 ? stops[location[id]] : null;
+    }
+
+    /**
+     * Returns the number of pooled passengers waiting at the given stop.
+     *
+     * @param stop The stop to check.
+     * @return The number of pooled passengers at the stop.
+     * @throws IllegalArgumentException If the stop is not in this pool.
+     */
+    public int waitingCount(Stop stop) {
+        return waiting[indexOf(stop)].size();
+    }
+
+    /**
+     * Returns the number of pooled passengers on board the given vehicle.
+     *
+     * @param vehicle The vehicle to check.
+     * @return The number of pooled passengers on the vehicle.
+     * @throws IllegalArgumentException If the vehicle is not in this pool.
+     */
+    public int onBoardCount(PublicTransport vehicle) {
+        return onBoard[indexOf(vehicle)].size();
+    }
+
+    /**
+     * Unloads the pooled passengers on the given vehicle at the given stop,
+     * in the same way as {@link Stop#transportArrive(PublicTransport)}.
+     *
+     * <p>Passengers whose destination is the given stop leave the pool, and
+     * the remaining passengers wait at the stop.
+     *
+     * @param vehicle The vehicle arriving at the stop.
+     * @param stop The stop the vehicle is arriving at.
+     * @return The number of passengers who reached their destination.
+     * @throws IllegalArgumentException If the stop or vehicle is not in this
+     *         pool.
+     */
+    public int arrive(PublicTransport vehicle, Stop stop) {
+        IntQueue arriving = onBoard[indexOf(vehicle)];
+        int at = indexOf(stop);
+        IntQueue queue = waiting[at];
+
+        int completed = 0;
+        while (!arriving.isEmpty()) {
+            int id = arriving.poll();
+            if (destination[id] == at) {
+                release(id);
+                completed++;
+            } else {
+                location[id] = at;
+                queue.add(id);
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Boards the pooled passengers at the given stop who are routed to the
+     * given next stop onto the given vehicle, in the same way as
+     * {@link Stop#transportDepart(PublicTransport, Stop)}.
+     *
+     * <p>Passengers board in the order in which they arrived at the stop.
+     * Once the vehicle is full (counting both its {@link Passenger} objects
+     * and its pooled passengers), the remaining passengers are left at the
+     * stop.
+     *
+     * @param vehicle The vehicle departing the stop.
+     * @param stop The stop the vehicle is departing.
+     * @param nextStop The stop the vehicle is travelling to.
+     * @return The number of passengers who boarded the vehicle.
+     * @throws IllegalArgumentException If either stop or the vehicle is not in
+     *         this pool.
+     */
+    public int depart(PublicTransport vehicle, Stop stop, Stop nextStop) {
+        int vehicleIndex = indexOf(vehicle);
+        IntQueue boarding = onBoard[vehicleIndex];
+        IntQueue queue = waiting[indexOf(stop)];
+
+        int free = vehicle.getCapacity() - vehicle.passengerCount()
+                - boarding.size();
+        int boarded = 0;
+        int kept = 0;
+        nextDeparture();
+        for (int i = 0; i < queue.size(); i++) {
+            int id = queue.get(i);
+            if (boarded < free
+                    && nextStop == routedNext(stop, destination[id])) {
+                location[id] = -2 - vehicleIndex;
+                boarding.add(id);
+                boarded++;
+            } else {
+                queue.set(kept++, id);
+            }
+        }
+        queue.truncate(kept);
+        return boarded;
+    }
+
+    /**
+     * Creates a {@link Passenger} object representing the given pooled
+     * passenger (e.g. for passing to code which does not use the pool).
+     *
+     * <p>Pooled passengers do not have names, so the returned passenger is
+     * anonymous. Passengers with a concession are returned as
+     * {@link ConcessionPassenger}s.
+     *
+     * @param id The id of the passenger.
+     * @return A new passenger with the same destination (and concession id).
+     * @throws IllegalArgumentException If the id is not in use.
+     */
+    public Passenger toPassenger(int id) {
+        checkId(id);
+        Stop to = stops[destination[id]];
+        return concessionId[id] == NONE ? new Passenger(null, to)
+                : new ConcessionPassenger(null, to, concessionId[id]);
+    }
+
+    /*
+     * Forgets the next stops looked up for the previous departure.
+     */
+    private void nextDeparture() {
+        departure++;
+        if (departure == 0) {
+            Arrays.fill(routedStamp, 0);
+            departure = 1;
+        }
+    }
+
+    /*
+     * Returns the next stop from the given stop towards the destination with
+     * the given index, looking it up in the stop's routing table only once
+     * for each destination in a departure.
+     */
+    private Stop routedNext(Stop stop, int destination) {
+        if (routedStamp[destination] != departure) {
+            routedStamp[destination] = departure;
+            routedNext[destination] = stop.getRoutingTable()
+                    .nextStop(stops[destination]);
+        }
+        return routedNext[destination];
+    }
+
+    /*
+     * Returns the next id which has never been used, growing the arrays if
+     * required.
+     */
+    private int nextId() {
+        if (highWater == location.length) {
+            int capacity = location.length * 2;
+            destination = Arrays.copyOf(destination, capacity);
+            concessionId = Arrays.copyOf(concessionId, capacity);
+            location = Arrays.copyOf(location, capacity);
+        }
+        return highWater++;
+    }
+
+    /*
+     * Removes the given passenger from the pool, allowing its id to be reused.
+     */
+    private void release(int id) {
+        location[id] = NONE;
+        freeIds.add(id);
+        size--;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= highWater || location[id] == NONE) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private int indexOf(Stop stop) {
+        Integer index = stopIndices.get(stop);
+        if (index == null) {
+            throw new IllegalArgumentException();
+        }
+        return index;
+    }
+
+    private int indexOf(PublicTransport vehicle) {
+        Integer index = vehicleIndices.get(vehicle);
+        if (index == null) {
+            throw new IllegalArgumentException();
+        }
+        return index;
+    }
+}
@@ -4,11 +4,14 @@ import exceptions.EmptyRouteException;
 import exceptions.IncompatibleTypeException;
 import exceptions.TransportFormatException;
 import stops.Stop;
+import utilities.NamePool;
 import utilities.Writeable;
 import vehicles.PublicTransport;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a route in the transportation network.
@@ -45,8 +48,7 @@ public abstract class Route implements Writeable {
      * @param routeNumber The route number of the route.
      */
     public Route(String name, int routeNumber) {
-        this.name = name == null ? "" : name.replace("\n", "")
-                .replace("\r", "");
+        this.name = name == null ? "" : NamePool.clean(name);
         this.routeNumber = routeNumber;
         this.vehicles = new ArrayList<>();
         this.route = new ArrayList<>();
@@ -134,6 +136,113 @@ public abstract class Route implements Writeable {
         stop.addNeighbouringStop(previous);
     }
 
+    /**
+     * Removes a stop from the route.
+     *
+     * <p>If the given stop is null or not on the route, the route should
+     * remain unchanged.
+     *
+     * <p>Every visit of the route to the stop is removed, and the stops either
+     * side of each visit are recorded as neighbouring stops of each other
+     * (using the {@link Stop#addNeighbouringStop(Stop)} method), so the route
+     * continues past the removed stop. The removed stop is then removed as a
+     * neighbouring stop of the stops it was next to on this route (using the
+     * {@link Stop#removeNeighbouringStop(Stop)} method), unless they are still
+     * next to each other on another route. This route is also removed as a
+     * route of the given stop using the {@link Stop#removeRoute(Route)}
+     * method.
+     *
+     * @param stop The stop to be removed from this route.
+     */
+    public void removeStop(Stop stop) {
+        if (stop == null) {
+            return;
+        }
+
+        List<Stop> previous = route;
+        List<Stop> remaining = new ArrayList<>(previous.size());
+        for (Stop current : previous) {
+            if (current != stop) {
+                remaining.add(current);
+            }
+        }
+        if (remaining.size() == previous.size()) {
+            return;
+        }
+
+        route = remaining;
+        stop.removeRoute(this);
+
+        // link the stops either side of each removed visit
+        for (int i = 1; i < remaining.size(); i++) {
+            link(remaining.get(i - 1), remaining.get(i));
+        }
+        unlinkAll(previous);
+    }
+
+    /**
+     * Removes every stop from the route.
+     *
+     * <p>Each pair of stops next to each other on the route is removed as
+     * neighbouring stops of each other (using the
+     * {@link Stop#removeNeighbouringStop(Stop)} method), unless they are still
+     * next to each other on another route, and this route is removed as a
+     * route of each stop using the {@link Stop#removeRoute(Route)} method.
+     * Vehicles on the route are not removed.
+     */
+    public void removeAllStops() {
+        List<Stop> previous = route;
+        route = new ArrayList<>();
+        for (Stop stop : previous) {
+            stop.removeRoute(this);
+        }
+        unlinkAll(previous);
+    }
+
+    /*
+     * Records the given stops as neighbours of each other.
+     */
+    private static void link(Stop first, Stop second) {
+        if (first != second) {
+            first.addNeighbouringStop(second);
+            second.addNeighbouringStop(first);
+        }
+    }
+
+    /*
+     * Removes each pair of stops next to each other in the given list of stops
+     * (which are no longer on this route) as neighbours of each other, unless
+     * they are next to each other on a route they are still part of.
+     */
+    private static void unlinkAll(List<Stop> stops) {
+        for (int i = 1; i < stops.size(); i++) {
+            Stop first = stops.get(i - 1);
+            Stop second = stops.get(i);
+            if (first != second && !adjacent(first, second)) {
+                first.removeNeighbouringStop(second);
+                second.removeNeighbouringStop(first);
+            }
+        }
+    }
+
+    /*
+     * Returns whether the given stops are next to each other on any route the
+     * first stop is part of.
+     */
+    private static boolean adjacent(Stop first, Stop second) {
+        for (Route route : first.getRoutes()) {
+            List<Stop> stops = route.route;
+            for (int i = 1; i < stops.size(); i++) {
+                if ((stops.get(i - 1) == first && stops.get(i) == second)
+                        || (stops.get(i - 1) == second
+                        && stops.get(i) == first)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns the public transport vehicles currently on this route.
      *
@@ -265,17 +374,19 @@ public abstract class Route implements Writeable {
         return this.toString();
     }
 
-    /*
-     * Returns a route object of the correct type (e.g. TrainRoute if the type
-     * is "train") with the given name and route number.
-     *
-     * @require type != null && name != null
-     *
-     * Throws a TransportFormatException if the given type is not valid.
+    /**
+     * Returns a new route object of the correct type (e.g. a TrainRoute if the
+     * type is "train") with the given name and route number.
+     *
+     * @param type The type of the route, as returned by {@link #getType()}
+     *             (not null).
+     * @param name The name of the route (not null).
+     * @param routeNumber The number of the route.
+     * @return The new route, with no stops.
+     * @throws TransportFormatException If the given type is not valid.
      */
-    private static Route routeFromType(String type, String name,
-                                       int routeNumber)
-            throws TransportFormatException{
+    public static Route fromType(String type, String name, int routeNumber)
+            throws TransportFormatException {
         switch (type) {
             case "train":
                 return new TrainRoute(name, routeNumber);
@@ -288,20 +399,22 @@ public abstract class Route implements Writeable {
         }
     }
 
-    /*
-     * Returns the stop object associated with the given stop name if it is
-     * contained within the given list of stops, or null if it is not.
+    /**
+     * Maps the name of each of the given stops to the stop, for looking up
+     * stops whilst decoding routes.
      *
-     * @requires stopName != null
-     * @requires stops != null
+     * <p>If there are multiple stops with the same name, the name is mapped to
+     * the first of them in the list.
+     *
+     * @param stops The stops to map.
+     * @return The stops, keyed by name.
      */
-    private static Stop findStop(String stopName, List<Stop> stops) {
+    public static Map<String, Stop> stopsByName(List<Stop> stops) {
+        Map<String, Stop> stopsByName = new HashMap<>();
         for (Stop stop : stops) {
-            if (stopName.equals(stop.getName())) {
-                return stop;
-            }
+            stopsByName.putIfAbsent(stop.getName(), stop);
         }
-        return null;
+        return stopsByName;
     }
 
     /**
@@ -350,9 +463,43 @@ public abstract class Route implements Writeable {
      *                 A routeString with an empty name is also valid (as this
      *                 is allowed by the Route constructor).</li>
      *             </ol>
+     *
+     * <p>The route's name is not shared with any other decoded object (each
+     * call interns it in a new pool). To hold names repeated across many
+     * decoded stops, routes, and vehicles only once, use
+     * {@link #decode(String, Map, NamePool)} with a pool shared between the
+     * calls.
      */
     public static Route decode(String routeString, List<Stop> existingStops)
             throws TransportFormatException {
+        if (existingStops == null) {
+            throw new TransportFormatException();
+        }
+        return decode(routeString, stopsByName(existingStops), new NamePool());
+    }
+
+    /**
+     * Creates a new route object based on the given string representation, in
+     * the same way as {@link #decode(String, List)}, but looking up its stops
+     * by name in the given map and interning the route's name in the given
+     * pool.
+     *
+     * <p>Decoding many routes against the same stops should use this method,
+     * with the map created once by {@link #stopsByName(List)}, rather than
+     * searching the list of stops for every stop on every route.
+     *
+     * @param routeString The string to decode.
+     * @param stopsByName The stops which currently exist in the transport
+     *                    network, keyed by name.
+     * @param names The pool to intern the route's name in.
+     * @return The decoded route object (a BusRoute, TrainRoute, or FerryRoute,
+     *          depending on the type given in the string).
+     * @throws TransportFormatException If the given string is null, or is
+     *          incorrectly formatted (as for {@link #decode(String, List)}).
+     */
+    public static Route decode(String routeString,
+                               Map<String, Stop> stopsByName, NamePool names)
+            throws TransportFormatException {
         Route route;
         try {
             // if the last character is a colon, remove
@@ -378,9 +525,9 @@ public abstract class Route implements Writeable {
             }
 
             String type = identifiers[0];
-            String name = identifiers[1];
+            String name = names.intern(identifiers[1]);
             int routeNumber = Integer.parseInt(identifiers[2].trim());
-            route = routeFromType(type, name, routeNumber);
+            route = fromType(type, name, routeNumber);
 
             if (parts.length == 1) {
                 return route;
@@ -396,7 +543,7 @@ public abstract class Route implements Writeable {
 
             // for each stop, check that it is valid
             for (String stopName : stops) {
-                Stop stop = findStop(stopName, existingStops);
+                Stop stop = stopsByName.get(stopName);
                 if (stop == null) {
                     throw new TransportFormatException();
                 }
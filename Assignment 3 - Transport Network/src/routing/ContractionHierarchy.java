@@ -0,0 +1,742 @@
+package routing;
+
+import exceptions.TransportFormatException;
+import stops.Path;
+import stops.Stop;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A contraction hierarchy over a {@link StopGraph}, answering cost, next stop,
+ * and path queries between any two stops without searching the whole network
+ * or holding a routing table for every stop.
+ *
+ * <p>Building the hierarchy contracts the stops one at a time, least important
+ * first (importance is estimated from how many shortcuts contracting a stop
+ * would add, and how many of its neighbours have already been contracted).
+ * Contracting a stop adds a shortcut link between each pair of its remaining
+ * neighbours whose cheapest path runs through it, so the costs between the
+ * remaining stops are unchanged. The order in which stops were contracted is
+ * their rank.
+ *
+ * <p>A query then runs two small searches which only follow links towards
+ * higher ranked stops: one forwards from the origin, and one backwards from
+ * the destination. The cheapest path is the cheapest combination of the two
+ * which meet at the same stop. Shortcuts remember the stop they bypass, so the
+ * path can be expanded back into the stops it passes through.
+ *
+ * <p>Costs are the same as those of {@link stops.RoutingTable} (the sum of
+ * the Manhattan distances between consecutive stops), so a hierarchy answers
+ * queries as fully synchronised routing tables would. Paths dearer than an
+ * int can hold all cost Integer.MAX_VALUE - 1, and any of them may be
+ * returned as the cheapest. A hierarchy can be saved next to the network
+ * file it was built for, and loaded again for the same network without
+ * repeating the contraction.
+ *
+ * <p>Queries may be made from several threads at once.
+ */
+public class ContractionHierarchy {
+    /**
+     * The extension added to a network's filename to name the file a
+     * hierarchy for that network is saved in.
+     */
+    public static final String FILE_EXTENSION = ".ch";
+
+    // identifies a contraction hierarchy file ("TNCH")
+    private static final int MAGIC = 0x544E4348;
+
+    // the version of the file format
+    private static final int VERSION = 1;
+
+    // the stop or link stored where there is none
+    private static final int NONE = -1;
+
+    // the number of stops a witness search may visit before giving up (and
+    // adding the shortcut, which is always safe)
+    private static final int WITNESS_LIMIT = 64;
+
+    // the graph the hierarchy was built over
+    private final StopGraph graph;
+
+    // the rank of each stop (the order in which it was contracted)
+    final int[] rank;
+
+    // the links from each stop to higher ranked stops, in compressed sparse
+    // row form, with the stop each link bypasses (NONE for original links)
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] upMiddles;
+
+    // the links to each stop from higher ranked stops, in the same form
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downWeights;
+    private final int[] downMiddles;
+
+    // the forward and backward search spaces of each querying thread
+    private final ThreadLocal<SearchSpace[]> searches;
+
+    private ContractionHierarchy(StopGraph graph, int[] rank,
+                                 int[] upOffsets, int[] upTargets,
+                                 int[] upWeights, int[] upMiddles,
+                                 int[] downOffsets, int[] downSources,
+                                 int[] downWeights, int[] downMiddles) {
+        this.graph = graph;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downWeights = downWeights;
+        this.downMiddles = downMiddles;
+        this.searches = ThreadLocal.withInitial(() -> new SearchSpace[] {
+                new SearchSpace(graph.size()), new SearchSpace(graph.size())});
+    }
+
+    /**
+     * Builds a contraction hierarchy over the given graph.
+     *
+     * @param graph The graph of the stops to route between.
+     * @return The hierarchy.
+     */
+    public static ContractionHierarchy build(StopGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    /**
+     * Returns the graph this hierarchy was built over.
+     *
+     * @return The graph of the stops this hierarchy routes between.
+     */
+    public StopGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of shortcut links added whilst contracting the stops.
+     *
+     * @return The number of shortcuts in the hierarchy.
+     */
+    public int shortcutCount() {
+        int count = 0;
+        for (int middle : upMiddles) {
+            if (middle != NONE) {
+                count++;
+            }
+        }
+        for (int middle : downMiddles) {
+            if (middle != NONE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the cost of the cheapest path from one stop to another, as
+     * {@link stops.RoutingTable#costTo(Stop)} would for fully synchronised
+     * tables.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The cost of the cheapest path, or Integer.MAX_VALUE if either
+     *         stop is not in the graph or there is no path between them.
+     */
+    public int costTo(Stop from, Stop to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source == NONE || target == NONE) {
+            return Integer.MAX_VALUE;
+        }
+        SearchSpace[] spaces = searches.get();
+        int meeting = meet(source, target, spaces[0], spaces[1]);
+        if (meeting == NONE) {
+            return Integer.MAX_VALUE;
+        }
+        long cost = spaces[0].distance(meeting) + spaces[1].distance(meeting);
+        return (int) Math.min(cost, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Returns the next stop on the cheapest path from one stop to another, as
+     * {@link stops.RoutingTable#nextStop(Stop)} would for fully synchronised
+     * tables.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The next stop on the cheapest path (the from stop itself if the
+     *         stops are the same), or null if either stop is not in the graph
+     *         or there is no path between them.
+     */
+    public Stop nextStop(Stop from, Stop to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source == NONE || target == NONE) {
+            return null;
+        }
+        if (source == target) {
+            return from;
+        }
+        SearchSpace[] spaces = searches.get();
+        SearchSpace forward = spaces[0];
+        SearchSpace backward = spaces[1];
+        int meeting = meet(source, target, forward, backward);
+        if (meeting == NONE) {
+            return null;
+        }
+
+        if (meeting == source) {
+            // the path starts by going down from the source
+            int link = backward.parentLink(source);
+            return graph.getStop(firstStep(source, backward.parent(source),
+                    downMiddles[link]));
+        }
+
+        // the path starts by going up from the source
+        int stop = meeting;
+        while (forward.parent(stop) != source) {
+            stop = forward.parent(stop);
+        }
+        return graph.getStop(firstStep(source, stop,
+                upMiddles[forward.parentLink(stop)]));
+    }
+
+    /**
+     * Returns the cheapest path from one stop to another, with its cost.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The cheapest path, or null if either stop is not in the graph or
+     *         there is no path between them.
+     */
+    public Path path(Stop from, Stop to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source == NONE || target == NONE) {
+            return null;
+        }
+        SearchSpace[] spaces = searches.get();
+        SearchSpace forward = spaces[0];
+        SearchSpace backward = spaces[1];
+        int meeting = meet(source, target, forward, backward);
+        if (meeting == NONE) {
+            return null;
+        }
+
+        // the stops on the way up to the meeting stop, from the source
+        List<Integer> upward = new ArrayList<>();
+        for (int stop = meeting; stop != source; stop = forward.parent(stop)) {
+            upward.add(stop);
+        }
+
+        List<Stop> stops = new ArrayList<>();
+        stops.add(from);
+        for (int i = upward.size() - 1; i >= 0; i--) {
+            int stop = upward.get(i);
+            unpack(forward.parent(stop), stop,
+                    upMiddles[forward.parentLink(stop)], stops);
+        }
+        for (int stop = meeting; stop != target;
+             stop = backward.parent(stop)) {
+            unpack(stop, backward.parent(stop),
+                    downMiddles[backward.parentLink(stop)], stops);
+        }
+
+        return new Path(stops,
+                forward.distance(meeting) + backward.distance(meeting));
+    }
+
+    /**
+     * Saves this hierarchy next to the given network file, in a file named by
+     * adding {@link #FILE_EXTENSION} to the network's filename.
+     *
+     * @param networkFilename The name of the file the network was loaded from
+     *                        or saved to.
+     * @throws IOException If any IO exceptions occur whilst writing the file.
+     */
+    public void save(String networkFilename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(
+                        networkFilename + FILE_EXTENSION)))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Loads the hierarchy saved next to the given network file by
+     * {@link #save(String)}, for the given graph of the network's stops.
+     *
+     * @param networkFilename The name of the file the network was loaded from.
+     * @param graph The graph of the network's stops.
+     * @return The loaded hierarchy.
+     * @throws IOException If any IO exceptions occur whilst reading the file.
+     * @throws TransportFormatException If the file is not a contraction
+     *         hierarchy, or was built for a different graph.
+     */
+    public static ContractionHierarchy load(String networkFilename,
+                                            StopGraph graph)
+            throws IOException, TransportFormatException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(networkFilename + FILE_EXTENSION)))) {
+            return read(in, graph);
+        }
+    }
+
+    /*
+     * Writes this hierarchy to the given stream.
+     */
+    void write(DataOutputStream out) throws IOException {
+        GraphFiles.writeHeader(out, MAGIC, VERSION, graph);
+        GraphFiles.writeArray(out, rank);
+        GraphFiles.writeArray(out, upOffsets);
+        GraphFiles.writeArray(out, upTargets);
+        GraphFiles.writeArray(out, upWeights);
+        GraphFiles.writeArray(out, upMiddles);
+        GraphFiles.writeArray(out, downOffsets);
+        GraphFiles.writeArray(out, downSources);
+        GraphFiles.writeArray(out, downWeights);
+        GraphFiles.writeArray(out, downMiddles);
+    }
+
+    /*
+     * Reads a hierarchy previously written by write(DataOutputStream) for the
+     * given graph from the given stream.
+     *
+     * Throws a TransportFormatException if the stream is not a hierarchy, was
+     * written for a different graph, or contains invalid stops.
+     */
+    static ContractionHierarchy read(DataInputStream in, StopGraph graph)
+            throws IOException, TransportFormatException {
+        GraphFiles.readHeader(in, MAGIC, VERSION, graph);
+        int size = graph.size();
+        int max = Integer.MAX_VALUE;
+        int[] rank = GraphFiles.readArray(in, size, 0, size - 1);
+        int[] upOffsets = GraphFiles.readOffsets(in, size);
+        int ups = upOffsets[size];
+        int[] upTargets = GraphFiles.readArray(in, ups, 0, size - 1);
+        int[] upWeights = GraphFiles.readArray(in, ups, 0, max);
+        int[] upMiddles = GraphFiles.readArray(in, ups, NONE, size - 1);
+        int[] downOffsets = GraphFiles.readOffsets(in, size);
+        int downs = downOffsets[size];
+        int[] downSources = GraphFiles.readArray(in, downs, 0, size - 1);
+        int[] downWeights = GraphFiles.readArray(in, downs, 0, max);
+        int[] downMiddles = GraphFiles.readArray(in, downs, NONE, size - 1);
+        return new ContractionHierarchy(graph, rank, upOffsets, upTargets,
+                upWeights, upMiddles, downOffsets, downSources, downWeights,
+                downMiddles);
+    }
+
+    /*
+     * Runs the forward search from the source and the backward search from
+     * the target until neither can find a cheaper meeting stop, returning the
+     * stop at which the cheapest path meets (or NONE if there is no path).
+     */
+    private int meet(int source, int target, SearchSpace forward,
+                     SearchSpace backward) {
+        forward.reset();
+        backward.reset();
+        forward.reach(source, 0, NONE, NONE);
+        backward.reach(target, 0, NONE, NONE);
+
+        long best = Long.MAX_VALUE;
+        int meeting = NONE;
+        boolean forwardDone = false;
+        boolean backwardDone = false;
+        while (!forwardDone || !backwardDone) {
+            if (!forwardDone) {
+                if (forward.queue.isEmpty()
+                        || forward.queue.peekKey() >= best) {
+                    forwardDone = true;
+                } else {
+                    int stop = settle(forward, upOffsets, upTargets,
+                            upWeights);
+                    if (stop != NONE && backward.reached(stop)
+                            && forward.distance(stop)
+                            + backward.distance(stop) < best) {
+                        best = forward.distance(stop)
+                                + backward.distance(stop);
+                        meeting = stop;
+                    }
+                }
+            }
+            if (!backwardDone) {
+                if (backward.queue.isEmpty()
+                        || backward.queue.peekKey() >= best) {
+                    backwardDone = true;
+                } else {
+                    int stop = settle(backward, downOffsets, downSources,
+                            downWeights);
+                    if (stop != NONE && forward.reached(stop)
+                            && forward.distance(stop)
+                            + backward.distance(stop) < best) {
+                        best = forward.distance(stop)
+                                + backward.distance(stop);
+                        meeting = stop;
+                    }
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /*
+     * Visits the closest queued stop of the given search, following the given
+     * links from it, and returns the stop (or NONE if the queued entry was
+     * stale).
+     */
+    private static int settle(SearchSpace search, int[] offsets, int[] ends,
+                              int[] weights) {
+        long distance = search.queue.peekKey();
+        int stop = search.queue.poll();
+        if (distance > search.distance(stop)) {
+            return NONE;
+        }
+        for (int link = offsets[stop]; link < offsets[stop + 1]; link++) {
+            long next = distance + weights[link];
+            if (next < search.distance(ends[link])) {
+                search.reach(ends[link], next, stop, link);
+            }
+        }
+        return stop;
+    }
+
+    /*
+     * Returns the first stop after the given stop on the path represented by
+     * the link from it to the given stop, bypassing the given middle stop.
+     */
+    private int firstStep(int from, int to, int middle) {
+        while (middle != NONE) {
+            // the first half of a shortcut goes down to the stop it bypasses
+            int link = downLink(from, middle);
+            to = middle;
+            middle = downMiddles[link];
+        }
+        return to;
+    }
+
+    /*
+     * Adds the stops after the given from stop on the path represented by a
+     * link between two stops (bypassing the given middle stop) to the given
+     * list, in order.
+     */
+    private void unpack(int from, int to, int middle, List<Stop> stops) {
+        Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[] {from, to, middle});
+        while (!pending.isEmpty()) {
+            int[] link = pending.pop();
+            if (link[2] == NONE) {
+                stops.add(graph.getStop(link[1]));
+                continue;
+            }
+            // a shortcut is a link down to the bypassed stop, then a link up
+            int bypassed = link[2];
+            int up = upLink(bypassed, link[1]);
+            int down = downLink(link[0], bypassed);
+            pending.push(new int[] {bypassed, link[1], upMiddles[up]});
+            pending.push(new int[] {link[0], bypassed, downMiddles[down]});
+        }
+    }
+
+    /*
+     * Returns the position of the link up from the given lower stop to the
+     * given higher stop.
+     */
+    private int upLink(int lower, int higher) {
+        for (int link = upOffsets[lower]; link < upOffsets[lower + 1];
+             link++) {
+            if (upTargets[link] == higher) {
+                return link;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /*
+     * Returns the position of the link down from the given higher stop to the
+     * given lower stop.
+     */
+    private int downLink(int higher, int lower) {
+        for (int link = downOffsets[lower]; link < downOffsets[lower + 1];
+             link++) {
+            if (downSources[link] == higher) {
+                return link;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /*
+     * Contracts the stops of a graph, collecting the links of the hierarchy.
+     */
+    private static class Builder {
+        private final StopGraph graph;
+        private final int size;
+
+        // the remaining links leaving and entering each stop, keyed by the
+        // stop at the other end, as {weight, bypassed stop}
+        private final List<Map<Integer, long[]>> out;
+        private final List<Map<Integer, long[]>> in;
+
+        // whether each stop has been contracted, and how many of its
+        // neighbours have
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+
+        // the rank of each stop
+        private final int[] rank;
+
+        // the links up from and down to each stop, once it is contracted
+        private final int[][] up;
+        private final int[][] down;
+
+        private final SearchSpace witness;
+
+        private Builder(StopGraph graph) {
+            this.graph = graph;
+            this.size = graph.size();
+            this.out = new ArrayList<>(size);
+            this.in = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                out.add(new HashMap<>());
+                in.add(new HashMap<>());
+            }
+            for (int stop = 0; stop < size; stop++) {
+                for (int link = graph.offsets[stop];
+                     link < graph.offsets[stop + 1]; link++) {
+                    if (graph.targets[link] != stop) {
+                        addLink(stop, graph.targets[link],
+                                graph.weights[link], NONE);
+                    }
+                }
+            }
+            this.contracted = new boolean[size];
+            this.contractedNeighbours = new int[size];
+            this.rank = new int[size];
+            this.up = new int[size][];
+            this.down = new int[size][];
+            this.witness = new SearchSpace(size);
+        }
+
+        private ContractionHierarchy build() {
+            MinHeap queue = new MinHeap();
+            for (int stop = 0; stop < size; stop++) {
+                queue.add(priority(stop), stop);
+            }
+
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int stop = queue.poll();
+                if (contracted[stop]) {
+                    continue;
+                }
+                // priorities go stale as neighbours are contracted
+                long priority = priority(stop);
+                if (!queue.isEmpty() && priority > queue.peekKey()) {
+                    queue.add(priority, stop);
+                    continue;
+                }
+                contract(stop);
+                rank[stop] = order++;
+            }
+            return collect();
+        }
+
+        /*
+         * Estimates how important the given stop is (contracting less
+         * important stops first keeps the number of shortcuts small).
+         */
+        private long priority(int stop) {
+            int degree = 0;
+            for (int neighbour : out.get(stop).keySet()) {
+                degree += contracted[neighbour] ? 0 : 1;
+            }
+            for (int neighbour : in.get(stop).keySet()) {
+                degree += contracted[neighbour] ? 0 : 1;
+            }
+            return shortcuts(stop, false) - degree
+                    + contractedNeighbours[stop];
+        }
+
+        /*
+         * Contracts the given stop, recording its links to the remaining
+         * stops as links of the hierarchy, and adding the shortcuts needed
+         * between them.
+         */
+        private void contract(int stop) {
+            up[stop] = remaining(out.get(stop));
+            down[stop] = remaining(in.get(stop));
+            shortcuts(stop, true);
+            contracted[stop] = true;
+            for (int neighbour : out.get(stop).keySet()) {
+                contractedNeighbours[neighbour]++;
+            }
+            for (int neighbour : in.get(stop).keySet()) {
+                contractedNeighbours[neighbour]++;
+            }
+        }
+
+        /*
+         * Returns the remaining stops at the other end of the given links.
+         */
+        private int[] remaining(Map<Integer, long[]> links) {
+            return links.keySet().stream()
+                    .filter(neighbour -> !contracted[neighbour])
+                    .mapToInt(Integer::intValue).toArray();
+        }
+
+        /*
+         * Counts (and, if add is true, adds) the shortcuts needed to contract
+         * the given stop: one for each pair of remaining neighbours u and w
+         * for which the path u -> stop -> w is cheaper than any path between
+         * them which avoids the stop.
+         */
+        private int shortcuts(int stop, boolean add) {
+            int count = 0;
+            for (Map.Entry<Integer, long[]> entering
+                    : in.get(stop).entrySet()) {
+                int from = entering.getKey();
+                if (contracted[from]) {
+                    continue;
+                }
+                long toStop = entering.getValue()[0];
+
+                long limit = NONE;
+                for (Map.Entry<Integer, long[]> leaving
+                        : out.get(stop).entrySet()) {
+                    int to = leaving.getKey();
+                    if (!contracted[to] && to != from) {
+                        limit = Math.max(limit,
+                                toStop + leaving.getValue()[0]);
+                    }
+                }
+                if (limit == NONE) {
+                    continue;
+                }
+                searchWitnesses(from, stop, limit);
+
+                for (Map.Entry<Integer, long[]> leaving
+                        : out.get(stop).entrySet()) {
+                    int to = leaving.getKey();
+                    long cost = toStop + leaving.getValue()[0];
+                    if (contracted[to] || to == from
+                            || witness.distance(to) <= cost) {
+                        continue;
+                    }
+                    count++;
+                    if (add) {
+                        addLink(from, to, cost, stop);
+                    }
+                }
+            }
+            return count;
+        }
+
+        /*
+         * Searches from the given stop for paths to the other remaining stops
+         * which avoid the excluded stop, up to the given cost (or until the
+         * search has visited WITNESS_LIMIT stops).
+         */
+        private void searchWitnesses(int from, int excluded, long limit) {
+            witness.reset();
+            witness.reach(from, 0, NONE, NONE);
+            int visited = 0;
+            while (!witness.queue.isEmpty()) {
+                long distance = witness.queue.peekKey();
+                int stop = witness.queue.poll();
+                if (distance > witness.distance(stop)) {
+                    continue;
+                }
+                if (distance > limit || ++visited > WITNESS_LIMIT) {
+                    break;
+                }
+                for (Map.Entry<Integer, long[]> link
+                        : out.get(stop).entrySet()) {
+                    int next = link.getKey();
+                    long cost = distance + link.getValue()[0];
+                    if (!contracted[next] && next != excluded
+                            && cost < witness.distance(next)) {
+                        witness.reach(next, cost, stop, NONE);
+                    }
+                }
+            }
+        }
+
+        /*
+         * Adds a link between two stops, unless there is already one which
+         * is at least as cheap.
+         */
+        private void addLink(int from, int to, long weight, int middle) {
+            long[] existing = out.get(from).get(to);
+            if (existing == null || weight < existing[0]) {
+                long[] link = {weight, middle};
+                out.get(from).put(to, link);
+                in.get(to).put(from, link);
+            }
+        }
+
+        /*
+         * Packs the links recorded as each stop was contracted into
+         * compressed sparse row arrays.
+         */
+        private ContractionHierarchy collect() {
+            int[] upOffsets = new int[size + 1];
+            int[] downOffsets = new int[size + 1];
+            for (int stop = 0; stop < size; stop++) {
+                upOffsets[stop + 1] = upOffsets[stop] + up[stop].length;
+                downOffsets[stop + 1] = downOffsets[stop] + down[stop].length;
+            }
+
+            int[] upTargets = new int[upOffsets[size]];
+            int[] upWeights = new int[upTargets.length];
+            int[] upMiddles = new int[upTargets.length];
+            int[] downSources = new int[downOffsets[size]];
+            int[] downWeights = new int[downSources.length];
+            int[] downMiddles = new int[downSources.length];
+            for (int stop = 0; stop < size; stop++) {
+                int link = upOffsets[stop];
+                for (int target : up[stop]) {
+                    long[] details = out.get(stop).get(target);
+                    upTargets[link] = target;
+                    upWeights[link] = weight(details[0]);
+                    upMiddles[link] = (int) details[1];
+                    link++;
+                }
+                link = downOffsets[stop];
+                for (int source : down[stop]) {
+                    long[] details = in.get(stop).get(source);
+                    downSources[link] = source;
+                    downWeights[link] = weight(details[0]);
+                    downMiddles[link] = (int) details[1];
+                    link++;
+                }
+            }
+            return new ContractionHierarchy(graph, rank, upOffsets,
+                    upTargets, upWeights, upMiddles, downOffsets, downSources,
+                    downWeights, downMiddles);
+        }
+
+        /*
+         * Returns the given link weight as an int, saturated at the largest
+         * cost costTo reports rather than wrapping around to a negative cost
+         * (shortcuts over very dear links can cost more than an int holds).
+         */
+        private static int weight(long weight) {
+            return (int) Math.min(weight, Integer.MAX_VALUE - 1);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package routing;
+
+import exceptions.TransportFormatException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads and writes the parts shared by the files routing structures built
+ * from a {@link StopGraph} are saved in.
+ *
+ * <p>Each file starts with a header identifying the kind of structure, the
+ * version of its format, and the size and fingerprint of the graph it was
+ * built from, so that a structure is never loaded for a different network.
+ * The rest of the file is made up of int arrays, each preceded by its length.
+ */
+class GraphFiles {
+
+    /*
+     * Writes the header of a file holding a structure built from the given
+     * graph.
+     */
+    static void writeHeader(DataOutputStream out, int magic, int version,
+                            StopGraph graph) throws IOException {
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeInt(graph.size());
+        out.writeLong(graph.fingerprint());
+    }
+
+    /*
+     * Reads the header of a file, checking that it holds the expected kind of
+     * structure, and that it was built from the given graph.
+     */
+    static void readHeader(DataInputStream in, int magic, int version,
+                           StopGraph graph)
+            throws IOException, TransportFormatException {
+        if (in.readInt() != magic || in.readInt() != version
+                || in.readInt() != graph.size()
+                || in.readLong() != graph.fingerprint()) {
+            throw new TransportFormatException();
+        }
+    }
+
+    static void writeArray(DataOutputStream out, int[] values)
+            throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /*
+     * Reads an array of the given length, checking each value is in the given
+     * (inclusive) range.
+     */
+    static int[] readArray(DataInputStream in, int length, int min, int max)
+            throws IOException, TransportFormatException {
+        if (in.readInt() != length) {
+            throw new TransportFormatException();
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+            if (values[i] < min || values[i] > max) {
+                throw new TransportFormatException();
+            }
+        }
+        return values;
+    }
+
+    /*
+     * Reads the offsets of a compressed sparse row array with an entry for
+     * each of the given number of stops, checking they start at 0 and are in
+     * order.
+     */
+    static int[] readOffsets(DataInputStream in, int size)
+            throws IOException, TransportFormatException {
+        if (in.readInt() != size + 1) {
+            throw new TransportFormatException();
+        }
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i <= size; i++) {
+            offsets[i] = in.readInt();
+            if (offsets[i] < (i == 0 ? 0 : offsets[i - 1])
+                    || (i == 0 && offsets[i] != 0)) {
+                throw new TransportFormatException();
+            }
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,440 @@
+package routing;
+
+import exceptions.TransportFormatException;
+import stops.Stop;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A hub labelling of a {@link StopGraph}, answering the cost of the cheapest
+ * path between any two stops by merging two short sorted arrays, without
+ * searching the network or holding a cost for every pair of stops.
+ *
+ * <p>Every stop has an out label, listing some hub stops and the cost of
+ * travelling from the stop to each of them, and an in label, listing hubs and
+ * the cost of travelling from each of them to the stop. The labels are built
+ * so that the cheapest path between any two stops passes through a hub which
+ * is in both the origin's out label and the destination's in label, so the
+ * cost between them is the cheapest sum over the hubs their labels share.
+ *
+ * <p>Labels are built by pruned searches from each stop in turn, most
+ * important first (in the order of a {@link ContractionHierarchy}): a search
+ * from a hub only labels the stops whose cheapest path to or from it is not
+ * already covered by a more important hub, which keeps labels short. Hubs are
+ * numbered in this order, so each label is sorted by hub number as it is
+ * built.
+ *
+ * <p>The labels of all of the stops are held in a few primitive arrays (in
+ * compressed sparse row form), and can be saved next to the network file the
+ * graph was built from and loaded again without being rebuilt. Queries may be
+ * made from several threads at once.
+ */
+public class HubLabels {
+    /**
+     * The extension added to a network's filename to name the file the
+     * labels for that network are saved in.
+     */
+    public static final String FILE_EXTENSION = ".hl";
+
+    // identifies a hub label file ("TNHL")
+    private static final int MAGIC = 0x544E484C;
+
+    // the version of the file format
+    private static final int VERSION = 1;
+
+    // the graph the labels were built for
+    private final StopGraph graph;
+
+    // the out label of each stop: hubs, and the cost from the stop to each
+    private final int[] outOffsets;
+    private final int[] outHubs;
+    private final int[] outCosts;
+
+    // the in label of each stop: hubs, and the cost from each to the stop
+    private final int[] inOffsets;
+    private final int[] inHubs;
+    private final int[] inCosts;
+
+    private HubLabels(StopGraph graph, int[] outOffsets, int[] outHubs,
+                      int[] outCosts, int[] inOffsets, int[] inHubs,
+                      int[] inCosts) {
+        this.graph = graph;
+        this.outOffsets = outOffsets;
+        this.outHubs = outHubs;
+        this.outCosts = outCosts;
+        this.inOffsets = inOffsets;
+        this.inHubs = inHubs;
+        this.inCosts = inCosts;
+    }
+
+    /**
+     * Builds hub labels for the given graph, ordering hubs by a contraction
+     * hierarchy built for the purpose.
+     *
+     * @param graph The graph of the stops to label.
+     * @return The labels.
+     */
+    public static HubLabels build(StopGraph graph) {
+        return build(ContractionHierarchy.build(graph));
+    }
+
+    /**
+     * Builds hub labels for the graph of the given contraction hierarchy,
+     * using its most highly ranked stops as the most important hubs.
+     *
+     * @param hierarchy A contraction hierarchy of the graph to label.
+     * @return The labels.
+     */
+    public static HubLabels build(ContractionHierarchy hierarchy) {
+        return new Builder(hierarchy.getGraph(), hierarchy.rank).build();
+    }
+
+    /**
+     * Returns the graph these labels were built for.
+     *
+     * @return The graph of the labelled stops.
+     */
+    public StopGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the total number of entries in the in and out labels of every
+     * stop.
+     *
+     * @return The number of label entries.
+     */
+    public int labelCount() {
+        return outHubs.length + inHubs.length;
+    }
+
+    /**
+     * Returns the cost of the cheapest path from one stop to another, as
+     * {@link stops.RoutingTable#costTo(Stop)} would for fully synchronised
+     * tables.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The cost of the cheapest path (at most Integer.MAX_VALUE - 1),
+     *         or Integer.MAX_VALUE if either stop is not in the graph or
+     *         there is no path between them.
+     */
+    public int costTo(Stop from, Stop to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return cost(source, target);
+    }
+
+    /**
+     * Returns the cost of the cheapest path between the stops with the given
+     * indices in the graph, as for {@link #costTo(Stop, Stop)}.
+     *
+     * <p>Looking stops up by index avoids looking up the stops themselves,
+     * for callers which make many queries.
+     *
+     * @param from The index of the stop to start from.
+     * @param to The index of the stop to travel to.
+     * @return The cost of the cheapest path (at most Integer.MAX_VALUE - 1),
+     *         or Integer.MAX_VALUE if there is no path between them.
+     * @throws IndexOutOfBoundsException If either index is not a stop in the
+     *         graph.
+     */
+    public int cost(int from, int to) {
+        int out = outOffsets[from];
+        int outEnd = outOffsets[from + 1];
+        int in = inOffsets[to];
+        int inEnd = inOffsets[to + 1];
+
+        long best = Integer.MAX_VALUE;
+        while (out < outEnd && in < inEnd) {
+            int outHub = outHubs[out];
+            int inHub = inHubs[in];
+            if (outHub < inHub) {
+                out++;
+            } else if (outHub > inHub) {
+                in++;
+            } else {
+                // a path dearer than an int holds is still a path, so it
+                // saturates below the cost of there being no path
+                best = Math.min(best, Math.min(
+                        (long) outCosts[out] + inCosts[in],
+                        Integer.MAX_VALUE - 1));
+                out++;
+                in++;
+            }
+        }
+        return (int) best;
+    }
+
+    /**
+     * Saves these labels next to the given network file, in a file named by
+     * adding {@link #FILE_EXTENSION} to the network's filename.
+     *
+     * @param networkFilename The name of the file the network was loaded from
+     *                        or saved to.
+     * @throws IOException If any IO exceptions occur whilst writing the file.
+     */
+    public void save(String networkFilename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(
+                        networkFilename + FILE_EXTENSION)))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Loads the labels saved next to the given network file by
+     * {@link #save(String)}, for the given graph of the network's stops.
+     *
+     * @param networkFilename The name of the file the network was loaded from.
+     * @param graph The graph of the network's stops.
+     * @return The loaded labels.
+     * @throws IOException If any IO exceptions occur whilst reading the file.
+     * @throws TransportFormatException If the file does not hold hub labels,
+     *         or they were built for a different graph.
+     */
+    public static HubLabels load(String networkFilename, StopGraph graph)
+            throws IOException, TransportFormatException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(networkFilename + FILE_EXTENSION)))) {
+            return read(in, graph);
+        }
+    }
+
+    /*
+     * Writes these labels to the given stream.
+     */
+    void write(DataOutputStream out) throws IOException {
+        GraphFiles.writeHeader(out, MAGIC, VERSION, graph);
+        GraphFiles.writeArray(out, outOffsets);
+        GraphFiles.writeArray(out, outHubs);
+        GraphFiles.writeArray(out, outCosts);
+        GraphFiles.writeArray(out, inOffsets);
+        GraphFiles.writeArray(out, inHubs);
+        GraphFiles.writeArray(out, inCosts);
+    }
+
+    /*
+     * Reads labels previously written by write(DataOutputStream) for the
+     * given graph from the given stream.
+     *
+     * Throws a TransportFormatException if the stream does not hold labels,
+     * they were written for a different graph, or they contain invalid hubs.
+     */
+    static HubLabels read(DataInputStream in, StopGraph graph)
+            throws IOException, TransportFormatException {
+        GraphFiles.readHeader(in, MAGIC, VERSION, graph);
+        int size = graph.size();
+        int max = Integer.MAX_VALUE;
+        int[] outOffsets = GraphFiles.readOffsets(in, size);
+        int outs = outOffsets[size];
+        int[] outHubs = GraphFiles.readArray(in, outs, 0, size - 1);
+        int[] outCosts = GraphFiles.readArray(in, outs, 0, max);
+        int[] inOffsets = GraphFiles.readOffsets(in, size);
+        int ins = inOffsets[size];
+        int[] inHubs = GraphFiles.readArray(in, ins, 0, size - 1);
+        int[] inCosts = GraphFiles.readArray(in, ins, 0, max);
+        return new HubLabels(graph, outOffsets, outHubs, outCosts, inOffsets,
+                inHubs, inCosts);
+    }
+
+    /*
+     * Runs the pruned searches from each hub, collecting the labels.
+     */
+    private static class Builder {
+        private final StopGraph graph;
+        private final int size;
+
+        // the stops in hub order (most important first)
+        private final int[] hubs;
+
+        // the links entering each stop, in compressed sparse row form
+        private final int[] reverseOffsets;
+        private final int[] reverseSources;
+        private final int[] reverseWeights;
+
+        // the labels built so far, and the number of entries in each
+        private final int[][] outLabelHubs;
+        private final int[][] outLabelCosts;
+        private final int[] outLabelSizes;
+        private final int[][] inLabelHubs;
+        private final int[][] inLabelCosts;
+        private final int[] inLabelSizes;
+
+        // the cost to or from the current hub of each hub in its own label
+        private final long[] hubCosts;
+
+        private final SearchSpace search;
+
+        private Builder(StopGraph graph, int[] rank) {
+            this.graph = graph;
+            this.size = graph.size();
+
+            hubs = new int[size];
+            for (int stop = 0; stop < size; stop++) {
+                hubs[size - 1 - rank[stop]] = stop;
+            }
+
+            reverseOffsets = new int[size + 1];
+            for (int target : graph.targets) {
+                reverseOffsets[target + 1]++;
+            }
+            for (int stop = 0; stop < size; stop++) {
+                reverseOffsets[stop + 1] += reverseOffsets[stop];
+            }
+            reverseSources = new int[graph.targets.length];
+            reverseWeights = new int[graph.targets.length];
+            int[] next = Arrays.copyOf(reverseOffsets, size);
+            for (int stop = 0; stop < size; stop++) {
+                for (int link = graph.offsets[stop];
+                     link < graph.offsets[stop + 1]; link++) {
+                    int position = next[graph.targets[link]]++;
+                    reverseSources[position] = stop;
+                    reverseWeights[position] = graph.weights[link];
+                }
+            }
+
+            outLabelHubs = new int[size][];
+            outLabelCosts = new int[size][];
+            outLabelSizes = new int[size];
+            inLabelHubs = new int[size][];
+            inLabelCosts = new int[size][];
+            inLabelSizes = new int[size];
+            for (int stop = 0; stop < size; stop++) {
+                outLabelHubs[stop] = new int[4];
+                outLabelCosts[stop] = new int[4];
+                inLabelHubs[stop] = new int[4];
+                inLabelCosts[stop] = new int[4];
+            }
+
+            hubCosts = new long[size];
+            Arrays.fill(hubCosts, Long.MAX_VALUE);
+            search = new SearchSpace(size);
+        }
+
+        private HubLabels build() {
+            for (int hub = 0; hub < size; hub++) {
+                int stop = hubs[hub];
+
+                // paths to the hub, found by searching backwards from it
+                prunedSearch(hub, stop, reverseOffsets, reverseSources,
+                        reverseWeights, inLabelHubs, inLabelCosts,
+                        inLabelSizes, outLabelHubs, outLabelCosts,
+                        outLabelSizes);
+
+                // paths from the hub, found by searching forwards from it
+                prunedSearch(hub, stop, graph.offsets, graph.targets,
+                        graph.weights, outLabelHubs, outLabelCosts,
+                        outLabelSizes, inLabelHubs, inLabelCosts,
+                        inLabelSizes);
+            }
+
+            int[] outOffsets = offsets(outLabelSizes);
+            int[] inOffsets = offsets(inLabelSizes);
+            return new HubLabels(graph, outOffsets,
+                    flatten(outLabelHubs, outLabelSizes, outOffsets),
+                    flatten(outLabelCosts, outLabelSizes, outOffsets),
+                    inOffsets, flatten(inLabelHubs, inLabelSizes, inOffsets),
+                    flatten(inLabelCosts, inLabelSizes, inOffsets));
+        }
+
+        /*
+         * Searches from the given hub along the given links, adding the hub
+         * to the labels (target*) of the stops it reaches, unless the hubs
+         * already in those labels and the hub's own label (own*) already
+         * give a path at least as cheap.
+         */
+        private void prunedSearch(int hub, int stop, int[] offsets,
+                                  int[] ends, int[] weights,
+                                  int[][] ownHubs, int[][] ownCosts,
+                                  int[] ownSizes, int[][] targetHubs,
+                                  int[][] targetCosts, int[] targetSizes) {
+            for (int i = 0; i < ownSizes[stop]; i++) {
+                hubCosts[ownHubs[stop][i]] = ownCosts[stop][i];
+            }
+
+            search.reset();
+            search.reach(stop, 0, -1, -1);
+            while (!search.queue.isEmpty()) {
+                long distance = search.queue.peekKey();
+                int current = search.queue.poll();
+                if (distance > search.distance(current)
+                        || covered(current, distance, targetHubs,
+                        targetCosts, targetSizes)) {
+                    continue;
+                }
+                append(targetHubs, targetCosts, targetSizes, current, hub,
+                        distance);
+                for (int link = offsets[current]; link < offsets[current + 1];
+                     link++) {
+                    long next = distance + weights[link];
+                    if (next < search.distance(ends[link])) {
+                        search.reach(ends[link], next, current, link);
+                    }
+                }
+            }
+
+            for (int i = 0; i < ownSizes[stop]; i++) {
+                hubCosts[ownHubs[stop][i]] = Long.MAX_VALUE;
+            }
+        }
+
+        /*
+         * Returns whether the given stop's label and the current hub's label
+         * already share a hub giving a path at most the given cost.
+         */
+        private boolean covered(int stop, long distance, int[][] labelHubs,
+                                int[][] labelCosts, int[] labelSizes) {
+            for (int i = 0; i < labelSizes[stop]; i++) {
+                long viaHub = hubCosts[labelHubs[stop][i]];
+                if (viaHub != Long.MAX_VALUE
+                        && viaHub + labelCosts[stop][i] <= distance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static void append(int[][] labelHubs, int[][] labelCosts,
+                                   int[] labelSizes, int stop, int hub,
+                                   long cost) {
+            int position = labelSizes[stop]++;
+            if (position == labelHubs[stop].length) {
+                labelHubs[stop] = Arrays.copyOf(labelHubs[stop],
+                        position * 2);
+                labelCosts[stop] = Arrays.copyOf(labelCosts[stop],
+                        position * 2);
+            }
+            labelHubs[stop][position] = hub;
+            labelCosts[stop][position] = (int) Math.min(cost,
+                    Integer.MAX_VALUE - 1);
+        }
+
+        private static int[] offsets(int[] sizes) {
+            int[] offsets = new int[sizes.length + 1];
+            for (int i = 0; i < sizes.length; i++) {
+                offsets[i + 1] = offsets[i] + sizes[i];
+            }
+            return offsets;
+        }
+
+        private static int[] flatten(int[][] labels, int[] sizes,
+                                     int[] offsets) {
+            int[] flat = new int[offsets[sizes.length]];
+            for (int i = 0; i < sizes.length; i++) {
+                System.arraycopy(labels[i], 0, flat, offsets[i], sizes[i]);
+            }
+            return flat;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package routing;
+
+import routes.Route;
+import stops.Stop;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A journey planned by a {@link RaptorPlanner}: the trips ridden from the
+ * origin to the destination, and when each is boarded and left.
+ */
+public class Itinerary {
+    /**
+     * A ride on a single trip of a route, from the stop it is boarded at to
+     * the stop it is left at.
+     */
+    public static class Leg {
+        // the route of the trip, and the stops it is boarded and left at
+        private final Route route;
+        private final Stop from;
+        private final Stop to;
+
+        // the times the trip leaves the first stop and reaches the second
+        private final int departure;
+        private final int arrival;
+
+        Leg(Route route, Stop from, Stop to, int departure, int arrival) {
+            this.route = route;
+            this.from = from;
+            this.to = to;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        /**
+         * Returns the route of the trip ridden on this leg.
+         *
+         * @return The route ridden.
+         */
+        public Route getRoute() {
+            return route;
+        }
+
+        /**
+         * Returns the stop the trip is boarded at.
+         *
+         * @return The first stop of the leg.
+         */
+        public Stop getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the stop the trip is left at.
+         *
+         * @return The last stop of the leg.
+         */
+        public Stop getTo() {
+            return to;
+        }
+
+        /**
+         * Returns the time the trip leaves the stop it is boarded at.
+         *
+         * @return The departure time of the leg.
+         */
+        public int getDeparture() {
+            return departure;
+        }
+
+        /**
+         * Returns the time the trip reaches the stop it is left at.
+         *
+         * @return The arrival time of the leg.
+         */
+        public int getArrival() {
+            return arrival;
+        }
+
+        @Override
+        public String toString() {
+            return route.getName() + " " + from.getName() + "@" + departure
+                    + " -> " + to.getName() + "@" + arrival;
+        }
+    }
+
+    // the legs of the journey, in the order they are ridden
+    private final List<Leg> legs;
+
+    // the time passengers are ready to leave the origin, and reach the
+    // destination
+    private final int departure;
+    private final int arrival;
+
+    Itinerary(List<Leg> legs, int departure, int arrival) {
+        this.legs = Collections.unmodifiableList(legs);
+        this.departure = departure;
+        this.arrival = arrival;
+    }
+
+    /**
+     * Returns the legs of this journey, in the order they are ridden. The
+     * list is empty if the origin is the destination.
+     *
+     * @return The legs of the journey.
+     */
+    public List<Leg> getLegs() {
+        return legs;
+    }
+
+    /**
+     * Returns the time passengers were ready to leave the origin.
+     *
+     * @return The time the journey was planned from.
+     */
+    public int getDeparture() {
+        return departure;
+    }
+
+    /**
+     * Returns the time passengers reach the destination.
+     *
+     * @return The arrival time of the journey.
+     */
+    public int getArrival() {
+        return arrival;
+    }
+
+    /**
+     * Returns the number of times passengers change trip on this journey.
+     *
+     * @return The number of transfers.
+     */
+    public int getTransfers() {
+        return Math.max(legs.size() - 1, 0);
+    }
+
+    @Override
+    public String toString() {
+        return legs.size() + " legs, arriving at " + arrival;
+    }
+}
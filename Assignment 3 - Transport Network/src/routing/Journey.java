@@ -0,0 +1,77 @@
+package routing;
+
+import routes.Route;
+import stops.Stop;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A journey through a {@link TransferGraph}: the stops passed through, the
+ * route ridden to reach each of them, and the transfers made between routes.
+ */
+public class Journey {
+    // the stops passed through, from the origin to the destination
+    private final List<Stop> stops;
+
+    // the route ridden to reach each stop after the origin
+    private final List<Route> routes;
+
+    // the cost of the links ridden plus the transfer penalties
+    private final long cost;
+
+    // the number of times passengers change route
+    private final int transfers;
+
+    Journey(List<Stop> stops, List<Route> routes, long cost, int transfers) {
+        this.stops = Collections.unmodifiableList(stops);
+        this.routes = Collections.unmodifiableList(routes);
+        this.cost = cost;
+        this.transfers = transfers;
+    }
+
+    /**
+     * Returns the stops passed through on this journey, from the origin to
+     * the destination.
+     *
+     * @return The stops of the journey.
+     */
+    public List<Stop> getStops() {
+        return stops;
+    }
+
+    /**
+     * Returns the route ridden to reach each stop of this journey after the
+     * origin, so the route at index i is ridden from stop i to stop i + 1.
+     *
+     * @return The routes of the journey.
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Returns the cost of this journey: the cost of the links ridden plus the
+     * penalty of each transfer.
+     *
+     * @return The cost of the journey.
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    /**
+     * Returns the number of times passengers change route on this journey.
+     *
+     * @return The number of transfers.
+     */
+    public int getTransfers() {
+        return transfers;
+    }
+
+    @Override
+    public String toString() {
+        return stops.size() + " stops, " + transfers + " transfers, cost "
+                + cost;
+    }
+}
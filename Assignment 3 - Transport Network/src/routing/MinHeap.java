@@ -0,0 +1,88 @@
+package routing;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int values ordered by long keys, for the priority
+ * queues of shortest path searches.
+ *
+ * <p>Unlike a {@code PriorityQueue}, adding and removing values does not
+ * allocate any objects (other than when the backing arrays need to grow).
+ * Values are not updated in place: a search adds a value again with a smaller
+ * key, and skips the stale entries as they are removed.
+ */
+class MinHeap {
+    // the keys and values in heap order
+    private long[] keys = new long[16];
+    private int[] values = new int[16];
+
+    // the number of entries in the heap
+    private int size;
+
+    /*
+     * Adds the given value with the given key.
+     */
+    void add(long key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int child = size++;
+        while (child > 0) {
+            int parent = (child - 1) / 2;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[child] = keys[parent];
+            values[child] = values[parent];
+            child = parent;
+        }
+        keys[child] = key;
+        values[child] = value;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+     * Returns the smallest key in the heap (the heap must not be empty).
+     */
+    long peekKey() {
+        return keys[0];
+    }
+
+    /*
+     * Removes and returns the value with the smallest key (the heap must not
+     * be empty).
+     */
+    int poll() {
+        int result = values[0];
+        size--;
+        long key = keys[size];
+        int value = values[size];
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[parent] = keys[child];
+            values[parent] = values[child];
+            parent = child;
+        }
+        keys[parent] = key;
+        values[parent] = value;
+        return result;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,324 @@
+package routing;
+
+import stops.Path;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A view of the routing of a {@link StopGraph} restricted to some modes of
+ * transport (e.g. rail only, or avoiding ferries), in which passengers may
+ * only travel along links served by at least one of the view's modes.
+ *
+ * <p>A view does not copy the graph: its searches scan the graph's links and
+ * skip those whose mode mask has none of the view's modes set, so any number
+ * of views share the same graph. The routing of each stop queried as a source
+ * is computed once by a search over the allowed links, and held as arrays of
+ * costs and first stops indexed by destination, so repeated cost and next
+ * stop queries from the same source are array lookups. Paths are traced back
+ * from the destination over the links whose cost accounts exactly for the
+ * difference in cost between their ends. The sources held are bounded by the
+ * memory their arrays take up, and the least recently queried source is
+ * discarded once the view is full.
+ *
+ * <p>Like the graph, a view is a snapshot, and does not reflect changes made
+ * to the network after the graph was created. Views are not safe for use by
+ * multiple threads at once.
+ */
+public class ModeView {
+    /**
+     * The number of bytes of routing held by a view by default.
+     */
+    public static final long DEFAULT_CAPACITY_BYTES = 16L << 20;
+
+    // the value stored for a stop which has not been reached
+    private static final int NONE = -1;
+
+    /*
+     * The routing from a single source stop, indexed by destination.
+     */
+    private static class Source {
+        // the cost of the cheapest path to each stop (MAX_VALUE if unreached)
+        private final int[] costs;
+
+        // the first stop after the source on the cheapest path to each stop
+        private final int[] firstStops;
+
+        private Source(int size) {
+            costs = new int[size];
+            firstStops = new int[size];
+            Arrays.fill(costs, Integer.MAX_VALUE);
+            Arrays.fill(firstStops, NONE);
+        }
+
+        /*
+         * Returns the estimated size of the routing of a single source in a
+         * graph of the given size (the object and its two arrays).
+         */
+        private static long bytes(int size) {
+            return 16 + 2 * ((16 + 4L * size + 7) / 8 * 8);
+        }
+    }
+
+    // the graph being viewed, and the mask of the modes allowed
+    private final StopGraph graph;
+    private final int mask;
+
+    // the maximum number of sources to hold
+    private final int capacity;
+
+    // the routing of the sources held, least recently queried first
+    private final Map<Integer, Source> sources;
+
+    // the search space reused by each search
+    private final SearchSpace space;
+
+    /**
+     * Creates a view of the given graph restricted to the given modes,
+     * holding up to {@link #DEFAULT_CAPACITY_BYTES} of routing.
+     *
+     * @param graph The graph to view.
+     * @param modes The modes passengers may travel by.
+     * @throws IllegalArgumentException If the graph or modes are null.
+     */
+    public ModeView(StopGraph graph, Set<TransportMode> modes) {
+        this(graph, modes, DEFAULT_CAPACITY_BYTES);
+    }
+
+    /**
+     * Creates a view of the given graph restricted to the given modes,
+     * holding the routing of as many sources as fit in the given number of
+     * bytes (and always at least one).
+     *
+     * @param graph The graph to view.
+     * @param modes The modes passengers may travel by.
+     * @param capacityBytes The maximum number of bytes of routing to hold.
+     * @throws IllegalArgumentException If the graph or modes are null, or the
+     *         capacity is not positive.
+     */
+    public ModeView(StopGraph graph, Set<TransportMode> modes,
+                    long capacityBytes) {
+        if (graph == null || capacityBytes <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.graph = graph;
+        this.mask = TransportMode.mask(modes);
+        this.capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                capacityBytes / Source.bytes(graph.size())));
+        this.space = new SearchSpace(graph.size());
+        this.sources = new LinkedHashMap<Integer, Source>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Integer, Source> eldest) {
+                return size() > ModeView.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the graph this view restricts.
+     *
+     * @return The viewed graph.
+     */
+    public StopGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the modes passengers may travel by in this view.
+     *
+     * @return The allowed modes.
+     */
+    public Set<TransportMode> getModes() {
+        Set<TransportMode> modes = EnumSet.noneOf(TransportMode.class);
+        for (TransportMode mode : TransportMode.values()) {
+            if ((mask & mode.bit()) != 0) {
+                modes.add(mode);
+            }
+        }
+        return modes;
+    }
+
+    /**
+     * Returns the number of sources whose routing is currently held.
+     *
+     * @return The number of sources held.
+     */
+    public int size() {
+        return sources.size();
+    }
+
+    /**
+     * Returns the estimated number of bytes of routing currently held, which
+     * is at most the capacity the view was created with (unless the routing
+     * of a single source is larger).
+     *
+     * @return The estimated size of the routing held, in bytes.
+     */
+    public long getHeldBytes() {
+        return sources.size() * Source.bytes(graph.size());
+    }
+
+    /**
+     * Computes and holds the routing of each of the given stops as sources
+     * (up to the capacity of the view), so that later queries from them do
+     * not need to search. Stops which are not in the graph are ignored.
+     *
+     * @param stops The stops to compute the routing of.
+     */
+    public void precompute(List<Stop> stops) {
+        for (Stop stop : stops) {
+            int index = graph.indexOf(stop);
+            if (index >= 0) {
+                source(index);
+            }
+        }
+    }
+
+    /**
+     * Returns the cost of the cheapest path from one stop to another using
+     * only the modes of this view.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The cost of the cheapest path, or Integer.MAX_VALUE if either
+     *         stop is not in the graph or there is no path.
+     */
+    public int costTo(Stop from, Stop to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return source(source).costs[target];
+    }
+
+    /**
+     * Returns the neighbouring stop passengers at one stop should travel to
+     * next to reach another using only the modes of this view.
+     *
+     * @param from The stop passengers are at.
+     * @param to The destination of the passengers.
+     * @return The next stop (the stop itself if it is the destination), or
+     *         null if either stop is not in the graph or there is no path.
+     */
+    public Stop nextStop(Stop from, Stop to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        int next = source(source).firstStops[target];
+        return next == NONE ? null : graph.getStop(next);
+    }
+
+    /**
+     * Returns the cheapest path from one stop to another using only the modes
+     * of this view.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The path, or null if either stop is not in the graph or there is
+     *         no path.
+     */
+    public Path path(Stop from, Stop to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        Source routing = source(source);
+        if (routing.costs[target] == Integer.MAX_VALUE) {
+            return null;
+        }
+
+        // trace back from the destination, leaving the next stop towards it
+        // as the parent of each stop reached
+        space.reset();
+        space.reach(target, routing.costs[target], NONE, NONE);
+        while (!space.reached(source)) {
+            int stop = space.queue.poll();
+            for (int in = graph.inOffsets[stop];
+                 in < graph.inOffsets[stop + 1]; in++) {
+                int link = graph.inLinks[in];
+                int previous = graph.source(link);
+                if ((graph.modes[link] & mask) != 0
+                        && !space.reached(previous)
+                        && leadsTo(routing, previous, link, stop)) {
+                    space.reach(previous, routing.costs[previous], stop,
+                            link);
+                }
+            }
+        }
+
+        List<Stop> stops = new ArrayList<>();
+        for (int stop = source; stop != NONE; stop = space.parent(stop)) {
+            stops.add(graph.getStop(stop));
+        }
+        return new Path(stops, routing.costs[target]);
+    }
+
+    /*
+     * Returns whether the given link from one stop to another is on a
+     * cheapest path from the source to the other stop.
+     */
+    private boolean leadsTo(Source routing, int from, int link, int to) {
+        if (routing.costs[from] == Integer.MAX_VALUE) {
+            return false;
+        }
+        long cost = (long) routing.costs[from] + graph.weights[link];
+        return Math.min(cost, Integer.MAX_VALUE - 1) == routing.costs[to];
+    }
+
+    /*
+     * Returns the routing of the given source, searching from it if it is not
+     * held.
+     */
+    private Source source(int source) {
+        Source routing = sources.get(source);
+        if (routing == null) {
+            routing = search(source);
+            sources.put(source, routing);
+        }
+        return routing;
+    }
+
+    /*
+     * Searches from the given source over the links allowed by this view.
+     */
+    private Source search(int source) {
+        Source routing = new Source(graph.size());
+        space.reset();
+        space.reach(source, 0, NONE, NONE);
+        while (!space.queue.isEmpty()) {
+            long distance = space.queue.peekKey();
+            int stop = space.queue.poll();
+            if (distance > space.distance(stop)) {
+                continue;
+            }
+            int parent = space.parent(stop);
+            routing.costs[stop] = (int) Math.min(distance,
+                    Integer.MAX_VALUE - 1);
+            routing.firstStops[stop] = parent == NONE || parent == source
+                    ? stop : routing.firstStops[parent];
+
+            for (int link = graph.offsets[stop];
+                 link < graph.offsets[stop + 1]; link++) {
+                if ((graph.modes[link] & mask) == 0) {
+                    continue;
+                }
+                long next = distance + graph.weights[link];
+                if (next < space.distance(graph.targets[link])) {
+                    space.reach(graph.targets[link], next, stop, link);
+                }
+            }
+        }
+        return routing;
+    }
+}
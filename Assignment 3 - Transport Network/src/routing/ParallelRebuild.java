@@ -0,0 +1,195 @@
+package routing;
+
+import metrics.MetricsRegistry;
+import metrics.RoutingRebuildEvent;
+import stops.RoutingEntry;
+import stops.Stop;
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rebuilds the routing tables of every stop in a network from scratch, running
+ * one shortest path search per stop in parallel on a {@link ForkJoinPool}.
+ *
+ * <p>Unlike {@link stops.RoutingTable#synchronise()}, which repeatedly passes
+ * entries between every pair of neighbouring tables until none change, each
+ * stop's table is an independent single-source problem: a search from the
+ * stop finds the cheapest cost to every reachable stop and the neighbour the
+ * cheapest path leaves through. Each task writes only the tables of its own
+ * stops, so the searches do not contend with each other.
+ *
+ * <p>The new tables are only published (using
+ * {@link stops.RoutingTable#replaceEntries(Map)}) once every search has
+ * finished, so a failed rebuild leaves the existing tables unchanged, and
+ * each table is replaced in a single step. The guarantee is per table rather
+ * than for the network as a whole: the tables are published one after
+ * another, so a reader on another thread may see new tables at some stops
+ * and old tables at others until the rebuild returns, but never a table
+ * which is partly old and partly new.
+ *
+ * <p>Each search needs working space proportional to the number of stops.
+ * The working spaces are borrowed by tasks from a pool belonging to the
+ * rebuild, so at most one is created per thread taking part, and none are
+ * left behind on the threads once the rebuild returns.
+ */
+public class ParallelRebuild {
+    // the number of stops each task searches from before splitting
+    private static final int STOPS_PER_TASK = 8;
+
+    private ParallelRebuild() {
+    }
+
+    /**
+     * Rebuilds the routing tables of the given stops on the common fork-join
+     * pool.
+     *
+     * @param stops The stops whose tables to rebuild.
+     * @see #rebuild(List, ForkJoinPool)
+     */
+    public static void rebuild(List<Stop> stops) {
+        rebuild(stops, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Rebuilds the routing tables of the given stops on the given pool.
+     *
+     * <p>Each stop's new table has an entry for every stop in the list which
+     * can be reached from it by following neighbouring stops, with the cost
+     * of the cheapest path and the first stop along it. Neighbouring stops
+     * which are not in the list are ignored.
+     *
+     * @param stops The stops whose tables to rebuild.
+     * @param pool The pool to run the searches on.
+     */
+    public static void rebuild(List<Stop> stops, ForkJoinPool pool) {
+        RoutingRebuildEvent event = new RoutingRebuildEvent();
+        event.begin();
+        long start = MetricsRegistry.startTimer();
+
+        StopGraph graph = StopGraph.of(stops);
+        AtomicReferenceArray<Map<Stop, RoutingEntry>> built =
+                new AtomicReferenceArray<>(graph.size());
+        ConcurrentLinkedDeque<Search> searches = new ConcurrentLinkedDeque<>();
+        pool.invoke(new Task(graph, built, searches, 0, graph.size()));
+
+        for (int stop = 0; stop < graph.size(); stop++) {
+            graph.getStop(stop).getRoutingTable().replaceEntries(
+                    built.get(stop));
+        }
+
+        MetricsRegistry.recordRoutingRebuild(start, 1);
+        if (event.shouldCommit()) {
+            // every table is rebuilt, so no single stop started the rebuild
+            event.stop = "";
+            event.reachableStops = graph.size();
+            event.iterations = 1;
+            event.commit();
+        }
+    }
+
+    /*
+     * The working state of the searches run by one thread.
+     */
+    private static class Search {
+        private final SearchSpace space;
+
+        // the first stop after the source on the cheapest path to each stop
+        private final int[] firstStop;
+
+        private Search(int size) {
+            space = new SearchSpace(size);
+            firstStop = new int[size];
+        }
+    }
+
+    /*
+     * Builds the tables of a range of stops, splitting the range between
+     * subtasks if it is large.
+     */
+    private static class Task extends RecursiveAction {
+        private final StopGraph graph;
+        private final AtomicReferenceArray<Map<Stop, RoutingEntry>> built;
+        private final ConcurrentLinkedDeque<Search> searches;
+        private final int from;
+        private final int to;
+
+        private Task(StopGraph graph,
+                     AtomicReferenceArray<Map<Stop, RoutingEntry>> built,
+                     ConcurrentLinkedDeque<Search> searches, int from,
+                     int to) {
+            this.graph = graph;
+            this.built = built;
+            this.searches = searches;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > STOPS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Task(graph, built, searches, from, middle),
+                        new Task(graph, built, searches, middle, to));
+                return;
+            }
+            // borrowing a working space which no other task is using
+            Search search = searches.poll();
+            if (search == null) {
+                search = new Search(graph.size());
+            }
+            try {
+                for (int stop = from; stop < to; stop++) {
+                    built.set(stop, table(stop, search));
+                }
+            } finally {
+                searches.push(search);
+            }
+        }
+
+        /*
+         * Searches from the given stop, returning its new table entries in
+         * the order the stops were reached.
+         */
+        private Map<Stop, RoutingEntry> table(int source, Search search) {
+            SearchSpace space = search.space;
+            Map<Stop, RoutingEntry> entries = new LinkedHashMap<>();
+
+            space.reset();
+            space.reach(source, 0, -1, -1);
+            search.firstStop[source] = source;
+            while (!space.queue.isEmpty()) {
+                long distance = space.queue.peekKey();
+                int stop = space.queue.poll();
+                if (distance > space.distance(stop)) {
+                    continue;
+                }
+                OperationCounter.record(Operation.TRAVERSAL_VISIT);
+                int parent = space.parent(stop);
+                if (parent >= 0) {
+                    search.firstStop[stop] = parent == source ? stop
+                            : search.firstStop[parent];
+                }
+                entries.put(graph.getStop(stop), new RoutingEntry(
+                        graph.getStop(search.firstStop[stop]),
+                        (int) Math.min(distance, Integer.MAX_VALUE - 1)));
+
+                for (int link = graph.offsets[stop];
+                     link < graph.offsets[stop + 1]; link++) {
+                    long next = distance + graph.weights[link];
+                    if (next < space.distance(graph.targets[link])) {
+                        space.reach(graph.targets[link], next, stop, link);
+                    }
+                }
+            }
+            return entries;
+        }
+    }
+}
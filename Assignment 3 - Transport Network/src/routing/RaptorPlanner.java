@@ -0,0 +1,534 @@
+package routing;
+
+import routes.Route;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plans the journeys which reach a stop earliest, given the trips of a
+ * {@link Timetable}, using the round-based RAPTOR algorithm.
+ *
+ * <p>Round k of a query finds the earliest arrival at each stop using at most
+ * k trips. Rather than searching over a graph of stops, each round scans each
+ * pattern of trips (see {@link Timetable}) serving a stop whose arrival
+ * improved in the previous round: walking along the pattern's stops from the
+ * first improved stop, it boards the earliest trip passengers can catch at
+ * each stop, and records the time the trip reaches each later stop. The
+ * query stops once a round improves no arrival, so a query takes one round
+ * more than the most transfers on any useful journey.
+ *
+ * <p>The planner copies the timetable into flat arrays when it is created:
+ * the stops of each pattern are consecutive, and the times of each trip at
+ * the stops of its pattern are consecutive, so scanning a pattern reads
+ * memory in order. The planner is a snapshot, and does not reflect later
+ * changes to the timetable.
+ *
+ * <p>The arrays are never modified after the planner is created, and each
+ * thread queries with its own working state, so a planner may be queried by
+ * any number of threads at once (see
+ * {@link #earliestArrivals(Stop[], Stop[], int[], ForkJoinPool)}).
+ */
+public class RaptorPlanner {
+    /**
+     * The most transfers a journey may make, unless a query says otherwise.
+     */
+    public static final int DEFAULT_MAX_TRANSFERS = 8;
+
+    // the value stored for a missing trip or position
+    private static final int NONE = -1;
+
+    // the arrival time of a stop which has not been reached
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    // the number of queries each task plans before splitting
+    private static final int QUERIES_PER_TASK = 16;
+
+    // the stops served by the timetable, by index
+    private final Stop[] stops;
+
+    // the index of each stop (by identity, as stops compare equal by name)
+    private final Map<Stop, Integer> indices = new IdentityHashMap<>();
+
+    // the route of each pattern
+    private final Route[] routes;
+
+    // the first stop of each pattern, with a final entry for the end, and
+    // the stop at each position of each pattern
+    private final int[] patternStopOffsets;
+    private final int[] patternStops;
+
+    // the number of trips of each pattern, and the first of their times
+    private final int[] patternTrips;
+    private final int[] patternTimes;
+
+    // the time each trip calls at each stop of its pattern, trip by trip
+    private final int[] times;
+
+    // the first pattern visit of each stop, with a final entry for the end,
+    // and the pattern and position of each visit
+    private final int[] stopVisitOffsets;
+    private final int[] visitPatterns;
+    private final int[] visitPositions;
+
+    // the working state of the queries run by each thread
+    private final ThreadLocal<Rounds> rounds;
+
+    private RaptorPlanner(Timetable timetable) {
+        List<Timetable.Pattern> patterns = timetable.getPatterns();
+        List<Stop> stopList = new ArrayList<>();
+        routes = new Route[patterns.size()];
+        patternStopOffsets = new int[patterns.size() + 1];
+        patternTrips = new int[patterns.size()];
+        patternTimes = new int[patterns.size()];
+        int timeCount = 0;
+        for (int p = 0; p < patterns.size(); p++) {
+            Timetable.Pattern pattern = patterns.get(p);
+            routes[p] = pattern.route;
+            patternStopOffsets[p + 1] = patternStopOffsets[p]
+                    + pattern.stops.length;
+            patternTrips[p] = pattern.trips.size();
+            patternTimes[p] = timeCount;
+            timeCount += pattern.trips.size() * pattern.stops.length;
+            for (Stop stop : pattern.stops) {
+                if (indices.putIfAbsent(stop, stopList.size()) == null) {
+                    stopList.add(stop);
+                }
+            }
+        }
+        stops = stopList.toArray(new Stop[0]);
+
+        // lay out the stops of each pattern, and the times of each trip
+        patternStops = new int[patternStopOffsets[patterns.size()]];
+        times = new int[timeCount];
+        stopVisitOffsets = new int[stops.length + 1];
+        for (int p = 0; p < patterns.size(); p++) {
+            Timetable.Pattern pattern = patterns.get(p);
+            for (int i = 0; i < pattern.stops.length; i++) {
+                int stop = indices.get(pattern.stops[i]);
+                patternStops[patternStopOffsets[p] + i] = stop;
+                stopVisitOffsets[stop + 1]++;
+            }
+            for (int trip = 0; trip < pattern.trips.size(); trip++) {
+                System.arraycopy(pattern.trips.get(trip), 0, times,
+                        patternTimes[p] + trip * pattern.stops.length,
+                        pattern.stops.length);
+            }
+        }
+
+        // index the pattern visits of each stop
+        for (int stop = 0; stop < stops.length; stop++) {
+            stopVisitOffsets[stop + 1] += stopVisitOffsets[stop];
+        }
+        int[] next = Arrays.copyOf(stopVisitOffsets, stops.length);
+        visitPatterns = new int[patternStops.length];
+        visitPositions = new int[patternStops.length];
+        for (int p = 0; p < patterns.size(); p++) {
+            for (int i = patternStopOffsets[p]; i < patternStopOffsets[p + 1];
+                 i++) {
+                int visit = next[patternStops[i]]++;
+                visitPatterns[visit] = p;
+                visitPositions[visit] = i - patternStopOffsets[p];
+            }
+        }
+
+        rounds = ThreadLocal.withInitial(
+                () -> new Rounds(stops.length, routes.length));
+    }
+
+    /**
+     * Creates a planner for the trips of the given timetable.
+     *
+     * @param timetable The trips passengers may ride.
+     * @return A planner over a snapshot of the timetable.
+     * @throws IllegalArgumentException If the timetable is null.
+     */
+    public static RaptorPlanner of(Timetable timetable) {
+        if (timetable == null) {
+            throw new IllegalArgumentException();
+        }
+        return new RaptorPlanner(timetable);
+    }
+
+    /**
+     * Returns the number of stops served by the trips of this planner.
+     *
+     * @return The number of stops.
+     */
+    public int stopCount() {
+        return stops.length;
+    }
+
+    /**
+     * Returns the number of patterns (distinct sequences of stops along a
+     * route) of the trips of this planner.
+     *
+     * @return The number of patterns.
+     */
+    public int patternCount() {
+        return routes.length;
+    }
+
+    /**
+     * Plans the journey from one stop to another which arrives earliest,
+     * making at most {@link #DEFAULT_MAX_TRANSFERS} transfers.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @param departure The time passengers are ready to leave.
+     * @return The journey arriving earliest (with the fewest transfers of
+     *         those arriving then), or null if no trips reach the destination.
+     * @see #earliestArrival(Stop, Stop, int, int)
+     */
+    public Itinerary earliestArrival(Stop from, Stop to, int departure) {
+        return earliestArrival(from, to, departure, DEFAULT_MAX_TRANSFERS);
+    }
+
+    /**
+     * Plans the journey from one stop to another which arrives earliest,
+     * making at most the given number of transfers.
+     *
+     * <p>If the origin is the destination, the journey has no legs and
+     * arrives at the departure time.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @param departure The time passengers are ready to leave.
+     * @param maxTransfers The most times passengers may change trip.
+     * @return The journey arriving earliest (with the fewest transfers of
+     *         those arriving then), or null if either stop is not served by
+     *         any trip or no trips reach the destination.
+     * @throws IllegalArgumentException If the maximum number of transfers is
+     *         negative.
+     */
+    public Itinerary earliestArrival(Stop from, Stop to, int departure,
+                                     int maxTransfers) {
+        if (maxTransfers < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (from != null && from == to) {
+            return new Itinerary(new ArrayList<>(), departure, departure);
+        }
+        Integer source = from == null ? null : indices.get(from);
+        Integer target = to == null ? null : indices.get(to);
+        if (source == null || target == null) {
+            return null;
+        }
+        Rounds state = rounds.get();
+        search(state, source, target, departure, maxTransfers + 1);
+        return itinerary(state, target, departure);
+    }
+
+    /**
+     * Plans many journeys at once on the common fork-join pool.
+     *
+     * @param origins The stop each journey starts from.
+     * @param destinations The stop each journey travels to.
+     * @param departures The time each journey is ready to leave.
+     * @return The journey arriving earliest for each query, or null for
+     *         each query with no journey.
+     * @throws IllegalArgumentException If the arrays are null or differ in
+     *         length.
+     * @see #earliestArrivals(Stop[], Stop[], int[], ForkJoinPool)
+     */
+    public Itinerary[] earliestArrivals(Stop[] origins, Stop[] destinations,
+                                        int[] departures) {
+        return earliestArrivals(origins, destinations, departures,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Plans many journeys at once on the given pool, each as by
+     * {@link #earliestArrival(Stop, Stop, int)}. The queries are split
+     * between the pool's threads, each with its own working state.
+     *
+     * @param origins The stop each journey starts from.
+     * @param destinations The stop each journey travels to.
+     * @param departures The time each journey is ready to leave.
+     * @param pool The pool to plan the journeys on.
+     * @return The journey arriving earliest for each query, or null for
+     *         each query with no journey.
+     * @throws IllegalArgumentException If the arrays or pool are null, or
+     *         the arrays differ in length.
+     */
+    public Itinerary[] earliestArrivals(Stop[] origins, Stop[] destinations,
+                                        int[] departures, ForkJoinPool pool) {
+        if (origins == null || destinations == null || departures == null
+                || pool == null || origins.length != destinations.length
+                || origins.length != departures.length) {
+            throw new IllegalArgumentException();
+        }
+        Itinerary[] planned = new Itinerary[origins.length];
+        pool.invoke(new Task(origins, destinations, departures, planned, 0,
+                origins.length));
+        return planned;
+    }
+
+    /*
+     * Runs up to the given number of rounds from the source, stopping early
+     * once a round improves no arrival.
+     */
+    private void search(Rounds state, int source, int target, int departure,
+                       int maxRounds) {
+        state.ensureRounds(maxRounds);
+        for (int m = 0; m < state.markedCount; m++) {
+            // left marked by a query which ran out of rounds
+            state.isMarked[state.marked[m]] = false;
+        }
+        Arrays.fill(state.best, UNREACHED);
+        Arrays.fill(state.arrivals[0], UNREACHED);
+        state.arrivals[0][source] = departure;
+        state.best[source] = departure;
+        state.marked[0] = source;
+        state.markedCount = 1;
+
+        for (int round = 1; round <= maxRounds && state.markedCount > 0;
+             round++) {
+            int[] previous = state.arrivals[round - 1];
+            int[] arrivals = state.arrivals[round];
+            System.arraycopy(previous, 0, arrivals, 0, stops.length);
+            queuePatterns(state);
+            for (int q = 0; q < state.queuedCount; q++) {
+                int pattern = state.queued[q];
+                int start = state.queue[pattern];
+                state.queue[pattern] = NONE;
+                scanPattern(state, round, pattern, start, target);
+            }
+        }
+    }
+
+    /*
+     * Queues each pattern visiting a stop marked in the last round, from the
+     * earliest position of a marked stop, and clears the marks.
+     */
+    private void queuePatterns(Rounds state) {
+        state.queuedCount = 0;
+        for (int m = 0; m < state.markedCount; m++) {
+            int stop = state.marked[m];
+            state.isMarked[stop] = false;
+            for (int visit = stopVisitOffsets[stop];
+                 visit < stopVisitOffsets[stop + 1]; visit++) {
+                int pattern = visitPatterns[visit];
+                int position = visitPositions[visit];
+                if (state.queue[pattern] == NONE) {
+                    state.queued[state.queuedCount++] = pattern;
+                    state.queue[pattern] = position;
+                } else if (position < state.queue[pattern]) {
+                    state.queue[pattern] = position;
+                }
+            }
+        }
+        state.markedCount = 0;
+    }
+
+    /*
+     * Walks along the stops of a pattern from the given position, riding the
+     * earliest trip catchable so far and recording improved arrivals.
+     */
+    private void scanPattern(Rounds state, int round, int pattern, int start,
+                             int target) {
+        int[] previous = state.arrivals[round - 1];
+        int[] arrivals = state.arrivals[round];
+        int offset = patternStopOffsets[pattern];
+        int length = patternStopOffsets[pattern + 1] - offset;
+        int trip = NONE;
+        int base = 0;
+        int board = NONE;
+
+        for (int position = start; position < length; position++) {
+            int stop = patternStops[offset + position];
+            if (trip != NONE) {
+                int time = times[base + position];
+                if (time < state.best[stop] && time < state.best[target]) {
+                    arrivals[stop] = time;
+                    state.best[stop] = time;
+                    state.ridePattern[round][stop] = pattern;
+                    state.rideTrip[round][stop] = trip;
+                    state.rideBoard[round][stop] = board;
+                    state.rideAlight[round][stop] = position;
+                    if (!state.isMarked[stop]) {
+                        state.isMarked[stop] = true;
+                        state.marked[state.markedCount++] = stop;
+                    }
+                }
+            }
+
+            // board an earlier trip if passengers reached here in time
+            int ready = previous[stop];
+            if (ready != UNREACHED
+                    && (trip == NONE || ready < times[base + position])) {
+                int earlier = earliestTrip(pattern, length, position, ready,
+                        trip == NONE ? patternTrips[pattern] : trip);
+                if (earlier != NONE) {
+                    trip = earlier;
+                    base = patternTimes[pattern] + trip * length;
+                    board = position;
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the earliest of the first given number of trips of a pattern
+     * which leaves the given position no earlier than the given time, or NONE.
+     */
+    private int earliestTrip(int pattern, int length, int position, int time,
+                             int trips) {
+        int low = 0;
+        int high = trips;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[patternTimes[pattern] + middle * length + position]
+                    < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < trips ? low : NONE;
+    }
+
+    /*
+     * Builds the journey to the target from the rides recorded by the last
+     * search, using the fewest rounds which reach it earliest.
+     */
+    private Itinerary itinerary(Rounds state, int target, int departure) {
+        int arrival = state.best[target];
+        if (arrival == UNREACHED) {
+            return null;
+        }
+        int round = 0;
+        while (state.arrivals[round][target] != arrival) {
+            round++;
+        }
+
+        List<Itinerary.Leg> legs = new ArrayList<>();
+        int stop = target;
+        while (round > 0) {
+            if (state.arrivals[round][stop]
+                    == state.arrivals[round - 1][stop]) {
+                round--;
+                continue;
+            }
+            int pattern = state.ridePattern[round][stop];
+            int length = patternStopOffsets[pattern + 1]
+                    - patternStopOffsets[pattern];
+            int base = patternTimes[pattern]
+                    + state.rideTrip[round][stop] * length;
+            int board = state.rideBoard[round][stop];
+            int boardStop = patternStops[patternStopOffsets[pattern] + board];
+            legs.add(new Itinerary.Leg(routes[pattern], stops[boardStop],
+                    stops[stop], times[base + board],
+                    times[base + state.rideAlight[round][stop]]));
+            stop = boardStop;
+            round--;
+        }
+        Collections.reverse(legs);
+        return new Itinerary(legs, departure, arrival);
+    }
+
+    /*
+     * The working state of the queries run by one thread.
+     */
+    private static class Rounds {
+        // the earliest arrival at each stop in each round, and in any round
+        private int[][] arrivals = new int[0][];
+        private final int[] best;
+
+        // the pattern, trip, and positions boarded and left at of the ride
+        // improving each stop in each round
+        private int[][] ridePattern = new int[0][];
+        private int[][] rideTrip = new int[0][];
+        private int[][] rideBoard = new int[0][];
+        private int[][] rideAlight = new int[0][];
+
+        // the stops improved in the current round
+        private final boolean[] isMarked;
+        private final int[] marked;
+        private int markedCount;
+
+        // the earliest position to scan each pattern from (or NONE), and
+        // the patterns queued for the current round
+        private final int[] queue;
+        private final int[] queued;
+        private int queuedCount;
+
+        private Rounds(int stops, int patterns) {
+            best = new int[stops];
+            isMarked = new boolean[stops];
+            marked = new int[stops];
+            queue = new int[patterns];
+            Arrays.fill(queue, NONE);
+            queued = new int[patterns];
+        }
+
+        /*
+         * Makes room for the given number of rounds after the first.
+         */
+        private void ensureRounds(int rounds) {
+            int size = best.length;
+            int old = arrivals.length;
+            if (old > rounds) {
+                return;
+            }
+            arrivals = Arrays.copyOf(arrivals, rounds + 1);
+            ridePattern = Arrays.copyOf(ridePattern, rounds + 1);
+            rideTrip = Arrays.copyOf(rideTrip, rounds + 1);
+            rideBoard = Arrays.copyOf(rideBoard, rounds + 1);
+            rideAlight = Arrays.copyOf(rideAlight, rounds + 1);
+            for (int round = old; round <= rounds; round++) {
+                arrivals[round] = new int[size];
+                ridePattern[round] = new int[size];
+                rideTrip[round] = new int[size];
+                rideBoard[round] = new int[size];
+                rideAlight[round] = new int[size];
+            }
+        }
+    }
+
+    /*
+     * Plans a range of queries, splitting the range between subtasks if it is
+     * large.
+     */
+    private class Task extends RecursiveAction {
+        private final Stop[] origins;
+        private final Stop[] destinations;
+        private final int[] departures;
+        private final Itinerary[] planned;
+        private final int from;
+        private final int to;
+
+        private Task(Stop[] origins, Stop[] destinations, int[] departures,
+                     Itinerary[] planned, int from, int to) {
+            this.origins = origins;
+            this.destinations = destinations;
+            this.departures = departures;
+            this.planned = planned;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > QUERIES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Task(origins, destinations, departures, planned,
+                                from, middle),
+                        new Task(origins, destinations, departures, planned,
+                                middle, to));
+                return;
+            }
+            for (int query = from; query < to; query++) {
+                planned[query] = earliestArrival(origins[query],
+                        destinations[query], departures[query]);
+            }
+        }
+    }
+}
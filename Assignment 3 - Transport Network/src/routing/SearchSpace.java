@@ -0,0 +1,83 @@
+package routing;
+
+import java.util.Arrays;
+
+/**
+ * The working state of a single-source shortest path search over the stops of
+ * a {@link StopGraph}: the best known distance to each stop, the stop and link
+ * it was reached through, and the queue of stops to visit.
+ *
+ * <p>A search space is reused between searches, so that each search only pays
+ * for the stops it reaches rather than for clearing arrays over the whole
+ * graph: each stop is stamped with the search that last reached it, and stops
+ * with an older stamp count as unreached.
+ */
+class SearchSpace {
+    // the distance to each stop, and the stop and link it was reached through
+    private final long[] distance;
+    private final int[] parent;
+    private final int[] parentLink;
+
+    // the search which last reached each stop
+    private final int[] stamp;
+
+    // the current search
+    private int current = 1;
+
+    // the stops waiting to be visited, by distance
+    final MinHeap queue = new MinHeap();
+
+    /*
+     * Creates a search space for a graph with the given number of stops.
+     */
+    SearchSpace(int size) {
+        distance = new long[size];
+        parent = new int[size];
+        parentLink = new int[size];
+        stamp = new int[size];
+    }
+
+    /*
+     * Starts a new search, forgetting every stop reached so far.
+     */
+    void reset() {
+        current++;
+        if (current == 0) {
+            Arrays.fill(stamp, 0);
+            current = 1;
+        }
+        queue.clear();
+    }
+
+    boolean reached(int stop) {
+        return stamp[stop] == current;
+    }
+
+    /*
+     * Returns the best known distance to the given stop, or Long.MAX_VALUE if
+     * it has not been reached in the current search.
+     */
+    long distance(int stop) {
+        return reached(stop) ? distance[stop] : Long.MAX_VALUE;
+    }
+
+    int parent(int stop) {
+        return parent[stop];
+    }
+
+    int parentLink(int stop) {
+        return parentLink[stop];
+    }
+
+    /*
+     * Records that the given stop can be reached at the given distance, from
+     * the given parent stop along the given link, and queues it to be visited.
+     */
+    void reach(int stop, long distance, int parent, int link) {
+        stamp[stop] = current;
+        this.distance[stop] = distance;
+        this.parent[stop] = parent;
+        this.parentLink[stop] = link;
+        queue.add(distance, stop);
+    }
+}
@@ -0,0 +1,93 @@
+package routing;
+
+import stops.RoutingEntry;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the routing table entries of a single stop on demand, by searching
+ * outwards from the stop through its neighbours.
+ *
+ * <p>Unlike {@link ParallelRebuild}, which searches a {@link StopGraph}
+ * snapshot of a list of stops, the search follows the stops' current
+ * neighbours directly, so it can be run at any time without first building a
+ * graph, and finds every stop which can be reached from the source. It is used
+ * to fill the tables of a {@link stops.RoutingCache} as they are queried.
+ */
+public class SingleSourceSearch {
+
+    private SingleSourceSearch() {
+    }
+
+    /**
+     * Returns the routing table entries of the given stop: an entry for every
+     * stop which can be reached from it by following neighbouring stops, with
+     * the cost of the cheapest path and the first stop along it.
+     *
+     * <p>The entries are in the order the stops were reached (cheapest
+     * first), starting with the stop's own entry.
+     *
+     * @param source The stop to search from.
+     * @return The stop's routing table entries.
+     * @throws IllegalArgumentException If the stop is null.
+     */
+    public static Map<Stop, RoutingEntry> entries(Stop source) {
+        if (source == null) {
+            throw new IllegalArgumentException();
+        }
+
+        // the stops reached so far, and their positions in reached
+        List<Stop> reached = new ArrayList<>();
+        Map<Stop, Integer> indices = new IdentityHashMap<>();
+
+        // the cheapest cost found to each reached stop, and the first stop
+        // after the source on the path with that cost
+        long[] distances = new long[16];
+        int[] firstStops = new int[16];
+
+        Map<Stop, RoutingEntry> entries = new LinkedHashMap<>();
+        MinHeap queue = new MinHeap();
+        reached.add(source);
+        indices.put(source, 0);
+        queue.add(0, 0);
+
+        while (!queue.isEmpty()) {
+            long distance = queue.peekKey();
+            int index = queue.poll();
+            Stop stop = reached.get(index);
+            if (distance > distances[index]) {
+                continue;
+            }
+            entries.put(stop, new RoutingEntry(reached.get(firstStops[index]),
+                    (int) Math.min(distance, Integer.MAX_VALUE - 1)));
+
+            for (Stop neighbour : stop.getNeighbours()) {
+                long next = distance + stop.getLinkCost(neighbour);
+                Integer found = indices.get(neighbour);
+                if (found != null && next >= distances[found]) {
+                    continue;
+                }
+
+                int target = found == null ? reached.size() : found;
+                if (found == null) {
+                    reached.add(neighbour);
+                    indices.put(neighbour, target);
+                    if (target == distances.length) {
+                        distances = Arrays.copyOf(distances, target * 2);
+                        firstStops = Arrays.copyOf(firstStops, target * 2);
+                    }
+                }
+                distances[target] = next;
+                firstStops[target] = index == 0 ? target : firstStops[index];
+                queue.add(next, target);
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,254 @@
+package routing;
+
+import routes.Route;
+import stops.Stop;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact, read-only snapshot of the links between stops in a transport
+ * network, for routing algorithms which need to scan the network quickly.
+ *
+ * <p>Stops are numbered by their position in the list the graph was created
+ * from, and the links between them (as added by {@link routes.Route#addStop}
+ * through {@link Stop#addNeighbouringStop(Stop)}) are held in compressed
+ * sparse row form: the links leaving stop i are at positions
+ * {@code offsets[i]} to {@code offsets[i + 1] - 1} of the target and weight
+ * arrays. The weight of a link is its cost (see {@link Stop#getLinkCost}),
+ * as used by {@link stops.RoutingTable}. The links arriving at each stop are
+ * indexed the same way, so that searches can also run backwards.
+ *
+ * <p>Each link also records the modes of the routes it is part of (as a mask
+ * of {@link TransportMode} bits), so that searches can be restricted to some
+ * modes by skipping links, rather than by building a separate graph (see
+ * {@link ModeView}). Links which are not part of any route can be used by
+ * every mode.
+ *
+ * <p>Links to stops which are not in the list are left out. Changes made to
+ * the stops after the graph is created are not reflected in the graph.
+ */
+public class StopGraph {
+    // the stops, by index
+    private final Stop[] stops;
+
+    // the index of each stop (by identity, as stops compare equal by name)
+    private final Map<Stop, Integer> indices = new IdentityHashMap<>();
+
+    // the first link leaving each stop, with a final entry for the end
+    final int[] offsets;
+
+    // the stop at the end of each link, and its weight
+    final int[] targets;
+    final int[] weights;
+
+    // the mask of the modes of the routes each link is part of
+    final int[] modes;
+
+    // the first link arriving at each stop, with a final entry for the end,
+    // and the position of each arriving link in the arrays above
+    final int[] inOffsets;
+    final int[] inLinks;
+
+    private StopGraph(Stop[] stops, int[] offsets, int[] targets,
+                      int[] weights, int[] modes) {
+        this.stops = stops;
+        for (int i = 0; i < stops.length; i++) {
+            indices.putIfAbsent(stops[i], i);
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.modes = modes;
+
+        inOffsets = new int[stops.length + 1];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int i = 0; i < stops.length; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        inLinks = new int[targets.length];
+        int[] next = Arrays.copyOf(inOffsets, stops.length);
+        for (int link = 0; link < targets.length; link++) {
+            inLinks[next[targets[link]]++] = link;
+        }
+    }
+
+    /**
+     * Creates a graph of the links between the given stops.
+     *
+     * @param stops The stops to include in the graph.
+     * @return A snapshot of the links between the stops.
+     */
+    public static StopGraph of(List<Stop> stops) {
+        Stop[] nodes = stops.toArray(new Stop[0]);
+        Map<Stop, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            indices.putIfAbsent(nodes[i], i);
+        }
+
+        int[] offsets = new int[nodes.length + 1];
+        int[][] neighbours = new int[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            List<Stop> links = nodes[i].getNeighbours();
+            int[] found = new int[links.size()];
+            int count = 0;
+            for (Stop neighbour : links) {
+                Integer index = indices.get(neighbour);
+                if (index != null) {
+                    found[count++] = index;
+                }
+            }
+            neighbours[i] = Arrays.copyOf(found, count);
+            offsets[i + 1] = offsets[i] + count;
+        }
+
+        int[] targets = new int[offsets[nodes.length]];
+        int[] weights = new int[targets.length];
+        for (int i = 0; i < nodes.length; i++) {
+            int edge = offsets[i];
+            for (int neighbour : neighbours[i]) {
+                targets[edge] = neighbour;
+                weights[edge] = nodes[i].getLinkCost(nodes[neighbour]);
+                edge++;
+            }
+        }
+        return new StopGraph(nodes, offsets, targets, weights,
+                modes(nodes, indices, offsets, targets));
+    }
+
+    /*
+     * Returns the mask of the modes of the routes each link is part of, with
+     * every mode set for links which are not part of any route.
+     */
+    private static int[] modes(Stop[] nodes, Map<Stop, Integer> indices,
+                               int[] offsets, int[] targets) {
+        Set<Route> routes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Stop node : nodes) {
+            routes.addAll(node.getRoutes());
+        }
+
+        int[] modes = new int[targets.length];
+        for (Route route : routes) {
+            TransportMode mode = TransportMode.of(route.getType());
+            int bit = mode == null ? TransportMode.ALL : mode.bit();
+            List<Stop> onRoute = route.getStopsOnRoute();
+            for (int i = 1; i < onRoute.size(); i++) {
+                Integer first = indices.get(onRoute.get(i - 1));
+                Integer second = indices.get(onRoute.get(i));
+                if (first != null && second != null) {
+                    addMode(offsets, targets, modes, first, second, bit);
+                    addMode(offsets, targets, modes, second, first, bit);
+                }
+            }
+        }
+
+        for (int link = 0; link < modes.length; link++) {
+            if (modes[link] == 0) {
+                modes[link] = TransportMode.ALL;
+            }
+        }
+        return modes;
+    }
+
+    private static void addMode(int[] offsets, int[] targets, int[] modes,
+                                int from, int to, int bit) {
+        for (int link = offsets[from]; link < offsets[from + 1]; link++) {
+            if (targets[link] == to) {
+                modes[link] |= bit;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of stops in this graph.
+     *
+     * @return The number of stops.
+     */
+    public int size() {
+        return stops.length;
+    }
+
+    /**
+     * Returns the number of (one-way) links between stops in this graph.
+     *
+     * @return The number of links.
+     */
+    public int linkCount() {
+        return targets.length;
+    }
+
+    /*
+     * Returns the stop at the start of the given link.
+     */
+    int source(int link) {
+        int stop = Arrays.binarySearch(offsets, link);
+        if (stop < 0) {
+            return -stop - 2;
+        }
+        // skip stops with no links, which share their offset with the next
+        while (offsets[stop + 1] == link) {
+            stop++;
+        }
+        return stop;
+    }
+
+    /**
+     * Returns the stop with the given index.
+     *
+     * @param index The index of the stop.
+     * @return The stop at the given position in the list the graph was
+     *         created from.
+     * @throws IndexOutOfBoundsException If the index is not a stop in this
+     *         graph.
+     */
+    public Stop getStop(int index) {
+        return stops[index];
+    }
+
+    /**
+     * Returns the index of the given stop in this graph.
+     *
+     * @param stop The stop to find.
+     * @return The index of the stop, or -1 if it is not in this graph.
+     */
+    public int indexOf(Stop stop) {
+        Integer index = stop == null ? null : indices.get(stop);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns a fingerprint of the stops and links in this graph, which
+     * changes if any stop's name or coordinates, or any link or its cost,
+     * changes.
+     *
+     * <p>Structures built from a graph and saved to disk record the
+     * fingerprint of the graph, so that they are not used with a different
+     * network once loaded.
+     *
+     * @return The fingerprint of the graph.
+     */
+    public long fingerprint() {
+        long hash = stops.length;
+        for (Stop stop : stops) {
+            hash = 31 * hash + stop.getName().hashCode();
+            hash = 31 * hash + stop.getX();
+            hash = 31 * hash + stop.getY();
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            hash = 31 * hash + offsets[i];
+        }
+        for (int target : targets) {
+            hash = 31 * hash + target;
+        }
+        for (int weight : weights) {
+            hash = 31 * hash + weight;
+        }
+        return hash;
+    }
+}
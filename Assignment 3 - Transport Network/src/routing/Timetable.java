@@ -0,0 +1,220 @@
+package routing;
+
+import routes.Route;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The scheduled trips along the routes of a transport network, for planning
+ * journeys by time with a {@link RaptorPlanner}.
+ *
+ * <p>A trip runs along a route (in either direction), calling at each of the
+ * route's stops at a given time. Times are whole numbers in any unit (e.g.
+ * minutes after midnight), and when derived from a route they advance by the
+ * cost of each link travelled (see {@link Stop#getLinkCost(Stop)}).
+ * Passengers are assumed to board and alight instantly, and may change
+ * between trips at a stop whenever the trip they board leaves no earlier
+ * than they arrive.
+ *
+ * <p>Trips running along the same stops of the same route form a pattern,
+ * whose trips are kept in order of departure. A trip may not overtake
+ * another trip of its pattern (reach any stop strictly earlier than a trip
+ * which departed before it), so the earliest trip leaving a stop after a
+ * given time can be found by a binary search.
+ *
+ * <p>A timetable does not follow later changes to its routes: each trip
+ * calls at the stops its route had when it was added.
+ */
+public class Timetable {
+    /*
+     * The trips along one sequence of stops of a route, in order of
+     * departure.
+     */
+    static class Pattern {
+        // the route the trips run along, and the stops they call at in order
+        final Route route;
+        final Stop[] stops;
+
+        // the time each trip calls at each stop, in order of departure
+        final List<int[]> trips = new ArrayList<>();
+
+        private Pattern(Route route, Stop[] stops) {
+            this.route = route;
+            this.stops = stops;
+        }
+
+        /*
+         * Returns whether the trips of this pattern run along the given route
+         * and call at the given stops in order.
+         */
+        private boolean runs(Route route, List<Stop> stops) {
+            if (this.route != route || this.stops.length != stops.size()) {
+                return false;
+            }
+            for (int i = 0; i < this.stops.length; i++) {
+                if (this.stops[i] != stops.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Adds the given trip in order of departure, if it neither overtakes
+         * nor is overtaken by any trip of this pattern.
+         */
+        private void add(int[] times) {
+            int index = 0;
+            while (index < trips.size() && trips.get(index)[0] <= times[0]) {
+                index++;
+            }
+            for (int i = 0; i < times.length; i++) {
+                if (index > 0 && trips.get(index - 1)[i] > times[i]
+                        || index < trips.size()
+                        && trips.get(index)[i] < times[i]) {
+                    throw new IllegalArgumentException();
+                }
+            }
+            trips.add(index, times);
+        }
+    }
+
+    // the patterns of the trips added so far, in the order first added
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    // the patterns of each route (by identity, as routes compare equal by
+    // name and number)
+    private final Map<Route, List<Pattern>> routePatterns =
+            new IdentityHashMap<>();
+
+    // the number of trips added so far
+    private int tripCount;
+
+    /**
+     * Adds a trip along the given route from its first stop to its last,
+     * calling at each stop at the given time.
+     *
+     * @param route The route the trip runs along.
+     * @param times The time the trip calls at each stop of the route, in the
+     *              order of {@link Route#getStopsOnRoute()}.
+     * @throws IllegalArgumentException If the route or times are null, the
+     *         route has fewer than two stops, there is not one time for each
+     *         stop, any time is negative or earlier than the time before it,
+     *         or the trip would overtake (or be overtaken by) another trip
+     *         along the same stops of the route.
+     */
+    public void addTrip(Route route, int[] times) {
+        if (route == null || times == null) {
+            throw new IllegalArgumentException();
+        }
+        addTrip(route, route.getStopsOnRoute(), times.clone());
+    }
+
+    /**
+     * Adds a trip along the given route from its first stop to its last,
+     * leaving the first stop at the given time and taking the cost of each
+     * link to travel along it.
+     *
+     * @param route The route the trip runs along.
+     * @param departure The time the trip leaves the first stop of the route.
+     * @throws IllegalArgumentException If the route is null or has fewer
+     *         than two stops, the departure is negative, or the trip would
+     *         overtake (or be overtaken by) another trip along the same stops
+     *         of the route.
+     */
+    public void addTrip(Route route, int departure) {
+        if (route == null) {
+            throw new IllegalArgumentException();
+        }
+        List<Stop> stops = route.getStopsOnRoute();
+        addTrip(route, stops, times(stops, departure));
+    }
+
+    /**
+     * Adds a trip along the given route in the opposite direction, from its
+     * last stop to its first, leaving the last stop at the given time and
+     * taking the cost of each link to travel along it.
+     *
+     * @param route The route the trip runs along.
+     * @param departure The time the trip leaves the last stop of the route.
+     * @throws IllegalArgumentException If the route is null or has fewer
+     *         than two stops, the departure is negative, or the trip would
+     *         overtake (or be overtaken by) another trip along the same stops
+     *         of the route.
+     */
+    public void addReturnTrip(Route route, int departure) {
+        if (route == null) {
+            throw new IllegalArgumentException();
+        }
+        List<Stop> stops = route.getStopsOnRoute();
+        Collections.reverse(stops);
+        addTrip(route, stops, times(stops, departure));
+    }
+
+    /**
+     * Returns the number of trips in this timetable.
+     *
+     * @return The number of trips.
+     */
+    public int tripCount() {
+        return tripCount;
+    }
+
+    /*
+     * Returns the patterns of the trips in this timetable.
+     */
+    List<Pattern> getPatterns() {
+        return patterns;
+    }
+
+    /*
+     * Returns the times a trip leaving the first of the given stops at the
+     * given time calls at each stop, taking the cost of each link to travel.
+     */
+    private static int[] times(List<Stop> stops, int departure) {
+        int[] times = new int[stops.size()];
+        long time = departure;
+        for (int i = 0; i < times.length; i++) {
+            if (i > 0) {
+                time += stops.get(i - 1).getLinkCost(stops.get(i));
+            }
+            times[i] = (int) Math.min(time, Integer.MAX_VALUE);
+        }
+        return times;
+    }
+
+    private void addTrip(Route route, List<Stop> stops, int[] times) {
+        if (stops.size() < 2 || times.length != stops.size()) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] < 0 || i > 0 && times[i] < times[i - 1]) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        List<Pattern> ofRoute = routePatterns.computeIfAbsent(route,
+                key -> new ArrayList<>(2));
+        Pattern pattern = null;
+        for (Pattern existing : ofRoute) {
+            if (existing.runs(route, stops)) {
+                pattern = existing;
+                break;
+            }
+        }
+        if (pattern == null) {
+            pattern = new Pattern(route, stops.toArray(new Stop[0]));
+            pattern.add(times);
+            ofRoute.add(pattern);
+            patterns.add(pattern);
+        } else {
+            pattern.add(times);
+        }
+        tripCount++;
+    }
+}
@@ -0,0 +1,406 @@
+package routing;
+
+import routes.Route;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A route-expanded graph of a transport network, in which passengers travel
+ * between stops on particular routes, and changing from one route to another
+ * at a stop is a transfer.
+ *
+ * <p>Each node of the graph is a stop on a route. Riding links join the nodes
+ * of neighbouring stops on the same route (in both directions, costing the
+ * cost of the link between the stops, see {@link Stop#getLinkCost(Stop)}).
+ * Transfers join the nodes of different routes at the same stop, and cost a
+ * penalty depending on the modes of the two routes (0 unless set using
+ * {@link #setTransferPenalty(TransportMode, TransportMode, int)}).
+ *
+ * <p>The graph is held in flat arrays: the nodes are numbered so that the
+ * nodes of each stop are consecutive, and the riding links leaving each node
+ * are held in compressed sparse row form, as in {@link StopGraph}. Transfers
+ * are not stored at all, since the nodes a node can transfer to are exactly
+ * the other nodes of its stop. The graph therefore takes about as much
+ * memory as a {@link StopGraph} of the same network, plus a few ints per
+ * node.
+ *
+ * <p>Like {@link StopGraph}, the graph is a snapshot of the routes it was
+ * created from. It is not safe for use by multiple threads at once.
+ */
+public class TransferGraph {
+    // the value stored for a missing node or mode
+    private static final int NONE = -1;
+
+    // transfers are counted above this bit of the keys of fewest transfer
+    // searches, so that fewer transfers always beat a lower cost
+    private static final int TRANSFER_SHIFT = 40;
+
+    // the stops and routes of the graph, by index
+    private final Stop[] stops;
+    private final Route[] routes;
+
+    // the index of each stop (by identity, as stops compare equal by name)
+    private final Map<Stop, Integer> indices = new IdentityHashMap<>();
+
+    // the first node of each stop, with a final entry for the end
+    private final int[] stopNodes;
+
+    // the stop, route, and mode (ordinal, or NONE) of each node
+    private final int[] nodeStop;
+    private final int[] nodeRoute;
+    private final int[] nodeMode;
+
+    // the first riding link leaving each node, with a final entry for the end
+    private final int[] offsets;
+
+    // the node at the end of each riding link, and its cost
+    private final int[] targets;
+    private final int[] weights;
+
+    // the penalty for transferring between each pair of modes
+    private final int[] penalties;
+
+    // the search space reused by each search
+    private final SearchSpace space;
+
+    private TransferGraph(Stop[] stops, Route[] routes, int[] stopNodes,
+                          int[] nodeStop, int[] nodeRoute, int[] nodeMode,
+                          int[] offsets, int[] targets, int[] weights) {
+        this.stops = stops;
+        this.routes = routes;
+        for (int i = 0; i < stops.length; i++) {
+            indices.put(stops[i], i);
+        }
+        this.stopNodes = stopNodes;
+        this.nodeStop = nodeStop;
+        this.nodeRoute = nodeRoute;
+        this.nodeMode = nodeMode;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        int modes = TransportMode.values().length;
+        this.penalties = new int[modes * modes];
+        this.space = new SearchSpace(nodeStop.length);
+    }
+
+    /**
+     * Creates a route-expanded graph of the given routes.
+     *
+     * @param routes The routes passengers may travel on.
+     * @return A snapshot of the stops on the routes and the links between
+     *         them.
+     * @throws IllegalArgumentException If the list of routes is null.
+     */
+    public static TransferGraph of(List<Route> routes) {
+        if (routes == null) {
+            throw new IllegalArgumentException();
+        }
+
+        // number the stops in the order they are first reached
+        Map<Stop, Integer> stopIndices = new IdentityHashMap<>();
+        List<Stop> stopList = new ArrayList<>();
+        List<Route> routeList = new ArrayList<>();
+        List<List<Stop>> onRoutes = new ArrayList<>();
+        for (Route route : routes) {
+            if (route == null) {
+                continue;
+            }
+            List<Stop> onRoute = route.getStopsOnRoute();
+            routeList.add(route);
+            onRoutes.add(onRoute);
+            for (Stop stop : onRoute) {
+                if (stopIndices.putIfAbsent(stop, stopList.size()) == null) {
+                    stopList.add(stop);
+                }
+            }
+        }
+
+        // find the distinct routes at each stop, numbering the nodes by stop
+        List<List<Integer>> routesAtStop = new ArrayList<>();
+        for (int i = 0; i < stopList.size(); i++) {
+            routesAtStop.add(new ArrayList<>(1));
+        }
+        for (int route = 0; route < onRoutes.size(); route++) {
+            for (Stop stop : onRoutes.get(route)) {
+                List<Integer> atStop = routesAtStop.get(stopIndices.get(stop));
+                if (!atStop.contains(route)) {
+                    atStop.add(route);
+                }
+            }
+        }
+        int[] stopNodes = new int[stopList.size() + 1];
+        for (int stop = 0; stop < stopList.size(); stop++) {
+            stopNodes[stop + 1] = stopNodes[stop]
+                    + routesAtStop.get(stop).size();
+        }
+        int nodes = stopNodes[stopList.size()];
+        int[] nodeStop = new int[nodes];
+        int[] nodeRoute = new int[nodes];
+        int[] nodeMode = new int[nodes];
+        for (int stop = 0; stop < stopList.size(); stop++) {
+            List<Integer> atStop = routesAtStop.get(stop);
+            for (int i = 0; i < atStop.size(); i++) {
+                int node = stopNodes[stop] + i;
+                TransportMode mode = TransportMode.of(
+                        routeList.get(atStop.get(i)).getType());
+                nodeStop[node] = stop;
+                nodeRoute[node] = atStop.get(i);
+                nodeMode[node] = mode == null ? NONE : mode.ordinal();
+            }
+        }
+
+        // count, then fill, the riding links between consecutive stops
+        int[] offsets = new int[nodes + 1];
+        forEachRide(onRoutes, stopIndices, stopNodes, nodeRoute,
+                (from, to, cost) -> offsets[from + 1]++);
+        for (int node = 0; node < nodes; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] next = Arrays.copyOf(offsets, nodes);
+        int[] targets = new int[offsets[nodes]];
+        int[] weights = new int[targets.length];
+        forEachRide(onRoutes, stopIndices, stopNodes, nodeRoute,
+                (from, to, cost) -> {
+                    targets[next[from]] = to;
+                    weights[next[from]++] = cost;
+                });
+
+        return new TransferGraph(stopList.toArray(new Stop[0]),
+                routeList.toArray(new Route[0]), stopNodes, nodeStop,
+                nodeRoute, nodeMode, offsets, targets, weights);
+    }
+
+    /*
+     * Receives each riding link of a graph being built.
+     */
+    private interface RideVisitor {
+        void visit(int from, int to, int cost);
+    }
+
+    /*
+     * Calls the given visitor with each riding link (in both directions)
+     * between consecutive stops on the given routes.
+     */
+    private static void forEachRide(List<List<Stop>> onRoutes,
+                                    Map<Stop, Integer> stopIndices,
+                                    int[] stopNodes, int[] nodeRoute,
+                                    RideVisitor visitor) {
+        for (int route = 0; route < onRoutes.size(); route++) {
+            List<Stop> onRoute = onRoutes.get(route);
+            for (int i = 1; i < onRoute.size(); i++) {
+                Stop first = onRoute.get(i - 1);
+                Stop second = onRoute.get(i);
+                if (first == second) {
+                    continue;
+                }
+                int from = node(stopNodes, nodeRoute,
+                        stopIndices.get(first), route);
+                int to = node(stopNodes, nodeRoute,
+                        stopIndices.get(second), route);
+                visitor.visit(from, to, first.getLinkCost(second));
+                visitor.visit(to, from, second.getLinkCost(first));
+            }
+        }
+    }
+
+    /*
+     * Returns the node of the given route at the given stop.
+     */
+    private static int node(int[] stopNodes, int[] nodeRoute, int stop,
+                            int route) {
+        for (int node = stopNodes[stop]; node < stopNodes[stop + 1]; node++) {
+            if (nodeRoute[node] == route) {
+                return node;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the number of stops in this graph (the stops on at least one
+     * route).
+     *
+     * @return The number of stops.
+     */
+    public int stopCount() {
+        return stops.length;
+    }
+
+    /**
+     * Returns the number of nodes (stops on each route) in this graph.
+     *
+     * @return The number of nodes.
+     */
+    public int nodeCount() {
+        return nodeStop.length;
+    }
+
+    /**
+     * Returns the number of (one-way) riding links in this graph.
+     *
+     * @return The number of riding links.
+     */
+    public int rideCount() {
+        return targets.length;
+    }
+
+    /**
+     * Sets the penalty added to the cost of a journey for each transfer from a
+     * route of one mode to a route of another (or the same) mode.
+     *
+     * @param from The mode of the route being left.
+     * @param to The mode of the route being boarded.
+     * @param penalty The cost of the transfer.
+     * @throws IllegalArgumentException If either mode is null, or the penalty
+     *         is negative.
+     */
+    public void setTransferPenalty(TransportMode from, TransportMode to,
+                                   int penalty) {
+        if (from == null || to == null || penalty < 0) {
+            throw new IllegalArgumentException();
+        }
+        penalties[from.ordinal() * TransportMode.values().length
+                + to.ordinal()] = penalty;
+    }
+
+    /**
+     * Returns the penalty for each transfer from a route of one mode to a
+     * route of another.
+     *
+     * @param from The mode of the route being left.
+     * @param to The mode of the route being boarded.
+     * @return The cost of the transfer.
+     * @throws IllegalArgumentException If either mode is null.
+     */
+    public int getTransferPenalty(TransportMode from, TransportMode to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException();
+        }
+        return penalty(from.ordinal(), to.ordinal());
+    }
+
+    /**
+     * Finds the journey from one stop to another with the lowest cost, where
+     * the cost of a journey is the cost of the links ridden plus the penalty
+     * of each transfer.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The cheapest journey, or null if either stop is not on any
+     *         route or there is no journey between them.
+     */
+    public Journey cheapest(Stop from, Stop to) {
+        return search(from, to, false);
+    }
+
+    /**
+     * Finds the journey from one stop to another with the fewest transfers,
+     * choosing the journey with the lowest cost (including transfer
+     * penalties) amongst those with the fewest transfers.
+     *
+     * @param from The stop to start from.
+     * @param to The stop to travel to.
+     * @return The journey with the fewest transfers, or null if either stop
+     *         is not on any route or there is no journey between them.
+     */
+    public Journey fewestTransfers(Stop from, Stop to) {
+        return search(from, to, true);
+    }
+
+    /*
+     * Searches from every node of the origin stop until a node of the
+     * destination stop is reached, keying nodes by cost, or by transfers and
+     * then cost.
+     */
+    private Journey search(Stop from, Stop to, boolean countTransfers) {
+        Integer origin = from == null ? null : indices.get(from);
+        Integer destination = to == null ? null : indices.get(to);
+        if (origin == null || destination == null) {
+            return null;
+        }
+
+        space.reset();
+        for (int node = stopNodes[origin]; node < stopNodes[origin + 1];
+             node++) {
+            space.reach(node, 0, NONE, NONE);
+        }
+        long transfer = countTransfers ? 1L << TRANSFER_SHIFT : 0;
+
+        while (!space.queue.isEmpty()) {
+            long key = space.queue.peekKey();
+            int node = space.queue.poll();
+            if (key > space.distance(node)) {
+                continue;
+            }
+            int stop = nodeStop[node];
+            if (stop == destination) {
+                return journey(node);
+            }
+
+            for (int link = offsets[node]; link < offsets[node + 1]; link++) {
+                relax(targets[link], key + weights[link], node);
+            }
+
+            // transfers are implied by the nodes sharing a stop
+            for (int other = stopNodes[stop]; other < stopNodes[stop + 1];
+                 other++) {
+                if (other != node) {
+                    relax(other, key + transfer
+                            + penalty(nodeMode[node], nodeMode[other]), node);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void relax(int node, long key, int parent) {
+        if (key < space.distance(node)) {
+            space.reach(node, key, parent, NONE);
+        }
+    }
+
+    private int penalty(int from, int to) {
+        if (from == NONE || to == NONE) {
+            return 0;
+        }
+        return penalties[from * TransportMode.values().length + to];
+    }
+
+    /*
+     * Builds the journey ending at the given node by following the parents of
+     * the nodes of the current search.
+     */
+    private Journey journey(int end) {
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = end; node != NONE; node = space.parent(node)) {
+            nodes.add(node);
+        }
+        Collections.reverse(nodes);
+
+        List<Stop> journeyStops = new ArrayList<>();
+        List<Route> journeyRoutes = new ArrayList<>();
+        journeyStops.add(stops[nodeStop[nodes.get(0)]]);
+        long cost = 0;
+        int transfers = 0;
+        for (int i = 1; i < nodes.size(); i++) {
+            int previous = nodes.get(i - 1);
+            int node = nodes.get(i);
+            if (nodeStop[previous] == nodeStop[node]) {
+                transfers++;
+                cost += penalty(nodeMode[previous], nodeMode[node]);
+            } else {
+                Stop stop = stops[nodeStop[node]];
+                cost += stops[nodeStop[previous]].getLinkCost(stop);
+                journeyStops.add(stop);
+                journeyRoutes.add(routes[nodeRoute[node]]);
+            }
+        }
+        return new Journey(journeyStops, journeyRoutes, cost, transfers);
+    }
+}
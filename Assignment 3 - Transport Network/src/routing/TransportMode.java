@@ -0,0 +1,83 @@
+package routing;
+
+import java.util.Collection;
+
+/**
+ * The modes of public transport which routes can be served by, as given by
+ * {@link routes.Route#getType()}.
+ *
+ * <p>Sets of modes are represented as bitmasks (see {@link #bit()}), so that
+ * the links of a {@link StopGraph} can record which modes serve them in a
+ * single int each.
+ */
+public enum TransportMode {
+    BUS("bus"), TRAIN("train"), FERRY("ferry");
+
+    /**
+     * The mask of every mode.
+     */
+    public static final int ALL = (1 << values().length) - 1;
+
+    // the type of the routes served by this mode
+    private final String type;
+
+    TransportMode(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the route type (see {@link routes.Route#getType()}) served by
+     * this mode.
+     *
+     * @return The route type.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the bit representing this mode in a mask of modes.
+     *
+     * @return The mode's bit.
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns the mode serving routes of the given type.
+     *
+     * @param type The type of a route.
+     * @return The mode, or null if no mode serves routes of the type.
+     */
+    public static TransportMode of(String type) {
+        for (TransportMode mode : values()) {
+            if (mode.type.equals(type)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the mask of the given modes.
+     *
+     * @param modes The modes to include.
+     * @return A mask with the bit of each of the modes set.
+     * @throws IllegalArgumentException If the collection or any of its modes
+     *         is null.
+     */
+    public static int mask(Collection<TransportMode> modes) {
+        if (modes == null) {
+            throw new IllegalArgumentException();
+        }
+        int mask = 0;
+        for (TransportMode mode : modes) {
+            if (mode == null) {
+                throw new IllegalArgumentException();
+            }
+            mask |= mode.bit();
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,126 @@
+package stops;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of changes to the costs of links between neighbouring stops (e.g. from travel times observed whilst
+ * simulating the network), which are applied to the routing tables together.
+ *
+ * Changes are only recorded until apply() is called, and later changes to the same link replace earlier ones, so a
+ * stream of many updates to a few links costs no more to apply than a single update to each. Applying a batch
+ * re-optimises only the routing entries affected by the links whose costs actually changed (see
+ * RoutingTable.removeNeighbour(Stop) for how entries over a link are found), and synchronises the network once for the
+ * whole batch.
+ */
+public class LinkCostUpdates {
+
+    /*
+     * A one-way link between two stops, compared by identity (stops compare equal by name and routes, which is too
+     * slow for a key).
+     */
+    private static class Link {
+        private final Stop from;
+        private final Stop to;
+
+        private Link(Stop from, Stop to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Link && ((Link) other).from == from && ((Link) other).to == to;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(from) + System.identityHashCode(to);
+        }
+    }
+
+    // The latest cost recorded for each link, in the order the links were first updated
+    private final Map<Link, Integer> pending = new LinkedHashMap<>();
+
+    /**
+     * Records a new cost for the link from one stop to a neighbouring stop, replacing any cost already recorded for
+     * the same link in this batch. The cost takes effect when the batch is applied.
+     *
+     * @param from The stop at the start of the link.
+     * @param to The stop at the end of the link.
+     * @param cost The new cost of travelling along the link.
+     * @throws IllegalArgumentException If either stop is null, the second stop is not a neighbour of the first, or the
+     * cost is negative.
+     */
+    public void setCost(Stop from, Stop to, int cost) {
+
+        if (from == null || to == null || cost < 0 || !from.hasNeighbour(to)) {
+            throw new IllegalArgumentException();
+        }
+        pending.put(new Link(from, to), cost);
+    }
+
+    /**
+     * Records that the link from one stop to a neighbouring stop should cost the Manhattan distance between them again
+     * (see Stop.distanceTo(Stop)), once the batch is applied.
+     *
+     * @param from The stop at the start of the link.
+     * @param to The stop at the end of the link.
+     * @throws IllegalArgumentException If either stop is null, or the second stop is not a neighbour of the first.
+     */
+    public void resetCost(Stop from, Stop to) {
+
+        if (from == null || to == null || !from.hasNeighbour(to)) {
+            throw new IllegalArgumentException();
+        }
+        pending.put(new Link(from, to), from.distanceTo(to));
+    }
+
+    /**
+     * Returns the number of links with a cost recorded in this batch.
+     *
+     * @return The number of pending links.
+     */
+    public int size() {
+
+        return pending.size();
+    }
+
+    /**
+     * Changes the cost of every link recorded in this batch, and updates the routing tables of the network to route
+     * passengers along the cheapest paths given the new costs. The batch is then empty, and can be reused.
+     *
+     * Links whose stops have stopped being neighbours since their costs were recorded are skipped.
+     *
+     * @return The number of links whose costs changed.
+     */
+    public int apply() {
+
+        List<Stop[]> cheaper = new ArrayList<>();
+        List<Stop[]> dearer = new ArrayList<>();
+        for (Map.Entry<Link, Integer> update : pending.entrySet()) {
+            Stop from = update.getKey().from;
+            Stop to = update.getKey().to;
+            int previous = from.getLinkCost(to);
+            int cost = update.getValue();
+            if (cost == previous || !from.hasNeighbour(to)) {
+                continue;
+            }
+
+            from.setLinkCost(to, cost);
+            if (cost < previous) {
+                cheaper.add(new Stop[] {from, to});
+            } else {
+                dearer.add(new Stop[] {from, to});
+            }
+        }
+        pending.clear();
+
+        if (!cheaper.isEmpty() || !dearer.isEmpty()) {
+            RoutingTable.linkCostsChanged(cheaper, dearer);
+        }
+        return cheaper.size() + dearer.size();
+    }
+}
@@ -0,0 +1,137 @@
+package stops;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The versions of the links and routing tables of the stops in one network, which callers holding snapshots or
+ * cached results (e.g. a graph of the links, or complete paths) compare to determine whether they may be stale.
+ *
+ * Every stop starts with a state of its own, and shares the state of a network once added to it (see add(Stop)), so
+ * changes to the stops of one network never invalidate the snapshots of another. A stop only shares the state of the
+ * network it was most recently added to.
+ *
+ * Routing can be suspended whilst many links are added at once (e.g. whilst a network is being loaded), so that the
+ * routing tables of the stops are not synchronised after every link, and then rebuilt in a single step once the links
+ * are in place (see suspendRouting()).
+ */
+public class NetworkState {
+
+    // Incremented whenever a link, link cost, or route of any of the stops changes
+    private final AtomicLong linkVersion = new AtomicLong();
+
+    // Incremented whenever an entry in the routing table of any of the stops is added or changed
+    private final AtomicLong routingGeneration = new AtomicLong();
+
+    // The number of links from the stops whose cost has been set below the distance between their stops
+    private final AtomicInteger discountedLinks = new AtomicInteger();
+
+    // Whether changes to the links of the stops leave their routing tables untouched, to be rebuilt later
+    private volatile boolean routingSuspended;
+
+    /**
+     * Has the given stop share this state, moving its discounted links (see hasDiscountedLinks()) from the state it
+     * shared before. The versions of both states change.
+     *
+     * @param stop The stop to share this state.
+     * @throws IllegalArgumentException If the given stop is null.
+     */
+    public void add(Stop stop) {
+
+        if (stop == null) {
+            throw new IllegalArgumentException();
+        }
+        NetworkState previous = stop.getState();
+        if (previous == this) {
+            return;
+        }
+        int discounted = stop.discountedLinkCount();
+        previous.linkChanged(-discounted);
+        previous.nextGeneration();
+        stop.setState(this);
+        linkChanged(discounted);
+        nextGeneration();
+    }
+
+    /**
+     * Returns the link version, which changes whenever a link between the stops is added or removed, the cost of a
+     * link changes, or a stop is added to or removed from a route.
+     *
+     * @return The current link version.
+     */
+    public long getLinkVersion() {
+
+        return linkVersion.get();
+    }
+
+    /**
+     * Returns the routing generation, which changes whenever an entry in the routing table of any of the stops is
+     * added or changed.
+     *
+     * @return The current routing generation.
+     */
+    public long getRoutingGeneration() {
+
+        return routingGeneration.get();
+    }
+
+    /**
+     * Returns whether the cost of any link from the stops has been set below the Manhattan distance between its stops,
+     * in which case the distance between two stops is no longer a lower bound on the cost of travelling between them.
+     *
+     * @return True if any link costs less than the distance it covers.
+     */
+    public boolean hasDiscountedLinks() {
+
+        return discountedLinks.get() > 0;
+    }
+
+    /**
+     * Suspends the routing of the stops, so that adding or removing links and changing link costs no longer updates
+     * their routing tables (eagerly computed tables are not synchronised, and lazily computed tables are still
+     * discarded). The tables are stale until routing is resumed and they are rebuilt.
+     */
+    public void suspendRouting() {
+
+        routingSuspended = true;
+    }
+
+    /**
+     * Resumes the routing of the stops after suspendRouting(). The tables are not updated for the changes made whilst
+     * routing was suspended, so every table should then be rebuilt from the current links (e.g. by
+     * routing.ParallelRebuild) before it is queried.
+     */
+    public void resumeRouting() {
+
+        routingSuspended = false;
+    }
+
+    /**
+     * Returns whether the routing of the stops is suspended (see suspendRouting()).
+     *
+     * @return True if changes to the links leave the routing tables untouched.
+     */
+    public boolean isRoutingSuspended() {
+
+        return routingSuspended;
+    }
+
+    /*
+     * Records that a link has changed, which changed the number of discounted links by the given amount.
+     */
+    void linkChanged(int discounted) {
+
+        if (discounted != 0) {
+            discountedLinks.addAndGet(discounted);
+        }
+        linkVersion.incrementAndGet();
+    }
+
+    /*
+     * Records that an entry of a routing table has changed.
+     */
+    void nextGeneration() {
+
+        routingGeneration.incrementAndGet();
+    }
+}
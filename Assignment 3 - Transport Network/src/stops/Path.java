@@ -0,0 +1,111 @@
+package stops;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A path through the transport network, made up of a sequence of stops and the
+ * total cost of travelling along it.
+ *
+ * The cost of a path is the sum of the costs of the links between each pair of consecutive stops on the path (see
+ * Stop.getLinkCost(Stop)), as used by routing tables. A link costs the Manhattan distance between its stops unless
+ * its cost has been set to something else.
+ */
+public class Path {
+
+    // The stops on the path, in order from the origin to the destination
+    private final List<Stop> stops;
+
+    // The total cost of travelling along the path
+    private final long cost;
+
+    /**
+     * Creates a new path along the given stops, with the given total cost.
+     *
+     * @param stops The stops on the path, starting with the origin and ending with the destination.
+     * @param cost The total cost of travelling along the path.
+     * @throws IllegalArgumentException If the list of stops is null or empty, or the cost is negative.
+     */
+    public Path(List<Stop> stops, long cost) {
+
+        if (stops == null || stops.isEmpty() || cost < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.stops = new ArrayList<>(stops);
+        this.cost = cost;
+    }
+
+    /**
+     * Returns the stops on this path, in order from the origin to the destination.
+     *
+     * Modifying the returned list will not result in changes to this path.
+     *
+     * @return The stops on the path.
+     */
+    public List<Stop> getStops() {
+
+        return new ArrayList<>(stops);
+    }
+
+    /**
+     * Returns the stop at the start of this path.
+     *
+     * @return The origin of the path.
+     */
+    public Stop getOrigin() {
+
+        return stops.get(0);
+    }
+
+    /**
+     * Returns the stop at the end of this path.
+     *
+     * @return The destination of the path.
+     */
+    public Stop getDestination() {
+
+        return stops.get(stops.size() - 1);
+    }
+
+    /**
+     * Returns the total cost of travelling along this path.
+     *
+     * @return The cost of the path.
+     */
+    public long getCost() {
+
+        return cost;
+    }
+
+    /**
+     * Returns the number of stops on this path (including the origin and destination).
+     *
+     * @return The number of stops on the path.
+     */
+    public int size() {
+
+        return stops.size();
+    }
+
+    /**
+     * Creates a string representation of the path in the format:
+     *
+     * '{stop0}|{stop1}|...|{stopN}:{cost}'
+     *
+     * where {stop0} etc. are the names of the stops on the path.
+     *
+     * @return A string representation of the path.
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+        for (Stop stop : stops) {
+            if (builder.length() > 0) {
+                builder.append('|');
+            }
+            builder.append(stop.getName());
+        }
+        return builder.append(':').append(cost).toString();
+    }
+}
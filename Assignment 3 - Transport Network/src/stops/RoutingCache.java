@@ -0,0 +1,156 @@
+package stops;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the entries of lazily computed routing tables, shared by every stop in a network.
+ *
+ * Routing tables attached to a cache (using RoutingTable.setCache(RoutingCache)) do not hold their entries
+ * permanently. Instead, a table's entries are computed (by the cache's loader) the first time the table is queried,
+ * and are held until either the cache is full and the table is the least recently queried, or the network changes.
+ * The memory used for routing is then proportional to the number of stops which are actually used as sources, rather
+ * than to the square of the number of stops.
+ *
+ * Neither the cache nor the tables attached to it are safe for use by multiple threads at once.
+ */
+public class RoutingCache {
+
+    // The tables whose entries are currently held, least recently queried first
+    private final Map<RoutingTable, Boolean> loaded;
+
+    // Computes the entries of the table of the given stop
+    private final Function<Stop, Map<Stop, RoutingEntry>> loader;
+
+    // The maximum number of tables whose entries are held at once
+    private int capacity;
+
+    // Incremented whenever the cache is invalidated
+    private int epoch;
+
+    // The number of times entries have been computed
+    private long loads;
+
+    /**
+     * Creates a new empty cache, which holds the entries of at most the given number of tables at once.
+     *
+     * @param capacity The maximum number of tables whose entries are held.
+     * @param loader Computes the entries of the table of a given stop, which must include the stop's own entry.
+     * @throws IllegalArgumentException If the capacity is not positive, or the loader is null.
+     */
+    public RoutingCache(int capacity, Function<Stop, Map<Stop, RoutingEntry>> loader) {
+
+        if (capacity <= 0 || loader == null) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        this.loader = loader;
+        this.loaded = new LinkedHashMap<RoutingTable, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RoutingTable, Boolean> eldest) {
+
+                if (size() > RoutingCache.this.capacity) {
+                    eldest.getKey().unload();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Changes the maximum number of tables whose entries are held, discarding the entries of the least recently
+     * queried tables if more than that are held.
+     *
+     * @param capacity The maximum number of tables whose entries are held.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public void setCapacity(int capacity) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        Iterator<RoutingTable> iterator = loaded.keySet().iterator();
+        while (loaded.size() > capacity) {
+            iterator.next().unload();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Returns the maximum number of tables whose entries are held at once.
+     *
+     * @return The capacity of the cache.
+     */
+    public int getCapacity() {
+
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of tables whose entries are currently held.
+     *
+     * @return The number of loaded tables.
+     */
+    public int size() {
+
+        return loaded.size();
+    }
+
+    /**
+     * Returns the number of times the entries of a table have been computed (including recomputing the entries of a
+     * table after they were discarded).
+     *
+     * @return The number of loads.
+     */
+    public long getLoads() {
+
+        return this.loads;
+    }
+
+    /**
+     * Discards the entries of every table, so they are computed again when next queried (e.g. because the stops or the
+     * links between them have changed).
+     */
+    public void invalidate() {
+
+        for (RoutingTable table : loaded.keySet()) {
+            table.unload();
+            table.getStop().getState().nextGeneration();
+        }
+        loaded.clear();
+        epoch++;
+    }
+
+    /*
+     * Returns the number of times the cache has been invalidated, which attached tables add to their versions.
+     */
+    int getEpoch() {
+
+        return this.epoch;
+    }
+
+    /*
+     * Records that the given table has been queried, computing its entries if they are not held, and discarding the
+     * entries of the least recently queried table if the cache is full.
+     */
+    void touch(RoutingTable table) {
+
+        if (!table.isLoaded()) {
+            loads++;
+            table.load(loader.apply(table.getStop()));
+        }
+        loaded.put(table, Boolean.TRUE);
+    }
+
+    /*
+     * Stops holding the entries of the given table (e.g. because it is no longer attached to this cache).
+     */
+    void release(RoutingTable table) {
+
+        loaded.remove(table);
+    }
+}
@@ -1,5 +1,8 @@
 package stops;
 
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
+
 /**
  * Represents an entry in a routing table.
  *
@@ -22,6 +25,8 @@ public class RoutingEntry {
      */
     public RoutingEntry() {
 
+        OperationCounter.record(Operation.ROUTING_ENTRY_ALLOCATION);
+
         this.nextStop = null;
         this.cost = Integer.MAX_VALUE;
     }
@@ -37,6 +42,8 @@ public class RoutingEntry {
      */
     public RoutingEntry(Stop next, int cost) {
 
+        OperationCounter.record(Operation.ROUTING_ENTRY_ALLOCATION);
+
         // Checking if the next stop is null, or the cost is negative.
         if (next == null || cost < 0) {
             this.nextStop = null;
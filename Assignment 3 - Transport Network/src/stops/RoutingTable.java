@@ -1,4 +1,9 @@
 package stops;
+import metrics.MetricsRegistry;
+import metrics.RoutingRebuildEvent;
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
+
 import java.util.*;
 
 /**
@@ -6,14 +11,32 @@ import java.util.*;
  *
  * The table is able to redirect passengers from their current stop to the next intermediate stop which they should go
  * to, in order to reach their final destination.
+ *
+ * By default a table's entries are kept up to date eagerly, by synchronising the tables of neighbouring stops whenever
+ * a neighbour is added. A table attached to a RoutingCache (see setCache(RoutingCache)) instead computes its entries
+ * from the current network when it is first queried, and may discard them again at any time. Whilst the routing of a
+ * table's network is suspended (see NetworkState.suspendRouting()), changes to its links leave the table untouched.
  */
 public class RoutingTable {
 
     // Defining the initial stop
     private Stop initialStop;
 
-    // Defining a HashMap to represent the routingTable
-    private Map<Stop, RoutingEntry> routingTable = new LinkedHashMap<>();
+    // Defining a HashMap to represent the routingTable (volatile, as replaceEntries may publish a map built by another
+    // thread)
+    private volatile Map<Stop, RoutingEntry> routingTable = new LinkedHashMap<>();
+
+    // Incremented whenever an entry in the table is added or changed
+    private int version;
+
+    // Destinations whose entries have been added or changed since they were last offered to the neighbouring tables
+    private Set<Stop> changed = new LinkedHashSet<>();
+
+    // Whether every entry must be offered to the neighbouring tables (e.g. after all of the entries were replaced)
+    private boolean allChanged;
+
+    // The cache holding this table's entries, if they are computed lazily (null if they are kept up to date eagerly)
+    private RoutingCache cache;
 
     /**
      * Creates a new RoutingTable for the given stop.
@@ -29,24 +52,25 @@ public class RoutingTable {
     }
 
     /**
-     * A Private helper method used to determine the manhatten distance (and subsequently Cost) when travelling between
-     * two stops.
+     * A Private helper method used to determine the Cost when travelling between two stops (the manhatten distance
+     * between them, unless the cost of the link has been changed, see Stop.getLinkCost(Stop)).
      * @param stop1 The initial Stop.
      * @param stop2 The Destination Stop.
-     * @return The Manhattan Distance (Travel Cost) between two Stop1 and Stop 2.
+     * @return The Travel Cost between two Stop1 and Stop 2.
      */
-    private int costCalculator(Stop stop1, Stop stop2) {
-        return Math.abs(stop1.getX() - stop2.getX()) + Math.abs(stop1.getY() - stop2.getY());
+    private static int costCalculator(Stop stop1, Stop stop2) {
+        return stop1.getLinkCost(stop2);
     }
 
     /**
      * Adds the given stop as a neighbour of the stop stored in this table.
      *
      * A neighbouring stop should be added as a destination in this table, with the cost to reach that destination
-     * simply being the manhattan distance between this table's stop and the given neighbour stop.
+     * being the cost of the link between this table's stop and the given neighbour stop (see Stop.getLinkCost(Stop)).
      *
      * If the given neighbour already exists in the table, it should be updated (as defined in
-     * addOrUpdateEntry(Stop, int, Stop)).
+     * addOrUpdateEntry(Stop, int, Stop)). An existing entry which went directly to the neighbour for less than the new
+     * link costs is repaired first, as it was computed from a link which no longer exists.
      *
      * The 'intermediate'/'next' stop between this table's stop and the new neighbour stop should simply be the
      * neighbour stop itself.
@@ -58,20 +82,191 @@ public class RoutingTable {
      */
     public void addNeighbour(Stop neighbour) {
 
-        // Checking if the neighbouring stop already exists in the routingTable
-        if (this.routingTable.containsKey(neighbour)) {
+        // Lazily computed tables are discarded instead, as every table's entries may have changed
+        if (this.cache != null) {
+            this.cache.invalidate();
+            return;
+        }
+        if (routingSuspended()) {
+            return;
+        }
 
-            // updating neighbour's entry.
-            addOrUpdateEntry(neighbour, costCalculator(neighbour, neighbour), neighbour);
+        // An existing entry routing directly to the neighbour for less than the new link costs was computed from a cheaper
+        // link, so it (and every entry routed over it) is repaired as if the link had become more expensive
+        int cost = costCalculator(this.initialStop, neighbour);
+        RoutingEntry existing = this.routingTable.get(neighbour);
+        if (existing != null && existing.getNext() == neighbour && existing.getCost() < cost) {
+            Map<RoutingTable, Set<Stop>> affected = new LinkedHashMap<>();
+            findEntriesOver(this.initialStop, neighbour, affected);
+            repairEntries(affected);
         }
 
-        // Adding the neighbouring stop to the routing table
-        routingTable.put(neighbour, new RoutingEntry(neighbour, costCalculator(this.initialStop, neighbour)));
+        // Adding the neighbouring stop to the routing table, unless it can already be reached more cheaply (the direct
+        // link is not always the cheapest route once link costs have been changed). The entry is marked as changed either
+        // way, so that every entry is offered to the new neighbour (see offerChanges())
+        if (!addOrUpdateEntry(neighbour, cost, neighbour)) {
+            entryChanged(neighbour);
+        }
 
         // Synchronising the routingTable
         synchronise();
     }
 
+    /**
+     * Removes the given stop as a neighbour of the stop stored in this table (which must already have been removed from
+     * the stop's neighbours), and repairs the routing tables of the network.
+     *
+     * Only the entries which routed passengers over the removed link (in either direction) are affected: the entry in
+     * this table for each destination whose next stop was the removed neighbour, the entries of every table whose next
+     * stops lead through this table's stop to such a destination, and likewise from the neighbour back to this table's
+     * stop. These entries are removed, the unaffected tables next to them offer their entries for the same
+     * destinations again, and the offers are propagated by synchronise(). Destinations which can no longer be reached
+     * are left without entries.
+     *
+     * @param neighbour The stop to be removed as a neighbour.
+     */
+    public void removeNeighbour(Stop neighbour) {
+
+        // Lazily computed tables are discarded instead, as every table's entries may have changed
+        if (this.cache != null) {
+            this.cache.invalidate();
+            return;
+        }
+        if (neighbour == null || routingSuspended()) {
+            return;
+        }
+
+        // Finding the entries which route over the link, before any are removed
+        Map<RoutingTable, Set<Stop>> affected = new LinkedHashMap<>();
+        findEntriesOver(this.initialStop, neighbour, affected);
+        findEntriesOver(neighbour, this.initialStop, affected);
+        repairEntries(affected);
+
+        synchronise();
+        neighbour.getRoutingTable().synchronise();
+    }
+
+    /**
+     * Updates the routing tables of the network after the costs of the given links have changed (see
+     * LinkCostUpdates), where each link is a pair of stops {from, to}.
+     *
+     * Links which have become cheaper are handled by the stop at the end of each link offering its entries to the
+     * stop at the start of it again. Links which have become more expensive are handled in the same way as removed
+     * links (see removeNeighbour(Stop)), except that only the entries routing passengers over each link in its own
+     * direction are affected. Every change is then propagated by a single synchronisation of the affected stops.
+     *
+     * @param cheaper The links whose costs have decreased.
+     * @param dearer The links whose costs have increased.
+     */
+    static void linkCostsChanged(List<Stop[]> cheaper, List<Stop[]> dearer) {
+
+        Set<RoutingCache> invalidated = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Stop> touched = new ArrayList<>();
+        Map<RoutingTable, Set<Stop>> affected = new LinkedHashMap<>();
+
+        // Finding the entries which route over the links which are now more expensive, before any are removed
+        for (Stop[] link : dearer) {
+            RoutingCache cache = link[0].getRoutingTable().cache;
+            if (cache != null) {
+                invalidated.add(cache);
+            } else if (!link[0].getState().isRoutingSuspended()) {
+                findEntriesOver(link[0], link[1], affected);
+                touched.add(link[0]);
+            }
+        }
+        repairEntries(affected);
+
+        // Offering the entries from the far end of the links which are now cheaper
+        for (Stop[] link : cheaper) {
+            RoutingCache cache = link[0].getRoutingTable().cache;
+            if (cache != null) {
+                invalidated.add(cache);
+            } else if (link[0].hasNeighbour(link[1]) && !link[0].getState().isRoutingSuspended()) {
+                RoutingTable table = link[1].getRoutingTable();
+                table.offerEntries(link[0], table.entries().keySet());
+                touched.add(link[0]);
+            }
+        }
+
+        for (RoutingCache cache : invalidated) {
+            cache.invalidate();
+        }
+        propagate(touched);
+    }
+
+    /*
+     * Removes the given entries (by table), and has the remaining entries next to them offered again so that the
+     * next synchronisation replaces them with the cheapest remaining routes.
+     */
+    private static void repairEntries(Map<RoutingTable, Set<Stop>> affected) {
+
+        // Removing the affected entries
+        for (Map.Entry<RoutingTable, Set<Stop>> tableEntries : affected.entrySet()) {
+            tableEntries.getKey().removeEntries(tableEntries.getValue());
+        }
+
+        // Offering the remaining entries next to the affected ones again (including direct links to neighbours)
+        for (Map.Entry<RoutingTable, Set<Stop>> tableEntries : affected.entrySet()) {
+            RoutingTable table = tableEntries.getKey();
+            Stop stop = table.getStop();
+            for (Stop other : stop.getNeighbours()) {
+                RoutingTable otherTable = other.getRoutingTable();
+                for (Stop destination : tableEntries.getValue()) {
+                    if (other == destination) {
+                        table.addOrUpdateEntry(destination, costCalculator(stop, destination), destination);
+                    }
+                    if (otherTable.routingTable.containsKey(destination)) {
+                        otherTable.changed.add(destination);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Adds to the given map the entries (by table) which route passengers from the given stop directly to the given
+     * next stop, along with the entries of every table whose next stops lead through the given stop to the same
+     * destinations.
+     *
+     * The tables routing through a stop to a destination are found by searching outwards from the stop, since a table
+     * can only route to a destination through a stop which offered it the entry (i.e. one of the stop's neighbours).
+     */
+    private static void findEntriesOver(Stop from, Stop next, Map<RoutingTable, Set<Stop>> affected) {
+
+        for (Map.Entry<Stop, RoutingEntry> entry : from.getRoutingTable().routingTable.entrySet()) {
+            Stop destination = entry.getKey();
+            if (entry.getValue().getNext() != next || destination == from) {
+                continue;
+            }
+
+            Set<Stop> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            Deque<Stop> stack = new ArrayDeque<>();
+            visited.add(from);
+            stack.push(from);
+            while (!stack.isEmpty()) {
+                Stop current = stack.pop();
+                affected.computeIfAbsent(current.getRoutingTable(), t -> new LinkedHashSet<>()).add(destination);
+                for (Stop other : current.getNeighbours()) {
+                    if (other.getRoutingTable().nextStop(destination) == current && visited.add(other)) {
+                        stack.push(other);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Removes the entries for the given destinations from this table.
+     */
+    private void removeEntries(Set<Stop> destinations) {
+
+        for (Stop destination : destinations) {
+            this.routingTable.remove(destination);
+            this.changed.remove(destination);
+        }
+        versionChanged();
+    }
+
     /**
      * If there is currently no entry for the destination in the table, a new entry for the given destination should be
      * added, with a RoutingEntry for the given cost and next (intermediate) stop.
@@ -89,15 +284,20 @@ public class RoutingTable {
      */
     public boolean addOrUpdateEntry(Stop destination, int newCost, Stop intermediate) {
 
+        OperationCounter.record(Operation.ROUTING_LOOKUP);
+        Map<Stop, RoutingEntry> entries = entries();
+
         // Checking if the destination is not already in the routingTable
-        if (!this.routingTable.containsKey(destination)) {
-            routingTable.put(destination, new RoutingEntry(intermediate, newCost));
+        if (!entries.containsKey(destination)) {
+            entries.put(destination, new RoutingEntry(intermediate, newCost));
+            entryChanged(destination);
             return true;
         }
 
         // Checking if the newCost is cheaper than the current cost.
         if (newCost < costTo(destination)) {
-            this.routingTable.replace(destination, new RoutingEntry(intermediate, newCost));
+            entries.replace(destination, new RoutingEntry(intermediate, newCost));
+            entryChanged(destination);
             return true;
         }
 
@@ -106,6 +306,127 @@ public class RoutingTable {
         return false;
     }
 
+    /*
+     * Records that the entry for the given destination has been added or changed, so it will be offered to the
+     * neighbouring tables by the next synchronise().
+     */
+    private void entryChanged(Stop destination) {
+
+        changed.add(destination);
+        versionChanged();
+    }
+
+    /*
+     * Records that the entries in this table have changed.
+     */
+    private void versionChanged() {
+        version++;
+        this.initialStop.getState().nextGeneration();
+        OperationCounter.record(Operation.ROUTING_ENTRY_UPDATE);
+        MetricsRegistry.recordRoutingEntryUpdate();
+    }
+
+    /*
+     * Returns the entries of this table, computing them first if the table is lazily computed and they are not held.
+     */
+    private Map<Stop, RoutingEntry> entries() {
+
+        if (this.cache != null) {
+            this.cache.touch(this);
+        }
+        return this.routingTable;
+    }
+
+    /**
+     * Attaches this table to the given cache, so that its entries are computed lazily, or detaches it from its cache
+     * (if the given cache is null), so that its entries are kept up to date eagerly again.
+     *
+     * Attaching a table discards its current entries. A detached table keeps the entries it was last computed with (or
+     * just the entry for its own stop, if none are held), which are offered to its neighbours by the next
+     * synchronise().
+     *
+     * @param cache The cache to attach this table to, or null to detach it.
+     */
+    public void setCache(RoutingCache cache) {
+
+        if (this.cache == cache) {
+            return;
+        }
+
+        // Keeping the version increasing when the epoch of the old or new cache is no longer or now added to it
+        if (this.cache != null) {
+            this.cache.release(this);
+            this.version += this.cache.getEpoch();
+        }
+        if (cache != null) {
+            this.version -= cache.getEpoch();
+            unload();
+        } else if (!isLoaded()) {
+            this.routingTable = new LinkedHashMap<>();
+            this.routingTable.put(initialStop, new RoutingEntry(initialStop, 0));
+        }
+        this.allChanged = cache == null;
+        this.cache = cache;
+        versionChanged();
+    }
+
+    /**
+     * Returns whether the entries of this table are currently held, which is always the case unless the table is
+     * attached to a RoutingCache.
+     *
+     * @return True if the entries are held, or false if they will be computed when the table is next queried.
+     */
+    public boolean isLoaded() {
+
+        return this.routingTable != null;
+    }
+
+    /*
+     * Holds the given entries, which have been computed by this table's cache.
+     */
+    void load(Map<Stop, RoutingEntry> entries) {
+
+        this.routingTable = entries;
+    }
+
+    /*
+     * Discards the entries of this table, along with any changes which have not been offered to its neighbours.
+     */
+    void unload() {
+
+        this.routingTable = null;
+        this.changed = new LinkedHashSet<>();
+        this.allChanged = false;
+    }
+
+    /**
+     * Replaces every entry in this table at once with the given entries (e.g. entries computed by a complete rebuild of
+     * the network's routing, rather than by synchronise()).
+     *
+     * The given map becomes the table's map, rather than being copied, so it must not be modified afterwards. Callers
+     * on other threads see either all of the old entries or all of the new entries.
+     *
+     * The new entries are taken to be consistent with the neighbouring tables already (as when every table is
+     * rebuilt), so none of them are offered to the neighbours by the next synchronise(), and changes made afterwards
+     * are propagated on their own.
+     *
+     * @param entries The new entries, which must include an entry for this table's stop.
+     * @throws IllegalArgumentException If the given map is null or has no entry for this table's stop.
+     */
+    public void replaceEntries(Map<Stop, RoutingEntry> entries) {
+
+        if (entries == null || !entries.containsKey(this.initialStop)) {
+            throw new IllegalArgumentException();
+        }
+        this.routingTable = entries;
+        this.changed = new LinkedHashSet<>();
+        this.allChanged = false;
+        versionChanged();
+        if (this.cache != null) {
+            this.cache.touch(this);
+        }
+    }
+
     /**
      * Returns the cost associated with getting to the given stop.
      *
@@ -114,13 +435,17 @@ public class RoutingTable {
      */
     public int costTo(Stop stop) {
 
+        OperationCounter.record(Operation.ROUTING_LOOKUP);
+
+        Map<Stop, RoutingEntry> entries = entries();
+
         // If the stop is not in the table, returning max_value
-        if (!routingTable.containsKey(stop)) {
+        if (!entries.containsKey(stop)) {
             return Integer.MAX_VALUE;
         }
 
         // Returning the cost to get to the stop, as calculated by the getCosts() method.
-        return routingTable.get(stop).getCost();
+        return entries.get(stop).getCost();
 
     }
 
@@ -133,13 +458,37 @@ public class RoutingTable {
 
         Map<Stop, Integer> routeCosts = new LinkedHashMap<>();
 
-        for (Stop destination : this.routingTable.keySet()) {
-            routeCosts.put(destination, routingTable.get(destination).getCost());
+        for (Map.Entry<Stop, RoutingEntry> entry : entries().entrySet()) {
+            routeCosts.put(entry.getKey(), entry.getValue().getCost());
         }
 
         return routeCosts;
     }
 
+    /**
+     * Returns the number of destinations in this table (including the table's own stop).
+     *
+     * @return The number of entries in the table.
+     */
+    public int size() {
+
+        return entries().size();
+    }
+
+    /**
+     * Returns the version of this table, which changes whenever an entry in the table is added or updated (or, for a
+     * lazily computed table, whenever its cache is invalidated).
+     *
+     * Callers which cache the results of nextStop(Stop) can compare versions to determine whether their cached
+     * results may be stale.
+     *
+     * @return The current version of this table.
+     */
+    public int getVersion() {
+
+        return this.cache == null ? this.version : this.version + this.cache.getEpoch();
+    }
+
     /**
      * Return the stop for which this table will handle routing.
      *
@@ -159,45 +508,246 @@ public class RoutingTable {
      */
     public Stop nextStop(Stop destination) {
 
+        OperationCounter.record(Operation.ROUTING_LOOKUP);
+
         // Checking if destination is null, or not in the routingTable
-        if (destination == null || !routingTable.containsKey(destination)) {
+        if (destination == null) {
+            return null;
+        }
+        RoutingEntry entry = entries().get(destination);
+        if (entry == null) {
             return null;
         }
 
         // Returning the next/intermediate stop as defined in the routeEntry
-        return this.routingTable.get(destination).getNext();
+        return entry.getNext();
+    }
+
+    /**
+     * Returns the complete path which passengers at this table's stop would be routed along to reach the given
+     * destination, found by following the next stop of each table along the way.
+     *
+     * If the given stop is null or cannot be reached by following the tables (including if the tables route passengers
+     * around in a loop), then return null.
+     *
+     * @param destination The destination which the passengers are being routed.
+     * @return The path from this table's stop to the destination, or null if there is no path.
+     */
+    public Path pathTo(Stop destination) {
+
+        if (destination == null) {
+            return null;
+        }
+
+        List<Stop> stops = new ArrayList<>();
+        Set<Stop> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Stop current = this.initialStop;
+        long cost = 0;
+        stops.add(current);
+        visited.add(current);
+
+        // Following the next stop of each table until the destination is reached
+        while (current != destination) {
+            Stop next = current.getRoutingTable().nextStop(destination);
+            if (next == null || !visited.add(next)) {
+                return null;
+            }
+            cost += costCalculator(current, next);
+            stops.add(next);
+            current = next;
+        }
+
+        return new Path(stops, cost);
     }
 
     /**
      * Synchronises this routing table with the other tables in the network.
      *
-     * In each iteration, every stop in the network which is reachable by this table's stop (as returned by
-     * traverseNetwork()) must be considered. For each stop x in the network, each of its neighbours must be visited,
-     * and the entries from x must be transferred to each neighbour (using the transferEntries(Stop) method).
+     * Only entries which have changed are propagated. Every stop reachable by this table's stop (as returned by
+     * traverseNetwork()) whose table has changed entries is placed on a worklist. Each stop taken from the worklist
+     * offers its changed entries to each of its neighbours, and any neighbour whose table changes as a result is placed
+     * on the worklist for the next round (a neighbour which has just been linked to the stop is offered every entry, as
+     * it has not seen any of them before).
      *
-     * If any of these transfers transfers results in a change to the table that the entries are being transferred, than
-     * the entire process must be repeated again. These iterations should continue happening until no changes occur to
-     * any of the tables in the network.
+     * Rounds continue until no table in the network changes, at which point every table holds the cheapest cost to
+     * each destination reachable from its stop.
      *
-     * This process is designed to handle changes which need to be propagated throughout the entire network, which could
-     * take more than one iteration.
+     * Tables attached to a RoutingCache are always computed from the current network, so are not synchronised, and
+     * nor are tables whose routing is suspended (see NetworkState.suspendRouting()).
      */
     public void synchronise() {
 
-        boolean networkChanged;
+        if (this.cache != null || routingSuspended()) {
+            return;
+        }
 
-        do {
-            networkChanged = false;
+        RoutingRebuildEvent event = new RoutingRebuildEvent();
+        event.begin();
+        long start = MetricsRegistry.startTimer();
+        List<Stop> reachable = this.traverseNetwork();
 
-            // Iterating over all reachable stops
-            for (Stop stop : this.traverseNetwork()) {
+        // Starting with every reachable stop which has entries its neighbours have not been offered
+        List<Stop> worklist = new ArrayList<>();
+        for (Stop stop : reachable) {
+            if (stop.getRoutingTable().hasChanges()) {
+                worklist.add(stop);
+            }
+        }
+        int iterations = offerRounds(worklist);
+
+        MetricsRegistry.recordRoutingRebuild(start, iterations);
+        if (event.shouldCommit()) {
+            event.stop = initialStop.getName();
+            event.reachableStops = reachable.size();
+            event.iterations = iterations;
+            event.commit();
+        }
+    }
 
-                // Iterating over each reachable stops neighbours
-                for (Stop neighbour : stop.getNeighbours()) {
-                    networkChanged = stop.getRoutingTable().transferEntries(neighbour);
+    /*
+     * Synchronises the tables of every stop reachable from any of the given stops (as synchronise() does for a single
+     * stop), traversing the network once.
+     */
+    private static void propagate(List<Stop> from) {
+
+        RoutingRebuildEvent event = new RoutingRebuildEvent();
+        event.begin();
+        long start = MetricsRegistry.startTimer();
+
+        // Finding every reachable stop with changes, visiting each stop at most once
+        Set<Stop> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Stop> stack = new ArrayDeque<>();
+        List<Stop> worklist = new ArrayList<>();
+        for (Stop stop : from) {
+            if (seen.add(stop)) {
+                stack.push(stop);
+            }
+        }
+        while (!stack.isEmpty()) {
+            Stop stop = stack.pop();
+            OperationCounter.record(Operation.TRAVERSAL_VISIT);
+            if (stop.getRoutingTable().hasChanges()) {
+                worklist.add(stop);
+            }
+            for (Stop neighbour : stop.getNeighbours()) {
+                if (seen.add(neighbour)) {
+                    stack.push(neighbour);
                 }
             }
-        } while (networkChanged);
+        }
+        int iterations = offerRounds(worklist);
+
+        MetricsRegistry.recordRoutingRebuild(start, iterations);
+        if (event.shouldCommit()) {
+            event.stop = from.isEmpty() ? "" : from.get(0).getName();
+            event.reachableStops = seen.size();
+            event.iterations = iterations;
+            event.commit();
+        }
+    }
+
+    /*
+     * Returns whether the routing of this table's stop is suspended, in which case changes to its links are left for
+     * a later rebuild.
+     */
+    private boolean routingSuspended() {
+
+        return this.initialStop.getState().isRoutingSuspended();
+    }
+
+    /*
+     * Has each stop in the worklist offer its changes to its neighbours, in rounds, until no table changes. Returns the
+     * number of rounds.
+     */
+    private static int offerRounds(List<Stop> worklist) {
+
+        int iterations = 0;
+        while (!worklist.isEmpty()) {
+            iterations++;
+
+            // Offering each stop's changes to its neighbours, and queueing the neighbours which changed
+            List<Stop> nextRound = new ArrayList<>();
+            Set<Stop> queued = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Stop stop : worklist) {
+                for (Stop neighbour : stop.getRoutingTable().offerChanges()) {
+                    if (queued.add(neighbour)) {
+                        nextRound.add(neighbour);
+                    }
+                }
+            }
+            worklist = nextRound;
+        }
+        return iterations;
+    }
+
+    /*
+     * Returns whether this table has entries which have not been offered to the neighbouring tables since they changed.
+     */
+    private boolean hasChanges() {
+
+        return this.allChanged || !this.changed.isEmpty();
+    }
+
+    /*
+     * Offers the entries which have changed since they were last offered to each neighbouring table, and returns the
+     * neighbours whose tables changed as a result.
+     *
+     * A neighbour whose own entry has changed (i.e. which has just been linked to this table's stop) is offered every
+     * entry instead.
+     */
+    private List<Stop> offerChanges() {
+
+        List<Stop> updated = new ArrayList<>();
+        if (!hasChanges()) {
+            return updated;
+        }
+
+        Set<Stop> offered = this.changed;
+        boolean offerAll = this.allChanged;
+        this.changed = new LinkedHashSet<>();
+        this.allChanged = false;
+
+        for (Stop neighbour : initialStop.getNeighbours()) {
+            OperationCounter.record(Operation.TRANSFER_ENTRIES);
+            MetricsRegistry.recordTransferEntries();
+            boolean all = offerAll || offered.contains(neighbour);
+            if (offerEntries(neighbour, all ? entries().keySet() : offered)) {
+                updated.add(neighbour);
+            }
+        }
+        return updated;
+    }
+
+    /*
+     * Offers this table's entries for the given destinations to the table of the given other stop, routed through this
+     * table's stop. Returns true if the other table changed.
+     */
+    private boolean offerEntries(Stop other, Collection<Stop> destinations) {
+
+        RoutingTable otherTable = other.getRoutingTable();
+        int costToOther = costCalculator(other, initialStop);
+        Map<Stop, RoutingEntry> entries = entries();
+        boolean changed = false;
+
+        for (Stop destination : destinations) {
+
+            // Skipping destinations whose entries have been removed since they changed
+            RoutingEntry entry = entries.get(destination);
+            if (entry == null) {
+                continue;
+            }
+            if (otherTable.addOrUpdateEntry(destination, addCosts(entry.getCost(), costToOther), initialStop)) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /*
+     * Adds the two costs, treating Integer.MAX_VALUE (an unreachable destination) as the largest possible cost.
+     */
+    private static int addCosts(int cost1, int cost2) {
+        return (int) Math.min((long) cost1 + cost2, Integer.MAX_VALUE);
     }
 
     /**
@@ -221,43 +771,11 @@ public class RoutingTable {
      */
     public boolean transferEntries(Stop other) {
 
-        // Cost to get from this stop to other stop
-        int costToOther = initialStop.getRoutingTable().costTo(other);
-
-        // Defining lists of all destinations of this stop and other stop
-        List<Stop> otherDestinations = new ArrayList<>(other.getRoutingTable().routingTable.keySet());
-        List<Stop> thisDestinations = new ArrayList<>(this.routingTable.keySet());
-
-        // checking for additional destinations in this routing table
-        if (!otherDestinations.containsAll(thisDestinations)) {
-
-            // Iterating over all destinations in this routing table
-            for (Stop destination : thisDestinations) {
+        OperationCounter.record(Operation.TRANSFER_ENTRIES);
+        MetricsRegistry.recordTransferEntries();
 
-                // updating other tables entries.
-                other.getRoutingTable().addOrUpdateEntry(destination, costTo(destination) + costToOther, initialStop);
-            }
-
-            // Returning true, as changes have been made
-            return true;
-        }
-
-        // Iterating over all destinations in this routing table
-        for (Stop destination : thisDestinations) {
-
-            // if destination is in both routingTables, checking if new route is 'cheaper'
-            if (costTo(destination) + costToOther < other.getRoutingTable().costTo(destination)) {
-
-                // Updating the other's routeTable to pass through this stop on the way to destination
-                other.getRoutingTable().addOrUpdateEntry(destination, costTo(destination) + costToOther, initialStop);
-
-                // Returning true, as changes have been made.
-                return true;
-            }
-        }
-
-        // No changes made - new route 'more expensive'
-        return false;
+        // Offering every destination in this routing table, keeping track of whether any changes have been made
+        return offerEntries(other, entries().keySet());
     }
 
     /**
@@ -278,6 +796,7 @@ public class RoutingTable {
 
         // Step 1 - creating an empty list of stops and stack of stops. pushing the current stop onto the stack.
         List<Stop> seenStops = new ArrayList<>();
+        Set<Stop> seen = new HashSet<>();
         Stack<Stop> stopStack = new Stack<>();
         stopStack.push(this.initialStop);
 
@@ -286,18 +805,19 @@ public class RoutingTable {
 
             // Step 2.1 - pop the top Stop from the stack
             Stop currentStop = stopStack.pop();
+            OperationCounter.record(Operation.TRAVERSAL_VISIT);
 
             // Step 2.2 - for each of the top stops neighbours
             for (Stop neighbour : currentStop.getNeighbours()) {
 
                 // Step 2.2.1 - if they are not in the list, adding the stops to the stack
-                if (!seenStops.contains(neighbour)) {
+                if (!seen.contains(neighbour)) {
                     stopStack.push(neighbour);
                 }
             }
 
             // Step 2.3 - Adding the current Stop to the list, and checking for duplicates.
-            if (!seenStops.contains(currentStop)) {
+            if (seen.add(currentStop)) {
                 seenStops.add(currentStop);
             }
         }
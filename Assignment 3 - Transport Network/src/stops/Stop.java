@@ -3,8 +3,13 @@ package stops;
 import exceptions.NoNameException;
 import exceptions.OverCapacityException;
 import exceptions.TransportFormatException;
+import metrics.MetricsRegistry;
+import metrics.SimulationBatchEvent;
 import passengers.Passenger;
 import routes.Route;
+import utilities.NamePool;
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
 import utilities.Writeable;
 import vehicles.PublicTransport;
 
@@ -18,6 +23,10 @@ import java.util.*;
  */
 public class Stop implements Writeable {
 
+    // recorded in place of the next stop to destinations which can't be
+    // reached, so that they are looked up only once
+    private static final Stop UNREACHABLE = new Stop("unreachable", 0, 0);
+
     // the name of the stop
     private String name;
 
@@ -43,6 +52,16 @@ public class Stop implements Writeable {
     // Defining map of passengers waiting at the stop and their destination
     private Map<Passenger, Stop> passengerDestinations = new LinkedHashMap<>();
 
+    // The routing table version which passengerDestinations was last resolved against
+    private int routedVersion;
+
+    // the costs of travelling to neighbouring stops which have been set to
+    // something other than the distance to them (created when first needed)
+    private Map<Stop, Integer> linkCosts;
+
+    // the versions shared with the other stops of this stop's network
+    private NetworkState state = new NetworkState();
+
 
     /**
      * Creates a new Stop object with the given name and coordinates.
@@ -64,8 +83,7 @@ public class Stop implements Writeable {
         if (name == null || name.isEmpty()) {
             throw new NoNameException();
         }
-        this.name = name.replace("\n",
-                "").replace("\r", "");
+        this.name = NamePool.clean(name);
         this.xCoordinate = x;
         this.yCoordinate = y;
 
@@ -117,6 +135,21 @@ public class Stop implements Writeable {
             return;
         }
         routes.add(route);
+        state.linkChanged(0);
+    }
+
+    /**
+     * Records that this stop is no longer part of the given route.
+     *
+     * <p>If the given route is null, or this stop is not part of it, the method
+     * should return early.
+     *
+     * @param route The route to be removed.
+     */
+    public void removeRoute(Route route) {
+        if (routes.removeIf(other -> other == route)) {
+            state.linkChanged(0);
+        }
     }
 
     /**
@@ -154,9 +187,32 @@ public class Stop implements Writeable {
 
         // Adding the the neighbour to the list of neighbours and as a neighbour in the routingTable.
         neighbours.add(neighbour);
+        state.linkChanged(0);
         routingTable.addNeighbour(neighbour);
     }
 
+    /**
+     * Removes the given stop as a neighbour of this stop.
+     *
+     * The neighbour should also be removed from the routing table for this stop (RoutingTable.removeNeighbour(Stop)),
+     * which repairs the routing tables of the network. Any cost set for the link is discarded, so the link costs the
+     * distance between the stops again if they are linked again.
+     *
+     * <p>If the given stop is null, or if it is not recorded as a neighbour,
+     * the method should return early.
+     *
+     * @param neighbour The stop to remove as a neighbour.
+     */
+    public void removeNeighbouringStop(Stop neighbour) {
+
+        if (neighbour == null || !neighbours.remove(neighbour)) {
+            return;
+        }
+        Integer cost = linkCosts == null ? null : linkCosts.remove(neighbour);
+        state.linkChanged(cost != null && cost < distanceTo(neighbour) ? -1 : 0);
+        routingTable.removeNeighbour(neighbour);
+    }
+
     /**
      * Returns all of the stops adjacent to this one on any routes.
      *
@@ -172,6 +228,19 @@ public class Stop implements Writeable {
         return new ArrayList<>(neighbours);
     }
 
+    /*
+     * Returns whether the given stop is recorded as a neighbour of this stop
+     * (by identity, without copying the neighbours).
+     */
+    boolean hasNeighbour(Stop stop) {
+        for (Stop neighbour : neighbours) {
+            if (neighbour == stop) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Places a passenger at this stop.
      *
@@ -190,6 +259,7 @@ public class Stop implements Writeable {
             return;
         }
 
+        refreshRouting();
         this.passengers.add(passenger);
 
         // If the passengers destination is given, recording the next stop to get to the destination.
@@ -198,6 +268,115 @@ public class Stop implements Writeable {
         }
     }
 
+    /**
+     * Places several passengers at this stop, in the given order.
+     *
+     * Each passenger is placed as defined in addPassenger(Passenger), except that the routing table is consulted only
+     * once for each distinct destination among the given passengers, rather than once for each passenger. Null
+     * passengers in the list are skipped, and a null list is ignored.
+     *
+     * @param arriving The passengers to add to the stop.
+     */
+    public void addPassengers(List<Passenger> arriving) {
+
+        if (arriving == null) {
+            return;
+        }
+
+        refreshRouting();
+        Map<Stop, Stop> nextStops = new HashMap<>();
+        for (Passenger passenger : arriving) {
+            if (passenger != null) {
+                this.passengers.add(passenger);
+                route(passenger, nextStops);
+            }
+        }
+    }
+
+    /**
+     * Places a passenger at this stop, routing them to the given next stop
+     * rather than consulting the routing table.
+     *
+     * <p>This is used to restore passengers whose route has already been
+     * determined (e.g. from a checkpoint). If the given passenger is null, it
+     * should not be added to the stop. If the given next stop is null, the
+     * passenger is added without being routed anywhere.
+     *
+     * <p>The given next stop is kept only until the routing table next
+     * changes: the first version change after the passenger is added re-routes
+     * every waiting passenger (this one included) using the routing table.
+     *
+     * @param passenger The passenger to add to the stop.
+     * @param nextStop The neighbouring stop the passenger is routed to.
+     */
+    public void addPassenger(Passenger passenger, Stop nextStop) {
+
+        if (passenger == null) {
+            return;
+        }
+
+        refreshRouting();
+        this.passengers.add(passenger);
+        if (nextStop != null) {
+            passengerDestinations.put(passenger, nextStop);
+        }
+    }
+
+    /**
+     * Returns the neighbouring stop which the given waiting passenger is
+     * currently routed to.
+     *
+     * @param passenger The passenger waiting at this stop.
+     * @return The next stop for the passenger, or null if the passenger is not
+     *         waiting at this stop or has not been routed.
+     */
+    public Stop getRoutedStop(Passenger passenger) {
+
+        refreshRouting();
+        return passengerDestinations.get(passenger);
+    }
+
+    /*
+     * Re-routes the waiting passengers if the routing table has changed since they were last routed.
+     *
+     * The next stop is looked up once for each distinct destination, rather than once for each passenger. Passengers
+     * whose destination is no longer reachable are left at the stop without being routed anywhere.
+     */
+    private void refreshRouting() {
+
+        if (routedVersion == routingTable.getVersion()) {
+            return;
+        }
+        routedVersion = routingTable.getVersion();
+
+        Map<Stop, Stop> nextStops = new HashMap<>();
+        passengerDestinations.clear();
+        for (Passenger passenger : passengers) {
+            route(passenger, nextStops);
+        }
+    }
+
+    /*
+     * Records the next stop for the given waiting passenger, looking it up in the routing table only if the
+     * passenger's destination is not already in the given map of destinations to next stops. Unreachable destinations
+     * are recorded in the map as UNREACHABLE, so they too are looked up only once.
+     */
+    private void route(Passenger passenger, Map<Stop, Stop> nextStops) {
+
+        Stop destination = passenger.getDestination();
+        if (destination == null) {
+            return;
+        }
+
+        Stop next = nextStops.computeIfAbsent(destination, to -> {
+            Stop routed = routingTable.nextStop(to);
+            return routed == null ? UNREACHABLE : routed;
+        });
+        if (next != UNREACHABLE) {
+            passengerDestinations.put(passenger, next);
+        }
+    }
+
     /**
      * Returns the routing table for this stop.
      *
@@ -273,11 +452,13 @@ public class Stop implements Writeable {
             return;
         }
 
+        // Routing the unloaded passengers as a batch, grouped by destination
+        SimulationBatchEvent event = new SimulationBatchEvent();
+        event.begin();
         List<Passenger> arriving = transport.unload();
-        for (Passenger passenger : arriving) {
-            addPassenger(passenger);
-
-        }
+        addPassengers(arriving);
+        MetricsRegistry.recordAlightings(this, arriving.size());
+        commitBatch(event, "alight", arriving.size());
 
         atStop.add(transport);
     }
@@ -310,26 +491,54 @@ public class Stop implements Writeable {
         if (transport == null || !isAtStop(transport) ||  nextStop == null) {
             return;
         }
+        SimulationBatchEvent event = new SimulationBatchEvent();
+        event.begin();
         transport.travelTo(nextStop);
         atStop.remove(transport);
+        refreshRouting();
 
         // For each waiting passenger, checking if the passengers next stop is the same as the transports next stop.
-        for (Passenger passenger : getWaitingPassengers()) {
-            if (passengerDestinations.get(passenger).equals(nextStop)) {
+        // The passengers who stay are collected in a single pass, rather than removing each boarding passenger from
+        // the list (which would be quadratic in the number of waiting passengers).
+        List<Passenger> remaining = new ArrayList<>(passengers.size());
+        boolean full = false;
+        for (Passenger passenger : passengers) {
+            OperationCounter.record(Operation.BOARDING_CHECK);
+            Stop routedStop = passengerDestinations.get(passenger);
+            if (!full && (routedStop == nextStop || nextStop.equals(routedStop))) {
 
                 // Using a try/catch block to add passengers to the transport until the transport is full
                 try {
                     transport.addPassenger(passenger);
 
                     // Removing the passenger from the stop
-                    passengers.remove(passenger);
                     passengerDestinations.remove(passenger);
+                    continue;
 
                     // Once transport is full, remaining passengers are left.
                 } catch (OverCapacityException e) {
-                    return;
+                    full = true;
                 }
             }
+            remaining.add(passenger);
+        }
+        int boarded = passengers.size() - remaining.size();
+        MetricsRegistry.recordBoardings(this, boarded);
+        passengers = remaining;
+        commitBatch(event, "board", boarded);
+    }
+
+    /*
+     * Commits a flight recorder event for passengers boarding or alighting at this stop, if it is being recorded.
+     */
+    private void commitBatch(SimulationBatchEvent event, String kind, int count) {
+
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.stop = name;
+            event.passengers = count;
+            event.waiting = passengers.size();
+            event.commit();
         }
     }
 
@@ -353,6 +562,85 @@ public class Stop implements Writeable {
         return Math.abs(getX() - stop.getX()) + Math.abs(getY() - stop.getY());
     }
 
+    /**
+     * Returns the cost of travelling from this stop to the given neighbouring
+     * stop, as used by the routing tables.
+     *
+     * <p>The cost of a link is the Manhattan distance between its stops (see
+     * {@link #distanceTo(Stop)}), unless it has been changed (e.g. to reflect
+     * observed travel times) using {@link LinkCostUpdates}. Links are one-way,
+     * so the cost of travelling back may differ.
+     *
+     * @param neighbour The stop to travel to.
+     * @return The cost of the link to the given stop (or -1 if the given stop
+     *         is null).
+     */
+    public int getLinkCost(Stop neighbour) {
+        if (linkCosts != null) {
+            Integer cost = linkCosts.get(neighbour);
+            if (cost != null) {
+                return cost;
+            }
+        }
+        return distanceTo(neighbour);
+    }
+
+    /*
+     * Changes the cost of travelling from this stop to the given neighbouring
+     * stop (which must not be null), without updating any routing tables.
+     */
+    void setLinkCost(Stop neighbour, int cost) {
+        int distance = distanceTo(neighbour);
+        boolean wasDiscounted = getLinkCost(neighbour) < distance;
+        if (cost == distance) {
+            if (linkCosts != null) {
+                linkCosts.remove(neighbour);
+            }
+        } else {
+            if (linkCosts == null) {
+                linkCosts = new IdentityHashMap<>();
+            }
+            linkCosts.put(neighbour, cost);
+        }
+
+        state.linkChanged(wasDiscounted == cost < distance ? 0
+                : wasDiscounted ? -1 : 1);
+    }
+
+    /*
+     * Returns the number of links from this stop whose cost has been set
+     * below the distance between their stops.
+     */
+    int discountedLinkCount() {
+        int count = 0;
+        if (linkCosts != null) {
+            for (Map.Entry<Stop, Integer> link : linkCosts.entrySet()) {
+                if (link.getValue() < distanceTo(link.getKey())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the versions this stop shares with the other stops of the
+     * network it was most recently added to (see {@link NetworkState}), or
+     * its own versions if it has not been added to a network.
+     *
+     * @return The state of this stop's network.
+     */
+    public NetworkState getState() {
+        return state;
+    }
+
+    /*
+     * Has this stop share the given state (see NetworkState.add(Stop)).
+     */
+    void setState(NetworkState state) {
+        this.state = state;
+    }
+
     /**
      * Compares this stop to the other object for equality.
      *
@@ -450,9 +738,30 @@ public class Stop implements Writeable {
      *                 includes a missing stop name (as this is defined as
      *                 invalid according to the Stop constructor).</li>
      *             </ol>
+     *
+     * <p>The stop's name is not shared with any other decoded object (each
+     * call interns it in a new pool). To hold names repeated across many
+     * decoded stops, routes, and vehicles only once, use
+     * {@link #decode(String, NamePool)} with a pool shared between the calls.
      */
     public static Stop decode(String stopString)
             throws TransportFormatException {
+        return decode(stopString, new NamePool());
+    }
+
+    /**
+     * Creates a new stop object based on the given string representation, in
+     * the same way as {@link #decode(String)}, interning the stop's name in
+     * the given pool.
+     *
+     * @param stopString The string to decode.
+     * @param names The pool to intern the stop's name in.
+     * @return The decoded stop object.
+     * @throws TransportFormatException If the given string is null, or the
+     *          string is incorrectly formatted (as for {@link #decode(String)}).
+     */
+    public static Stop decode(String stopString, NamePool names)
+            throws TransportFormatException {
         Stop stop;
         try {
             String[] parts = stopString.split(":");
@@ -467,7 +776,7 @@ public class Stop implements Writeable {
             }
 
             // get the components
-            String name = parts[0];
+            String name = names.intern(parts[0]);
             int x = Integer.parseInt(parts[1].trim());
             int y = Integer.parseInt(parts[2].trim());
 
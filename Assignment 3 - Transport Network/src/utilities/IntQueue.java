@@ -0,0 +1,176 @@
+package utilities;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A first-in, first-out queue of primitive ints, backed by a growable circular
+ * array.
+ *
+ * <p>Unlike a {@code Queue<Integer>}, adding and removing values does not
+ * allocate any objects (other than when the backing array needs to grow).
+ * Values may also be read, overwritten, or compacted in place by position,
+ * where position 0 is the head of the queue.
+ */
+public class IntQueue {
+    // the default number of values the queue can hold before growing
+    private static final int DEFAULT_CAPACITY = 8;
+
+    // the values in the queue, starting at head and wrapping around
+    private int[] values;
+
+    // the position of the head of the queue in the values array
+    private int head;
+
+    // the number of values currently in the queue
+    private int size;
+
+    /**
+     * Creates a new empty queue.
+     */
+    public IntQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty queue which can hold the given number of values
+     * before needing to grow.
+     *
+     * @param capacity The initial capacity of the queue.
+     */
+    public IntQueue(int capacity) {
+        this.values = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Returns the number of values in the queue.
+     *
+     * @return The size of the queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the queue is empty.
+     *
+     * @return True if there are no values in the queue, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds the given value to the tail of the queue.
+     *
+     * @param value The value to add.
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            grow();
+        }
+        values[(head + size) % values.length] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns the value at the head of the queue.
+     *
+     * @return The value at the head of the queue.
+     * @throws NoSuchElementException If the queue is empty.
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int value = values[head];
+        head = (head + 1) % values.length;
+        size--;
+        return value;
+    }
+
+    /**
+     * Returns the value at the given position, where position 0 is the head
+     * of the queue.
+     *
+     * @param position The position of the value.
+     * @return The value at the given position.
+     * @throws IndexOutOfBoundsException If the position is not in the queue.
+     */
+    public int get(int position) {
+        checkPosition(position);
+        return values[(head + position) % values.length];
+    }
+
+    /**
+     * Replaces the value at the given position, where position 0 is the head
+     * of the queue.
+     *
+     * @param position The position of the value.
+     * @param value The new value.
+     * @throws IndexOutOfBoundsException If the position is not in the queue.
+     */
+    public void set(int position, int value) {
+        checkPosition(position);
+        values[(head + position) % values.length] = value;
+    }
+
+    /**
+     * Removes all values at or after the given position, leaving only the
+     * first {@code newSize} values in the queue.
+     *
+     * <p>Together with {@link #set(int, int)}, this allows values to be
+     * removed from the middle of the queue in a single pass whilst preserving
+     * the order of the values which remain.
+     *
+     * @param newSize The number of values to keep.
+     * @throws IndexOutOfBoundsException If newSize is negative or greater than
+     *         the current size.
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        size = newSize;
+    }
+
+    /**
+     * Removes all values from the queue.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the values in the queue, in order from head to tail.
+     *
+     * @return A new array containing the values in the queue.
+     */
+    public int[] toArray() {
+        int[] copy = new int[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = values[(head + i) % values.length];
+        }
+        return copy;
+    }
+
+    /*
+     * Throws an IndexOutOfBoundsException if the given position is not in the
+     * queue.
+     */
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /*
+     * Doubles the size of the backing array, moving the head to position 0.
+     */
+    private void grow() {
+        int[] grown = Arrays.copyOf(toArray(), values.length * 2);
+        values = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,66 @@
+package utilities;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A pool of canonical name strings, shared by the stops, routes, and vehicles
+ * of a transport network.
+ *
+ * <p>Decoding a network file creates a new string for every occurrence of a
+ * name (e.g. a stop name is repeated on every route line it appears on, and a
+ * ferry type on every ferry line). Interning names through a pool means that
+ * each distinct name is held only once, and that two interned names are equal
+ * if and only if they are the same object.
+ */
+public class NamePool {
+    // the canonical instance of each name in the pool
+    private final Map<String, String> names = new HashMap<>();
+
+    /**
+     * Returns the canonical instance of the given name, adding it to the pool
+     * if an equal name has not been interned before.
+     *
+     * <p>The name is cleaned (see {@link #clean(String)}) before it is
+     * interned, so cleaning an interned name again (as the constructors of
+     * stops, routes, and vehicles do) returns the canonical instance itself.
+     *
+     * @param name The name to intern.
+     * @return The canonical instance of the cleaned name, or null if the name
+     *         is null.
+     */
+    public String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        name = clean(name);
+        String canonical = names.putIfAbsent(name, name);
+        return canonical == null ? name : canonical;
+    }
+
+    /**
+     * Returns the number of distinct names in the pool.
+     *
+     * @return The number of names which have been interned.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Removes any newline characters ('\n') and carriage returns ('\r') from
+     * the given name.
+     *
+     * <p>If the name does not contain either character (the usual case), the
+     * given string is returned as is, rather than a copy.
+     *
+     * @param name The name to clean.
+     * @return The name without newlines or carriage returns.
+     */
+    public static String clean(String name) {
+        if (name.indexOf('\n') < 0 && name.indexOf('\r') < 0) {
+            return name;
+        }
+        return name.replace("\n", "").replace("\r", "");
+    }
+}
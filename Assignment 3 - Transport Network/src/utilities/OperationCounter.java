@@ -0,0 +1,105 @@
+package utilities;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how many times key operations are performed by the transportation
+ * network, so that the amount of work done by loading, routing, and boarding
+ * can be measured independently of the speed of the machine.
+ *
+ * <p>Counting is disabled by default, in which case recording an operation
+ * only costs a check of a single flag.
+ */
+public final class OperationCounter {
+
+    /**
+     * The operations which are counted.
+     */
+    public enum Operation {
+        /** A call to {@code RoutingTable.transferEntries(Stop)}. */
+        TRANSFER_ENTRIES,
+        /** A lookup of a destination in a routing table. */
+        ROUTING_LOOKUP,
+        /** The creation of a {@code RoutingEntry}. */
+        ROUTING_ENTRY_ALLOCATION,
+        /** A routing table entry being added or improved. */
+        ROUTING_ENTRY_UPDATE,
+        /** A stop visited whilst traversing the network. */
+        TRAVERSAL_VISIT,
+        /** A waiting passenger considered for boarding a departing vehicle. */
+        BOARDING_CHECK
+    }
+
+    // whether operations are currently being counted
+    private static volatile boolean enabled;
+
+    // the number of times each operation has been performed
+    private static final AtomicLongArray COUNTS =
+            new AtomicLongArray(Operation.values().length);
+
+    private OperationCounter() {
+    }
+
+    /**
+     * Starts or stops counting operations.
+     *
+     * @param enabled Whether operations should be counted.
+     */
+    public static void setEnabled(boolean enabled) {
+        OperationCounter.enabled = enabled;
+    }
+
+    /**
+     * Returns whether operations are currently being counted.
+     *
+     * @return True if operations are being counted, false otherwise.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records that the given operation has been performed once.
+     *
+     * @param operation The operation performed.
+     */
+    public static void record(Operation operation) {
+        if (enabled) {
+            COUNTS.incrementAndGet(operation.ordinal());
+        }
+    }
+
+    /**
+     * Returns the number of times the given operation has been performed
+     * since counting was last reset.
+     *
+     * @param operation The operation to get the count of.
+     * @return The number of times the operation has been performed.
+     */
+    public static long get(Operation operation) {
+        return COUNTS.get(operation.ordinal());
+    }
+
+    /**
+     * Returns the total number of operations of any kind performed since
+     * counting was last reset.
+     *
+     * @return The total number of operations performed.
+     */
+    public static long total() {
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            total += get(operation);
+        }
+        return total;
+    }
+
+    /**
+     * Resets the count of every operation to 0.
+     */
+    public static void reset() {
+        for (int i = 0; i < COUNTS.length(); i++) {
+            COUNTS.set(i, 0);
+        }
+    }
+}
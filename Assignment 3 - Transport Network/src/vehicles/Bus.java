@@ -1,6 +1,7 @@
 package vehicles;
 
 import routes.Route;
+import utilities.NamePool;
 
 /**
  * Represents a bus in the transportation network.
@@ -30,9 +31,7 @@ public class Bus extends PublicTransport {
     public Bus(int id, int capacity, Route route, String registrationNumber) {
         super(id, capacity, route);
         this.registrationNumber = registrationNumber == null ? "" :
-                registrationNumber
-                        .replace("\n", "")
-                        .replace("\r", "");
+                NamePool.clean(registrationNumber);
     }
 
     /**
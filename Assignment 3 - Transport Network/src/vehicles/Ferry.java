@@ -1,6 +1,7 @@
 package vehicles;
 
 import routes.Route;
+import utilities.NamePool;
 
 /**
  * Represents a ferry in the transportation network.
@@ -29,8 +30,7 @@ public class Ferry extends PublicTransport {
     public Ferry(int id, int capacity, Route route, String ferryType) {
         super(id, capacity, route);
         this.ferryType = ferryType == null || ferryType.isEmpty() ? "CityCat" :
-                ferryType.replace("\n", "")
-                        .replace("\r", "");
+                NamePool.clean(ferryType);
     }
 
     /**
@@ -7,6 +7,7 @@ import exceptions.TransportFormatException;
 import passengers.Passenger;
 import routes.Route;
 import stops.Stop;
+import utilities.NamePool;
 import utilities.Writeable;
 
 import java.util.ArrayList;
@@ -40,14 +41,16 @@ public abstract class PublicTransport implements Writeable {
      * {@link Route#getStartStop()}).
      * If the route is empty, the current location should be stored as null.
      *
+     * <p>A vehicle may have no route (a null route), e.g. when it is restored
+     * from a checkpoint after its route was removed from the network. Such a
+     * vehicle starts with no current location.
+     *
      * <p> If the given capacity is negative, 0 should be stored as the capacity
      * instead (meaning no passengers will be allowed on board this vehicle).
      *
      * @param id The identifying number of the vehicle.
      * @param capacity The maximum number of passengers allowed on board.
-     * @param route The route the vehicle follows. Note that the given route
-     *              should never be null (@require route != null), and thus will
-     *              not be tested with a null value.
+     * @param route The route the vehicle follows, or null if it has no route.
      */
     public PublicTransport(int id, int capacity, Route route) {
         this.passengers = new ArrayList<>();
@@ -55,7 +58,7 @@ public abstract class PublicTransport implements Writeable {
         this.id = id;
         this.route = route;
         try {
-            this.currentLocation = route.getStartStop();
+            this.currentLocation = route == null ? null : route.getStartStop();
         } catch (EmptyRouteException e) {
             this.currentLocation = null;
         }
@@ -64,7 +67,7 @@ public abstract class PublicTransport implements Writeable {
     /**
      * Returns the route this vehicle is on.
      *
-     * @return The route this vehicle is on.
+     * @return The route this vehicle is on, or null if it has no route.
      */
     public Route getRoute() {
         return route;
@@ -199,12 +202,13 @@ public abstract class PublicTransport implements Writeable {
      * Updates the current location of the vehicle to be the given stop.
      *
      * <p>If the given stop is null, or is not on this public transport's route
-     * the current location should remain unchanged.
+     * the current location should remain unchanged. A vehicle with no route
+     * may travel to any stop.
      *
      * @param stop The stop the vehicle has travelled to.
      */
     public void travelTo(Stop stop) {
-        if (!route.getStopsOnRoute().contains(stop)) {
+        if (route != null && !route.getStopsOnRoute().contains(stop)) {
             return;
         }
 
@@ -220,8 +224,8 @@ public abstract class PublicTransport implements Writeable {
      * <p>without the surrounding quotes, and where {type} is replaced by the
      * type of the vehicle, {id} is replaced by the id of the vehicle,
      * {capacity} is replaced by the maximum capacity of the vehicle, and
-     * {route} is replaced by the route number of the route the vehicle is on.
-     * For example:
+     * {route} is replaced by the route number of the route the vehicle is on
+     * (or -1 if it has no route). For example:
      *
      * <p>bus number 1 (30) on route 1
      *
@@ -230,7 +234,7 @@ public abstract class PublicTransport implements Writeable {
     @Override
     public String toString() {
         return getType() + " number " + id + " (" + capacity + ") on route " +
-                route.getRouteNumber();
+                routeNumber();
     }
 
     /**
@@ -241,8 +245,8 @@ public abstract class PublicTransport implements Writeable {
      * <p>without the surrounding quotes, and where {type} is replaced by the
      * type of the vehicle, {id} is replaced by the id of the vehicle,
      * {capacity} is replaced by the maximum capacity of the vehicle, and
-     * {route} is replaced by the route number of the route the vehicle is on.
-     * For example:
+     * {route} is replaced by the route number of the route the vehicle is on
+     * (or -1 if it has no route). For example:
      *
      * <p>bus,1,30,1
      *
@@ -251,7 +255,15 @@ public abstract class PublicTransport implements Writeable {
     @Override
     public String encode() {
         return getType() + "," + id + "," + capacity + ","
-                + route.getRouteNumber();
+                + routeNumber();
+    }
+
+    /*
+     * Returns the number of the route this vehicle is on, or -1 if it has no
+     * route.
+     */
+    private int routeNumber() {
+        return route == null ? -1 : route.getRouteNumber();
     }
 
     /*
@@ -268,23 +280,37 @@ public abstract class PublicTransport implements Writeable {
         return null;
     }
 
-    /*
-     * Returns a public transport object of the correct type (e.g. a Train
+    /**
+     * Returns a new public transport object of the correct type (e.g. a Train
      * object if the type is "train") with the given id, capacity, and route.
      *
-     * Throws a TransportFormatException if the given type is not valid.
+     * @param type The type of the vehicle, as returned by {@link #getType()}
+     *             (not null).
+     * @param id The identifier of the vehicle.
+     * @param capacity The maximum number of passengers on board.
+     * @param route The route the vehicle follows, or null if it has no route.
+     * @param extra The type-specific part of the vehicle, in the same form as
+     *              the {extra} part of {@link #decode(String, List)} (not
+     *              null).
+     * @return The new vehicle, with no passengers.
+     * @throws TransportFormatException If the given type is not valid, does
+     *         not match the type of the route (if there is one), or the extra
+     *         part is not valid for the type.
      */
-    private static PublicTransport vehicleFromType(String type, int id,
-                                                   int capacity, Route route,
-                                                   String extra)
+    public static PublicTransport fromType(String type, int id, int capacity,
+                                           Route route, String extra)
             throws TransportFormatException {
-        if (!type.equals(route.getType())) {
+        if (route != null && !type.equals(route.getType())) {
             throw new TransportFormatException();
         }
         switch (type) {
             case "train":
-                return new Train(id, capacity, route,
-                        Integer.parseInt(extra.trim()));
+                try {
+                    return new Train(id, capacity, route,
+                            Integer.parseInt(extra.trim()));
+                } catch (NumberFormatException e) {
+                    throw new TransportFormatException();
+                }
             case "bus":
                 return new Bus(id, capacity, route, extra);
             case "ferry":
@@ -356,10 +382,39 @@ public abstract class PublicTransport implements Writeable {
      *                 parsing.</li>
      *                 <li>Any of the parts of the string being missing.</li>
      *             </ol>
+     *
+     * <p>The vehicle's {extra} part is not shared with any other decoded
+     * object (each call interns it in a new pool). To hold names repeated
+     * across many decoded vehicles (e.g. ferry types) only once, use
+     * {@link #decode(String, List, NamePool)} with a pool shared between the
+     * calls.
      */
     public static PublicTransport decode(String transportString, List<Route>
             existingRoutes)
             throws TransportFormatException {
+        return decode(transportString, existingRoutes, new NamePool());
+    }
+
+    /**
+     * Creates a new public transport object based on the given string
+     * representation, in the same way as {@link #decode(String, List)},
+     * interning the vehicle's {extra} part (i.e. its registration number or
+     * ferry type) in the given pool.
+     *
+     * @param transportString The string to decode.
+     * @param existingRoutes The routes which are currently in the transport
+     *                       network.
+     * @param names The pool to intern the vehicle's {extra} part in.
+     * @return The decoded public transport object (a Bus, Train, or Ferry,
+     *          depending on the type given in the string).
+     * @throws TransportFormatException If the given string or existingRoutes
+     *          list is null, or the string is otherwise incorrectly formatted
+     *          (as for {@link #decode(String, List)}).
+     */
+    public static PublicTransport decode(String transportString,
+                                         List<Route> existingRoutes,
+                                         NamePool names)
+            throws TransportFormatException {
 
         // parameters can't be null
         if (transportString == null || existingRoutes == null) {
@@ -388,9 +443,9 @@ public abstract class PublicTransport implements Writeable {
             if (route == null) {
                 throw new TransportFormatException();
             }
-            String extra = parts[4];
+            String extra = names.intern(parts[4]);
 
-            vehicle = vehicleFromType(type, id, capacity, route, extra);
+            vehicle = fromType(type, id, capacity, route, extra);
             route.addTransport(vehicle);
 
         } catch (NumberFormatException | ArrayIndexOutOfBoundsException
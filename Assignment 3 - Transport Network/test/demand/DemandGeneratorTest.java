@@ -0,0 +1,79 @@
+package demand;
+
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import passengers.ConcessionPassenger;
+import passengers.Passenger;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DemandGeneratorTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 30;
+
+    // the number of passengers injected by each generator
+    private static final int PASSENGERS = 500;
+
+    /*
+     * Injects passengers into a newly generated network with a generator
+     * created with the given seed, and returns a description of each
+     * passenger waiting at each stop, in order.
+     */
+    private static List<String> inject(long seed) {
+        Network network = new NetworkGenerator(Layout.RANDOM_GEOMETRIC, STOPS,
+                3).generate();
+        DemandGenerator generator = new DemandGenerator(
+                OriginDestinationMatrix.gravity(network.getStops(), 1), seed,
+                0.3);
+        generator.inject(PASSENGERS);
+        Assert.assertEquals(PASSENGERS, generator.getGeneratedCount());
+
+        List<String> waiting = new ArrayList<>();
+        for (Stop stop : network.getStops()) {
+            for (Passenger passenger : stop.getWaitingPassengers()) {
+                String description = stop.getName() + " " + passenger.getName()
+                        + " " + passenger.getDestination().getName();
+                if (passenger instanceof ConcessionPassenger) {
+                    description += " " + ((ConcessionPassenger) passenger)
+                            .getConcessionId();
+                }
+                waiting.add(description);
+            }
+        }
+        return waiting;
+    }
+
+    @Test
+    public void sameSeedInjectsTheSamePassengers() {
+        List<String> first = inject(17);
+        Assert.assertEquals(PASSENGERS, first.size());
+        Assert.assertEquals(first, inject(17));
+        Assert.assertNotEquals(first, inject(18));
+    }
+
+    @Test
+    public void concessionShareIsRespected() {
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 1)
+                .generate();
+        DemandGenerator generator = new DemandGenerator(
+                OriginDestinationMatrix.gravity(network.getStops(), 1), 5);
+        for (int i = 0; i < PASSENGERS; i++) {
+            Passenger passenger = generator.inject();
+            Assert.assertFalse(passenger instanceof ConcessionPassenger);
+            Assert.assertNotNull(passenger.getDestination());
+        }
+
+        generator = new DemandGenerator(
+                OriginDestinationMatrix.gravity(network.getStops(), 1), 5, 1);
+        for (int i = 0; i < PASSENGERS; i++) {
+            Assert.assertTrue(((ConcessionPassenger) generator.inject())
+                    .isValid());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package demand;
+
+import org.junit.Assert;
+import org.junit.Test;
+import passengers.Passenger;
+import stops.Stop;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class LoadDriverTest {
+
+    /*
+     * Returns the total number of passengers waiting at the given stops.
+     */
+    private static int waiting(List<Stop> stops) {
+        int waiting = 0;
+        for (Stop stop : stops) {
+            waiting += stop.getWaitingPassengers().size();
+        }
+        return waiting;
+    }
+
+    private static List<Stop> stops() throws Exception {
+        return Arrays.asList(new Stop("a", 0, 0), new Stop("b", 2, 0),
+                new Stop("c", 0, 3));
+    }
+
+    @Test
+    public void unlimitedRunInjectsEveryPassenger() throws Exception {
+        List<Stop> stops = stops();
+        DemandGenerator generator = new DemandGenerator(
+                OriginDestinationMatrix.gravity(stops, 1), 11);
+        LoadReport report = new LoadDriver(generator, 0, 7).run(50);
+
+        Assert.assertEquals(50, report.getPassengers());
+        Assert.assertEquals(50, generator.getGeneratedCount());
+        Assert.assertEquals(50, waiting(stops));
+        Assert.assertEquals(0, report.getTargetRate(), 0);
+        Assert.assertTrue(report.getElapsedNanos() >= 0);
+        for (Stop stop : stops) {
+            for (Passenger passenger : stop.getWaitingPassengers()) {
+                Assert.assertNotSame(stop, passenger.getDestination());
+            }
+        }
+    }
+
+    @Test
+    public void pacedRunTakesAtLeastTheTargetTime() throws Exception {
+        List<Stop> stops = stops();
+        DemandGenerator generator = new DemandGenerator(
+                OriginDestinationMatrix.gravity(stops, 1), 11);
+        // 40 passengers at 400 passengers per second is due after 100 ms
+        LoadReport report = new LoadDriver(generator, 400, 10).run(40);
+
+        Assert.assertEquals(40, report.getPassengers());
+        Assert.assertEquals(40, waiting(stops));
+        Assert.assertEquals(400, report.getTargetRate(), 0);
+        Assert.assertTrue(report.getElapsedNanos() >= 100000000);
+        Assert.assertTrue(report.getThroughput() <= 400);
+    }
+
+    @Test
+    public void sameSeedInjectsTheSameLoad() throws Exception {
+        List<Stop> first = stops();
+        List<Stop> second = stops();
+        new LoadDriver(new DemandGenerator(
+                OriginDestinationMatrix.gravity(first, 1), 23)).run(120);
+        new LoadDriver(new DemandGenerator(
+                OriginDestinationMatrix.gravity(second, 1), 23)).run(120);
+
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertEquals(first.get(i).getWaitingPassengers().size(),
+                    second.get(i).getWaitingPassengers().size());
+        }
+    }
+
+    @Test
+    public void reportDescribesTheRun() {
+        LoadReport report = new LoadReport(500, 250000000, 0);
+
+        Assert.assertEquals(2000, report.getThroughput(), 1e-9);
+        Assert.assertEquals("500 passengers in 250 ms (2000 passengers/s)",
+                report.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveBatchSizeIsRejected() throws Exception {
+        new LoadDriver(new DemandGenerator(
+                OriginDestinationMatrix.gravity(stops(), 1), 1), 10, 0);
+    }
+}
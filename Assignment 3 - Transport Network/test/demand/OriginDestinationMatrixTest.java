@@ -0,0 +1,84 @@
+package demand;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import stops.Stop;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class OriginDestinationMatrixTest {
+
+    private Stop near;
+    private Stop middle;
+    private Stop far;
+    private List<Stop> stops;
+
+    @Before
+    public void setUp() throws Exception {
+        near = new Stop("near", 0, 0);
+        middle = new Stop("middle", 1, 0);
+        far = new Stop("far", 9, 0);
+        stops = Arrays.asList(near, middle, far);
+    }
+
+    @Test
+    public void addingAPairAgainAddsToItsDemand() {
+        OriginDestinationMatrix matrix = new OriginDestinationMatrix();
+        matrix.add(near, far, 1);
+        matrix.add(far, near, 2);
+        matrix.add(near, far, 3);
+
+        Assert.assertEquals(2, matrix.size());
+        Assert.assertEquals(6, matrix.totalDemand(), 0);
+        Assert.assertSame(near, matrix.getOrigin(0));
+        Assert.assertSame(far, matrix.getDestination(0));
+        Assert.assertSame(far, matrix.getOrigin(1));
+    }
+
+    @Test
+    public void mergedDemandIsSampledInProportion() {
+        OriginDestinationMatrix matrix = new OriginDestinationMatrix();
+        matrix.add(near, far, 1);
+        matrix.add(far, near, 1);
+        matrix.add(near, far, 2);
+
+        int first = 0;
+        Random random = new Random(3);
+        for (int i = 0; i < 4000; i++) {
+            if (matrix.sample(random) == 0) {
+                first++;
+            }
+        }
+        Assert.assertEquals(3000, first, 150);
+    }
+
+    @Test
+    public void gravityRecordsEveryPair() {
+        OriginDestinationMatrix matrix =
+                OriginDestinationMatrix.gravity(stops, 1);
+
+        Assert.assertEquals(6, matrix.size());
+        Assert.assertEquals(2 * (1.0 / 2 + 1.0 / 10 + 1.0 / 9),
+                matrix.totalDemand(), 1e-9);
+    }
+
+    @Test
+    public void gravityDropsPairsBelowTheThreshold() {
+        OriginDestinationMatrix matrix =
+                OriginDestinationMatrix.gravity(stops, 1, 0.2);
+
+        Assert.assertEquals(2, matrix.size());
+        for (int pair = 0; pair < matrix.size(); pair++) {
+            Assert.assertNotSame(far, matrix.getOrigin(pair));
+            Assert.assertNotSame(far, matrix.getDestination(pair));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeThresholdIsRejected() {
+        OriginDestinationMatrix.gravity(stops, 1, -1);
+    }
+}
@@ -0,0 +1,128 @@
+package metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import passengers.Passenger;
+import stops.LinkCostUpdates;
+import stops.Stop;
+import vehicles.PublicTransport;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FlightRecorderEventsTest {
+
+    // the number of stops in the generated network
+    private static final int STOPS = 36;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /*
+     * Returns the recorded events with the given name, in the order they were
+     * recorded.
+     */
+    private static List<RecordedEvent> named(List<RecordedEvent> events,
+                                             String name) {
+        List<RecordedEvent> found = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                found.add(event);
+            }
+        }
+        found.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+        return found;
+    }
+
+    @Test
+    public void recordsLoadsSavesRebuildsAndBatches() throws Exception {
+        String loaded = folder.newFile().getPath();
+        new NetworkGenerator(Layout.GRID, STOPS, 1).write(loaded);
+        String saved = folder.newFile().getPath();
+        Path dump = folder.newFile("events.jfr").toPath();
+
+        Network network;
+        Stop changed;
+        Stop origin;
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"transport.NetworkLoadSection",
+                    "transport.NetworkSave", "transport.RoutingRebuild",
+                    "transport.SimulationBatch"}) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            network = new Network(loaded);
+            network.save(saved);
+
+            List<Stop> stops = network.getStops();
+            changed = stops.get(0);
+            LinkCostUpdates updates = new LinkCostUpdates();
+            updates.setCost(changed, changed.getNeighbours().get(0), 0);
+            updates.apply();
+
+            PublicTransport vehicle = network.getVehicles().get(0);
+            List<Stop> route = vehicle.getRoute().getStopsOnRoute();
+            origin = route.get(0);
+            origin.addPassenger(new Passenger("rider", route.get(1)));
+            origin.transportArrive(vehicle);
+            origin.transportDepart(vehicle,
+                    origin.getRoutingTable().nextStop(route.get(1)));
+
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+        // one event for each section of the loaded file
+        List<RecordedEvent> sections = named(events,
+                "transport.NetworkLoadSection");
+        Assert.assertEquals(3, sections.size());
+        Assert.assertEquals("stops", sections.get(0).getString("section"));
+        Assert.assertEquals(STOPS, sections.get(0).getInt("lines"));
+        Assert.assertEquals("routes", sections.get(1).getString("section"));
+        Assert.assertEquals(network.getRoutes().size(),
+                sections.get(1).getInt("lines"));
+        Assert.assertEquals("vehicles", sections.get(2).getString("section"));
+        Assert.assertEquals(network.getVehicles().size(),
+                sections.get(2).getInt("lines"));
+
+        List<RecordedEvent> saves = named(events, "transport.NetworkSave");
+        Assert.assertEquals(1, saves.size());
+        Assert.assertEquals(saved, saves.get(0).getString("filename"));
+        Assert.assertEquals(STOPS, saves.get(0).getInt("stops"));
+        Assert.assertEquals(new File(saved).length(),
+                saves.get(0).getLong("bytes"));
+
+        // the load rebuilds every table, and the link change propagates from
+        // the changed stop
+        List<RecordedEvent> rebuilds = named(events,
+                "transport.RoutingRebuild");
+        Assert.assertTrue(rebuilds.size() >= 2);
+        Assert.assertEquals("", rebuilds.get(0).getString("stop"));
+        Assert.assertEquals(STOPS, rebuilds.get(0).getInt("reachableStops"));
+        RecordedEvent propagated = rebuilds.get(rebuilds.size() - 1);
+        Assert.assertEquals(changed.getName(), propagated.getString("stop"));
+        Assert.assertEquals(STOPS, propagated.getInt("reachableStops"));
+        Assert.assertTrue(propagated.getInt("iterations") > 0);
+
+        List<RecordedEvent> batches = named(events,
+                "transport.SimulationBatch");
+        RecordedEvent boarding = batches.get(batches.size() - 1);
+        Assert.assertEquals("board", boarding.getString("kind"));
+        Assert.assertEquals(origin.getName(), boarding.getString("stop"));
+        Assert.assertEquals(1, boarding.getInt("passengers"));
+        Assert.assertEquals(0, boarding.getInt("waiting"));
+    }
+}
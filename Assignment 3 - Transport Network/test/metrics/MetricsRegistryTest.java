@@ -0,0 +1,152 @@
+package metrics;
+
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import passengers.Passenger;
+import stops.Stop;
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
+import vehicles.PublicTransport;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+public class MetricsRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        MetricsRegistry.setEnabled(false);
+        MetricsRegistry.reset();
+        OperationCounter.setEnabled(false);
+        OperationCounter.reset();
+    }
+
+    /*
+     * Loads a generated network, saves it again, links two of its stops, and
+     * moves a passenger between two stops.
+     */
+    private Network exercise() throws Exception {
+        String filename = folder.newFile().getPath();
+        new NetworkGenerator(Layout.GRID, 36, 1).write(filename);
+        Network network = new Network(filename);
+        network.save(folder.newFile().getPath());
+
+        List<Stop> stops = network.getStops();
+        stops.get(0).addNeighbouringStop(stops.get(35));
+        stops.get(35).addNeighbouringStop(stops.get(0));
+
+        PublicTransport vehicle = network.getVehicles().get(0);
+        List<Stop> route = vehicle.getRoute().getStopsOnRoute();
+        Stop from = route.get(0);
+        Stop to = from.getRoutingTable().nextStop(route.get(1));
+        from.addPassenger(new Passenger("rider", route.get(1)));
+        from.transportArrive(vehicle);
+        from.transportDepart(vehicle, to);
+        to.transportArrive(vehicle);
+        return network;
+    }
+
+    @Test
+    public void recordsNothingWhilstDisabled() throws Exception {
+        exercise();
+        Assert.assertEquals(0, MetricsRegistry.getRoutingRebuilds());
+        Assert.assertEquals(0, MetricsRegistry.getSaves());
+        Assert.assertEquals(0, MetricsRegistry.getTransferEntriesCalls());
+        Assert.assertEquals(0, MetricsRegistry.getDecodedLines(
+                MetricsRegistry.Section.STOPS));
+        Assert.assertTrue(MetricsRegistry.getBoardings().isEmpty());
+    }
+
+    @Test
+    public void recordsWhilstEnabled() throws Exception {
+        MetricsRegistry.setEnabled(true);
+        Network network = exercise();
+
+        Assert.assertTrue(MetricsRegistry.getRoutingRebuilds() > 0);
+        Assert.assertTrue(MetricsRegistry.getTransferEntriesCalls() > 0);
+        Assert.assertTrue(MetricsRegistry.getRoutingEntriesUpdated() > 0);
+        Assert.assertEquals(36, MetricsRegistry.getDecodedLines(
+                MetricsRegistry.Section.STOPS));
+        Assert.assertEquals(network.getRoutes().size(),
+                MetricsRegistry.getDecodedLines(
+                        MetricsRegistry.Section.ROUTES));
+        Assert.assertEquals(1, MetricsRegistry.getSaves());
+        Assert.assertTrue(MetricsRegistry.getSavedBytes() > 0);
+
+        Stop from = network.getVehicles().get(0).getRoute().getStopsOnRoute()
+                .get(0);
+        Assert.assertEquals(Long.valueOf(1),
+                MetricsRegistry.getBoardings().get(from.getName()));
+        Assert.assertEquals(1, MetricsRegistry.getAlightings().values()
+                .stream().mapToLong(Long::longValue).sum());
+
+        MetricsRegistry.reset();
+        Assert.assertEquals(0, MetricsRegistry.getRoutingRebuilds());
+        Assert.assertEquals(0, MetricsRegistry.getTransferEntriesCalls());
+        Assert.assertEquals(0, MetricsRegistry.getSaves());
+        Assert.assertTrue(MetricsRegistry.getBoardings().isEmpty());
+    }
+
+    @Test
+    public void readableThroughTheMXBean() throws Exception {
+        MetricsRegistry.registerMBean();
+        MetricsRegistry.registerMBean();
+        EngineMetricsMXBean bean = JMX.newMXBeanProxy(
+                ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName("transport:type=EngineMetrics"),
+                EngineMetricsMXBean.class);
+
+        bean.setEnabled(true);
+        Assert.assertTrue(MetricsRegistry.isEnabled());
+        exercise();
+        Assert.assertEquals(MetricsRegistry.getRoutingRebuilds(),
+                bean.getRoutingRebuilds());
+        Assert.assertEquals(MetricsRegistry.getTransferEntriesCalls(),
+                bean.getTransferEntriesCalls());
+        Assert.assertEquals(1, bean.getSaves());
+        Assert.assertTrue(bean.getDecodeLinesPerSecond().get("stops") > 0);
+        Assert.assertEquals(MetricsRegistry.getBoardings().keySet(),
+                bean.getBoardingRates().keySet());
+
+        bean.reset();
+        Assert.assertEquals(0, bean.getRoutingRebuilds());
+        Assert.assertEquals(0, bean.getSaves());
+        bean.setEnabled(false);
+        Assert.assertFalse(bean.isEnabled());
+    }
+
+    @Test
+    public void independentOfTheOperationCounter() throws Exception {
+        // the metrics don't enable, disable, or reset the operation counts
+        OperationCounter.setEnabled(true);
+        MetricsRegistry.setEnabled(true);
+        exercise();
+        long updates = OperationCounter.get(Operation.ROUTING_ENTRY_UPDATE);
+        Assert.assertTrue(updates > 0);
+
+        MetricsRegistry.reset();
+        MetricsRegistry.setEnabled(false);
+        Assert.assertTrue(OperationCounter.isEnabled());
+        Assert.assertEquals(updates,
+                OperationCounter.get(Operation.ROUTING_ENTRY_UPDATE));
+
+        OperationCounter.setEnabled(false);
+        MetricsRegistry.setEnabled(true);
+        Assert.assertFalse(OperationCounter.isEnabled());
+        OperationCounter.reset();
+        exercise();
+        Assert.assertEquals(0, OperationCounter.total());
+        Assert.assertTrue(MetricsRegistry.getRoutingEntriesUpdated() > 0);
+    }
+}
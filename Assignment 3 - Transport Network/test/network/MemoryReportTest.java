@@ -0,0 +1,100 @@
+package network;
+
+import network.MemoryReport.Component;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import passengers.Passenger;
+import routes.BusRoute;
+import routes.Route;
+import stops.Stop;
+import vehicles.Bus;
+
+import java.util.Arrays;
+
+public class MemoryReportTest {
+
+    private Network network;
+    private Stop stopA;
+    private Stop stopC;
+    private Bus bus;
+
+    @Before
+    public void setUp() throws Exception {
+        network = new Network();
+        stopA = new Stop("A", 0, 0);
+        Stop stopB = new Stop("B", 1, 0);
+        stopC = new Stop("C", 2, 0);
+        network.addStops(Arrays.asList(stopA, stopB, stopC));
+
+        Route route = new BusRoute("shared", 1);
+        route.addStop(stopA);
+        route.addStop(stopB);
+        route.addStop(stopC);
+        network.addRoute(route);
+
+        // the bus shares its registration with the name of its route
+        bus = new Bus(1, 5, route, route.getName());
+        network.addVehicle(bus);
+    }
+
+    @Test
+    public void countsEachComponent() throws Exception {
+        Passenger alice = new Passenger("alice", stopC);
+        stopA.addPassenger(alice);
+        stopA.addPassenger(new Passenger("bob", stopC));
+        bus.addPassenger(new Passenger("carol", stopC));
+
+        MemoryReport report = network.memoryReport();
+        Assert.assertEquals(9, report.getCount(Component.ROUTING_ENTRIES));
+        Assert.assertEquals(2, report.getCount(Component.WAITING_PASSENGERS));
+        Assert.assertEquals(1,
+                report.getCount(Component.ON_BOARD_PASSENGERS));
+        Assert.assertEquals(4, report.getCount(Component.NEIGHBOUR_LISTS));
+        Assert.assertEquals(3, report.getCount(Component.ROUTE_STOP_LISTS));
+        Assert.assertEquals(0, report.getCount(Component.ROUTING_VIEWS));
+
+        // three stops, the route (and registration), and three passengers
+        Assert.assertEquals(7, report.getCount(Component.STRINGS));
+
+        long total = 0;
+        for (Component component : Component.values()) {
+            total += report.getBytes(component);
+        }
+        Assert.assertEquals(total, report.getTotalBytes());
+    }
+
+    @Test
+    public void sharedStringsAreCountedOnce() throws Exception {
+        Passenger alice = new Passenger("alice", stopC);
+        stopA.addPassenger(alice);
+        MemoryReport before = network.memoryReport();
+
+        // a passenger sharing a name already counted adds no strings
+        bus.addPassenger(new Passenger(alice.getName(), stopC));
+        bus.addPassenger(new Passenger(stopA.getName(), stopC));
+        MemoryReport after = network.memoryReport();
+        Assert.assertEquals(5, after.getCount(Component.STRINGS));
+        Assert.assertEquals(before.getBytes(Component.STRINGS),
+                after.getBytes(Component.STRINGS));
+        Assert.assertEquals(2, after.getCount(Component.ON_BOARD_PASSENGERS));
+        Assert.assertTrue(after.getBytes(Component.ON_BOARD_PASSENGERS)
+                > before.getBytes(Component.ON_BOARD_PASSENGERS));
+
+        // whereas an equal but separate string is counted again
+        bus.addPassenger(new Passenger(new String("alice"), stopC));
+        Assert.assertEquals(6,
+                network.memoryReport().getCount(Component.STRINGS));
+    }
+
+    @Test
+    public void lazyTablesAreOnlyCountedOnceComputed() {
+        network.setLazyRouting(4);
+        Assert.assertEquals(0, network.memoryReport()
+                .getCount(Component.ROUTING_ENTRIES));
+
+        stopA.getRoutingTable().nextStop(stopC);
+        Assert.assertEquals(3, network.memoryReport()
+                .getCount(Component.ROUTING_ENTRIES));
+    }
+}
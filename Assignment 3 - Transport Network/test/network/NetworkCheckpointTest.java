@@ -0,0 +1,168 @@
+package network;
+
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import passengers.ConcessionPassenger;
+import passengers.Passenger;
+import routes.Route;
+import stops.ReferencePaths;
+import stops.Stop;
+import vehicles.PublicTransport;
+
+import java.util.List;
+
+public class NetworkCheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Network network;
+    private List<Stop> stops;
+
+    @Before
+    public void setUp() throws Exception {
+        network = new NetworkGenerator(Layout.GRID, 36, 5).generate();
+        stops = network.getStops();
+
+        // passengers routed by the tables, and one sent a different way
+        Stop origin = stops.get(0);
+        origin.addPassenger(new Passenger("routed", stops.get(35)));
+        origin.addPassenger(new ConcessionPassenger("concession",
+                stops.get(20), 420042));
+        List<Stop> neighbours = origin.getNeighbours();
+        neighbours.remove(origin.getRoutingTable().nextStop(stops.get(35)));
+        origin.addPassenger(new Passenger("diverted", stops.get(35)),
+                neighbours.get(0));
+        origin.addPassenger(new Passenger("wandering"));
+
+        // a vehicle at a stop with passengers on board, and one in transit
+        PublicTransport atStop = network.getVehicles().get(0);
+        Stop location = atStop.getRoute().getStopsOnRoute().get(1);
+        atStop.travelTo(location);
+        location.transportArrive(atStop);
+        atStop.addPassenger(new Passenger("riding", stops.get(7)));
+        atStop.addPassenger(new Passenger("nowhere"));
+        PublicTransport inTransit = network.getVehicles().get(1);
+        inTransit.travelTo(inTransit.getRoute().getStopsOnRoute().get(0));
+    }
+
+    private Network roundTrip() throws Exception {
+        String filename = folder.newFile().getPath();
+        network.checkpoint(filename);
+        return Network.restore(filename);
+    }
+
+    private static String nameOf(Stop stop) {
+        return stop == null ? null : stop.getName();
+    }
+
+    @Test
+    public void restoresStopsAndRoutingTables() throws Exception {
+        List<Stop> restored = roundTrip().getStops();
+
+        Assert.assertEquals(stops.size(), restored.size());
+        for (int i = 0; i < stops.size(); i++) {
+            Assert.assertEquals(stops.get(i), restored.get(i));
+            for (int j = 0; j < stops.size(); j++) {
+                Assert.assertEquals(
+                        stops.get(i).getRoutingTable().costTo(stops.get(j)),
+                        restored.get(i).getRoutingTable()
+                                .costTo(restored.get(j)));
+            }
+        }
+        ReferencePaths.assertTablesCheapest(restored);
+    }
+
+    @Test
+    public void restoresWaitingPassengers() throws Exception {
+        Stop origin = stops.get(0);
+        Stop restored = roundTrip().getStops().get(0);
+
+        List<Passenger> expected = origin.getWaitingPassengers();
+        List<Passenger> actual = restored.getWaitingPassengers();
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getName(),
+                    actual.get(i).getName());
+            Assert.assertEquals(nameOf(expected.get(i).getDestination()),
+                    nameOf(actual.get(i).getDestination()));
+            Assert.assertEquals(nameOf(origin.getRoutedStop(expected.get(i))),
+                    nameOf(restored.getRoutedStop(actual.get(i))));
+        }
+
+        Assert.assertTrue(actual.get(1) instanceof ConcessionPassenger);
+        Assert.assertEquals(420042,
+                ((ConcessionPassenger) actual.get(1)).getConcessionId());
+        // the diverted passenger keeps its next stop rather than being routed
+        Assert.assertNotEquals(nameOf(restored.getRoutedStop(actual.get(0))),
+                nameOf(restored.getRoutedStop(actual.get(2))));
+    }
+
+    @Test
+    public void restoresVehicles() throws Exception {
+        Network restored = roundTrip();
+
+        List<PublicTransport> expected = network.getVehicles();
+        List<PublicTransport> actual = restored.getVehicles();
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).encode(),
+                    actual.get(i).encode());
+            Assert.assertEquals(nameOf(expected.get(i).getCurrentStop()),
+                    nameOf(actual.get(i).getCurrentStop()));
+
+            List<Passenger> onBoard = actual.get(i).getPassengers();
+            Assert.assertEquals(expected.get(i).passengerCount(),
+                    onBoard.size());
+            for (int j = 0; j < onBoard.size(); j++) {
+                Passenger passenger = expected.get(i).getPassengers().get(j);
+                Assert.assertEquals(passenger.getName(),
+                        onBoard.get(j).getName());
+                Assert.assertEquals(nameOf(passenger.getDestination()),
+                        nameOf(onBoard.get(j).getDestination()));
+            }
+        }
+
+        for (int i = 0; i < stops.size(); i++) {
+            List<PublicTransport> atStop = stops.get(i).getVehicles();
+            List<PublicTransport> restoredAtStop =
+                    restored.getStops().get(i).getVehicles();
+            Assert.assertEquals(atStop.size(), restoredAtStop.size());
+            for (int j = 0; j < atStop.size(); j++) {
+                Assert.assertEquals(atStop.get(j).getId(),
+                        restoredAtStop.get(j).getId());
+            }
+        }
+    }
+
+    @Test
+    public void restoresVehiclesWhoseRouteWasRemoved() throws Exception {
+        // the vehicles on a removed route remain in the network, with no route
+        // in it
+        PublicTransport vehicle = network.getVehicles().get(0);
+        Stop location = vehicle.getCurrentStop();
+        network.removeRoute(vehicle.getRoute());
+        Network restored = roundTrip();
+
+        Assert.assertEquals(network.getRoutes().size(),
+                restored.getRoutes().size());
+        PublicTransport actual = restored.getVehicles().get(0);
+        Assert.assertNull(actual.getRoute());
+        Assert.assertEquals(vehicle.getId(), actual.getId());
+        Assert.assertEquals(nameOf(location),
+                nameOf(actual.getCurrentStop()));
+        Assert.assertEquals(vehicle.passengerCount(),
+                actual.passengerCount());
+        Assert.assertTrue(restored.getStops().get(stops.indexOf(location))
+                .isAtStop(actual));
+        for (Route route : restored.getRoutes()) {
+            for (PublicTransport transport : route.getTransports()) {
+                Assert.assertNotSame(actual, transport);
+            }
+        }
+    }
+}
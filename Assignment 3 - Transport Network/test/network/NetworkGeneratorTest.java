@@ -0,0 +1,76 @@
+package network;
+
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import routes.Route;
+import stops.Stop;
+
+import java.util.List;
+
+public class NetworkGeneratorTest {
+
+    /*
+     * Returns whether one of the given routes visits every stop with the
+     * given coordinate (x if column, y otherwise), and no others.
+     */
+    private static boolean covered(List<Route> routes, List<Stop> stops,
+                                   boolean column, int coordinate) {
+        int expected = 0;
+        for (Stop stop : stops) {
+            if ((column ? stop.getX() : stop.getY()) == coordinate) {
+                expected++;
+            }
+        }
+        for (Route route : routes) {
+            List<Stop> onRoute = route.getStopsOnRoute();
+            boolean along = onRoute.size() == expected;
+            for (Stop stop : onRoute) {
+                along &= (column ? stop.getX() : stop.getY()) == coordinate;
+            }
+            if (along) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void gridRoutesCoverEveryRowAndColumn() {
+        for (int size : new int[] {36, 40, 50, 43, 2, 3, 5}) {
+            Network network = new NetworkGenerator(Layout.GRID, size, 1)
+                    .generate();
+            List<Stop> stops = network.getStops();
+            List<Route> routes = network.getRoutes();
+            int side = (int) Math.ceil(Math.sqrt(size));
+            int rows = (size + side - 1) / side;
+            Assert.assertEquals(side + rows, routes.size());
+
+            for (Stop stop : stops) {
+                Assert.assertTrue(size + " stops, column " + stop.getX(),
+                        covered(routes, stops, true, stop.getX()));
+                Assert.assertTrue(size + " stops, row " + stop.getY(),
+                        covered(routes, stops, false, stop.getY()));
+            }
+        }
+    }
+
+    @Test
+    public void sameSeedGeneratesTheSameNetwork() {
+        for (Layout layout : Layout.values()) {
+            Network first = new NetworkGenerator(layout, 40, 3).generate();
+            Network second = new NetworkGenerator(layout, 40, 3).generate();
+            List<Stop> stops = first.getStops();
+            for (int i = 0; i < stops.size(); i++) {
+                Assert.assertEquals(stops.get(i).encode(),
+                        second.getStops().get(i).encode());
+            }
+            Assert.assertEquals(first.getRoutes().size(),
+                    second.getRoutes().size());
+            for (int i = 0; i < first.getRoutes().size(); i++) {
+                Assert.assertEquals(first.getRoutes().get(i).encode(),
+                        second.getRoutes().get(i).encode());
+            }
+        }
+    }
+}
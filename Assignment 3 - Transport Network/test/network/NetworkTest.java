@@ -0,0 +1,187 @@
+package network;
+
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import routes.BusRoute;
+import routes.Route;
+import stops.ReferencePaths;
+import stops.Stop;
+import vehicles.Ferry;
+
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class NetworkTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /*
+     * Removes the stops at the given positions (in turn) from the network.
+     */
+    private static void removeStops(Network network, int[] positions) {
+        for (int position : positions) {
+            network.removeStop(network.getStops().get(position));
+        }
+    }
+
+    @Test
+    public void removeStopRepairsTablesAsRebuilt() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 5; seed++) {
+                Random random = new Random(seed);
+                int[] positions = new int[4];
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = random.nextInt(STOPS - i);
+                }
+
+                Network repaired = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                removeStops(repaired, positions);
+                Network rebuilt = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                removeStops(rebuilt, positions);
+                rebuilt.rebuildRoutingTables();
+
+                List<Stop> stops = repaired.getStops();
+                List<Stop> expected = rebuilt.getStops();
+                for (int i = 0; i < stops.size(); i++) {
+                    for (int j = 0; j < stops.size(); j++) {
+                        Assert.assertEquals(layout + " seed " + seed,
+                                expected.get(i).getRoutingTable()
+                                        .costTo(expected.get(j)),
+                                stops.get(i).getRoutingTable()
+                                        .costTo(stops.get(j)));
+                    }
+                }
+                ReferencePaths.assertTablesCheapest(stops);
+            }
+        }
+    }
+
+    @Test
+    public void removeStopComparesByIdentity() {
+        Stop first = new Stop("twin", 0, 0);
+        Stop second = new Stop("twin", 0, 0);
+        Network network = new Network(new ArrayList<>(
+                Arrays.asList(first, second)), new ArrayList<>(),
+                new ArrayList<>());
+        Assert.assertEquals(first, second);
+
+        network.removeStop(second);
+        Assert.assertEquals(1, network.getStops().size());
+        Assert.assertSame(first, network.getStops().get(0));
+
+        // removing a stop which is equal to, but not, a stop in the network
+        // leaves the network unchanged
+        network.removeStop(second);
+        Assert.assertSame(first, network.getStops().get(0));
+    }
+
+    @Test
+    public void removeStopUpdatesSpatialQueries() {
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 1)
+                .generate();
+        Stop removed = network.getStops().get(7);
+        List<Stop> before = network.nearestStops(removed.getX(),
+                removed.getY(), 3);
+        Assert.assertSame(removed, before.get(0));
+
+        network.removeStop(removed);
+        List<Stop> after = network.nearestStops(removed.getX(),
+                removed.getY(), 2);
+        Assert.assertEquals(before.subList(1, 3), after);
+        Assert.assertFalse(network.stopsWithin(removed.getX(),
+                removed.getY(), 0).contains(removed));
+    }
+
+    @Test
+    public void removeRouteRepairsTablesAsRebuilt() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 5; seed++) {
+                int position = new Random(seed).nextInt(4);
+                Network repaired = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                repaired.removeRoute(repaired.getRoutes().get(position));
+                Network rebuilt = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                rebuilt.removeRoute(rebuilt.getRoutes().get(position));
+                rebuilt.rebuildRoutingTables();
+
+                Assert.assertEquals(rebuilt.getRoutes().size(),
+                        repaired.getRoutes().size());
+                List<Stop> stops = repaired.getStops();
+                List<Stop> expected = rebuilt.getStops();
+                for (int i = 0; i < stops.size(); i++) {
+                    for (int j = 0; j < stops.size(); j++) {
+                        Assert.assertEquals(layout + " seed " + seed,
+                                expected.get(i).getRoutingTable()
+                                        .costTo(expected.get(j)),
+                                stops.get(i).getRoutingTable()
+                                        .costTo(stops.get(j)));
+                    }
+                }
+                ReferencePaths.assertTablesCheapest(stops);
+            }
+        }
+    }
+
+    @Test
+    public void removeRouteComparesByIdentity() {
+        Stop first = new Stop("first", 0, 0);
+        Stop second = new Stop("second", 1, 0);
+        Route route = new BusRoute("q", 2);
+        route.addStop(first);
+        route.addStop(second);
+        Network network = new Network(new ArrayList<>(
+                Arrays.asList(first, second)), new ArrayList<>(
+                Arrays.asList(route)), new ArrayList<>());
+
+        // removing a route which is equal to, but not, the route in the
+        // network leaves the network (and the route's links) unchanged
+        Route twin = new BusRoute("q", 2);
+        Assert.assertEquals(route, twin);
+        network.removeRoute(twin);
+        Assert.assertEquals(1, network.getRoutes().size());
+        Assert.assertSame(route, network.getRoutes().get(0));
+        Assert.assertEquals(1, first.getNeighbours().size());
+        Assert.assertEquals(1, first.getRoutingTable().costTo(second));
+
+        network.removeRoute(route);
+        Assert.assertTrue(network.getRoutes().isEmpty());
+        Assert.assertTrue(first.getNeighbours().isEmpty());
+        Assert.assertTrue(first.getRoutes().isEmpty());
+        Assert.assertNull(first.getRoutingTable().nextStop(second));
+    }
+
+    @Test
+    public void loadHoldsRepeatedNamesOnce() throws Exception {
+        String filename = folder.newFile().getPath();
+        try (Writer writer = new FileWriter(filename)) {
+            writer.write("3\nCentral:0:0\nCentral:5:5\nQuay:2:2\n"
+                    + "2\nferry,Central,1:Central|Quay\n"
+                    + "ferry,Quay,2:Quay|Central\n"
+                    + "2\nferry,1,30,1,local\nferry,2,30,2,local\n");
+        }
+        Network network = new Network(filename);
+
+        List<Stop> stops = network.getStops();
+        List<Route> routes = network.getRoutes();
+        Assert.assertSame(stops.get(0).getName(), stops.get(1).getName());
+        Assert.assertSame(stops.get(0).getName(), routes.get(0).getName());
+        Assert.assertSame(stops.get(2).getName(), routes.get(1).getName());
+        Assert.assertSame(
+                ((Ferry) network.getVehicles().get(0)).getFerryType(),
+                ((Ferry) network.getVehicles().get(1)).getFerryType());
+    }
+}
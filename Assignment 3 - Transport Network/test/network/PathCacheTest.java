@@ -0,0 +1,105 @@
+package network;
+
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import stops.LinkCostUpdates;
+import stops.Path;
+import stops.Stop;
+
+import java.util.List;
+
+public class PathCacheTest {
+
+    private Network network;
+    private List<Stop> stops;
+
+    @Before
+    public void setUp() {
+        network = new NetworkGenerator(Layout.GRID, 36, 1).generate();
+        stops = network.getStops();
+    }
+
+    @Test
+    public void hitsReturnTheSamePath() {
+        Path path = network.path(stops.get(0), stops.get(35));
+        Assert.assertSame(stops.get(0), path.getOrigin());
+        Assert.assertSame(stops.get(35), path.getDestination());
+        Assert.assertEquals(stops.get(0).getRoutingTable()
+                .costTo(stops.get(35)), path.getCost());
+        Assert.assertSame(path, network.path(stops.get(0), stops.get(35)));
+
+        // the reverse path is a different pair
+        Assert.assertNotSame(path, network.path(stops.get(35), stops.get(0)));
+        Assert.assertNull(network.path(stops.get(0), null));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedPath() {
+        network.setPathCacheCapacity(2);
+        Path first = network.path(stops.get(0), stops.get(35));
+        Path second = network.path(stops.get(1), stops.get(35));
+
+        // using the first path makes the second the least recently used
+        Assert.assertSame(first, network.path(stops.get(0), stops.get(35)));
+        Path third = network.path(stops.get(2), stops.get(35));
+        Assert.assertSame(first, network.path(stops.get(0), stops.get(35)));
+        Assert.assertSame(third, network.path(stops.get(2), stops.get(35)));
+        Path again = network.path(stops.get(1), stops.get(35));
+        Assert.assertNotSame(second, again);
+        Assert.assertEquals(second.getStops(), again.getStops());
+
+        // shrinking the cache evicts the least recently used paths
+        network.setPathCacheCapacity(1);
+        Assert.assertNotSame(third, network.path(stops.get(2), stops.get(35)));
+    }
+
+    @Test
+    public void disabledCacheHoldsNothing() {
+        network.setPathCacheCapacity(0);
+        Path path = network.path(stops.get(0), stops.get(35));
+        Assert.assertNotSame(path, network.path(stops.get(0), stops.get(35)));
+    }
+
+    @Test
+    public void linkChangesInvalidatePaths() {
+        Stop from = stops.get(0);
+        Stop to = stops.get(35);
+        Path path = network.path(from, to);
+        Stop next = path.getStops().get(1);
+
+        // making the first link of the path dear routes around it
+        LinkCostUpdates updates = new LinkCostUpdates();
+        updates.setCost(from, next, 1000);
+        updates.apply();
+        Path changed = network.path(from, to);
+        Assert.assertNotSame(path, changed);
+        Assert.assertNotSame(next, changed.getStops().get(1));
+        Assert.assertEquals(from.getRoutingTable().costTo(to),
+                changed.getCost());
+    }
+
+    @Test
+    public void routingGenerationChangesInvalidatePaths() {
+        Stop from = stops.get(0);
+        Stop to = stops.get(35);
+        Path path = network.path(from, to);
+        long generation = from.getState().getRoutingGeneration();
+
+        // linking two far away stops changes the routing generation, even of
+        // paths which don't pass through them
+        stops.get(5).addNeighbouringStop(stops.get(30));
+        stops.get(30).addNeighbouringStop(stops.get(5));
+        Assert.assertNotEquals(generation,
+                from.getState().getRoutingGeneration());
+        Path after = network.path(from, to);
+        Assert.assertNotSame(path, after);
+        Assert.assertSame(after, network.path(from, to));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCapacityIsRejected() {
+        network.setPathCacheCapacity(-1);
+    }
+}
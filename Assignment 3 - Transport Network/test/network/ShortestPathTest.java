@@ -0,0 +1,82 @@
+package network;
+
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import stops.Path;
+import stops.ReferencePaths;
+import stops.Stop;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ShortestPathTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 50;
+
+    /*
+     * Asserts that the network finds a cheapest path between every pair of
+     * its stops.
+     */
+    private static void assertPathsCheapest(Network network) {
+        List<Stop> stops = network.getStops();
+        for (Stop from : stops) {
+            Map<Stop, Long> costs = ReferencePaths.costsFrom(from);
+            for (Stop to : stops) {
+                List<Stop> found = network.shortestPath(from, to);
+                if (found.isEmpty()) {
+                    ReferencePaths.assertCheapestPath(costs, to, null);
+                    continue;
+                }
+                Assert.assertSame(from, found.get(0));
+                long cost = 0;
+                for (int i = 1; i < found.size(); i++) {
+                    cost += found.get(i - 1).getLinkCost(found.get(i));
+                }
+                ReferencePaths.assertCheapestPath(costs, to,
+                        new Path(found, cost));
+            }
+        }
+    }
+
+    @Test
+    public void guidedSearchMatchesDijkstra() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 4; seed++) {
+                Network network = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                Assert.assertFalse(network.getStops().get(0).getState()
+                        .hasDiscountedLinks());
+                assertPathsCheapest(network);
+            }
+        }
+    }
+
+    @Test
+    public void discountedLinksMatchDijkstra() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 4; seed++) {
+                Network network = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                ReferencePaths.randomCosts(network.getStops(),
+                        new Random(seed), 15).apply();
+                Assert.assertTrue(network.getStops().get(0).getState()
+                        .hasDiscountedLinks());
+                assertPathsCheapest(network);
+            }
+        }
+    }
+
+    @Test
+    public void noPathIsEmpty() {
+        Network network = new NetworkGenerator(Layout.GRID, 9, 0).generate();
+        Stop stop = network.getStops().get(0);
+        Stop unlinked = new Stop("unlinked", 100, 100);
+
+        Assert.assertTrue(network.shortestPath(stop, unlinked).isEmpty());
+        Assert.assertTrue(network.shortestPath(null, stop).isEmpty());
+        Assert.assertTrue(network.shortestPath(stop, null).isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package network;
+
+import org.junit.Assert;
+import org.junit.Test;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class SpatialIndexTest {
+
+    /*
+     * Returns the given stops in order of their distance from the given point,
+     * keeping the order of stops at equal distances.
+     */
+    private static List<Stop> byDistance(List<Stop> stops, int x, int y) {
+        List<Stop> sorted = new ArrayList<>(stops);
+        sorted.sort(Comparator.comparingLong(stop -> distance(stop, x, y)));
+        return sorted;
+    }
+
+    private static long distance(Stop stop, int x, int y) {
+        return Math.abs((long) stop.getX() - x)
+                + Math.abs((long) stop.getY() - y);
+    }
+
+    /*
+     * Asserts that the index answers random queries as a scan over the given
+     * stops (in the order they were added) would.
+     */
+    private static void assertMatchesScan(SpatialIndex index,
+                                          List<Stop> stops, Random random,
+                                          int spread) {
+        for (int query = 0; query < 50; query++) {
+            int x = random.nextInt(spread) - spread / 4;
+            int y = random.nextInt(spread) - spread / 4;
+            List<Stop> sorted = byDistance(stops, x, y);
+
+            int k = random.nextInt(stops.size() + 2);
+            Assert.assertEquals(sorted.subList(0, Math.min(k, sorted.size())),
+                    index.nearest(x, y, k));
+
+            int radius = random.nextInt(spread / 2);
+            List<Stop> within = new ArrayList<>();
+            for (Stop stop : sorted) {
+                if (distance(stop, x, y) <= radius) {
+                    within.add(stop);
+                }
+            }
+            Assert.assertEquals(within, index.within(x, y, radius));
+
+            int width = random.nextInt(spread / 2);
+            int height = random.nextInt(spread / 2);
+            List<Stop> inBox = new ArrayList<>();
+            for (Stop stop : stops) {
+                if (stop.getX() >= x && stop.getX() <= x + width
+                        && stop.getY() >= y && stop.getY() <= y + height) {
+                    inBox.add(stop);
+                }
+            }
+            Assert.assertEquals(inBox,
+                    index.inBox(x, y, x + width, y + height));
+        }
+    }
+
+    @Test
+    public void queriesMatchLinearScan() {
+        for (int seed = 0; seed < 5; seed++) {
+            Random random = new Random(seed);
+
+            // clustered stops, some sharing coordinates, with a few far away
+            int spread = 200;
+            List<Stop> stops = new ArrayList<>();
+            for (int i = 0; i < 150; i++) {
+                int x = random.nextInt(i % 10 == 0 ? 10 * spread : spread / 2);
+                int y = random.nextInt(i % 10 == 0 ? 10 * spread : spread / 2);
+                stops.add(new Stop("stop" + i, x, y));
+            }
+            SpatialIndex index = new SpatialIndex(stops.subList(0, 10));
+            List<Stop> added = new ArrayList<>(stops.subList(0, 10));
+
+            // grow the index past several rebuilds
+            for (Stop stop : stops.subList(10, stops.size())) {
+                index.add(stop);
+                added.add(stop);
+            }
+            assertMatchesScan(index, added, random, spread);
+
+            // remove most of the stops, past a rebuild closing the gaps
+            while (added.size() > 20) {
+                Stop removed = added.remove(random.nextInt(added.size()));
+                index.remove(removed);
+                if (added.size() % 40 == 0) {
+                    assertMatchesScan(index, added, random, spread);
+                }
+            }
+            assertMatchesScan(index, added, random, spread);
+
+            // re-added stops come after the others
+            Stop returned = stops.get(0);
+            index.remove(returned);
+            added.remove(returned);
+            index.add(returned);
+            added.add(returned);
+            assertMatchesScan(index, added, random, spread);
+        }
+    }
+
+    @Test
+    public void removeComparesByIdentity() {
+        Stop first = new Stop("twin", 3, 4);
+        Stop second = new Stop("twin", 3, 4);
+        List<Stop> stops = new ArrayList<>();
+        stops.add(first);
+        SpatialIndex index = new SpatialIndex(stops);
+
+        index.remove(second);
+        Assert.assertEquals(1, index.within(3, 4, 0).size());
+        Assert.assertSame(first, index.within(3, 4, 0).get(0));
+
+        index.remove(first);
+        Assert.assertTrue(index.nearest(3, 4, 1).isEmpty());
+    }
+}
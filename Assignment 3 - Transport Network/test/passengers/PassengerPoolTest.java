@@ -0,0 +1,173 @@
+package passengers;
+
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import stops.Stop;
+import vehicles.PublicTransport;
+
+import java.util.List;
+import java.util.Random;
+
+public class PassengerPoolTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 40;
+
+    /*
+     * Places each vehicle of the network at the first stop of its route.
+     */
+    private static void placeVehicles(Network network) {
+        for (PublicTransport vehicle : network.getVehicles()) {
+            Stop first = vehicle.getRoute().getStopsOnRoute().get(0);
+            vehicle.travelTo(first);
+            first.transportArrive(vehicle);
+        }
+    }
+
+    /*
+     * Returns the number of passengers waiting at the given stop who haven't
+     * reached their destination.
+     */
+    private static int travelling(Stop stop) {
+        int count = 0;
+        for (Passenger passenger : stop.getWaitingPassengers()) {
+            if (passenger.getDestination() != stop) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void arriveAndDepartMatchStop() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 3; seed++) {
+                // the same network twice: one moving Passenger objects between
+                // its stops, and one moving pooled passengers
+                Network objects = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                Network pooled = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                placeVehicles(objects);
+                PassengerPool pool = new PassengerPool(pooled.getStops(),
+                        pooled.getVehicles(), 1);
+                List<Stop> stops = pooled.getStops();
+                List<PublicTransport> vehicles = pooled.getVehicles();
+
+                // the position of each vehicle on its route, and its direction
+                int[] position = new int[vehicles.size()];
+                int[] direction = new int[vehicles.size()];
+                for (int i = 0; i < direction.length; i++) {
+                    direction[i] = 1;
+                }
+
+                Random random = new Random(seed);
+                int delivered = 0;
+                for (int round = 0; round < 60; round++) {
+                    for (int i = 0; i < 20; i++) {
+                        int from = random.nextInt(STOPS);
+                        int to = random.nextInt(STOPS);
+                        if (from == to) {
+                            continue;
+                        }
+                        objects.getStops().get(from).addPassenger(
+                                new Passenger("p", objects.getStops()
+                                        .get(to)));
+                        Assert.assertTrue(pool.add(stops.get(from),
+                                stops.get(to)) >= 0);
+                    }
+
+                    for (int v = 0; v < vehicles.size(); v++) {
+                        List<Stop> route = vehicles.get(v).getRoute()
+                                .getStopsOnRoute();
+                        if (route.size() < 2) {
+                            continue;
+                        }
+                        int at = position[v];
+                        if (at + direction[v] < 0
+                                || at + direction[v] >= route.size()) {
+                            direction[v] = -direction[v];
+                        }
+                        int next = at + direction[v];
+                        position[v] = next;
+
+                        PublicTransport object =
+                                objects.getVehicles().get(v);
+                        List<Stop> objectRoute = object.getRoute()
+                                .getStopsOnRoute();
+                        objectRoute.get(at).transportDepart(object,
+                                objectRoute.get(next));
+                        int boarded = object.passengerCount();
+                        objectRoute.get(next).transportArrive(object);
+
+                        PublicTransport vehicle = vehicles.get(v);
+                        Assert.assertEquals(boarded, pool.depart(vehicle,
+                                route.get(at), route.get(next)));
+                        Assert.assertEquals(boarded,
+                                pool.onBoardCount(vehicle));
+                        delivered += pool.arrive(vehicle, route.get(next));
+                        Assert.assertEquals(0, pool.onBoardCount(vehicle));
+                    }
+
+                    int arrived = 0;
+                    for (int s = 0; s < STOPS; s++) {
+                        Stop stop = objects.getStops().get(s);
+                        Assert.assertEquals(layout + " seed " + seed,
+                                travelling(stop),
+                                pool.waitingCount(stops.get(s)));
+                        arrived += stop.getWaitingPassengers().size()
+                                - travelling(stop);
+                    }
+                    Assert.assertEquals(arrived, delivered);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void passengersAtTheirDestinationNeverJoin() {
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 1)
+                .generate();
+        PassengerPool pool = new PassengerPool(network.getStops(),
+                network.getVehicles());
+        Stop stop = network.getStops().get(3);
+
+        Assert.assertEquals(-1, pool.add(stop, stop));
+        Assert.assertEquals(-1, pool.add(stop, stop, 7));
+        Assert.assertEquals(0, pool.size());
+        Assert.assertEquals(0, pool.waitingCount(stop));
+
+        // the ids handed out aren't used up by the passengers turned away
+        Assert.assertEquals(0, pool.add(stop, network.getStops().get(4)));
+    }
+
+    @Test
+    public void capacityIsSharedWithPassengerObjects() throws Exception {
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 1)
+                .generate();
+        PassengerPool pool = new PassengerPool(network.getStops(),
+                network.getVehicles());
+        PublicTransport vehicle = network.getVehicles().get(0);
+        List<Stop> route = vehicle.getRoute().getStopsOnRoute();
+        Stop stop = route.get(0);
+        Stop next = stop.getRoutingTable().nextStop(route.get(1));
+
+        int objects = vehicle.getCapacity() / 2;
+        for (int i = 0; i < objects; i++) {
+            vehicle.addPassenger(new Passenger("p", next));
+        }
+        for (int i = 0; i < vehicle.getCapacity(); i++) {
+            pool.add(stop, next);
+        }
+
+        Assert.assertEquals(vehicle.getCapacity() - objects,
+                pool.depart(vehicle, stop, next));
+        Assert.assertEquals(objects, pool.waitingCount(stop));
+        Assert.assertEquals(0, pool.depart(vehicle, stop, next));
+        Assert.assertEquals(vehicle.getCapacity() - objects,
+                pool.arrive(vehicle, next));
+    }
+}
@@ -0,0 +1,62 @@
+package routes;
+
+import org.junit.Assert;
+import org.junit.Test;
+import stops.ReferencePaths;
+import stops.Stop;
+import vehicles.Bus;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class RouteTest {
+
+    @Test
+    public void removeAllStopsUnlinksTheRoute() throws Exception {
+        Stop a = new Stop("A", 0, 0);
+        Stop b = new Stop("B", 1, 0);
+        Stop c = new Stop("C", 2, 0);
+        Route route = new BusRoute("first", 1);
+        route.addStop(a);
+        route.addStop(b);
+        route.addStop(c);
+        Bus bus = new Bus(0, 10, route, "ABC123");
+        route.addTransport(bus);
+
+        route.removeAllStops();
+        Assert.assertTrue(route.getStopsOnRoute().isEmpty());
+        for (Stop stop : Arrays.asList(a, b, c)) {
+            Assert.assertTrue(stop.getNeighbours().isEmpty());
+            Assert.assertTrue(stop.getRoutes().isEmpty());
+        }
+        Assert.assertNull(a.getRoutingTable().nextStop(c));
+        Assert.assertEquals(Collections.singletonList(bus),
+                route.getTransports());
+    }
+
+    @Test
+    public void removeAllStopsKeepsLinksOfOtherRoutes() {
+        Stop a = new Stop("A", 0, 0);
+        Stop b = new Stop("B", 1, 0);
+        Stop c = new Stop("C", 2, 0);
+        Route removed = new BusRoute("first", 1);
+        removed.addStop(a);
+        removed.addStop(b);
+        removed.addStop(c);
+
+        // an equal but distinct route sharing one of the links
+        Route kept = new BusRoute("first", 1);
+        kept.addStop(b);
+        kept.addStop(c);
+        Assert.assertEquals(removed, kept);
+
+        removed.removeAllStops();
+        Assert.assertTrue(a.getNeighbours().isEmpty());
+        Assert.assertEquals(Collections.singletonList(c), b.getNeighbours());
+        Assert.assertEquals(Collections.singletonList(kept), b.getRoutes());
+        Assert.assertSame(kept, c.getRoutes().get(0));
+        Assert.assertEquals(1, b.getRoutingTable().costTo(c));
+        Assert.assertNull(b.getRoutingTable().nextStop(a));
+        ReferencePaths.assertTablesCheapest(Arrays.asList(a, b, c));
+    }
+}
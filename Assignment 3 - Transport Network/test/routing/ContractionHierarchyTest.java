@@ -0,0 +1,179 @@
+package routing;
+
+import exceptions.TransportFormatException;
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import stops.LinkCostUpdates;
+import stops.Path;
+import stops.ReferencePaths;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ContractionHierarchyTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /*
+     * Generates a network with some of its links discounted, so that the
+     * cheapest paths don't always follow the shortest distance.
+     */
+    static List<Stop> generate(Layout layout, int seed) {
+        Network network = new NetworkGenerator(layout, STOPS, seed).generate();
+        ReferencePaths.randomCosts(network.getStops(), new Random(seed), 15)
+                .apply();
+        return network.getStops();
+    }
+
+    /*
+     * Returns the cheapest costs from every given stop, keyed by identity.
+     */
+    static Map<Stop, Map<Stop, Long>> allCosts(List<Stop> stops) {
+        Map<Stop, Map<Stop, Long>> costs = new IdentityHashMap<>();
+        for (Stop stop : stops) {
+            costs.put(stop, ReferencePaths.costsFrom(stop));
+        }
+        return costs;
+    }
+
+    /*
+     * Asserts that the given next stop from one stop to another is the first
+     * step of a cheapest path between them.
+     */
+    private static void assertNextStopCheapest(Map<Stop, Map<Stop, Long>> costs,
+                                               Stop from, Stop to,
+                                               Stop next) {
+        Long expected = costs.get(from).get(to);
+        if (expected == null) {
+            Assert.assertNull(next);
+        } else if (from == to) {
+            Assert.assertSame(from, next);
+        } else {
+            Assert.assertTrue(from.getNeighbours().contains(next));
+            Assert.assertEquals(from.getName() + " to " + to.getName(),
+                    (long) expected,
+                    from.getLinkCost(next) + costs.get(next).get(to));
+        }
+    }
+
+    @Test
+    public void queriesMatchDijkstra() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 4; seed++) {
+                List<Stop> stops = generate(layout, seed);
+                Map<Stop, Map<Stop, Long>> costs = allCosts(stops);
+                ContractionHierarchy hierarchy =
+                        ContractionHierarchy.build(StopGraph.of(stops));
+
+                for (Stop from : stops) {
+                    for (Stop to : stops) {
+                        Long expected = costs.get(from).get(to);
+                        Assert.assertEquals(layout + " seed " + seed,
+                                expected == null ? Integer.MAX_VALUE
+                                        : expected,
+                                (long) hierarchy.costTo(from, to));
+                        assertNextStopCheapest(costs, from, to,
+                                hierarchy.nextStop(from, to));
+                        ReferencePaths.assertCheapestPath(costs.get(from), to,
+                                hierarchy.path(from, to));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void saveLoadRoundTrip() throws Exception {
+        List<Stop> stops = generate(Layout.RANDOM_GEOMETRIC, 7);
+        StopGraph graph = StopGraph.of(stops);
+        ContractionHierarchy saved = ContractionHierarchy.build(graph);
+        String filename = folder.newFile().getPath();
+        saved.save(filename);
+
+        ContractionHierarchy loaded = ContractionHierarchy.load(filename,
+                graph);
+        Assert.assertEquals(saved.shortcutCount(), loaded.shortcutCount());
+        for (Stop from : stops) {
+            for (Stop to : stops) {
+                Assert.assertEquals(saved.costTo(from, to),
+                        loaded.costTo(from, to));
+                Assert.assertSame(saved.nextStop(from, to),
+                        loaded.nextStop(from, to));
+            }
+        }
+    }
+
+    @Test(expected = TransportFormatException.class)
+    public void loadRejectsDifferentGraph() throws Exception {
+        List<Stop> stops = generate(Layout.GRID, 1);
+        String filename = folder.newFile().getPath();
+        ContractionHierarchy.build(StopGraph.of(stops)).save(filename);
+
+        ContractionHierarchy.load(filename,
+                StopGraph.of(generate(Layout.GRID, 2)));
+    }
+
+    /*
+     * Returns a line of stops whose links each cost nearly as much as an int
+     * holds, so any path over two or more of them costs more.
+     */
+    static List<Stop> dearLine(int size) {
+        List<Stop> stops = new ArrayList<>();
+        LinkCostUpdates updates = new LinkCostUpdates();
+        for (int i = 0; i < size; i++) {
+            Stop stop = new Stop("stop" + i, i, 0);
+            if (i > 0) {
+                Stop previous = stops.get(i - 1);
+                previous.addNeighbouringStop(stop);
+                stop.addNeighbouringStop(previous);
+                updates.setCost(previous, stop, Integer.MAX_VALUE - 1);
+                updates.setCost(stop, previous, Integer.MAX_VALUE - 1);
+            }
+            stops.add(stop);
+        }
+        updates.apply();
+        return stops;
+    }
+
+    @Test
+    public void veryDearLinksSaturate() {
+        List<Stop> stops = dearLine(6);
+        ContractionHierarchy hierarchy =
+                ContractionHierarchy.build(StopGraph.of(stops));
+        Assert.assertTrue(hierarchy.shortcutCount() > 0);
+        for (int i = 0; i < stops.size(); i++) {
+            for (int j = 0; j < stops.size(); j++) {
+                Stop from = stops.get(i);
+                Stop to = stops.get(j);
+                int expected = i == j ? 0 : Integer.MAX_VALUE - 1;
+                Assert.assertEquals(expected, hierarchy.costTo(from, to));
+
+                // paths dearer than an int holds still lead to the stop
+                Path path = hierarchy.path(from, to);
+                List<Stop> steps = path.getStops();
+                Assert.assertSame(to, path.getDestination());
+                for (int k = 1; k < steps.size(); k++) {
+                    Assert.assertTrue(steps.get(k - 1).getNeighbours()
+                            .contains(steps.get(k)));
+                }
+                if (i != j) {
+                    Assert.assertTrue(from.getNeighbours().contains(
+                            hierarchy.nextStop(from, to)));
+                }
+            }
+        }
+    }
+}
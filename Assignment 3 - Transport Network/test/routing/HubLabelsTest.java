@@ -0,0 +1,102 @@
+package routing;
+
+import exceptions.TransportFormatException;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import stops.Stop;
+
+import java.util.List;
+import java.util.Map;
+
+public class HubLabelsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /*
+     * Asserts that the labels give the cheapest cost between every pair of
+     * the given stops, both by stop and by index.
+     */
+    private static void assertCostsCheapest(List<Stop> stops,
+                                            HubLabels labels) {
+        Map<Stop, Map<Stop, Long>> costs =
+                ContractionHierarchyTest.allCosts(stops);
+        for (int i = 0; i < stops.size(); i++) {
+            for (int j = 0; j < stops.size(); j++) {
+                Stop from = stops.get(i);
+                Stop to = stops.get(j);
+                Long expected = costs.get(from).get(to);
+                Assert.assertEquals(from.getName() + " to " + to.getName(),
+                        expected == null ? Integer.MAX_VALUE : expected,
+                        (long) labels.costTo(from, to));
+                Assert.assertEquals(labels.costTo(from, to),
+                        labels.cost(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void costsMatchDijkstra() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 4; seed++) {
+                List<Stop> stops = ContractionHierarchyTest.generate(layout,
+                        seed);
+                assertCostsCheapest(stops, HubLabels.build(
+                        StopGraph.of(stops)));
+            }
+        }
+    }
+
+    @Test
+    public void buildFromHierarchyMatchesDijkstra() {
+        List<Stop> stops = ContractionHierarchyTest.generate(
+                Layout.RANDOM_GEOMETRIC, 3);
+        ContractionHierarchy hierarchy =
+                ContractionHierarchy.build(StopGraph.of(stops));
+        assertCostsCheapest(stops, HubLabels.build(hierarchy));
+    }
+
+    @Test
+    public void saveLoadRoundTrip() throws Exception {
+        List<Stop> stops = ContractionHierarchyTest.generate(Layout.CORRIDOR,
+                5);
+        StopGraph graph = StopGraph.of(stops);
+        HubLabels saved = HubLabels.build(graph);
+        String filename = folder.newFile().getPath();
+        saved.save(filename);
+
+        HubLabels loaded = HubLabels.load(filename, graph);
+        Assert.assertEquals(saved.labelCount(), loaded.labelCount());
+        for (int i = 0; i < stops.size(); i++) {
+            for (int j = 0; j < stops.size(); j++) {
+                Assert.assertEquals(saved.cost(i, j), loaded.cost(i, j));
+            }
+        }
+    }
+
+    @Test(expected = TransportFormatException.class)
+    public void loadRejectsDifferentGraph() throws Exception {
+        List<Stop> stops = ContractionHierarchyTest.generate(Layout.GRID, 1);
+        String filename = folder.newFile().getPath();
+        HubLabels.build(StopGraph.of(stops)).save(filename);
+
+        HubLabels.load(filename, StopGraph.of(
+                ContractionHierarchyTest.generate(Layout.GRID, 2)));
+    }
+
+    @Test
+    public void veryDearPathsSaturate() {
+        List<Stop> stops = ContractionHierarchyTest.dearLine(6);
+        HubLabels labels = HubLabels.build(StopGraph.of(stops));
+        for (int i = 0; i < stops.size(); i++) {
+            for (int j = 0; j < stops.size(); j++) {
+                // paths dearer than an int holds are still paths
+                Assert.assertEquals(i == j ? 0 : Integer.MAX_VALUE - 1,
+                        labels.cost(i, j));
+            }
+        }
+    }
+}
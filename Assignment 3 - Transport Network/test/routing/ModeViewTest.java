@@ -0,0 +1,241 @@
+package routing;
+
+import network.MemoryReport;
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import routes.Route;
+import stops.LinkCostUpdates;
+import stops.Path;
+import stops.Stop;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+public class ModeViewTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 50;
+
+    /*
+     * The links between stops which passengers may travel along by the given
+     * modes: those served by a route of one of the modes (or of no known
+     * mode), and those which aren't part of any route.
+     */
+    private static class Allowed {
+        private final Map<Stop, Set<Stop>> served = new IdentityHashMap<>();
+        private final Map<Stop, Set<Stop>> routed = new IdentityHashMap<>();
+
+        private Allowed(List<Route> routes, Set<TransportMode> modes) {
+            for (Route route : routes) {
+                TransportMode mode = TransportMode.of(route.getType());
+                boolean allowed = mode == null || modes.contains(mode);
+                List<Stop> stops = route.getStopsOnRoute();
+                for (int i = 1; i < stops.size(); i++) {
+                    add(routed, stops.get(i - 1), stops.get(i));
+                    if (allowed) {
+                        add(served, stops.get(i - 1), stops.get(i));
+                    }
+                }
+            }
+        }
+
+        private static void add(Map<Stop, Set<Stop>> links, Stop first,
+                                Stop second) {
+            links.computeIfAbsent(first, s -> identitySet()).add(second);
+            links.computeIfAbsent(second, s -> identitySet()).add(first);
+        }
+
+        private static Set<Stop> identitySet() {
+            return Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+
+        private static boolean contains(Map<Stop, Set<Stop>> links,
+                                        Stop from, Stop to) {
+            return links.containsKey(from) && links.get(from).contains(to);
+        }
+
+        private boolean allows(Stop from, Stop to) {
+            return !contains(routed, from, to) || contains(served, from, to);
+        }
+
+        /*
+         * Returns the cost of the cheapest allowed path from the given stop
+         * to every stop it can reach.
+         */
+        private Map<Stop, Long> costsFrom(Stop from) {
+            Map<Stop, Long> costs = new IdentityHashMap<>();
+            PriorityQueue<Object[]> queue = new PriorityQueue<>(
+                    (a, b) -> Long.compare((Long) a[1], (Long) b[1]));
+            queue.add(new Object[] {from, 0L});
+            while (!queue.isEmpty()) {
+                Object[] next = queue.poll();
+                Stop stop = (Stop) next[0];
+                long cost = (Long) next[1];
+                if (costs.containsKey(stop)) {
+                    continue;
+                }
+                costs.put(stop, cost);
+                for (Stop neighbour : stop.getNeighbours()) {
+                    if (!costs.containsKey(neighbour)
+                            && allows(stop, neighbour)) {
+                        queue.add(new Object[] {neighbour,
+                                cost + stop.getLinkCost(neighbour)});
+                    }
+                }
+            }
+            return costs;
+        }
+    }
+
+    /*
+     * Asserts that the view answers every query between the given stops as a
+     * search over the links allowed by its modes would.
+     */
+    private static void assertMatchesFilteredDijkstra(List<Stop> stops,
+                                                      List<Route> routes,
+                                                      ModeView view) {
+        Allowed allowed = new Allowed(routes, view.getModes());
+        Map<Stop, Map<Stop, Long>> costs = new IdentityHashMap<>();
+        for (Stop stop : stops) {
+            costs.put(stop, allowed.costsFrom(stop));
+        }
+
+        for (Stop from : stops) {
+            for (Stop to : stops) {
+                String message = view.getModes() + " " + from.getName()
+                        + " to " + to.getName();
+                Long expected = costs.get(from).get(to);
+                Assert.assertEquals(message,
+                        expected == null ? Integer.MAX_VALUE : expected,
+                        (long) view.costTo(from, to));
+
+                Stop next = view.nextStop(from, to);
+                Path path = view.path(from, to);
+                if (expected == null) {
+                    Assert.assertNull(message, next);
+                    Assert.assertNull(message, path);
+                    continue;
+                }
+                if (from == to) {
+                    Assert.assertSame(from, next);
+                } else {
+                    Assert.assertTrue(message, allowed.allows(from, next));
+                    Assert.assertEquals(message, (long) expected,
+                            from.getLinkCost(next) + costs.get(next).get(to));
+                }
+
+                List<Stop> steps = path.getStops();
+                Assert.assertSame(from, path.getOrigin());
+                Assert.assertSame(to, path.getDestination());
+                long cost = 0;
+                for (int i = 1; i < steps.size(); i++) {
+                    Assert.assertTrue(message, steps.get(i - 1)
+                            .getNeighbours().contains(steps.get(i)));
+                    Assert.assertTrue(message,
+                            allowed.allows(steps.get(i - 1), steps.get(i)));
+                    cost += steps.get(i - 1).getLinkCost(steps.get(i));
+                }
+                Assert.assertEquals(message, (long) expected, cost);
+                Assert.assertEquals(message, cost, path.getCost());
+            }
+        }
+    }
+
+    @Test
+    public void everyModeSubsetMatchesFilteredDijkstra() {
+        TransportMode[] modes = TransportMode.values();
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 3; seed++) {
+                Network network = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                for (int subset = 0; subset < 1 << modes.length; subset++) {
+                    Set<TransportMode> allowed =
+                            EnumSet.noneOf(TransportMode.class);
+                    for (TransportMode mode : modes) {
+                        if ((subset & mode.bit()) != 0) {
+                            allowed.add(mode);
+                        }
+                    }
+                    assertMatchesFilteredDijkstra(network.getStops(),
+                            network.getRoutes(),
+                            network.routingView(allowed));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void freeLinksMatchFilteredDijkstra() {
+        // links which cost nothing tie many paths, which tracing a path back
+        // from its destination must not go round in circles between
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 2)
+                .generate();
+        Random random = new Random(2);
+        LinkCostUpdates updates = new LinkCostUpdates();
+        for (Stop stop : network.getStops()) {
+            for (Stop neighbour : stop.getNeighbours()) {
+                if (random.nextInt(3) == 0) {
+                    updates.setCost(stop, neighbour, 0);
+                }
+            }
+        }
+        updates.apply();
+
+        assertMatchesFilteredDijkstra(network.getStops(), network.getRoutes(),
+                network.routingView(EnumSet.allOf(TransportMode.class)));
+        assertMatchesFilteredDijkstra(network.getStops(), network.getRoutes(),
+                network.routingView(EnumSet.of(TransportMode.BUS)));
+    }
+
+    @Test
+    public void heldRoutingIsBoundedByBytes() {
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 1)
+                .generate();
+        StopGraph graph = StopGraph.of(network.getStops());
+        Set<TransportMode> modes = EnumSet.allOf(TransportMode.class);
+
+        ModeView one = new ModeView(graph, modes, 1);
+        one.precompute(network.getStops());
+        Assert.assertEquals(1, one.size());
+
+        ModeView unbounded = new ModeView(graph, modes);
+        unbounded.precompute(network.getStops());
+        Assert.assertEquals(STOPS, unbounded.size());
+        long perSource = unbounded.getHeldBytes() / STOPS;
+
+        long capacity = 10 * perSource + perSource / 2;
+        ModeView bounded = new ModeView(graph, modes, capacity);
+        bounded.precompute(network.getStops());
+        Assert.assertEquals(10, bounded.size());
+        Assert.assertTrue(bounded.getHeldBytes() <= capacity);
+    }
+
+    @Test
+    public void memoryReportCountsViews() {
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 1)
+                .generate();
+        Assert.assertEquals(0, network.memoryReport()
+                .getBytes(MemoryReport.Component.ROUTING_VIEWS));
+
+        ModeView view = network.routingView(EnumSet.of(TransportMode.BUS));
+        long graph = network.memoryReport()
+                .getBytes(MemoryReport.Component.ROUTING_VIEWS);
+        Assert.assertTrue(graph > 0);
+
+        view.precompute(network.getStops().subList(0, 5));
+        MemoryReport report = network.memoryReport();
+        Assert.assertEquals(5,
+                report.getCount(MemoryReport.Component.ROUTING_VIEWS));
+        Assert.assertEquals(graph + view.getHeldBytes(),
+                report.getBytes(MemoryReport.Component.ROUTING_VIEWS));
+    }
+}
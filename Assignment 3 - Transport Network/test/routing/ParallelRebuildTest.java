@@ -0,0 +1,80 @@
+package routing;
+
+import exceptions.DuplicateStopException;
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import routes.Route;
+import stops.ReferencePaths;
+import stops.Stop;
+import utilities.OperationCounter;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelRebuildTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 60;
+
+    @After
+    public void tearDown() {
+        OperationCounter.setEnabled(false);
+        OperationCounter.reset();
+    }
+
+    @Test
+    public void rebuildMatchesDijkstra() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Layout layout : Layout.values()) {
+                for (int seed = 0; seed < 5; seed++) {
+                    Network network = new NetworkGenerator(layout, STOPS, seed)
+                            .generate();
+                    ParallelRebuild.rebuild(network.getStops(), pool);
+                    ReferencePaths.assertTablesCheapest(network.getStops());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Returns the operations counted whilst adding a new stop to the end of
+     * the first route of the given network.
+     */
+    private static long addStopWork(Network network)
+            throws DuplicateStopException {
+        Route route = network.getRoutes().get(0);
+        List<Stop> stops = route.getStopsOnRoute();
+        Stop last = stops.get(stops.size() - 1);
+        Stop added = new Stop("added", last.getX() + 1, last.getY());
+        network.addStop(added);
+
+        OperationCounter.reset();
+        OperationCounter.setEnabled(true);
+        route.addStop(added);
+        OperationCounter.setEnabled(false);
+        return OperationCounter.total();
+    }
+
+    @Test
+    public void rebuiltTablesHaveNoPendingChanges()
+            throws DuplicateStopException {
+        Network synchronised = new NetworkGenerator(Layout.GRID, STOPS, 3)
+                .generate();
+        Network rebuilt = new NetworkGenerator(Layout.GRID, STOPS, 3)
+                .generate();
+        rebuilt.rebuildRoutingTables();
+
+        // a change after a rebuild only propagates itself, as it would if the
+        // tables had been synchronised
+        long expected = addStopWork(synchronised);
+        Assert.assertEquals(expected, addStopWork(rebuilt));
+        ReferencePaths.assertTablesCheapest(rebuilt.getStops());
+    }
+}
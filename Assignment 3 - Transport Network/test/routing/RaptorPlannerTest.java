@@ -0,0 +1,300 @@
+package routing;
+
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import routes.Route;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class RaptorPlannerTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 40;
+
+    // enough transfers for any journey in the generated networks
+    private static final int UNLIMITED = 40;
+
+    /*
+     * Adds trips along every route of the network in both directions, each
+     * leaving between 5 and 14 time units after the one before.
+     */
+    private static Timetable timetable(Network network, Random random) {
+        Timetable timetable = new Timetable();
+        for (Route route : network.getRoutes()) {
+            if (route.getStopsOnRoute().size() < 2) {
+                continue;
+            }
+            for (int time = random.nextInt(10); time < 200;
+                 time += 5 + random.nextInt(10)) {
+                timetable.addTrip(route, time);
+            }
+            for (int time = random.nextInt(10); time < 200;
+                 time += 5 + random.nextInt(10)) {
+                timetable.addReturnTrip(route, time);
+            }
+        }
+        return timetable;
+    }
+
+    /*
+     * Returns the earliest arrival at every stop from the given stop, by a
+     * connection scan over every consecutive pair of stops of every trip.
+     */
+    private static Map<Stop, Integer> connectionScan(Timetable timetable,
+                                                     Stop from,
+                                                     int departure) {
+        // each connection is {trip, from index, to index, departure, arrival}
+        List<Stop> stops = new ArrayList<>();
+        int origin = index(stops, from);
+        List<int[]> connections = new ArrayList<>();
+        int trip = 0;
+        for (Timetable.Pattern pattern : timetable.getPatterns()) {
+            for (int[] times : pattern.trips) {
+                for (int i = 1; i < times.length; i++) {
+                    connections.add(new int[] {trip,
+                            index(stops, pattern.stops[i - 1]),
+                            index(stops, pattern.stops[i]), times[i - 1],
+                            times[i]});
+                }
+                trip++;
+            }
+        }
+        connections.sort((a, b) -> a[3] != b[3] ? Integer.compare(a[3], b[3])
+                : Integer.compare(a[4], b[4]));
+
+        int[] earliest = new int[stops.size()];
+        Arrays.fill(earliest, Integer.MAX_VALUE);
+        earliest[origin] = departure;
+        boolean[] boarded = new boolean[trip];
+        for (int[] connection : connections) {
+            if (boarded[connection[0]]
+                    || earliest[connection[1]] <= connection[3]) {
+                boarded[connection[0]] = true;
+                earliest[connection[2]] = Math.min(earliest[connection[2]],
+                        connection[4]);
+            }
+        }
+
+        Map<Stop, Integer> arrivals = new IdentityHashMap<>();
+        for (int i = 0; i < stops.size(); i++) {
+            if (earliest[i] != Integer.MAX_VALUE) {
+                arrivals.put(stops.get(i), earliest[i]);
+            }
+        }
+        return arrivals;
+    }
+
+    private static int index(List<Stop> stops, Stop stop) {
+        for (int i = 0; i < stops.size(); i++) {
+            if (stops.get(i) == stop) {
+                return i;
+            }
+        }
+        stops.add(stop);
+        return stops.size() - 1;
+    }
+
+    /*
+     * Returns the earliest arrival at the given stop using at most the given
+     * number of trips, by trying every trip from every stop it can be boarded
+     * at in turn.
+     */
+    private static int boundedArrival(Timetable timetable, Stop from, Stop to,
+                                      int departure, int trips) {
+        Map<Stop, Integer> arrivals = new IdentityHashMap<>();
+        arrivals.put(from, departure);
+        for (int round = 0; round < trips; round++) {
+            Map<Stop, Integer> next = new IdentityHashMap<>(arrivals);
+            for (Timetable.Pattern pattern : timetable.getPatterns()) {
+                for (int[] times : pattern.trips) {
+                    boolean boarded = false;
+                    for (int i = 0; i < times.length; i++) {
+                        Stop stop = pattern.stops[i];
+                        if (boarded && times[i] < next.getOrDefault(stop,
+                                Integer.MAX_VALUE)) {
+                            next.put(stop, times[i]);
+                        }
+                        Integer arrival = arrivals.get(stop);
+                        boarded |= arrival != null && arrival <= times[i];
+                    }
+                }
+            }
+            arrivals = next;
+        }
+        return arrivals.getOrDefault(to, Integer.MAX_VALUE);
+    }
+
+    /*
+     * Asserts that the legs of the itinerary are trips of the timetable which
+     * can each be caught after the one before.
+     */
+    private static void assertRideable(Timetable timetable,
+                                       Itinerary itinerary, Stop from,
+                                       Stop to, int departure) {
+        Stop at = from;
+        int time = departure;
+        for (Itinerary.Leg leg : itinerary.getLegs()) {
+            Assert.assertSame(at, leg.getFrom());
+            Assert.assertTrue(leg.getDeparture() >= time);
+            Assert.assertTrue(runs(timetable, leg));
+            at = leg.getTo();
+            time = leg.getArrival();
+        }
+        Assert.assertSame(to, at);
+        Assert.assertEquals(time, itinerary.getArrival());
+        Assert.assertEquals(departure, itinerary.getDeparture());
+    }
+
+    /*
+     * Returns whether a trip of the timetable rides the given leg.
+     */
+    private static boolean runs(Timetable timetable, Itinerary.Leg leg) {
+        for (Timetable.Pattern pattern : timetable.getPatterns()) {
+            if (pattern.route != leg.getRoute()) {
+                continue;
+            }
+            for (int[] times : pattern.trips) {
+                for (int i = 0; i < times.length; i++) {
+                    for (int j = i + 1; j < times.length; j++) {
+                        if (pattern.stops[i] == leg.getFrom()
+                                && pattern.stops[j] == leg.getTo()
+                                && times[i] == leg.getDeparture()
+                                && times[j] == leg.getArrival()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void earliestArrivalMatchesConnectionScan() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 3; seed++) {
+                Network network = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                Random random = new Random(seed);
+                Timetable timetable = timetable(network, random);
+                RaptorPlanner planner = RaptorPlanner.of(timetable);
+                List<Stop> stops = network.getStops();
+
+                for (int query = 0; query < 60; query++) {
+                    Stop from = stops.get(random.nextInt(stops.size()));
+                    Stop to = stops.get(random.nextInt(stops.size()));
+                    int departure = random.nextInt(150);
+                    String message = layout + " seed " + seed + " "
+                            + from.getName() + " to " + to.getName() + " at "
+                            + departure;
+
+                    Integer expected = connectionScan(timetable, from,
+                            departure).get(to);
+                    Itinerary itinerary = planner.earliestArrival(from, to,
+                            departure, UNLIMITED);
+                    if (from == to) {
+                        Assert.assertEquals(departure,
+                                itinerary.getArrival());
+                        continue;
+                    }
+                    if (expected == null) {
+                        Assert.assertNull(message, itinerary);
+                        continue;
+                    }
+                    Assert.assertEquals(message, (int) expected,
+                            itinerary.getArrival());
+                    assertRideable(timetable, itinerary, from, to, departure);
+
+                    // no journey with fewer trips arrives as early
+                    int trips = itinerary.getLegs().size();
+                    Assert.assertEquals(message, (int) expected,
+                            boundedArrival(timetable, from, to, departure,
+                                    trips));
+                    Assert.assertTrue(message, boundedArrival(timetable,
+                            from, to, departure, trips - 1) > expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void maxTransfersBoundsTheJourney() {
+        Network network = new NetworkGenerator(Layout.GRID, STOPS, 4)
+                .generate();
+        Random random = new Random(4);
+        Timetable timetable = timetable(network, random);
+        RaptorPlanner planner = RaptorPlanner.of(timetable);
+        List<Stop> stops = network.getStops();
+
+        for (int query = 0; query < 100; query++) {
+            Stop from = stops.get(random.nextInt(stops.size()));
+            Stop to = stops.get(random.nextInt(stops.size()));
+            if (from == to) {
+                continue;
+            }
+            int departure = random.nextInt(150);
+            for (int transfers = 0; transfers < 3; transfers++) {
+                int expected = boundedArrival(timetable, from, to, departure,
+                        transfers + 1);
+                Itinerary itinerary = planner.earliestArrival(from, to,
+                        departure, transfers);
+                if (expected == Integer.MAX_VALUE) {
+                    Assert.assertNull(itinerary);
+                } else {
+                    Assert.assertEquals(expected, itinerary.getArrival());
+                    Assert.assertTrue(itinerary.getTransfers() <= transfers);
+                    assertRideable(timetable, itinerary, from, to,
+                            departure);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parallelQueriesMatchSequential() {
+        Network network = new NetworkGenerator(Layout.RANDOM_GEOMETRIC, 60, 9)
+                .generate();
+        Random random = new Random(9);
+        RaptorPlanner planner = RaptorPlanner.of(timetable(network, random));
+        List<Stop> stops = network.getStops();
+
+        Stop[] origins = new Stop[500];
+        Stop[] destinations = new Stop[origins.length];
+        int[] departures = new int[origins.length];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = stops.get(random.nextInt(stops.size()));
+            destinations[i] = stops.get(random.nextInt(stops.size()));
+            departures[i] = random.nextInt(150);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Itinerary[] planned = planner.earliestArrivals(origins,
+                    destinations, departures, pool);
+            for (int i = 0; i < origins.length; i++) {
+                Itinerary expected = planner.earliestArrival(origins[i],
+                        destinations[i], departures[i]);
+                if (expected == null) {
+                    Assert.assertNull(planned[i]);
+                } else {
+                    Assert.assertEquals(expected.getArrival(),
+                            planned[i].getArrival());
+                    Assert.assertEquals(expected.getLegs().toString(),
+                            planned[i].getLegs().toString());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package routing;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import routes.BusRoute;
+import routes.Route;
+import stops.Stop;
+
+public class TimetableTest {
+
+    private Route route;
+    private Timetable timetable;
+
+    @Before
+    public void setUp() {
+        route = new BusRoute("route", 1);
+        route.addStop(new Stop("A", 0, 0));
+        route.addStop(new Stop("B", 10, 0));
+        route.addStop(new Stop("C", 20, 0));
+        timetable = new Timetable();
+        timetable.addTrip(route, new int[] {10, 20, 30});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addTripRejectsOvertaking() {
+        // leaves later, but reaches B first
+        timetable.addTrip(route, new int[] {15, 18, 40});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addTripRejectsBeingOvertaken() {
+        // leaves earlier, but reaches C last
+        timetable.addTrip(route, new int[] {5, 15, 35});
+    }
+
+    @Test
+    public void addTripAllowsTripsWhichDoNotOvertake() {
+        timetable.addTrip(route, new int[] {10, 20, 30});
+        timetable.addTrip(route, new int[] {0, 20, 30});
+        timetable.addTrip(route, 30);
+
+        // trips the other way run along a separate pattern
+        timetable.addReturnTrip(route, 0);
+        Assert.assertEquals(5, timetable.tripCount());
+        Assert.assertEquals(2, timetable.getPatterns().size());
+    }
+
+    @Test
+    public void rejectedTripsAreNotAdded() {
+        try {
+            timetable.addTrip(route, new int[] {15, 18, 40});
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        Assert.assertEquals(1, timetable.tripCount());
+        Assert.assertEquals(1, timetable.getPatterns().get(0).trips.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addTripRejectsTimesGoingBackwards() {
+        timetable.addTrip(route, new int[] {40, 50, 45});
+    }
+}
@@ -0,0 +1,263 @@
+package routing;
+
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import routes.BusRoute;
+import routes.Route;
+import routes.TrainRoute;
+import stops.Stop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TransferGraphTest {
+
+    // the number of stops in each generated network
+    private static final int STOPS = 40;
+
+    /*
+     * A brute force search over every (stop, route) state of a network,
+     * relaxing every riding and transfer link until nothing improves.
+     */
+    private static class States {
+        private final List<Stop> stops = new ArrayList<>();
+        private final List<Route> routes = new ArrayList<>();
+
+        // the links between states, and the cost and transfers of each
+        private final List<int[]> links = new ArrayList<>();
+
+        private States(List<Route> network, TransferGraph graph) {
+            for (Route route : network) {
+                List<Stop> onRoute = route.getStopsOnRoute();
+                for (int i = 0; i < onRoute.size(); i++) {
+                    int state = state(onRoute.get(i), route);
+                    if (i > 0) {
+                        Stop previous = onRoute.get(i - 1);
+                        Stop stop = onRoute.get(i);
+                        int before = state(previous, route);
+                        links.add(new int[] {before, state,
+                                previous.getLinkCost(stop), 0});
+                        links.add(new int[] {state, before,
+                                stop.getLinkCost(previous), 0});
+                    }
+                }
+            }
+            for (int from = 0; from < stops.size(); from++) {
+                for (int to = 0; to < stops.size(); to++) {
+                    if (from != to && stops.get(from) == stops.get(to)) {
+                        links.add(new int[] {from, to, penalty(graph,
+                                routes.get(from), routes.get(to)), 1});
+                    }
+                }
+            }
+        }
+
+        private int state(Stop stop, Route route) {
+            for (int i = 0; i < stops.size(); i++) {
+                if (stops.get(i) == stop && routes.get(i) == route) {
+                    return i;
+                }
+            }
+            stops.add(stop);
+            routes.add(route);
+            return stops.size() - 1;
+        }
+
+        private static int penalty(TransferGraph graph, Route from,
+                                   Route to) {
+            TransportMode left = TransportMode.of(from.getType());
+            TransportMode boarded = TransportMode.of(to.getType());
+            if (left == null || boarded == null) {
+                return 0;
+            }
+            return graph.getTransferPenalty(left, boarded);
+        }
+
+        /*
+         * Returns the best {transfers, cost} (or {cost} alone) of reaching
+         * one stop from another, or null if it can't be reached.
+         */
+        private long[] best(Stop from, Stop to, boolean countTransfers) {
+            long[][] best = new long[stops.size()][];
+            for (int state = 0; state < stops.size(); state++) {
+                if (stops.get(state) == from) {
+                    best[state] = new long[] {0, 0};
+                }
+            }
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int[] link : links) {
+                    long[] reached = best[link[0]];
+                    if (reached == null) {
+                        continue;
+                    }
+                    long[] next = {reached[0] + link[3],
+                            reached[1] + link[2]};
+                    if (better(next, best[link[1]], countTransfers)) {
+                        best[link[1]] = next;
+                        changed = true;
+                    }
+                }
+            }
+
+            long[] result = null;
+            for (int state = 0; state < stops.size(); state++) {
+                if (stops.get(state) == to
+                        && better(best[state], result, countTransfers)) {
+                    result = best[state];
+                }
+            }
+            if (result == null) {
+                return null;
+            }
+            return countTransfers ? result : new long[] {result[1]};
+        }
+
+        private static boolean better(long[] first, long[] second,
+                                      boolean countTransfers) {
+            if (first == null) {
+                return false;
+            }
+            if (second == null) {
+                return true;
+            }
+            if (countTransfers && first[0] != second[0]) {
+                return first[0] < second[0];
+            }
+            return first[1] < second[1];
+        }
+    }
+
+    /*
+     * Asserts that the given journey rides its routes between neighbouring
+     * stops on them, and returns its cost (riding plus transfer penalties).
+     */
+    private static long check(TransferGraph graph, Journey journey, Stop from,
+                              Stop to) {
+        List<Stop> stops = journey.getStops();
+        List<Route> routes = journey.getRoutes();
+        Assert.assertSame(from, stops.get(0));
+        Assert.assertSame(to, stops.get(stops.size() - 1));
+        Assert.assertEquals(stops.size() - 1, routes.size());
+
+        long cost = 0;
+        int transfers = 0;
+        for (int i = 1; i < stops.size(); i++) {
+            Route route = routes.get(i - 1);
+            List<Stop> onRoute = route.getStopsOnRoute();
+            int position = indexOf(onRoute, stops.get(i - 1));
+            Assert.assertTrue(position >= 0);
+            Assert.assertTrue(position > 0
+                    && onRoute.get(position - 1) == stops.get(i)
+                    || position < onRoute.size() - 1
+                    && onRoute.get(position + 1) == stops.get(i));
+            cost += stops.get(i - 1).getLinkCost(stops.get(i));
+            if (i > 1 && routes.get(i - 2) != route) {
+                transfers++;
+                cost += States.penalty(graph, routes.get(i - 2), route);
+            }
+        }
+        Assert.assertEquals(transfers, journey.getTransfers());
+        Assert.assertEquals(cost, journey.getCost());
+        return cost;
+    }
+
+    private static int indexOf(List<Stop> stops, Stop stop) {
+        for (int i = 0; i < stops.size(); i++) {
+            if (stops.get(i) == stop) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Sets random penalties between 5 and 9 for every pair of modes, so a
+     * single transfer is always cheaper than two at the same stop.
+     */
+    private static void randomPenalties(TransferGraph graph, Random random) {
+        for (TransportMode from : TransportMode.values()) {
+            for (TransportMode to : TransportMode.values()) {
+                graph.setTransferPenalty(from, to, 5 + random.nextInt(5));
+            }
+        }
+    }
+
+    @Test
+    public void queriesMatchBruteForce() {
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 3; seed++) {
+                Network network = new NetworkGenerator(layout, STOPS, seed)
+                        .generate();
+                TransferGraph graph = TransferGraph.of(network.getRoutes());
+                randomPenalties(graph, new Random(seed));
+                States states = new States(network.getRoutes(), graph);
+
+                for (Stop from : network.getStops()) {
+                    for (Stop to : network.getStops()) {
+                        if (from == to) {
+                            continue;
+                        }
+                        long[] cheapest = states.best(from, to, false);
+                        long[] fewest = states.best(from, to, true);
+                        Journey byCost = graph.cheapest(from, to);
+                        Journey byTransfers = graph.fewestTransfers(from, to);
+                        if (cheapest == null) {
+                            Assert.assertNull(byCost);
+                            Assert.assertNull(byTransfers);
+                            continue;
+                        }
+
+                        String message = layout + " seed " + seed + " "
+                                + from.getName() + " to " + to.getName();
+                        Assert.assertEquals(message, cheapest[0],
+                                check(graph, byCost, from, to));
+                        Assert.assertArrayEquals(message, fewest, new long[] {
+                                byTransfers.getTransfers(),
+                                check(graph, byTransfers, from, to)});
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void penaltiesChangeTheCheapestJourney() {
+        // two routes from A to C: a fast one needing a transfer at B, and a
+        // slower direct one
+        Stop a = new Stop("A", 0, 0);
+        Stop b = new Stop("B", 2, 0);
+        Stop c = new Stop("C", 4, 0);
+        Stop d = new Stop("D", 2, 3);
+        Route first = new BusRoute("first", 1);
+        Route second = new TrainRoute("second", 2);
+        Route direct = new BusRoute("direct", 3);
+        addStops(first, a, b);
+        addStops(second, b, c);
+        addStops(direct, a, d, c);
+        TransferGraph graph = TransferGraph.of(
+                Arrays.asList(first, second, direct));
+
+        Assert.assertEquals(Arrays.asList(a, b, c),
+                graph.cheapest(a, c).getStops());
+        Assert.assertEquals(Arrays.asList(a, d, c),
+                graph.fewestTransfers(a, c).getStops());
+
+        graph.setTransferPenalty(TransportMode.BUS, TransportMode.TRAIN, 10);
+        Journey journey = graph.cheapest(a, c);
+        Assert.assertEquals(Arrays.asList(a, d, c), journey.getStops());
+        Assert.assertEquals(0, journey.getTransfers());
+    }
+
+    private static void addStops(Route route, Stop... stops) {
+        for (Stop stop : stops) {
+            route.addStop(stop);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package stops;
+
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class LinkCostUpdatesTest {
+
+    private static final int STOPS = 40;
+    private static final int SEEDS = 20;
+
+    @Test
+    public void applyMatchesDijkstra() {
+
+        for (Layout layout : new Layout[] {Layout.CORRIDOR, Layout.RANDOM_GEOMETRIC}) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                Network network = new NetworkGenerator(layout, STOPS, seed).generate();
+                ReferencePaths.randomCosts(network.getStops(), new Random(seed), 15).apply();
+                ReferencePaths.assertTablesCheapest(network.getStops());
+            }
+        }
+    }
+
+    @Test
+    public void removeStopAfterApplyMatchesDijkstra() {
+
+        // Removing stops re-links the stops either side of them along each route, and the new direct link can cost
+        // more than the discounted path already in the table
+        for (Layout layout : new Layout[] {Layout.CORRIDOR, Layout.RANDOM_GEOMETRIC}) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                Network network = new NetworkGenerator(layout, STOPS, seed).generate();
+                Random random = new Random(seed);
+                ReferencePaths.randomCosts(network.getStops(), random, 15).apply();
+                for (int i = 0; i < 3; i++) {
+                    List<Stop> stops = network.getStops();
+                    network.removeStop(stops.get(random.nextInt(stops.size())));
+                }
+                ReferencePaths.assertTablesCheapest(network.getStops());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCostRejectsStopsWhichAreNotNeighbours() {
+
+        Network network = new NetworkGenerator(Layout.CORRIDOR, STOPS, 0).generate();
+        List<Stop> stops = network.getStops();
+        new LinkCostUpdates().setCost(stops.get(0), stops.get(STOPS - 1), 1);
+    }
+
+    @Test
+    public void applySkipsLinksRemovedSinceRecorded() {
+
+        Stop from = new Stop("A", 0, 0);
+        Stop to = new Stop("B", 3, 0);
+        from.addNeighbouringStop(to);
+        LinkCostUpdates updates = new LinkCostUpdates();
+        updates.setCost(from, to, 1);
+        from.removeNeighbouringStop(to);
+
+        Assert.assertEquals(0, updates.apply());
+        Assert.assertEquals(3, from.getLinkCost(to));
+        Assert.assertFalse(from.getState().hasDiscountedLinks());
+    }
+}
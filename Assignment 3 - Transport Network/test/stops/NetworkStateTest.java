@@ -0,0 +1,129 @@
+package stops;
+
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import routing.ModeView;
+import routing.ParallelRebuild;
+import routing.TransportMode;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+public class NetworkStateTest {
+
+    private Stop stopA;
+    private Stop stopB;
+
+    @Before
+    public void setUp() {
+
+        stopA = new Stop("A", 0, 0);
+        stopB = new Stop("B", 4, 0);
+        stopA.addNeighbouringStop(stopB);
+        stopB.addNeighbouringStop(stopA);
+    }
+
+    private static void discount(Stop from, Stop to) {
+
+        LinkCostUpdates updates = new LinkCostUpdates();
+        updates.setCost(from, to, 1);
+        updates.apply();
+    }
+
+    @Test
+    public void removeNeighbouringStopClearsLinkCost() {
+
+        discount(stopA, stopB);
+        Assert.assertTrue(stopA.getState().hasDiscountedLinks());
+
+        stopA.removeNeighbouringStop(stopB);
+        Assert.assertFalse(stopA.getState().hasDiscountedLinks());
+        Assert.assertEquals(stopA.distanceTo(stopB), stopA.getLinkCost(stopB));
+
+        // Linking the stops again doesn't bring back the old cost
+        stopA.addNeighbouringStop(stopB);
+        Assert.assertEquals(4, stopA.getRoutingTable().costTo(stopB));
+    }
+
+    @Test
+    public void addMovesDiscountedLinks() {
+
+        discount(stopA, stopB);
+        NetworkState previous = stopA.getState();
+        NetworkState state = new NetworkState();
+
+        state.add(stopA);
+        Assert.assertSame(state, stopA.getState());
+        Assert.assertTrue(state.hasDiscountedLinks());
+        Assert.assertFalse(previous.hasDiscountedLinks());
+
+        // Adding a stop twice doesn't count its links twice
+        state.add(stopA);
+        stopA.removeNeighbouringStop(stopB);
+        Assert.assertFalse(state.hasDiscountedLinks());
+    }
+
+    @Test
+    public void networksHaveSeparateVersions() {
+
+        Network first = new NetworkGenerator(Layout.GRID, 16, 1).generate();
+        Network second = new NetworkGenerator(Layout.GRID, 16, 2).generate();
+        List<Stop> stops = first.getStops();
+        ModeView view = first.routingView(EnumSet.allOf(TransportMode.class));
+        Path path = first.path(stops.get(0), stops.get(stops.size() - 1));
+
+        // Changing the links of one network keeps the snapshots of the other
+        List<Stop> others = second.getStops();
+        discount(others.get(0), others.get(0).getNeighbours().get(0));
+        second.removeStop(others.get(1));
+        Assert.assertFalse(stops.get(0).getState().hasDiscountedLinks());
+        Assert.assertSame(view, first.routingView(EnumSet.allOf(TransportMode.class)));
+        Assert.assertSame(path, first.path(stops.get(0), stops.get(stops.size() - 1)));
+
+        // Whereas changing its own links discards them
+        discount(stops.get(0), stops.get(0).getNeighbours().get(0));
+        Assert.assertTrue(stops.get(0).getState().hasDiscountedLinks());
+        Assert.assertNotSame(view, first.routingView(EnumSet.allOf(TransportMode.class)));
+        Assert.assertNotSame(path, first.path(stops.get(0), stops.get(stops.size() - 1)));
+    }
+
+    @Test
+    public void suspendedRoutingLeavesTablesForARebuild() {
+
+        Stop stopC = new Stop("C", 4, 3);
+        List<Stop> stops = Arrays.asList(stopA, stopB, stopC);
+        NetworkState state = new NetworkState();
+        for (Stop stop : stops) {
+            state.add(stop);
+        }
+        long generation = state.getRoutingGeneration();
+
+        // Linking and discounting with routing suspended changes no table
+        state.suspendRouting();
+        Assert.assertTrue(state.isRoutingSuspended());
+        stopB.addNeighbouringStop(stopC);
+        stopC.addNeighbouringStop(stopB);
+        discount(stopA, stopB);
+        stopA.getRoutingTable().synchronise();
+        Assert.assertEquals(generation, state.getRoutingGeneration());
+        Assert.assertNull(stopA.getRoutingTable().nextStop(stopC));
+        Assert.assertEquals(4, stopA.getRoutingTable().costTo(stopB));
+
+        // Until routing is resumed and the tables are rebuilt
+        state.resumeRouting();
+        Assert.assertFalse(state.isRoutingSuspended());
+        ParallelRebuild.rebuild(stops);
+        Assert.assertEquals(4, stopA.getRoutingTable().costTo(stopC));
+        ReferencePaths.assertTablesCheapest(stops);
+
+        // After which links update the tables again
+        stopC.removeNeighbouringStop(stopB);
+        stopB.removeNeighbouringStop(stopC);
+        Assert.assertNull(stopA.getRoutingTable().nextStop(stopC));
+    }
+}
@@ -0,0 +1,125 @@
+package stops;
+
+import org.junit.Assert;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Reference shortest path costs for checking the routing structures against,
+ * found by a plain Dijkstra search over the links between stops (see
+ * {@link Stop#getNeighbours()} and {@link Stop#getLinkCost(Stop)}).
+ */
+public final class ReferencePaths {
+
+    private ReferencePaths() {
+    }
+
+    /**
+     * Returns the cost of the cheapest path from the given stop to every stop
+     * it can reach.
+     *
+     * @param from The stop to search from.
+     * @return The cost to each reachable stop, keyed by identity.
+     */
+    public static Map<Stop, Long> costsFrom(Stop from) {
+        Map<Stop, Long> costs = new IdentityHashMap<>();
+        PriorityQueue<Object[]> queue = new PriorityQueue<>(
+                (a, b) -> Long.compare((Long) a[1], (Long) b[1]));
+        queue.add(new Object[] {from, 0L});
+        while (!queue.isEmpty()) {
+            Object[] next = queue.poll();
+            Stop stop = (Stop) next[0];
+            long cost = (Long) next[1];
+            if (costs.containsKey(stop)) {
+                continue;
+            }
+            costs.put(stop, cost);
+            for (Stop neighbour : stop.getNeighbours()) {
+                if (!costs.containsKey(neighbour)) {
+                    queue.add(new Object[] {neighbour,
+                            cost + stop.getLinkCost(neighbour)});
+                }
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Records random costs for up to the given number of links, between half
+     * and one and a half times each link's distance.
+     *
+     * @param stops The stops to pick links from.
+     * @param random The source of the links and costs.
+     * @param links The number of links to pick.
+     * @return The recorded costs, not yet applied.
+     */
+    public static LinkCostUpdates randomCosts(List<Stop> stops, Random random,
+                                              int links) {
+        LinkCostUpdates updates = new LinkCostUpdates();
+        for (int i = 0; i < links; i++) {
+            Stop from = stops.get(random.nextInt(stops.size()));
+            List<Stop> neighbours = from.getNeighbours();
+            if (neighbours.isEmpty()) {
+                continue;
+            }
+            Stop to = neighbours.get(random.nextInt(neighbours.size()));
+            int distance = from.distanceTo(to);
+            updates.setCost(from, to,
+                    distance / 2 + random.nextInt(distance + 1));
+        }
+        return updates;
+    }
+
+    /**
+     * Asserts that the routing table of every given stop holds the cheapest
+     * cost to every other given stop.
+     *
+     * @param stops The stops of the network.
+     */
+    public static void assertTablesCheapest(List<Stop> stops) {
+        for (Stop from : stops) {
+            Map<Stop, Long> costs = costsFrom(from);
+            for (Stop to : stops) {
+                Long expected = costs.get(to);
+                Assert.assertEquals(from.getName() + " to " + to.getName(),
+                        expected == null ? Integer.MAX_VALUE : expected,
+                        (long) from.getRoutingTable().costTo(to));
+            }
+        }
+    }
+
+    /**
+     * Asserts that the given path is the cheapest path from its origin to the
+     * given stop: it follows links between neighbouring stops, its cost is
+     * the sum of the costs of those links, and no path is cheaper.
+     *
+     * @param costs The cheapest costs from the path's origin (see
+     *              {@link #costsFrom(Stop)}).
+     * @param to The stop the path should end at.
+     * @param path The path to check, or null if there should be no path.
+     */
+    public static void assertCheapestPath(Map<Stop, Long> costs, Stop to,
+                                          Path path) {
+        Long expected = costs.get(to);
+        if (expected == null) {
+            Assert.assertNull(path);
+            return;
+        }
+        Assert.assertNotNull(to.getName(), path);
+        Assert.assertSame(to, path.getDestination());
+
+        List<Stop> stops = path.getStops();
+        long cost = 0;
+        for (int i = 1; i < stops.size(); i++) {
+            Assert.assertTrue(stops.get(i - 1).getNeighbours()
+                    .contains(stops.get(i)));
+            cost += stops.get(i - 1).getLinkCost(stops.get(i));
+        }
+        Assert.assertEquals(to.getName(), (long) expected, cost);
+        Assert.assertEquals(to.getName(), cost, path.getCost());
+    }
+}
@@ -0,0 +1,118 @@
+package stops;
+
+import exceptions.DuplicateStopException;
+import network.Network;
+import network.NetworkGenerator;
+import network.NetworkGenerator.Layout;
+import org.junit.Assert;
+import org.junit.Test;
+import routes.Route;
+
+import java.util.List;
+import java.util.Random;
+
+public class RoutingCacheTest {
+
+    private static final int STOPS = 40;
+
+    // Few enough tables that checking every stop evicts most of them
+    private static final int CAPACITY = 5;
+
+    private static Network lazyNetwork(Layout layout, int seed) {
+
+        Network network = new NetworkGenerator(layout, STOPS, seed).generate();
+        network.setLazyRouting(CAPACITY);
+        return network;
+    }
+
+    @Test
+    public void lazyTablesMatchDijkstra() {
+
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 5; seed++) {
+                Network network = lazyNetwork(layout, seed);
+                ReferencePaths.assertTablesCheapest(network.getStops());
+                Assert.assertEquals(CAPACITY, network.getRoutingCache().size());
+
+                // Each table is computed once, as its queries are consecutive
+                Assert.assertEquals(STOPS, network.getRoutingCache().getLoads());
+            }
+        }
+    }
+
+    @Test
+    public void changesInvalidateLazyTables() throws DuplicateStopException {
+
+        for (Layout layout : Layout.values()) {
+            for (int seed = 0; seed < 5; seed++) {
+                Network network = lazyNetwork(layout, seed);
+                Random random = new Random(seed);
+                ReferencePaths.assertTablesCheapest(network.getStops());
+
+                ReferencePaths.randomCosts(network.getStops(), random, 15).apply();
+                ReferencePaths.assertTablesCheapest(network.getStops());
+
+                List<Stop> stops = network.getStops();
+                network.removeStop(stops.get(random.nextInt(stops.size())));
+                ReferencePaths.assertTablesCheapest(network.getStops());
+
+                // Extending a route links a new stop to the end of it
+                Route route = network.getRoutes().get(0);
+                List<Stop> onRoute = route.getStopsOnRoute();
+                Stop last = onRoute.get(onRoute.size() - 1);
+                Stop added = new Stop("added", last.getX() + 1, last.getY());
+                network.addStop(added);
+                route.addStop(added);
+                ReferencePaths.assertTablesCheapest(network.getStops());
+            }
+        }
+    }
+
+    @Test
+    public void versionsIncreaseWhenInvalidated() {
+
+        Network network = lazyNetwork(Layout.GRID, 2);
+        RoutingTable table = network.getStops().get(0).getRoutingTable();
+        int version = table.getVersion();
+
+        network.rebuildRoutingTables();
+        Assert.assertTrue(table.getVersion() > version);
+        version = table.getVersion();
+
+        // Switching between lazy and eager tables never takes a version backwards
+        network.setEagerRouting();
+        Assert.assertTrue(table.getVersion() >= version);
+        version = table.getVersion();
+        network.setLazyRouting(CAPACITY);
+        Assert.assertTrue(table.getVersion() >= version);
+    }
+
+    @Test
+    public void setCapacityEvictsLeastRecentlyQueried() {
+
+        Network network = lazyNetwork(Layout.CORRIDOR, 1);
+        List<Stop> stops = network.getStops();
+        RoutingCache cache = network.getRoutingCache();
+        for (int i = 0; i < CAPACITY; i++) {
+            stops.get(i).getRoutingTable().costTo(stops.get(0));
+        }
+
+        cache.setCapacity(2);
+        Assert.assertEquals(2, cache.size());
+        long loads = cache.getLoads();
+        stops.get(CAPACITY - 1).getRoutingTable().costTo(stops.get(0));
+        Assert.assertEquals(loads, cache.getLoads());
+        stops.get(0).getRoutingTable().costTo(stops.get(1));
+        Assert.assertEquals(loads + 1, cache.getLoads());
+    }
+
+    @Test
+    public void eagerRoutingAfterLazyChangesMatchesDijkstra() {
+
+        Network network = lazyNetwork(Layout.RANDOM_GEOMETRIC, 4);
+        ReferencePaths.randomCosts(network.getStops(), new Random(4), 15).apply();
+        network.setEagerRouting();
+        Assert.assertNull(network.getRoutingCache());
+        ReferencePaths.assertTablesCheapest(network.getStops());
+    }
+}
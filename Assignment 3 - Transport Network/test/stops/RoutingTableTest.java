@@ -5,10 +5,12 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 public class RoutingTableTest {
 
@@ -311,4 +313,68 @@ public class RoutingTableTest {
         Assert.assertTrue(stopList.containsAll(stopA.getRoutingTable().traverseNetwork()));
 
     }
-}
\ No newline at end of file
+
+    private static List<Stop> randomStops(Random random, int count) {
+
+        List<Stop> stops = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            stops.add(new Stop("S" + i, random.nextInt(50), random.nextInt(50)));
+        }
+        return stops;
+    }
+
+    @Test
+    public void synchroniseMatchesDijkstraAsLinksAreAdded() {
+
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            List<Stop> stops = randomStops(random, 30);
+
+            // Links are added in a random order, joining separate parts of the network as often as extending them
+            for (int i = 0; i < 60; i++) {
+                Stop from = stops.get(random.nextInt(stops.size()));
+                Stop to = stops.get(random.nextInt(stops.size()));
+                if (from == to) {
+                    continue;
+                }
+                from.addNeighbouringStop(to);
+                to.addNeighbouringStop(from);
+                if (i % 10 == 0) {
+                    ReferencePaths.assertTablesCheapest(stops);
+                }
+            }
+            ReferencePaths.assertTablesCheapest(stops);
+        }
+    }
+
+    @Test
+    public void synchroniseMatchesDijkstraAsLinkCostsChange() {
+
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            List<Stop> stops = randomStops(random, 30);
+            for (int i = 1; i < stops.size(); i++) {
+                Stop from = stops.get(i);
+                Stop to = stops.get(random.nextInt(i));
+                from.addNeighbouringStop(to);
+                to.addNeighbouringStop(from);
+            }
+
+            // Rounds of cheaper and dearer links, some of them later reset to their distance
+            for (int round = 0; round < 5; round++) {
+                LinkCostUpdates updates = ReferencePaths.randomCosts(stops, random, 8);
+                for (int i = 0; i < 3; i++) {
+                    Stop from = stops.get(random.nextInt(stops.size()));
+                    updates.resetCost(from, from.getNeighbours().get(0));
+                }
+                updates.apply();
+                ReferencePaths.assertTablesCheapest(stops);
+            }
+
+            // Synchronising converged tables changes nothing
+            int version = stops.get(0).getRoutingTable().getVersion();
+            stops.get(0).getRoutingTable().synchronise();
+            Assert.assertEquals(version, stops.get(0).getRoutingTable().getVersion());
+        }
+    }
+}
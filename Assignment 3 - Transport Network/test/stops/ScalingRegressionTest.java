@@ -0,0 +1,216 @@
+package stops;
+
+import exceptions.OverCapacityException;
+import network.Network;
+import network.NetworkGenerator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import passengers.Passenger;
+import routes.BusRoute;
+import routes.Route;
+import routes.TrainRoute;
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
+import vehicles.PublicTransport;
+import vehicles.Train;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks how the work done by loading, routing, and boarding grows with the
+ * size of the network, by counting operations (see {@link OperationCounter})
+ * at doubling sizes and fitting the growth exponent k in work ~ size^k.
+ * Networks are written to files and loaded through
+ * {@link Network#Network(String)}, so loading includes decoding them.
+ *
+ * <p>Each target is an upper bound on k, so a change which accidentally makes
+ * an operation asymptotically slower fails here even if it is still fast on
+ * small inputs.
+ */
+public class ScalingRegressionTest {
+
+    // the network sizes (in stops) measured
+    private static final int[] NETWORK_SIZES = {64, 128, 256, 512};
+
+    // the numbers of waiting passengers measured
+    private static final int[] PASSENGER_COUNTS =
+            {1000, 2000, 4000, 8000, 16000};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // the seed for every generated network
+    private static final long SEED = 7;
+
+    @Before
+    public void setUp() {
+        OperationCounter.reset();
+        OperationCounter.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        OperationCounter.setEnabled(false);
+        OperationCounter.reset();
+    }
+
+    /*
+     * Fits log(counts) = k * log(sizes) + c by least squares, returning k.
+     */
+    private double growthExponent(int[] sizes, long[] counts) {
+        int n = sizes.length;
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += Math.log(sizes[i]) / n;
+            meanY += Math.log(Math.max(counts[i], 1)) / n;
+        }
+
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = Math.log(sizes[i]) - meanX;
+            covariance += dx * (Math.log(Math.max(counts[i], 1)) - meanY);
+            variance += dx * dx;
+        }
+        return covariance / variance;
+    }
+
+    private void assertGrowth(String what, double target, int[] sizes,
+                              long[] counts) {
+        double exponent = growthExponent(sizes, counts);
+        Assert.assertTrue(what + " grew as size^" + exponent
+                        + ", expected at most size^" + target,
+                exponent <= target);
+    }
+
+    /*
+     * Writes a grid network of the given size to a file, returning its name.
+     */
+    private String gridFile(int size) throws IOException {
+        String filename = folder.newFile().getPath();
+        new NetworkGenerator(NetworkGenerator.Layout.GRID, size, SEED)
+                .write(filename);
+        return filename;
+    }
+
+    private Network grid(int size) throws Exception {
+        return new Network(gridFile(size));
+    }
+
+    @Test
+    public void loadWork() throws Exception {
+        long[] work = new long[NETWORK_SIZES.length];
+        long[] entries = new long[NETWORK_SIZES.length];
+        long[] lazyWork = new long[NETWORK_SIZES.length];
+        for (int i = 0; i < NETWORK_SIZES.length; i++) {
+            String filename = gridFile(NETWORK_SIZES[i]);
+            OperationCounter.reset();
+            new Network(filename);
+            work[i] = OperationCounter.total();
+            entries[i] = OperationCounter.get(Operation.ROUTING_ENTRY_ALLOCATION);
+
+            OperationCounter.reset();
+            new Network(filename, 1);
+            lazyWork[i] = OperationCounter.total();
+        }
+
+        // decoding the stops, routes and vehicles is near-linear
+        assertGrowth("work done whilst loading without routing tables", 1.1,
+                NETWORK_SIZES, lazyWork);
+        // every stop's table holds an entry for every other stop, so loading
+        // is near-linear in the size^2 entries held: each is allocated once
+        assertGrowth("routing entries allocated whilst loading", 2.05,
+                NETWORK_SIZES, entries);
+        assertGrowth("work done whilst loading", 2.1, NETWORK_SIZES, work);
+    }
+
+    @Test
+    public void synchroniseWork() throws Exception {
+        long[] work = new long[NETWORK_SIZES.length];
+        for (int i = 0; i < NETWORK_SIZES.length; i++) {
+            Stop stop = grid(NETWORK_SIZES[i]).getStops().get(0);
+            OperationCounter.reset();
+            stop.getRoutingTable().synchronise();
+            work[i] = OperationCounter.total();
+        }
+
+        // a converged network has no changes to propagate, so only needs a
+        // traversal of the stops
+        assertGrowth("work done synchronising a converged network", 1.3,
+                NETWORK_SIZES, work);
+    }
+
+    @Test
+    public void lookupWork() throws Exception {
+        long[] work = new long[NETWORK_SIZES.length];
+        for (int i = 0; i < NETWORK_SIZES.length; i++) {
+            List<Stop> stops = grid(NETWORK_SIZES[i]).getStops();
+            OperationCounter.reset();
+            for (Stop destination : stops) {
+                stops.get(0).getRoutingTable().nextStop(destination);
+                stops.get(0).getRoutingTable().costTo(destination);
+            }
+            work[i] = OperationCounter.total();
+        }
+
+        // one lookup per destination, regardless of the size of the table
+        assertGrowth("work done looking up every destination", 1.1,
+                NETWORK_SIZES, work);
+    }
+
+    @Test
+    public void boardingWork() {
+        long[] arriving = new long[PASSENGER_COUNTS.length];
+        long[] departing = new long[PASSENGER_COUNTS.length];
+        for (int i = 0; i < PASSENGER_COUNTS.length; i++) {
+            int count = PASSENGER_COUNTS[i];
+            Stop stop = new Stop("origin", 0, 0);
+            Stop rail = new Stop("rail", 0, 5);
+            Stop road = new Stop("road", 5, 0);
+
+            Route railRoute = new TrainRoute("rail", 1);
+            railRoute.addStop(stop);
+            railRoute.addStop(rail);
+            Route roadRoute = new BusRoute("road", 2);
+            roadRoute.addStop(stop);
+            roadRoute.addStop(road);
+
+            // a train arrives carrying everyone, half of whom change to the bus
+            PublicTransport train = new Train(1, count, railRoute, 4);
+            List<Passenger> passengers = new ArrayList<>();
+            for (int j = 0; j < count; j++) {
+                passengers.add(new Passenger("p" + j, j % 2 == 0 ? rail : road));
+            }
+
+            try {
+                for (Passenger passenger : passengers) {
+                    train.addPassenger(passenger);
+                }
+            } catch (OverCapacityException e) {
+                Assert.fail();
+            }
+
+            OperationCounter.reset();
+            stop.transportArrive(train);
+            arriving[i] = OperationCounter.get(Operation.ROUTING_LOOKUP);
+
+            OperationCounter.reset();
+            stop.transportDepart(train, rail);
+            departing[i] = OperationCounter.total();
+            Assert.assertEquals(count / 2, train.passengerCount());
+        }
+
+        // arrivals look up each distinct destination once
+        assertGrowth("routing lookups for arriving passengers", 0.1,
+                PASSENGER_COUNTS, arriving);
+        assertGrowth("work done boarding a departing vehicle", 1.1,
+                PASSENGER_COUNTS, departing);
+    }
+}
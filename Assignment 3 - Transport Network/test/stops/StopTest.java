@@ -0,0 +1,114 @@
+package stops;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import passengers.Passenger;
+import utilities.OperationCounter;
+import utilities.OperationCounter.Operation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StopTest {
+
+    private Stop stopA;
+    private Stop stopB;
+    private Stop stopC;
+    private Stop stopD;
+
+    @Before
+    public void setUp() throws Exception {
+
+        // A square of stops, with two equally long ways from A to D
+        stopA = new Stop("A", 0, 0);
+        stopB = new Stop("B", 1, 0);
+        stopC = new Stop("C", 0, 1);
+        stopD = new Stop("D", 1, 1);
+        link(stopA, stopB);
+        link(stopA, stopC);
+        link(stopB, stopD);
+        link(stopC, stopD);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        OperationCounter.setEnabled(false);
+        OperationCounter.reset();
+    }
+
+    private static void link(Stop first, Stop second) {
+
+        first.addNeighbouringStop(second);
+        second.addNeighbouringStop(first);
+    }
+
+    /*
+     * Makes the way from A to D through the given stop cheaper than the other way.
+     */
+    private void preferVia(Stop via) {
+
+        LinkCostUpdates updates = new LinkCostUpdates();
+        updates.resetCost(stopA, stopB);
+        updates.resetCost(stopA, stopC);
+        updates.setCost(stopA, via, 0);
+        updates.apply();
+    }
+
+    @Test
+    public void waitingPassengersAreReroutedWhenRoutingChanges() {
+
+        preferVia(stopB);
+        Passenger first = new Passenger("first", stopD);
+        Passenger second = new Passenger("second", stopD);
+        stopA.addPassenger(first);
+        stopA.addPassenger(second);
+        Assert.assertSame(stopB, stopA.getRoutedStop(first));
+
+        preferVia(stopC);
+        Assert.assertSame(stopC, stopA.getRoutedStop(first));
+        Assert.assertSame(stopC, stopA.getRoutedStop(second));
+    }
+
+    @Test
+    public void restoredNextStopIsKeptUntilRoutingChanges() {
+
+        preferVia(stopB);
+        Passenger restored = new Passenger("restored", stopD);
+        stopA.addPassenger(restored, stopC);
+        Assert.assertSame(stopC, stopA.getRoutedStop(restored));
+
+        // The first version change re-routes the restored passenger using the routing table
+        int version = stopA.getRoutingTable().getVersion();
+        preferVia(stopB);
+        Assert.assertEquals(version, stopA.getRoutingTable().getVersion());
+        Assert.assertSame(stopC, stopA.getRoutedStop(restored));
+
+        preferVia(stopC);
+        preferVia(stopB);
+        Assert.assertNotEquals(version, stopA.getRoutingTable().getVersion());
+        Assert.assertSame(stopB, stopA.getRoutedStop(restored));
+    }
+
+    @Test
+    public void unreachableDestinationsAreLookedUpOnce() throws Exception {
+
+        Stop elsewhere = new Stop("elsewhere", 10, 10);
+        List<Passenger> arriving = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            arriving.add(new Passenger("passenger" + i, elsewhere));
+        }
+        stopA.getRoutedStop(arriving.get(0));
+
+        OperationCounter.reset();
+        OperationCounter.setEnabled(true);
+        stopA.addPassengers(arriving);
+        OperationCounter.setEnabled(false);
+
+        Assert.assertEquals(1, OperationCounter.get(Operation.ROUTING_LOOKUP));
+        Assert.assertEquals(5, stopA.getWaitingPassengers().size());
+        Assert.assertNull(stopA.getRoutedStop(arriving.get(0)));
+    }
+}
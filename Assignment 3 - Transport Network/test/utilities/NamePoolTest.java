@@ -0,0 +1,42 @@
+package utilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NamePoolTest {
+
+    @Test
+    public void internReturnsOneInstancePerName() {
+        NamePool names = new NamePool();
+        String first = new String("Central");
+        String second = new String("Central");
+        Assert.assertNotSame(first, second);
+
+        Assert.assertSame(first, names.intern(first));
+        Assert.assertSame(first, names.intern(second));
+        Assert.assertEquals("Quay", names.intern(new String("Quay")));
+        Assert.assertEquals(2, names.size());
+        Assert.assertNull(names.intern(null));
+        Assert.assertEquals(2, names.size());
+    }
+
+    @Test
+    public void internCleansNames() {
+        NamePool names = new NamePool();
+        String canonical = names.intern("Cen\ntral\r");
+        Assert.assertEquals("Central", canonical);
+        Assert.assertSame(canonical, names.intern("Central"));
+
+        // cleaning the canonical instance again keeps it
+        Assert.assertSame(canonical, NamePool.clean(canonical));
+        Assert.assertEquals(1, names.size());
+    }
+
+    @Test
+    public void poolsAreSeparate() {
+        NamePool first = new NamePool();
+        NamePool second = new NamePool();
+        String name = first.intern(new String("Central"));
+        Assert.assertNotSame(name, second.intern(new String("Central")));
+    }
+}